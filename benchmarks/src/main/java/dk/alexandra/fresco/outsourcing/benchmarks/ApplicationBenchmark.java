@@ -0,0 +1,213 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import dk.alexandra.fresco.framework.Application;
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.builder.numeric.Numeric;
+import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.benchmark.applications.CheckAtt;
+import dk.alexandra.fresco.outsourcing.benchmark.applications.Range;
+import dk.alexandra.fresco.outsourcing.benchmark.applications.SameObject;
+import dk.alexandra.fresco.outsourcing.benchmark.applications.ServerInputModel;
+import dk.alexandra.fresco.outsourcing.benchmark.applications.ServerInputs;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the demo applications on the attributes of a number of clients.
+ *
+ * <p>
+ * Each client has a number of attributes, and a MAC on each attribute and on the (public) user id,
+ * computed under the key shared by the servers. The attributes and MACs are secret shared between
+ * the servers up front, so only the applications are measured.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ApplicationBenchmark {
+
+  private static final BigInteger UID = BigInteger.valueOf(10);
+  private static final BigInteger DELTA_SHARE = BigInteger.valueOf(100);
+  private static final BigInteger RANGE_LOWER = BigInteger.valueOf(18);
+  private static final BigInteger RANGE_UPPER = BigInteger.valueOf(1000000);
+
+  /**
+   * The applications that can be benchmarked.
+   */
+  public enum DemoApplication {
+    CHECK_ATT,
+    RANGE,
+    SAME_OBJECT
+  }
+
+  @Param({"CHECK_ATT", "RANGE", "SAME_OBJECT"})
+  public DemoApplication application;
+
+  @Param({"2", "3"})
+  public int servers;
+
+  @Param({"1", "10"})
+  public int clients;
+
+  @Param({"1", "10"})
+  public int inputsPerClient;
+
+  @Param({"64", "128"})
+  public int bitLength;
+
+  private LocalServers localServers;
+  private List<BigInteger> betaShares;
+  /**
+   * For each server, the shares of the attributes of each client, followed by the MACs.
+   */
+  private List<List<List<SInt>>> clientInputs;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    localServers = new LocalServers(servers, bitLength);
+    // With the same shares at each server the interpolated key is the share itself
+    betaShares = IntStream.rangeClosed(1, inputsPerClient + 1)
+        .mapToObj(i -> BigInteger.valueOf(100 + i))
+        .collect(Collectors.toList());
+    List<List<BigInteger>> values = new ArrayList<>(clients);
+    for (int clientId : BenchmarkInputs.clientIds(clients)) {
+      List<BigInteger> attributes = BenchmarkInputs.values(clientId, inputsPerClient);
+      List<BigInteger> clientValues = new ArrayList<>(attributes);
+      for (int i = 0; i < inputsPerClient; i++) {
+        clientValues.add(attributes.get(i).multiply(DELTA_SHARE).add(betaShares.get(i)));
+      }
+      clientValues.add(UID.multiply(DELTA_SHARE).add(betaShares.get(inputsPerClient)));
+      values.add(clientValues);
+    }
+    clientInputs = localServers.runConcurrently(localServers.onEachServer(server -> server.run(
+        builder -> {
+          // All values are input by server 1
+          boolean inputter = server.getServerId() == 1;
+          List<List<DRes<SInt>>> closed = values.stream()
+              .map(clientValues -> clientValues.stream()
+                  .map(value -> builder.numeric().input(inputter ? value : null, 1))
+                  .collect(Collectors.toList()))
+              .collect(Collectors.toList());
+          return () -> closed.stream()
+              .map(clientValues -> clientValues.stream().map(DRes::out)
+                  .collect(Collectors.toList()))
+              .collect(Collectors.toList());
+        })));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    localServers.close();
+  }
+
+  @Benchmark
+  public List<List<BigInteger>> run() {
+    return localServers.runConcurrently(localServers.onEachServer(server -> server.run(
+        application(server.getServerId(), clientInputs.get(server.getServerId() - 1)))));
+  }
+
+  private Application<List<BigInteger>, ProtocolBuilderNumeric> application(int serverId,
+      List<List<SInt>> inputs) {
+    List<List<DRes<SInt>>> attributes = new ArrayList<>(inputs.size());
+    List<List<DRes<SInt>>> macs = new ArrayList<>(inputs.size());
+    for (List<SInt> clientInputs : inputs) {
+      attributes.add(new ArrayList<>(clientInputs.subList(0, inputsPerClient)));
+      macs.add(new ArrayList<>(clientInputs.subList(inputsPerClient, clientInputs.size())));
+    }
+    switch (application) {
+      case CHECK_ATT:
+        return builder -> checkAtt(builder, serverId, attributes, macs);
+      case RANGE:
+        return builder -> range(builder, attributes);
+      case SAME_OBJECT:
+        return builder -> sameObject(builder, attributes);
+      default:
+        throw new IllegalArgumentException("Unknown application " + application);
+    }
+  }
+
+  /**
+   * Checks the MACs on the attributes and user id of each client, giving 1 if they are valid.
+   */
+  private DRes<List<BigInteger>> checkAtt(ProtocolBuilderNumeric builder, int serverId,
+      List<List<DRes<SInt>>> attributes, List<List<DRes<SInt>>> macs) {
+    DRes<ServerInputModel> serverInput = builder.par(
+        new ServerInputs(serverId, DELTA_SHARE, betaShares, servers));
+    return builder.par(par -> {
+      List<DRes<Boolean>> checks = new ArrayList<>(attributes.size());
+      for (int i = 0; i < attributes.size(); i++) {
+        List<DRes<SInt>> withUid = new ArrayList<>(attributes.get(i));
+        withUid.add(par.numeric().known(UID));
+        checks.add(par.seq(new CheckAtt(withUid, macs.get(i), serverInput.out().getBetas(),
+            serverInput.out().getDelta())));
+      }
+      return () -> checks;
+    }).par((par, checks) -> () -> checks.stream()
+        .map(check -> check.out() ? BigInteger.ONE : BigInteger.ZERO)
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Checks if each attribute of each client is within a fixed range.
+   */
+  private DRes<List<BigInteger>> range(ProtocolBuilderNumeric builder,
+      List<List<DRes<SInt>>> attributes) {
+    return builder.par(par -> {
+      Numeric numeric = par.numeric();
+      DRes<SInt> lower = numeric.known(RANGE_LOWER);
+      DRes<SInt> upper = numeric.known(RANGE_UPPER);
+      List<DRes<SInt>> inRange = new ArrayList<>();
+      for (List<DRes<SInt>> clientAttributes : attributes) {
+        for (DRes<SInt> attribute : clientAttributes) {
+          inRange.add(par.seq(new Range(lower, upper, attribute, bitLength)));
+        }
+      }
+      return () -> inRange;
+    }).par((par, inRange) -> open(par, inRange));
+  }
+
+  /**
+   * Checks if the attributes of each client equal a fixed list of reference values.
+   */
+  private DRes<List<BigInteger>> sameObject(ProtocolBuilderNumeric builder,
+      List<List<DRes<SInt>>> attributes) {
+    return builder.par(par -> {
+      List<DRes<SInt>> references = BenchmarkInputs.values(1, inputsPerClient).stream()
+          .map(value -> par.numeric().known(value))
+          .collect(Collectors.toList());
+      List<DRes<SInt>> same = new ArrayList<>(attributes.size());
+      for (List<DRes<SInt>> clientAttributes : attributes) {
+        same.add(par.seq(new SameObject(references, clientAttributes, bitLength)));
+      }
+      return () -> same;
+    }).par((par, same) -> open(par, same));
+  }
+
+  private DRes<List<BigInteger>> open(ProtocolBuilderNumeric builder,
+      List<DRes<SInt>> values) {
+    List<DRes<BigInteger>> opened = values.stream().map(value -> builder.numeric().open(value))
+        .collect(Collectors.toList());
+    return () -> opened.stream().map(DRes::out).collect(Collectors.toList());
+  }
+}
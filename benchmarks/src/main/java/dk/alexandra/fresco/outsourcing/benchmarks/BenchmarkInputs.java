@@ -0,0 +1,31 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic client ids and values used by the benchmarks.
+ */
+final class BenchmarkInputs {
+
+  private BenchmarkInputs() {
+  }
+
+  /**
+   * Gives the ids of a number of clients, starting from 1.
+   */
+  static List<Integer> clientIds(int clients) {
+    return IntStream.rangeClosed(1, clients).boxed().collect(Collectors.toList());
+  }
+
+  /**
+   * Gives the values of a single client.
+   */
+  static List<BigInteger> values(int clientId, int amount) {
+    return IntStream.range(0, amount)
+        .mapToObj(i -> BigInteger.valueOf(1000L * clientId + i))
+        .collect(Collectors.toList());
+  }
+}
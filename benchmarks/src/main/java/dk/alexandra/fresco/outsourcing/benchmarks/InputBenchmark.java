@@ -0,0 +1,84 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a full input phase, from the clients connecting to the servers until the servers hold
+ * shares of all inputs.
+ *
+ * <p>
+ * As the servers only accept input from a fixed set of clients, new servers are started before
+ * each iteration. Starting the servers is not part of the measured time.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class InputBenchmark {
+
+  @Param({"DDNNT", "JNO"})
+  public IoProtocol protocol;
+
+  @Param({"2", "3"})
+  public int servers;
+
+  @Param({"1", "10"})
+  public int clients;
+
+  @Param({"1", "10"})
+  public int inputsPerClient;
+
+  @Param({"64", "128"})
+  public int bitLength;
+
+  private LocalServers localServers;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    localServers = new LocalServers(servers, BenchmarkInputs.clientIds(clients),
+        Collections.emptyList(), protocol, bitLength);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    localServers.close();
+  }
+
+  @Benchmark
+  public List<Object> input() {
+    List<Party> parties = localServers.getClientFacingParties();
+    List<Callable<Object>> tasks =
+        new ArrayList<>(localServers.<Object>onEachServer(SpdzWithIO::receiveInputs));
+    for (int clientId : BenchmarkInputs.clientIds(clients)) {
+      tasks.add(() -> {
+        InputClient client = protocol.inputClient(inputsPerClient, clientId, parties);
+        client.putBigIntegerInputs(BenchmarkInputs.values(clientId, inputsPerClient));
+        return null;
+      });
+    }
+    return localServers.runConcurrently(tasks);
+  }
+}
@@ -0,0 +1,106 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.util.AesCtrDrbg;
+import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.client.OutputClient;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntInputClient;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntOutputClient;
+import dk.alexandra.fresco.outsourcing.client.jno.JnoInputClient;
+import dk.alexandra.fresco.outsourcing.client.jno.JnoOutputClient;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputServer;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntOutputServer;
+import dk.alexandra.fresco.outsourcing.server.jno.JnoInputServer;
+import dk.alexandra.fresco.outsourcing.server.jno.JnoOutputServer;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.InputServerProducer;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.OutputServerProducer;
+import java.util.List;
+
+/**
+ * The client/server IO protocols that can be benchmarked, giving the matching clients and servers.
+ */
+public enum IoProtocol {
+  DDNNT(SpdzWithIO.Protocol.DDNNT,
+      (endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer),
+      (endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)) {
+    @Override
+    public InputClient inputClient(int numInputs, int clientId, List<Party> servers) {
+      return new DdnntInputClient(numInputs, clientId, servers, BigIntegerFieldDefinition::new);
+    }
+
+    @Override
+    public OutputClient outputClient(int numOutputs, int clientId, List<Party> servers) {
+      return new DdnntOutputClient(clientId, servers);
+    }
+  },
+  JNO(SpdzWithIO.Protocol.GENERIC,
+      (endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer,
+          sessionProducer.getExecutorFactory(), true),
+      (endpoint, sessionProducer) -> new JnoOutputServer<>(endpoint, sessionProducer,
+          sessionProducer.getExecutorFactory(), true)) {
+    @Override
+    public InputClient inputClient(int numInputs, int clientId, List<Party> servers) {
+      return new JnoInputClient(numInputs, clientId, servers, BigIntegerFieldDefinition::new,
+          new AesCtrDrbg(seed(clientId)));
+    }
+
+    @Override
+    public OutputClient outputClient(int numOutputs, int clientId, List<Party> servers) {
+      return new JnoOutputClient(clientId, servers, new AesCtrDrbg(seed(clientId)), numOutputs);
+    }
+  };
+
+  private final SpdzWithIO.Protocol protocol;
+  private final InputServerProducer inputServerProducer;
+  private final OutputServerProducer outputServerProducer;
+
+  IoProtocol(SpdzWithIO.Protocol protocol, InputServerProducer inputServerProducer,
+      OutputServerProducer outputServerProducer) {
+    this.protocol = protocol;
+    this.inputServerProducer = inputServerProducer;
+    this.outputServerProducer = outputServerProducer;
+  }
+
+  /**
+   * Connects an input client to the servers. This includes the handshake with the servers.
+   *
+   * @param numInputs the number of inputs the client gives
+   * @param clientId the id of the client
+   * @param servers the client facing addresses of the servers
+   * @return the connected client
+   */
+  public abstract InputClient inputClient(int numInputs, int clientId, List<Party> servers);
+
+  /**
+   * Connects an output client to the servers. This includes the handshake with the servers.
+   *
+   * @param numOutputs the number of outputs the client receives
+   * @param clientId the id of the client
+   * @param servers the client facing addresses of the servers
+   * @return the connected client
+   */
+  public abstract OutputClient outputClient(int numOutputs, int clientId, List<Party> servers);
+
+  SpdzWithIO.Protocol getProtocol() {
+    return protocol;
+  }
+
+  InputServerProducer getInputServerProducer() {
+    return inputServerProducer;
+  }
+
+  OutputServerProducer getOutputServerProducer() {
+    return outputServerProducer;
+  }
+
+  /**
+   * Static randomness per client, to make the runs reproducible.
+   */
+  private static byte[] seed(int clientId) {
+    byte[] seed = new byte[32];
+    seed[0] = (byte) clientId;
+    return seed;
+  }
+}
@@ -0,0 +1,178 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.outsourcing.field.FieldType;
+import dk.alexandra.fresco.outsourcing.setup.SpdzSetup;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * A set of SPDZ servers with client IO running in-process, communicating with each other and with
+ * clients over loopback.
+ *
+ * <p>
+ * Each server runs on its own threads, so the servers can be driven concurrently, together with
+ * any clients, through {@link #runConcurrently(Collection)}.
+ * </p>
+ */
+public class LocalServers implements Closeable {
+
+  private final List<SpdzWithIO> servers;
+  private final List<Party> clientFacingParties;
+  private final ExecutorService executor;
+
+  /**
+   * Starts the servers, and waits until they are connected.
+   *
+   * @param numServers the number of servers
+   * @param inputParties the ids of the clients giving input
+   * @param outputParties the ids of the clients receiving output
+   * @param protocol the protocol used for client IO
+   * @param bitLength the bit length of the values computed on
+   */
+  public LocalServers(int numServers, List<Integer> inputParties, List<Integer> outputParties,
+      IoProtocol protocol, int bitLength) {
+    this(numServers, inputParties, outputParties, protocol, bitLength, FieldType.BIG_INTEGER);
+  }
+
+  /**
+   * Starts the servers, and waits until they are connected.
+   *
+   * @param numServers the number of servers
+   * @param inputParties the ids of the clients giving input
+   * @param outputParties the ids of the clients receiving output
+   * @param protocol the protocol used for client IO
+   * @param bitLength the bit length of the values computed on
+   * @param fieldType the implementation of the field arithmetic of the servers
+   */
+  public LocalServers(int numServers, List<Integer> inputParties, List<Integer> outputParties,
+      IoProtocol protocol, int bitLength, FieldType fieldType) {
+    this.executor = Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r);
+      t.setDaemon(true);
+      t.setName("LocalServers Worker");
+      return t;
+    });
+    List<Integer> freePorts = SpdzSetup.getFreePorts(2 * numServers);
+    Map<Integer, Integer> clientFacingPorts =
+        SpdzSetup.getClientFacingPorts(freePorts, numServers);
+    Map<Integer, Integer> serverPorts = SpdzSetup.getInternalPorts(freePorts, numServers);
+    Map<Integer, String> partiesToIps = SpdzSetupUtils.getLocalhostMap(serverPorts);
+    List<Callable<SpdzWithIO>> starts = new ArrayList<>(numServers);
+    for (int i = 1; i <= numServers; i++) {
+      final int serverId = i;
+      // The servers connect to each other while being constructed, so they are started together
+      starts.add(() -> SpdzWithIO.builder(serverId, clientFacingPorts, serverPorts)
+          .inputParties(inputParties)
+          .outputParties(outputParties)
+          .partiesToIps(partiesToIps)
+          .inputServerProducer(protocol.getInputServerProducer())
+          .outputServerProducer(protocol.getOutputServerProducer())
+          .bitLength(bitLength)
+          .protocol(protocol.getProtocol())
+          .fieldType(fieldType)
+          .build());
+    }
+    this.servers = runConcurrently(starts);
+    this.clientFacingParties = new ArrayList<>(numServers);
+    for (int i = 1; i <= numServers; i++) {
+      clientFacingParties.add(new Party(i, "localhost", clientFacingPorts.get(i)));
+    }
+  }
+
+  /**
+   * Starts servers without any client IO, for benchmarking MPC applications only.
+   *
+   * @param numServers the number of servers
+   * @param bitLength the bit length of the values computed on
+   */
+  public LocalServers(int numServers, int bitLength) {
+    this(numServers, bitLength, FieldType.BIG_INTEGER);
+  }
+
+  /**
+   * Starts servers without any client IO, for benchmarking MPC applications only.
+   *
+   * @param numServers the number of servers
+   * @param bitLength the bit length of the values computed on
+   * @param fieldType the implementation of the field arithmetic of the servers
+   */
+  public LocalServers(int numServers, int bitLength, FieldType fieldType) {
+    this(numServers, Collections.emptyList(), Collections.emptyList(), IoProtocol.DDNNT,
+        bitLength, fieldType);
+  }
+
+  /**
+   * Gives the addresses the clients should use to connect to the servers.
+   *
+   * @return the client facing parties
+   */
+  public List<Party> getClientFacingParties() {
+    return clientFacingParties;
+  }
+
+  /**
+   * Gives the servers ordered by id.
+   *
+   * @return the servers
+   */
+  public List<SpdzWithIO> getServers() {
+    return servers;
+  }
+
+  /**
+   * Gives a task for each server, applying a function to that server.
+   *
+   * @param task the function to apply
+   * @param <T> the result of the function
+   * @return the tasks ordered by server id
+   */
+  public <T> List<Callable<T>> onEachServer(Function<SpdzWithIO, T> task) {
+    List<Callable<T>> tasks = new ArrayList<>(servers.size());
+    for (SpdzWithIO server : servers) {
+      tasks.add(() -> task.apply(server));
+    }
+    return tasks;
+  }
+
+  /**
+   * Runs a number of tasks concurrently, and waits for all of them to complete.
+   *
+   * @param tasks the tasks
+   * @param <T> the result of the tasks
+   * @return the results in the order of the tasks
+   */
+  public <T> List<T> runConcurrently(Collection<? extends Callable<T>> tasks) {
+    return ExceptionConverter.safe(() -> {
+      List<Future<T>> futures = new ArrayList<>(tasks.size());
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    }, "Failed to run tasks");
+  }
+
+  @Override
+  public void close() {
+    for (SpdzWithIO server : servers) {
+      server.shutdown();
+    }
+    executor.shutdownNow();
+  }
+}
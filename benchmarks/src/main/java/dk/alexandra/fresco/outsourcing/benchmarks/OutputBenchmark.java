@@ -0,0 +1,111 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a full output phase, from the servers holding shares of the outputs until the clients
+ * have reconstructed them.
+ *
+ * <p>
+ * As the servers only deliver output to a fixed set of clients, new servers are started and the
+ * shared outputs are computed before each iteration. This is not part of the measured time.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class OutputBenchmark {
+
+  @Param({"DDNNT", "JNO"})
+  public IoProtocol protocol;
+
+  @Param({"2", "3"})
+  public int servers;
+
+  @Param({"1", "10"})
+  public int clients;
+
+  @Param({"1", "10"})
+  public int outputsPerClient;
+
+  @Param({"64", "128"})
+  public int bitLength;
+
+  private LocalServers localServers;
+  private List<Map<Integer, List<SInt>>> outputs;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    localServers = new LocalServers(servers, Collections.emptyList(),
+        BenchmarkInputs.clientIds(clients), protocol, bitLength);
+    outputs = localServers.runConcurrently(localServers.onEachServer(server -> server.run(
+        builder -> {
+          Map<Integer, List<DRes<SInt>>> closed = new HashMap<>();
+          for (int clientId : BenchmarkInputs.clientIds(clients)) {
+            closed.put(clientId, BenchmarkInputs.values(clientId, outputsPerClient).stream()
+                .map(value -> builder.numeric().known(value))
+                .collect(Collectors.toList()));
+          }
+          return () -> {
+            Map<Integer, List<SInt>> res = new HashMap<>();
+            for (Map.Entry<Integer, List<DRes<SInt>>> entry : closed.entrySet()) {
+              res.put(entry.getKey(),
+                  entry.getValue().stream().map(DRes::out).collect(Collectors.toList()));
+            }
+            return res;
+          };
+        })));
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    localServers.close();
+  }
+
+  @Benchmark
+  public List<Object> output() {
+    List<Party> parties = localServers.getClientFacingParties();
+    List<Callable<Object>> tasks = new ArrayList<>();
+    for (SpdzWithIO server : localServers.getServers()) {
+      Map<Integer, List<SInt>> serverOutputs = outputs.get(server.getServerId() - 1);
+      tasks.add(() -> {
+        for (int clientId : BenchmarkInputs.clientIds(clients)) {
+          server.sendOutputsTo(clientId, serverOutputs.get(clientId));
+        }
+        return null;
+      });
+    }
+    for (int clientId : BenchmarkInputs.clientIds(clients)) {
+      tasks.add(() -> protocol.outputClient(outputsPerClient, clientId, parties)
+          .getBigIntegerOutputs());
+    }
+    return localServers.runConcurrently(tasks);
+  }
+}
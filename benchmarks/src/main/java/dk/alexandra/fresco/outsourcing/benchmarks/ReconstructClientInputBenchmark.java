@@ -0,0 +1,151 @@
+package dk.alexandra.fresco.outsourcing.benchmarks;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.client.jno.ClientPayload;
+import dk.alexandra.fresco.outsourcing.client.jno.ReconstructClientInput;
+import dk.alexandra.fresco.outsourcing.field.FieldType;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the MPC part of the JNO input protocol, where the servers reconstruct the inputs of
+ * the clients and validate the tags on them.
+ *
+ * <p>
+ * The payloads the clients would have sent to the servers are generated up front, so only the
+ * computation between the servers is measured.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReconstructClientInputBenchmark {
+
+  @Param({"2", "3"})
+  public int servers;
+
+  @Param({"1", "10"})
+  public int clients;
+
+  @Param({"1", "10"})
+  public int inputsPerClient;
+
+  @Param({"64", "128"})
+  public int bitLength;
+
+  @Param({"true", "false"})
+  public boolean bulkInput;
+
+  @Param({"BIG_INTEGER", "MONTGOMERY"})
+  public FieldType fieldType;
+
+  private LocalServers localServers;
+  private Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    localServers = new LocalServers(servers, bitLength, fieldType);
+    FieldDefinition definition = SpdzSetupUtils.getFieldDefinition(bitLength, fieldType);
+    Random random = new Random(42);
+    payloads = new HashMap<>();
+    for (int serverId = 1; serverId <= servers; serverId++) {
+      payloads.put(serverId, new TreeMap<>());
+    }
+    for (int clientId : BenchmarkInputs.clientIds(clients)) {
+      List<ClientPayload<FieldElement>> shares = sharePayload(definition, random,
+          BenchmarkInputs.values(clientId, inputsPerClient));
+      for (int serverId = 1; serverId <= servers; serverId++) {
+        payloads.get(serverId).put(clientId, shares.get(serverId - 1));
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    localServers.close();
+  }
+
+  @Benchmark
+  public List<Map<Integer, List<SInt>>> reconstruct() {
+    return localServers.runConcurrently(localServers.onEachServer(server -> server.run(
+        builder -> builder.seq(new ReconstructClientInput(server.getServerId(), servers,
+            payloads.get(server.getServerId()), bulkInput)))));
+  }
+
+  /**
+   * Tags and shares the inputs of a client in the same way as a JNO input client.
+   */
+  private List<ClientPayload<FieldElement>> sharePayload(FieldDefinition definition,
+      Random random, List<BigInteger> inputs) {
+    List<FieldElement> x = inputs.stream().map(definition::createElement)
+        .collect(Collectors.toList());
+    FieldElement k = randomElement(definition, random);
+    FieldElement r = randomElement(definition, random);
+    FieldElement t = definition.createElement(0);
+    FieldElement keyPower = k;
+    for (FieldElement current : x) {
+      t = t.add(current.multiply(keyPower));
+      keyPower = keyPower.multiply(k);
+    }
+    t = t.add(r.multiply(keyPower)).add(keyPower.multiply(k).multiply(k));
+    List<FieldElement> tShares = share(definition, random, t);
+    List<FieldElement> kShares = share(definition, random, k);
+    List<FieldElement> rShares = share(definition, random, r);
+    List<List<FieldElement>> xShares = x.stream().map(cur -> share(definition, random, cur))
+        .collect(Collectors.toList());
+    List<ClientPayload<FieldElement>> payloads = new ArrayList<>(servers);
+    for (int i = 0; i < servers; i++) {
+      final int server = i;
+      payloads.add(new ClientPayload<>(tShares.get(i), kShares.get(i), rShares.get(i),
+          xShares.stream().map(shares -> shares.get(server)).collect(Collectors.toList())));
+    }
+    return payloads;
+  }
+
+  private List<FieldElement> share(FieldDefinition definition, Random random,
+      FieldElement value) {
+    List<FieldElement> shares = new ArrayList<>(servers);
+    FieldElement sum = definition.createElement(0);
+    for (int i = 1; i < servers; i++) {
+      FieldElement share = randomElement(definition, random);
+      shares.add(share);
+      sum = sum.add(share);
+    }
+    shares.add(value.subtract(sum));
+    return shares;
+  }
+
+  private FieldElement randomElement(FieldDefinition definition, Random random) {
+    BigInteger modulus = definition.getModulus();
+    return definition.createElement(
+        new BigInteger(modulus.bitLength() + SpdzSetupUtils.DEFAULT_STATPAR, random)
+            .mod(modulus));
+  }
+}
@@ -3,34 +3,101 @@ package dk.alexandra.fresco.outsourcing.client;
 import static dk.alexandra.fresco.outsourcing.utils.GenericUtils.intFromBytes;
 
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.server.ClientSession;
 import dk.alexandra.fresco.outsourcing.server.ClientSessionHandler;
 import dk.alexandra.fresco.outsourcing.server.DemoClientSessionRequestHandler;
+import dk.alexandra.fresco.outsourcing.server.OpenAdmission;
+import dk.alexandra.fresco.outsourcing.utils.ReorderBuffer;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Produces the sessions of clients in the order of the priorities assigned by server 1.
+ *
+ * <p>
+ * Handshakes run concurrently, so clients register from many threads, while sessions are produced
+ * by a single thread. Registered clients are put in a {@link ReorderBuffer} at their priority, and
+ * released to the producing thread as soon as all clients of lower priority have registered. On
+ * server 1, priorities are handed out by an atomic counter in the order clients register. Neither
+ * registering nor producing takes a lock.
+ * </p>
+ *
+ * <p>
+ * Each server times out handshakes on its own, so a client may register with some servers but not
+ * with others. Sessions are therefore only produced once the servers have agreed on the clients
+ * registered with all of them, see {@link #closeAdmission(Network)}. The other clients are dropped
+ * by all servers, so no server waits for a client that will never show up.
+ * </p>
+ *
+ * <p>
+ * If the admission is open, clients that register with all servers but then fail to send their
+ * inputs are dropped in the same way, see {@link #agreeOnFailedClients(Network, Collection)}.
+ * </p>
+ */
 public abstract class AbstractSessionEndPoint<T extends ClientSession> implements ClientSessionHandler<T> {
     private static final Logger logger = LoggerFactory
             .getLogger(AbstractSessionEndPoint.class);
 
+    // Set on the counter of priorities once server 1 closes the admission
+    private static final int CLOSED = Integer.MIN_VALUE;
+
     protected final SpdzResourcePool resourcePool;
     protected final int expectedClients;
-    protected final PriorityQueue<DemoClientSessionRequestHandler.QueuedClient> orderingQueue;
-    protected final BlockingQueue<DemoClientSessionRequestHandler.QueuedClient> processingQueue;
     protected final FieldDefinition definition;
-    protected int clientsReady;
-    protected int sessionsProduced;
+    protected final OpenAdmission admission;
+    private final ReorderBuffer<DemoClientSessionRequestHandler.QueuedClient> clients;
+    private final AtomicInteger priorities;
+    private long firstRegistration;
+    private volatile boolean started;
+    private volatile int admitted;
+    private volatile Thread closer;
+    private final Duration stragglerTimeout;
+    private final CountDownLatch agreed;
+    private volatile Set<Integer> dropped;
+    private volatile int sessions;
+    // Only used by the thread producing sessions
+    private int produced;
 
+    /**
+     * Creates an endpoint for a fixed number of clients, waiting for clients that have not
+     * registered with all servers for the default handshake timeout of {@link
+     * DemoClientSessionRequestHandler}.
+     */
     public AbstractSessionEndPoint(SpdzResourcePool resourcePool,
                                    FieldDefinition definition,
                                    int expectedClients) {
+        this(resourcePool, definition, expectedClients,
+                DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_TIMEOUT);
+    }
+
+    /**
+     * Creates an endpoint for a fixed number of clients.
+     *
+     * @param stragglerTimeout the time from all clients registering with server 1 until the clients
+     *     that have not registered with all servers are dropped
+     */
+    public AbstractSessionEndPoint(SpdzResourcePool resourcePool,
+                                   FieldDefinition definition,
+                                   int expectedClients,
+                                   Duration stragglerTimeout) {
         if (expectedClients < 0) {
             throw new IllegalArgumentException(
                     "Expected input clients cannot be negative, but was: " + expectedClients);
@@ -38,21 +105,69 @@ public abstract class AbstractSessionEndPoint<T extends ClientSession> implement
         this.resourcePool = resourcePool;
         this.definition = definition;
         this.expectedClients = expectedClients;
-        this.processingQueue = new ArrayBlockingQueue<>(expectedClients);
-        this.orderingQueue = new PriorityQueue<>(expectedClients,
-                Comparator.comparingInt(DemoClientSessionRequestHandler.QueuedClient::getPriority));
-        this.clientsReady = 0;
+        this.clients = new ReorderBuffer<>(
+                Math.max(1, Math.min(expectedClients, ReorderBuffer.DEFAULT_CAPACITY)));
+        this.priorities = new AtomicInteger();
+        this.admission = null;
+        this.admitted = expectedClients;
+        this.stragglerTimeout = Objects.requireNonNull(stragglerTimeout);
+        this.agreed = new CountDownLatch(1);
+        this.sessions = -1;
+    }
+
+    /**
+     * Creates an endpoint admitting clients until the admission closes, rather than waiting for a
+     * number of clients fixed in advance.
+     *
+     * <p>
+     * Sessions are produced once the servers have agreed on the clients admitted, see {@link
+     * #closeAdmission(Network)}.
+     * </p>
+     *
+     * @param admission decides when server 1 closes the admission, and how long to wait for
+     *     stragglers
+     */
+    public AbstractSessionEndPoint(SpdzResourcePool resourcePool,
+                                   FieldDefinition definition,
+                                   OpenAdmission admission) {
+        this.resourcePool = resourcePool;
+        this.definition = definition;
+        this.admission = Objects.requireNonNull(admission);
+        this.expectedClients = admission.getMaxClients();
+        this.clients = new ReorderBuffer<>();
+        this.priorities = new AtomicInteger();
+        this.admitted = -1;
+        this.stragglerTimeout = admission.getStragglerTimeout();
+        this.agreed = new CountDownLatch(1);
+        this.sessions = -1;
     }
 
     protected abstract T getClientSession(DemoClientSessionRequestHandler.QueuedClient client);
 
+    /**
+     * Called when a client has registered for a session, before the session is produced. This lets
+     * subclasses prepare resources for the session ahead of time. By default this does nothing.
+     *
+     * @param client the registered client
+     */
+    protected void clientRegistered(DemoClientSessionRequestHandler.QueuedClient client) {
+    }
+
     @Override
     public T next() {
+        awaitAgreement();
         try {
-            DemoClientSessionRequestHandler.QueuedClient client = processingQueue.take();
-            T session = getClientSession(client);
-            sessionsProduced++;
-            return session;
+            while (true) {
+                DemoClientSessionRequestHandler.QueuedClient client = clients.take();
+                if (!dropped.contains(client.getPriority())) {
+                    produced++;
+                    return getClientSession(client);
+                }
+                if (client.getNetwork() != null) {
+                    // The client registered after the servers agreed to drop it
+                    closeQuietly(client.getNetwork());
+                }
+            }
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -60,7 +175,233 @@ public abstract class AbstractSessionEndPoint<T extends ClientSession> implement
 
     @Override
     public boolean hasNext() {
-        return expectedClients - sessionsProduced > 0;
+        awaitAgreement();
+        return produced < sessions;
+    }
+
+    private void awaitAgreement() {
+        try {
+            agreed.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Agrees with the other servers on the clients whose sessions are produced.
+     *
+     * <p>
+     * Server 1 first waits until all expected clients have registered with it, or, if the
+     * admission is open, until its admission policy closes the admission. It then sends the number
+     * of clients admitted to the other servers. As server 1 assigns the priorities of the clients,
+     * all servers agree that the clients admitted are those of priority below this number.
+     * </p>
+     *
+     * <p>
+     * Each server then waits for the admitted clients to register with it, until the straggler
+     * timeout passes, and sends the priorities still missing to server 1. Server 1 sends back the
+     * priorities missing on any server, and all servers drop these clients, closing their
+     * connections. Clients registering at a dropped priority later on are turned away.
+     * </p>
+     *
+     * @return the number of clients admitted and not dropped
+     */
+    @Override
+    public int closeAdmission(Network network) {
+        int myId = resourcePool.getMyId();
+        int clients;
+        if (myId == 1) {
+            clients = admission == null ? awaitRegistrations() : awaitClosing();
+            byte[] message = ByteAndBitConverter.toByteArray(clients);
+            for (int i = 2; i <= network.getNoOfParties(); i++) {
+                network.send(i, message);
+            }
+        } else {
+            clients = intFromBytes(network.receive(1));
+            admitted = clients;
+        }
+        Set<Integer> agreedDropped = union(network, awaitStragglers(clients));
+        drop(agreedDropped);
+        sessions = clients - agreedDropped.size();
+        agreed.countDown();
+        if (agreedDropped.isEmpty()) {
+            logger.info("S{}: Closed admission of clients, admitted {}.", myId, clients);
+        } else {
+            logger.warn("S{}: Closed admission of clients, admitted {}, dropped priorities {} "
+                    + "missing on some server.", myId, clients, agreedDropped);
+        }
+        return sessions;
+    }
+
+    /**
+     * Gives the input timeout of the admission policy, if the admission is open. Endpoints for a
+     * fixed number of clients wait for the inputs of every client.
+     */
+    @Override
+    public Duration getInputTimeout() {
+        return admission == null ? null : admission.getInputTimeout();
+    }
+
+    /**
+     * Agrees with the other servers on the clients that failed to send their inputs, in the same
+     * way as on the priorities missing in {@link #closeAdmission(Network)}: each server sends the
+     * ids of the clients that failed on it to server 1, which sends back the ids failed on any
+     * server.
+     */
+    @Override
+    public Set<Integer> agreeOnFailedClients(Network network, Collection<Integer> failedClientIds) {
+        Set<Integer> failed = union(network, failedClientIds);
+        if (!failed.isEmpty()) {
+            logger.warn("S{}: Dropping clients {}, which failed to send their inputs to some server.",
+                    resourcePool.getMyId(), failed);
+        }
+        return failed;
+    }
+
+    /**
+     * Gives the union of the values of all servers, collected and sent back by server 1.
+     */
+    private Set<Integer> union(Network network, Collection<Integer> values) {
+        Set<Integer> union;
+        if (resourcePool.getMyId() == 1) {
+            union = new TreeSet<>(values);
+            for (int i = 2; i <= network.getNoOfParties(); i++) {
+                union.addAll(intsFromBytes(network.receive(i)));
+            }
+            byte[] message = intsToBytes(union);
+            for (int i = 2; i <= network.getNoOfParties(); i++) {
+                network.send(i, message);
+            }
+        } else {
+            network.send(1, intsToBytes(values));
+            union = new TreeSet<>(intsFromBytes(network.receive(1)));
+        }
+        return union;
+    }
+
+    private int awaitRegistrations() {
+        closer = Thread.currentThread();
+        try {
+            while (priorities.get() < expectedClients) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new RuntimeException(new InterruptedException());
+                }
+            }
+        } finally {
+            closer = null;
+        }
+        return expectedClients;
+    }
+
+    /**
+     * Waits until the clients of all priorities below the given number have registered, or the
+     * straggler timeout has passed.
+     *
+     * @return the priorities of the clients still missing
+     */
+    private List<Integer> awaitStragglers(int admittedClients) {
+        long deadline = System.nanoTime() + stragglerTimeout.toNanos();
+        // No sessions have been produced yet, so all registered clients are still in the buffer
+        int registered = 0;
+        closer = Thread.currentThread();
+        try {
+            while (true) {
+                while (registered < admittedClients && clients.contains(registered)) {
+                    registered++;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (registered == admittedClients || remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new RuntimeException(new InterruptedException());
+                }
+            }
+        } finally {
+            closer = null;
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int priority = registered; priority < admittedClients; priority++) {
+            if (!clients.contains(priority)) {
+                missing.add(priority);
+            }
+        }
+        if (!missing.isEmpty()) {
+            logger.warn("S{}: Clients of priorities {} did not register within {}.",
+                    resourcePool.getMyId(), missing, stragglerTimeout);
+        }
+        return missing;
+    }
+
+    private void drop(Set<Integer> priorities) {
+        dropped = Collections.unmodifiableSet(priorities);
+        for (int priority : priorities) {
+            try {
+                // Fills the gap, so later clients are not held back
+                clients.put(priority, new DemoClientSessionRequestHandler.QueuedClient(
+                        priority, -1, 0, null));
+            } catch (IllegalArgumentException e) {
+                // The client registered here, and is dropped when its turn comes
+            }
+        }
+    }
+
+    private static byte[] intsToBytes(Collection<Integer> values) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * values.size());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static List<Integer> intsFromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        List<Integer> values = new ArrayList<>(bytes.length / Integer.BYTES);
+        while (buffer.hasRemaining()) {
+            values.add(buffer.getInt());
+        }
+        return values;
+    }
+
+    private static void closeQuietly(TwoPartyNetwork network) {
+        try {
+            network.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close network of dropped client", e);
+        }
+    }
+
+    private int awaitClosing() {
+        closer = Thread.currentThread();
+        try {
+            while (priorities.get() < admission.getMaxClients()) {
+                if (!started) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = firstRegistration + admission.getWindow().toNanos()
+                            - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new RuntimeException(new InterruptedException());
+                }
+            }
+        } finally {
+            closer = null;
+        }
+        // Clients registering from now on are turned away
+        admitted = priorities.getAndUpdate(count -> count | CLOSED) & ~CLOSED;
+        return admitted;
+    }
+
+    private boolean isWindowPassed() {
+        return admission != null && started
+                && System.nanoTime() - firstRegistration >= admission.getWindow().toNanos();
     }
 
     @Override
@@ -68,37 +409,111 @@ public abstract class AbstractSessionEndPoint<T extends ClientSession> implement
         // Bytes 0-3: client priority, assigned by server 1 (big endian int)
         // Bytes 4-7: unique id for client (big endian int)
         // Bytes 8-11: number of inputs (big endian int)
+        // Bytes 12-15: optional capability flags (big endian int), left out by older clients
         int priority = intFromBytes(Arrays.copyOfRange(handshakeMessage, 0, Integer.BYTES));
         int clientId =
                 intFromBytes(Arrays.copyOfRange(handshakeMessage, Integer.BYTES, Integer.BYTES * 2));
         int numInputs =
                 intFromBytes(Arrays.copyOfRange(handshakeMessage, Integer.BYTES * 2, Integer.BYTES * 3));
-        return registerNewSessionRequest(priority, clientId, numInputs, network);
+        int capabilities = ClientCapabilities.NONE;
+        if (handshakeMessage.length >= Integer.BYTES * 4) {
+            capabilities = intFromBytes(
+                    Arrays.copyOfRange(handshakeMessage, Integer.BYTES * 3, Integer.BYTES * 4));
+        }
+        return registerNewSessionRequest(priority, clientId, numInputs, capabilities, network);
     }
 
+    /**
+     * Gives the number of clients expected. Once the servers have agreed on the clients whose
+     * sessions are produced, this is the number of these clients. Before that, if the admission is
+     * open, this is the maximum number of clients, or the number admitted once known.
+     */
     @Override
     public int getExpectedClients() {
-        return expectedClients;
+        if (sessions >= 0) {
+            return sessions;
+        }
+        return admitted < 0 ? expectedClients : admitted;
     }
 
+    /**
+     * Gives the number of clients that have registered, but whose sessions have not yet been
+     * produced.
+     *
+     * @return the number of clients ready for a session
+     */
+    public int getQueuedClients() {
+        return clients.ready();
+    }
+
+    /**
+     * Gives the number of clients that have registered, but wait for clients of lower priority to
+     * register before their sessions can be produced. On server 1 this is at most the number of
+     * registrations in progress.
+     *
+     * @return the number of clients waiting to be ordered
+     */
+    public int getReorderingClients() {
+        return Math.max(0, clients.size() - clients.ready());
+    }
+
+    // Handshakes run concurrently, so this may be called by many threads at once
     private int registerNewSessionRequest(int suggestedPriority, int clientId, int inputAmount,
-                                          TwoPartyNetwork network) {
+                                          int capabilities, TwoPartyNetwork network) {
+        // Checked before a priority is taken, as a priority that is never registered holds back
+        // all later clients
+        if (inputAmount < 0) {
+            throw new IllegalArgumentException(
+                    "Client " + clientId + " cannot make " + inputAmount + " inputs");
+        }
+        int priority;
         if (resourcePool.getMyId() == 1) {
-            int priority = clientsReady++;
-            DemoClientSessionRequestHandler.QueuedClient q = new DemoClientSessionRequestHandler.QueuedClient(priority, clientId, inputAmount, network);
-            processingQueue.add(q);
-            return q.getPriority();
+            // A client arriving after the window is turned away, even if the admission has not been
+            // closed yet, and closes it
+            boolean late = isWindowPassed();
+            priority = priorities.getAndUpdate(count -> count < 0 || count >= expectedClients
+                    ? count : late ? count | CLOSED : count + 1);
+            if (priority < 0 || late) {
+                Thread waiting = closer;
+                if (waiting != null) {
+                    LockSupport.unpark(waiting);
+                }
+                throw new IllegalStateException(
+                        "Admission of clients has closed, turning away client " + clientId);
+            }
         } else {
-            DemoClientSessionRequestHandler.QueuedClient q = new DemoClientSessionRequestHandler.QueuedClient(suggestedPriority, clientId, inputAmount, network);
-            orderingQueue.add(q);
-            while (!orderingQueue.isEmpty() && orderingQueue.peek().getPriority() == clientsReady) {
-                clientsReady++;
-                processingQueue.add(orderingQueue.remove());
+            priority = suggestedPriority;
+            int limit = admitted;
+            if (admission != null && limit >= 0 && priority >= limit) {
+                throw new IllegalStateException(
+                        "Admission of clients has closed, turning away client " + clientId);
             }
+        }
+        Set<Integer> agreedDropped = dropped;
+        if (agreedDropped != null && agreedDropped.contains(priority)) {
+            throw new IllegalStateException(
+                    "Servers have dropped priority " + priority + ", turning away client " + clientId);
+        }
+        if (priority >= expectedClients) {
+            throw new IllegalStateException(
+                    "Expected " + expectedClients + " clients, turning away client " + clientId);
+        }
+        DemoClientSessionRequestHandler.QueuedClient q = new DemoClientSessionRequestHandler.QueuedClient(priority, clientId, inputAmount, capabilities, network);
+        clientRegistered(q);
+        if (priority == 0) {
+            firstRegistration = System.nanoTime();
+            started = true;
+        }
+        clients.put(priority, q);
+        Thread waiting = closer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        if (resourcePool.getMyId() != 1) {
             logger.info(
                     "S{}: Finished handskake for input client {} with priority {}. Expecting {} inputs.",
                     resourcePool.getMyId(), q.getClientId(), q.getPriority(), q.getInputAmount());
-            return q.getPriority();
         }
+        return priority;
     }
 }
@@ -0,0 +1,51 @@
+package dk.alexandra.fresco.outsourcing.client;
+
+/**
+ * Optional protocol features a client can announce to the servers during the handshake.
+ *
+ * <p>
+ * Capabilities are encoded as bit flags in an int appended to the handshake message. Clients that
+ * do not send any capabilities are served using the original wire formats, so servers remain
+ * compatible with older clients.
+ * </p>
+ */
+public final class ClientCapabilities {
+
+  /**
+   * No optional features supported.
+   */
+  public static final int NONE = 0;
+
+  /**
+   * The client can receive all output shares of a DDNNT output session in a single message.
+   */
+  public static final int BATCHED_OUTPUT = 1;
+
+  /**
+   * The client sends its JNO payload as a single message, see {@link
+   * dk.alexandra.fresco.outsourcing.client.jno.ClientPayload#serialize}.
+   */
+  public static final int SINGLE_FRAME_PAYLOAD = 2;
+
+  /**
+   * The client receives the field type of server 1 after the modulus, and relays it to the other
+   * servers, which reject the client if they use a different field type.
+   */
+  public static final int FIELD_TYPE = 4;
+
+  private ClientCapabilities() {
+    // Not meant to be instantiated
+  }
+
+  /**
+   * Checks if a set of capabilities includes a given capability.
+   *
+   * @param capabilities the capability flags announced by a client
+   * @param capability the capability to check for
+   * @return true if the capability is included
+   */
+  public static boolean supports(int capabilities, int capability) {
+    return (capabilities & capability) == capability;
+  }
+
+}
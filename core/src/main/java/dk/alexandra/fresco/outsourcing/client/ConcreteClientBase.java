@@ -7,16 +7,23 @@ import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
 import dk.alexandra.fresco.outsourcing.network.ClientSideNetworkFactory;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import dk.alexandra.fresco.outsourcing.utils.GlobalExceptionHandler;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -29,24 +36,48 @@ public class ConcreteClientBase implements BaseClient {
     Thread.setDefaultUncaughtExceptionHandler(exceptionHandler);
   }
   private static final Logger logger = LoggerFactory.getLogger(ConcreteClientBase.class);
+  // Shared by all clients, as clients are not closed and the threads mostly wait for the network
+  private static final ExecutorService serverIo = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r);
+    t.setDaemon(true);
+    t.setName("Client Server IO");
+    return t;
+  });
 
   private FieldDefinition definition;
   private List<Party> servers;
   private Map<Integer, TwoPartyNetwork> serverNetworks;
   private int clientId;
+  private final ServerIoMode serverIoMode;
 
   /**
-   * Creates new {@link ConcreteClientBase}.
+   * Creates new {@link ConcreteClientBase} communicating with all servers concurrently.
    *
    * @param clientId client ID
    * @param servers  servers to connect to
    */
   protected ConcreteClientBase(int clientId, List<Party> servers) {
+    this(clientId, servers, ServerIoMode.CONCURRENT);
+  }
+
+  /**
+   * Creates new {@link ConcreteClientBase}.
+   *
+   * @param clientId client ID
+   * @param servers  servers to connect to
+   * @param serverIoMode how to communicate with the servers
+   */
+  protected ConcreteClientBase(int clientId, List<Party> servers, ServerIoMode serverIoMode) {
     if (clientId < 1) {
       throw new IllegalArgumentException("Client ID must be 1 or higher");
     }
     this.clientId = clientId;
     this.servers = servers;
+    this.serverIoMode = Objects.requireNonNull(serverIoMode);
+    if (serverIoMode == ServerIoMode.CONCURRENT_VIRTUAL_THREADS
+        && !ExecutorFactory.isVirtualThreadsSupported()) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+    }
   }
 
   /**
@@ -93,7 +124,7 @@ public class ConcreteClientBase implements BaseClient {
       int amount) {
     logger.info("C{}: Starting handshake", getClientId());
     try {
-      ExecutorService es = Executors.newFixedThreadPool(getServers().size() - 1);
+      ExecutorService es = getServerIoExecutor();
 
       Party serverOne = getServers().stream().filter(p -> p.getPartyId() == 1).findFirst().get();
       logger.info("C{}: connecting to master server {}", getClientId(), serverOne);
@@ -105,25 +136,118 @@ public class ConcreteClientBase implements BaseClient {
       int priority = intFromBytes(response);
       logger.info("C{}: Received priority {}", getClientId(), priority);
 
-      initServerNetworks(es, masterNetwork, getHandShakeMessage(priority, amount));
-
-      es.shutdown();
-
+      // Server 1 sends the modulus and its field type along with the priority
       initFieldDefinition(definitionSupplier, masterNetwork);
+      byte[] fieldType = masterNetwork.receive();
+
+      initServerNetworks(es, masterNetwork, getHandShakeMessage(priority, amount, fieldType));
     } catch (Exception e) {
       logger.error("C{}: Error during handshake", clientId, e);
       e.printStackTrace();
     }
   }
 
+  /**
+   * Runs a task for each server, e.g., sending or receiving a message, and collects the results.
+   *
+   * <p>
+   * How the tasks are run is given by the {@link ServerIoMode} of the client. If a task fails, the
+   * first failure in the order of the servers is rethrown.
+   * </p>
+   *
+   * @param task the task, given the server and the network to it
+   * @param <T> the result of the task
+   * @return the results by server id, in the order of the servers
+   */
+  protected final <T> Map<Integer, T> forEachServer(
+      BiFunction<Party, TwoPartyNetwork, T> task) {
+    return forEachServer((i, s, network) -> task.apply(s, network));
+  }
+
+  /**
+   * Runs a task for each server like {@link #forEachServer(BiFunction)}, also giving the task the
+   * index of the server in the list of servers, e.g., to pick the share to send to it.
+   *
+   * @param task the task, given the index of the server, the server and the network to it
+   * @param <T> the result of the task
+   * @return the results by server id, in the order of the servers
+   */
+  protected final <T> Map<Integer, T> forEachServer(ServerTask<T> task) {
+    Map<Integer, T> results = new LinkedHashMap<>(getServers().size());
+    if (serverIoMode == ServerIoMode.SEQUENTIAL || getServers().size() == 1) {
+      for (int i = 0; i < getServers().size(); i++) {
+        Party s = getServers().get(i);
+        results.put(s.getPartyId(), task.apply(i, s, getServerNetworks().get(s.getPartyId())));
+      }
+      return results;
+    }
+    List<Future<T>> futures = new ArrayList<>(getServers().size());
+    for (int i = 0; i < getServers().size(); i++) {
+      final int index = i;
+      Party s = getServers().get(i);
+      TwoPartyNetwork network = getServerNetworks().get(s.getPartyId());
+      futures.add(getServerIoExecutor().submit(() -> task.apply(index, s, network)));
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        results.put(getServers().get(i).getPartyId(), futures.get(i).get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("C" + clientId + ": Interrupted communicating with servers", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException("C" + clientId + ": Failed communicating with servers",
+          e.getCause());
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return results;
+  }
+
+  private ExecutorService getServerIoExecutor() {
+    if (serverIoMode == ServerIoMode.CONCURRENT_VIRTUAL_THREADS) {
+      return VirtualServerIo.EXECUTOR;
+    }
+    return serverIo;
+  }
+
   protected byte[] getHandShakeMessage(int priority, int amount) {
-    byte[] msg = new byte[Integer.BYTES * 3];
-    System.arraycopy(ByteAndBitConverter.toByteArray(priority), 0, msg, 0, Integer.BYTES);
-    System.arraycopy(ByteAndBitConverter.toByteArray(getClientId()), 0, msg, Integer.BYTES,
-        Integer.BYTES);
-    System.arraycopy(ByteAndBitConverter.toByteArray(amount), 0, msg, Integer.BYTES * 2,
-        Integer.BYTES);
-    return msg;
+    return getHandShakeMessage(priority, amount, new byte[0]);
+  }
+
+  /**
+   * Gives the handshake message sent to the servers other than server 1, which are also sent the
+   * field type received from server 1.
+   *
+   * @param priority the priority assigned by server 1
+   * @param amount the number of inputs or outputs
+   * @param fieldType the field type of server 1
+   * @return the handshake message
+   */
+  protected byte[] getHandShakeMessage(int priority, int amount, byte[] fieldType) {
+    int capabilities = getCapabilities() | ClientCapabilities.FIELD_TYPE;
+    return ByteBuffer.allocate(Integer.BYTES * 4 + fieldType.length)
+        .put(ByteAndBitConverter.toByteArray(priority))
+        .put(ByteAndBitConverter.toByteArray(getClientId()))
+        .put(ByteAndBitConverter.toByteArray(amount))
+        .put(ByteAndBitConverter.toByteArray(capabilities))
+        .put(fieldType)
+        .array();
+  }
+
+  /**
+   * Gives the optional protocol features this client announces to the servers during the
+   * handshake.
+   *
+   * @return the capability flags as defined in {@link ClientCapabilities}
+   */
+  protected int getCapabilities() {
+    return ClientCapabilities.NONE;
   }
 
   @Override
@@ -145,4 +269,34 @@ public class ConcreteClientBase implements BaseClient {
   public int getClientId() {
     return clientId;
   }
+
+  /**
+   * Holds the executor for clients using virtual threads, created when first used as it is only
+   * available on Java 21 or later.
+   */
+  private static final class VirtualServerIo {
+
+    private static final ExecutorService EXECUTOR =
+        ExecutorFactory.virtualThreads().create("Client Server IO");
+  }
+
+  /**
+   * A task run for each server by {@link #forEachServer(ServerTask)}.
+   *
+   * @param <T> the result of the task
+   */
+  @FunctionalInterface
+  protected interface ServerTask<T> {
+
+    /**
+     * Runs the task for a server.
+     *
+     * @param index the index of the server in the list of servers
+     * @param server the server
+     * @param network the network to the server
+     * @return the result for the server
+     */
+    T apply(int index, Party server, TwoPartyNetwork network);
+  }
+
 }
@@ -9,12 +9,19 @@ public class GenericClientSession implements ClientSession {
   private final int clientId;
   private final TwoPartyNetwork network;
   private final ByteSerializer<FieldElement> serializer;
+  private final int capabilities;
 
   public GenericClientSession(int clientId, TwoPartyNetwork network,
                               ByteSerializer<FieldElement> serializer) {
+    this(clientId, network, serializer, ClientCapabilities.NONE);
+  }
+
+  public GenericClientSession(int clientId, TwoPartyNetwork network,
+                              ByteSerializer<FieldElement> serializer, int capabilities) {
     this.clientId = clientId;
     this.network = network;
     this.serializer = serializer;
+    this.capabilities = capabilities;
   }
 
   @Override
@@ -32,4 +39,9 @@ public class GenericClientSession implements ClientSession {
     return serializer;
   }
 
+  @Override
+  public int getCapabilities() {
+    return capabilities;
+  }
+
 }
@@ -2,7 +2,9 @@ package dk.alexandra.fresco.outsourcing.client;
 
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.outsourcing.server.DemoClientSessionRequestHandler.QueuedClient;
+import dk.alexandra.fresco.outsourcing.server.OpenAdmission;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,9 +19,30 @@ public class GenericClientSessionEndpoint extends AbstractSessionEndPoint<Generi
     super(resourcePool, definition, expectedClients);
   }
 
+  /**
+   * Creates an endpoint for a fixed number of clients, dropping clients that have not registered
+   * with all servers within the given time from all clients registering with server 1.
+   */
+  public GenericClientSessionEndpoint(SpdzResourcePool resourcePool,
+                                      FieldDefinition definition,
+                                      int expectedClients,
+                                      Duration stragglerTimeout) {
+    super(resourcePool, definition, expectedClients, stragglerTimeout);
+  }
+
+  /**
+   * Creates an endpoint admitting clients until the given admission policy closes.
+   */
+  public GenericClientSessionEndpoint(SpdzResourcePool resourcePool,
+                                      FieldDefinition definition,
+                                      OpenAdmission admission) {
+    super(resourcePool, definition, admission);
+  }
+
   @Override
   protected GenericClientSession getClientSession(QueuedClient client) {
-    return new GenericClientSession(client.getClientId(), client.getNetwork(), definition);
+    return new GenericClientSession(client.getClientId(), client.getNetwork(), definition,
+        client.getCapabilities());
   }
 
 }
@@ -0,0 +1,26 @@
+package dk.alexandra.fresco.outsourcing.client;
+
+/**
+ * How a client communicates with the servers when it sends or receives a message for each server.
+ */
+public enum ServerIoMode {
+
+  /**
+   * Communicates with one server after the other, in the order the servers are given. The time
+   * taken is the sum of the time taken for each server.
+   */
+  SEQUENTIAL,
+
+  /**
+   * Communicates with all servers in parallel, so the time taken is bounded by the slowest server.
+   */
+  CONCURRENT,
+
+  /**
+   * Communicates with all servers in parallel like {@link #CONCURRENT}, but on virtual threads
+   * rather than a shared pool of platform threads. This suits running many clients in one JVM, and
+   * requires Java 21 or later.
+   */
+  CONCURRENT_VIRTUAL_THREADS
+
+}
@@ -1,11 +1,12 @@
 package dk.alexandra.fresco.outsourcing.client.ddnnt;
 
+import dk.alexandra.fresco.framework.MaliciousException;
 import dk.alexandra.fresco.framework.Party;
-import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.outsourcing.client.ConcreteClientBase;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
+import dk.alexandra.fresco.outsourcing.field.PackedField;
+import dk.alexandra.fresco.outsourcing.field.PackedFieldVector;
 
-import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -13,39 +14,39 @@ import java.util.List;
  */
 public abstract class DdnntClientBase extends ConcreteClientBase {
 
+  private PackedField packedField;
+
   /**
    * Creates new {@link ConcreteClientBase}.
    *
    * @param clientId client ID
    * @param servers  servers to connect to
+   * @param serverIoMode how to communicate with the servers
    */
-  DdnntClientBase(int clientId, List<Party> servers) {
-    super(clientId, servers);
+  DdnntClientBase(int clientId, List<Party> servers, ServerIoMode serverIoMode) {
+    super(clientId, servers, serverIoMode);
   }
 
   /**
-   * Computes pairwise sum of left and right elements.
+   * Gives the field used for the arithmetic on the shares received from the servers. Must only be
+   * called after the handshake.
    */
-  final List<FieldElement> sumLists(List<FieldElement> left, List<FieldElement> right) {
-    if (left.size() != right.size()) {
-      throw new IllegalArgumentException("Left and right should be same size");
-    }
-    List<FieldElement> res = new ArrayList<>(left.size());
-    for (int i = 0; i < left.size(); i++) {
-      FieldElement b = left.get(i).add(right.get(i));
-      res.add(b);
+  final PackedField getPackedField() {
+    if (packedField == null) {
+      packedField = new PackedField(getDefinition().getModulus());
     }
-    return res;
+    return packedField;
   }
 
   /**
-   * Returns true if a * b = c, false otherwise.
+   * Reads a vector of shares sent by a server, in the format of the field definition of the
+   * servers.
    */
-  final boolean productCheck(FieldElement a, FieldElement b, FieldElement c) {
-    FieldElement actualProd = a.multiply(b);
-    BigInteger actualProdConverted = getDefinition().convertToUnsigned(actualProd);
-    BigInteger expected = getDefinition().convertToUnsigned(c);
-    return actualProdConverted.equals(expected);
+  final PackedFieldVector deserializeShares(byte[] message, int serverId) {
+    if (message.length % getPackedField().getByteLength() != 0) {
+      throw new MaliciousException("Received malformed shares from server " + serverId);
+    }
+    return getPackedField().deserialize(message);
   }
 
 }
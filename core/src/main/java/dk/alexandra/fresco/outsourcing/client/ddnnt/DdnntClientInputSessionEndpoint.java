@@ -3,6 +3,7 @@ package dk.alexandra.fresco.outsourcing.client.ddnnt;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.outsourcing.client.AbstractSessionEndPoint;
 import dk.alexandra.fresco.outsourcing.server.DemoClientSessionRequestHandler.QueuedClient;
+import dk.alexandra.fresco.outsourcing.server.OpenAdmission;
 import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
 import dk.alexandra.fresco.outsourcing.server.ddnnt.SpdzDdnntTuple;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
@@ -12,27 +13,106 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class DdnntClientInputSessionEndpoint extends AbstractSessionEndPoint<DdnntClientInputSession> {
 
   private static final Logger logger = LoggerFactory
           .getLogger(DdnntClientInputSessionEndpoint.class);
 
+  private final TripleDistributor tripleSource;
+
+  /**
+   * Constructs an endpoint taking triples directly from the SPDZ data supplier when a session is
+   * produced.
+   */
   public DdnntClientInputSessionEndpoint(SpdzResourcePool resourcePool,
                                          FieldDefinition definition,
                                          int expectedClients) {
     super(resourcePool, definition, expectedClients);
+    this.tripleSource = spdzTripleSource(resourcePool);
+  }
+
+  /**
+   * Constructs an endpoint admitting clients until the given admission policy closes, taking
+   * triples directly from the SPDZ data supplier when a session is produced.
+   *
+   * @param admission decides when server 1 closes the admission
+   */
+  public DdnntClientInputSessionEndpoint(SpdzResourcePool resourcePool,
+                                         FieldDefinition definition,
+                                         OpenAdmission admission) {
+    super(resourcePool, definition, admission);
+    this.tripleSource = spdzTripleSource(resourcePool);
+  }
+
+  /**
+   * Constructs an endpoint taking triples from a given source when a session is produced.
+   *
+   * <p>
+   * The source is told about the amount of triples needed by a client as soon as the client
+   * registers. Triples are then taken from the source in the order the sessions are produced.
+   * </p>
+   *
+   * @param tripleSource the source of the triples for all sessions
+   */
+  public DdnntClientInputSessionEndpoint(SpdzResourcePool resourcePool,
+                                         FieldDefinition definition,
+                                         int expectedClients,
+                                         TripleDistributor tripleSource) {
+    super(resourcePool, definition, expectedClients);
+    this.tripleSource = Objects.requireNonNull(tripleSource);
+  }
+
+  /**
+   * Constructs an endpoint admitting clients until the given admission policy closes, taking
+   * triples from a given source when a session is produced.
+   *
+   * @param admission decides when server 1 closes the admission
+   * @param tripleSource the source of the triples for all sessions
+   */
+  public DdnntClientInputSessionEndpoint(SpdzResourcePool resourcePool,
+                                         FieldDefinition definition,
+                                         OpenAdmission admission,
+                                         TripleDistributor tripleSource) {
+    super(resourcePool, definition, admission);
+    this.tripleSource = Objects.requireNonNull(tripleSource);
+  }
+
+  private static TripleDistributor spdzTripleSource(SpdzResourcePool resourcePool) {
+    return amount -> {
+      List<DdnntInputTuple> tripList = new ArrayList<>(amount);
+      for (int i = 0; i < amount; i++) {
+        tripList.add(nextSpdzTuple(resourcePool));
+      }
+      return tripList;
+    };
+  }
+
+  /**
+   * Gives a DDNNT tuple from the next triple of the SPDZ data supplier. The data supplier of the
+   * resource pool is also used by the computations of the servers, so this must only be called from
+   * the thread running them. In particular, a {@link PrefetchingTripleDistributor} needs a data
+   * supplier of its own.
+   *
+   * @param resourcePool the resource pool of the data supplier
+   * @return the next tuple
+   */
+  public static DdnntInputTuple nextSpdzTuple(SpdzResourcePool resourcePool) {
+    SpdzTriple trip = resourcePool
+            .getDataSupplier()
+            .getNextTriple();
+    return new SpdzDdnntTuple(trip);
+  }
+
+  @Override
+  protected void clientRegistered(QueuedClient client) {
+    tripleSource.reserve(client.getInputAmount());
   }
 
   @Override
   protected DdnntClientInputSession getClientSession(QueuedClient client) {
-    List<DdnntInputTuple> tripList = new ArrayList<>(client.getInputAmount());
-    for (int i = 0; i < client.getInputAmount(); i++) {
-      SpdzTriple trip = resourcePool
-              .getDataSupplier()
-              .getNextTriple();
-      tripList.add(new SpdzDdnntTuple(trip));
-    }
+    List<DdnntInputTuple> tripList = tripleSource.getTriples(client.getInputAmount());
     TripleDistributor distributor = new PreLoadedTripleDistributor(tripList);
     return new DdnntClientInputSession(client.getClientId(),
             client.getInputAmount(), client.getNetwork(), distributor, definition);
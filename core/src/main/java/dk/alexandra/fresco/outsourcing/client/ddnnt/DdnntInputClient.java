@@ -4,16 +4,17 @@ import dk.alexandra.fresco.framework.MaliciousException;
 import dk.alexandra.fresco.framework.Party;
 import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
-import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.util.ExceptionConverter;
 import dk.alexandra.fresco.outsourcing.client.InputClient;
-import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
+import dk.alexandra.fresco.outsourcing.field.PackedField;
+import dk.alexandra.fresco.outsourcing.field.PackedFieldVector;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,7 +31,8 @@ import org.slf4j.LoggerFactory;
  * coordinate on the preprocessed material to use for each client.
  * <li>The client will then connect to all other servers and send an introductory message including
  * it's priority, the unique id and the number of inputs of the client.
- * <li>From the servers the client receives shares of a triple for each input.
+ * <li>From the servers the client receives shares of a triple for each input. By default, the
+ * shares are received from all servers concurrently, see {@link ServerIoMode}.
  * <li>The client checks if the shares reconstructs to a correct triple.
  * <li>If so, the client uses the reconstructed first value of the triple to mask the input and
  * sends this value to each servers.
@@ -59,7 +61,22 @@ public class DdnntInputClient extends DdnntClientBase implements InputClient {
    */
   public DdnntInputClient(int numInputs, int clientId, List<Party> servers,
       Function<BigInteger, FieldDefinition> definitionSupplier) {
-    super(clientId, servers);
+    this(numInputs, clientId, servers, definitionSupplier, ServerIoMode.CONCURRENT);
+  }
+
+  /**
+   * Constructs a new input client delivering a given number of values to a given set of servers.
+   *
+   * @param numInputs number of input values to deliver
+   * @param clientId the unique id of the client (should be unique among all clients)
+   * @param servers a list of servers to deliver input to
+   * @param definitionSupplier supplier of the field definition given the modulus used by the
+   *     servers
+   * @param serverIoMode how to communicate with the servers
+   */
+  public DdnntInputClient(int numInputs, int clientId, List<Party> servers,
+      Function<BigInteger, FieldDefinition> definitionSupplier, ServerIoMode serverIoMode) {
+    super(clientId, servers, serverIoMode);
     this.numInputs = numInputs;
     ExceptionConverter.safe(() -> {
       this.handshake(definitionSupplier, numInputs);
@@ -72,47 +89,44 @@ public class DdnntInputClient extends DdnntClientBase implements InputClient {
     if (inputs.size() != numInputs) {
       throw new IllegalArgumentException("Number of inputs does match");
     }
-    List<FieldElement> accA =
-        IntStream.range(0, numInputs).mapToObj(i -> getDefinition().createElement(0))
-            .collect(Collectors.toList());
-    List<FieldElement> accB =
-        IntStream.range(0, numInputs).mapToObj(i -> getDefinition().createElement(0))
-            .collect(Collectors.toList());
-    List<FieldElement> accC =
-        IntStream.range(0, numInputs).mapToObj(i -> getDefinition().createElement(0))
-            .collect(Collectors.toList());
-    for (Party s : getServers()) {
-      TwoPartyNetwork network = getServerNetworks().get(s.getPartyId());
-      List<FieldElement> tmpA = getDefinition().deserializeList(network.receive());
-      accA = sumLists(accA, tmpA);
-      List<FieldElement> tmpB = getDefinition().deserializeList(network.receive());
-      accB = sumLists(accB, tmpB);
-      List<FieldElement> tmpC = getDefinition().deserializeList(network.receive());
-      accC = sumLists(accC, tmpC);
-      if (!(tmpA.size() == numInputs && tmpB.size() == numInputs && tmpC.size() == numInputs)) {
+    Map<Integer, List<PackedFieldVector>> tuples = forEachServer((s, network) -> {
+      List<PackedFieldVector> tuple = new ArrayList<>(3);
+      for (int i = 0; i < 3; i++) {
+        tuple.add(deserializeShares(network.receive(), s.getPartyId()));
+      }
+      if (!(tuple.get(0).size() == numInputs && tuple.get(1).size() == numInputs
+          && tuple.get(2).size() == numInputs)) {
         throw new MaliciousException(
             "Number of input tuple shares received not matching the number of inputs");
       }
       logger.info("C{}: Received input tuples from server {}", getClientId(), s);
+      return tuple;
+    });
+    PackedField field = getPackedField();
+    PackedFieldVector accA = field.zeros(numInputs);
+    PackedFieldVector accB = field.zeros(numInputs);
+    PackedFieldVector accC = field.zeros(numInputs);
+    for (List<PackedFieldVector> tuple : tuples.values()) {
+      accA.add(tuple.get(0));
+      accB.add(tuple.get(1));
+      accC.add(tuple.get(2));
     }
-    for (int i = 0; i < accA.size(); i++) {
-      FieldElement a = accA.get(i);
-      FieldElement b = accB.get(i);
-      FieldElement c = accC.get(i);
-      if (!productCheck(a, b, c)) {
-        logger.debug("Product was {} but should be {}", a.multiply(b), c);
-        throw new MaliciousException("Mac for input " + i + " did not pass check");
-      }
+    int failed = accC.indexOfNonProduct(accA, accB);
+    if (failed >= 0) {
+      logger.debug("Product was {} but should be {}",
+          accA.get(failed).multiply(accB.get(failed)).mod(field.getModulus()), accC.get(failed));
+      throw new MaliciousException("Mac for input " + failed + " did not pass check");
     }
-    List<FieldElement> maskedInputs = new ArrayList<>(numInputs);
-    for (int i = 0; i < inputs.size(); i++) {
-      maskedInputs.add(getDefinition().createElement(inputs.get(i)).subtract(accA.get(i)));
+    PackedFieldVector maskedInputs = field.zeros(numInputs);
+    for (int i = 0; i < numInputs; i++) {
+      maskedInputs.set(i, inputs.get(i));
     }
-    for (Party s : getServers()) {
-      TwoPartyNetwork network = getServerNetworks().get(s.getPartyId());
-      network.send(getDefinition().serialize(maskedInputs));
+    byte[] message = maskedInputs.subtract(accA).serialize();
+    forEachServer((s, network) -> {
+      network.send(message);
       logger.info("C{}: Send masked input to {}", getClientId(), s);
-    }
+      return null;
+    });
   }
 
   @Override
@@ -4,17 +4,19 @@ import dk.alexandra.fresco.framework.MaliciousException;
 import dk.alexandra.fresco.framework.Party;
 import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
-import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
 import dk.alexandra.fresco.outsourcing.client.OutputClient;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
+import dk.alexandra.fresco.outsourcing.field.PackedFieldVector;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.utils.GenericUtils;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,84 +28,145 @@ import org.slf4j.LoggerFactory;
 public class DdnntOutputClient extends DdnntClientBase implements OutputClient {
   private static final Logger logger = LoggerFactory.getLogger(DdnntOutputClient.class);
 
+  private static final int SHARES_PER_OUTPUT = 5;
+  private final boolean batchedOutput;
+
+  /**
+   * Constructs a new output client.
+   *
+   * @param clientId the id of the client
+   * @param servers the servers to receive output from
+   * @param definitionSupplier supplier of the field definition given the modulus used by the servers
+   * @param batchedOutput if true the client asks the servers to send all output shares in a single
+   *     message, otherwise the shares of each output are sent in a separate message
+   */
   public DdnntOutputClient(int clientId,
       List<Party> servers,
-      Function<BigInteger, FieldDefinition> definitionSupplier) {
-    super(clientId, servers);
+      Function<BigInteger, FieldDefinition> definitionSupplier,
+      boolean batchedOutput) {
+    this(clientId, servers, definitionSupplier, batchedOutput, ServerIoMode.CONCURRENT);
+  }
+
+  /**
+   * Constructs a new output client.
+   *
+   * @param clientId the id of the client
+   * @param servers the servers to receive output from
+   * @param definitionSupplier supplier of the field definition given the modulus used by the servers
+   * @param batchedOutput if true the client asks the servers to send all output shares in a single
+   *     message, otherwise the shares of each output are sent in a separate message
+   * @param serverIoMode how to communicate with the servers
+   */
+  public DdnntOutputClient(int clientId,
+      List<Party> servers,
+      Function<BigInteger, FieldDefinition> definitionSupplier,
+      boolean batchedOutput,
+      ServerIoMode serverIoMode) {
+    super(clientId, servers, serverIoMode);
+    this.batchedOutput = batchedOutput;
     ExceptionConverter.safe(() -> {
       this.handshake(definitionSupplier, 1);
       return null;
     }, "Failed client handshake");
   }
 
+  public DdnntOutputClient(int clientId,
+      List<Party> servers,
+      Function<BigInteger, FieldDefinition> definitionSupplier) {
+    this(clientId, servers, definitionSupplier, true);
+  }
+
   public DdnntOutputClient(int clientId, List<Party> servers) {
     this(clientId, servers, BigIntegerFieldDefinition::new);
   }
 
   @Override
-  public List<BigInteger> getBigIntegerOutputs() {
-    int numOutputs = receiveNumOutputs();
-
-    List<List<FieldElement>> outputs = new ArrayList<>();
-    List<BigInteger> finalResult = new ArrayList<>();
-
-    for (int k = 0; k < numOutputs; k++) {
-      List<FieldElement> el = IntStream.range(0, 5)
-          .mapToObj(i -> getDefinition().createElement(0))
-          .collect(Collectors.toList());
-      outputs.add(el);
-    }
-
-    for (Party s : getServers()) {
-      TwoPartyNetwork network = getServerNetworks().get(s.getPartyId());
-
-      for (int i = 0; i < numOutputs; i++) {
-        List<FieldElement> tmpList = getDefinition().deserializeList(network.receive());
-        outputs.set(i, sumLists(outputs.get(i), tmpList));
-      }
+  protected int getCapabilities() {
+    return batchedOutput ? ClientCapabilities.BATCHED_OUTPUT : ClientCapabilities.NONE;
+  }
 
+  @Override
+  public List<BigInteger> getBigIntegerOutputs() {
+    Map<Integer, PackedFieldVector> received = forEachServer((s, network) -> {
+      PackedFieldVector serverShares = receiveOutputShares(s.getPartyId(), network);
       logger.info("C{}: Received output shares from server {}", getClientId(), s);
+      return serverShares;
+    });
+    PackedFieldVector shares = null;
+    for (PackedFieldVector serverShares : received.values()) {
+      if (shares == null) {
+        shares = serverShares;
+      } else if (serverShares.size() != shares.size()) {
+        throw new MaliciousException("Received incorrect number of outputs for servers");
+      } else {
+        shares.add(serverShares);
+      }
     }
 
-    for (List<FieldElement> e : outputs) {
-      FieldElement r = e.get(0);
-      FieldElement v = e.get(1);
-      FieldElement w = e.get(2);
-      FieldElement u = e.get(3);
-      FieldElement y = e.get(4);
-      if (!productCheck(y, r, w)) {
-        logger.debug("y * r was {} but should be {}", y.multiply(r), w);
+    BigInteger modulus = getPackedField().getModulus();
+    List<BigInteger> finalResult = new ArrayList<>(shares.size() / SHARES_PER_OUTPUT);
+    for (int i = 0; i < shares.size(); i += SHARES_PER_OUTPUT) {
+      int r = i;
+      int v = i + 1;
+      int w = i + 2;
+      int u = i + 3;
+      int y = i + 4;
+      if (!shares.isProduct(w, shares, y, shares, r)) {
+        logger.debug("y * r was {} but should be {}",
+            shares.get(y).multiply(shares.get(r)).mod(modulus), shares.get(w));
         throw new MaliciousException("Authentication did not pass check");
-      } else if (!productCheck(v, r, u)) {
-        logger.debug("v * r was {} but should be {}", v.multiply(r), u);
+      } else if (!shares.isProduct(u, shares, v, shares, r)) {
+        logger.debug("v * r was {} but should be {}",
+            shares.get(v).multiply(shares.get(r)).mod(modulus), shares.get(u));
         throw new MaliciousException("Authentication did not pass check");
       } else {
-        finalResult.add(getDefinition().convertToUnsigned(y));
+        finalResult.add(shares.get(y));
       }
     }
     return finalResult;
   }
 
   /**
-   * Receives number of outputs from all servers and verifies that info is consistent.
+   * Receives the output shares from a given party, as a flat vector holding the r, v, w, u and y
+   * shares of each output in turn.
+   *
+   * <p>
+   * A server either sends a message with only the number of outputs followed by one message per
+   * output, or a single message with the number of outputs followed by the shares of all outputs.
+   * The former is used if the server does not support batched output, or if batching was not
+   * requested.
+   * </p>
    */
-  private int receiveNumOutputs() {
-    int numOutputs = getNumOutputsFrom(getServers().get(0).getPartyId());
-    for (Party s : getServers().subList(1, getServers().size())) {
-      int newNumOutputs = getNumOutputsFrom(s.getPartyId());
-      if (newNumOutputs != numOutputs) {
-        throw new MaliciousException("Received incorrect number of outputs for servers");
+  private PackedFieldVector receiveOutputShares(int partyId, TwoPartyNetwork network) {
+    byte[] message = network.receive();
+    if (message.length < Integer.BYTES) {
+      throw new MaliciousException("Received malformed output message from server " + partyId);
+    }
+    int numOutputs = GenericUtils.intFromBytes(message);
+    if (numOutputs < 0) {
+      throw new MaliciousException("Received negative number of outputs from server " + partyId);
+    }
+    int byteLength = getPackedField().getByteLength();
+    if (message.length == Integer.BYTES) {
+      PackedFieldVector shares = getPackedField().zeros(numOutputs * SHARES_PER_OUTPUT);
+      for (int i = 0; i < numOutputs; i++) {
+        byte[] outputMessage = network.receive();
+        if (outputMessage.length != SHARES_PER_OUTPUT * byteLength) {
+          throw new MaliciousException("Received incorrect number of output shares from server "
+              + partyId);
+        }
+        shares.setSerialized(outputMessage, 0, i * SHARES_PER_OUTPUT, SHARES_PER_OUTPUT);
+      }
+      return shares;
+    } else {
+      if (message.length - Integer.BYTES != (long) numOutputs * SHARES_PER_OUTPUT * byteLength) {
+        throw new MaliciousException("Received incorrect number of output shares from server "
+            + partyId);
       }
+      PackedFieldVector shares = getPackedField().zeros(numOutputs * SHARES_PER_OUTPUT);
+      shares.setSerialized(message, Integer.BYTES, 0, shares.size());
+      return shares;
     }
-    return numOutputs;
-  }
-
-  /**
-   * Receives number of outputs from given party.
-   */
-  private int getNumOutputsFrom(int partyId) {
-    TwoPartyNetwork network = getServerNetworks().get(partyId);
-    return GenericUtils.intFromBytes(network.receive());
   }
 
   @Override
@@ -0,0 +1,131 @@
+package dk.alexandra.fresco.outsourcing.client.ddnnt;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.SpdzDdnntTuple;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A triple distributor serving tuples from a file written by a {@link TripleFileWriter}.
+ *
+ * <p>
+ * The tuples are read through memory mapping. The file keeps a cursor pointing to the first tuple
+ * not yet used. The cursor is advanced and written to disk before any tuples are handed out, so
+ * tuples are never reused, even if the server is restarted. As the servers must agree on which
+ * tuples are used, all servers should start out with files in the same state.
+ * </p>
+ *
+ * <p>
+ * The MAC shares of the tuples are only valid under the MAC key they were generated with, so the
+ * file is only opened with the same share of the MAC key as the file holds, see {@link
+ * #readMacKeyShare(Path, FieldDefinition)}.
+ * </p>
+ */
+public class MappedFileTripleDistributor implements TripleDistributor, Closeable {
+
+  private final TripleFileFormat format;
+  private final FileChannel channel;
+  private final MappedByteBuffer header;
+  private final long count;
+  private long cursor;
+
+  /**
+   * Opens a file of tuples.
+   *
+   * @param file the file to read from
+   * @param definition the field of the tuples
+   * @param macKeyShare this server's share of the MAC key of the resource pool using the tuples
+   * @throws IOException if the file cannot be opened
+   * @throws IllegalArgumentException if the file is not a tuple file for the field and MAC key
+   */
+  public MappedFileTripleDistributor(Path file, FieldDefinition definition,
+      FieldElement macKeyShare) throws IOException {
+    this.format = new TripleFileFormat(definition);
+    this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      format.validateHeader(channel, macKeyShare);
+    } catch (IllegalArgumentException e) {
+      channel.close();
+      throw e;
+    }
+    this.header = channel.map(MapMode.READ_WRITE, 0, format.headerSize());
+    this.count = header.getLong(TripleFileFormat.COUNT_OFFSET);
+    this.cursor = header.getLong(TripleFileFormat.CURSOR_OFFSET);
+  }
+
+  /**
+   * Reads this server's share of the MAC key the tuples of a file were generated with, so a
+   * resource pool using the tuples can be set up with the same MAC key.
+   *
+   * @param file the file to read from
+   * @param definition the field of the tuples
+   * @return the share of the MAC key
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file is not a tuple file for the field
+   */
+  public static FieldElement readMacKeyShare(Path file, FieldDefinition definition)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new TripleFileFormat(definition).readHeader(channel);
+    }
+  }
+
+  /**
+   * Gives the number of tuples left in the file.
+   *
+   * @return the number of unused tuples
+   */
+  public synchronized long remaining() {
+    return count - cursor;
+  }
+
+  /**
+   * Serves the next unused tuples of the file.
+   *
+   * @throws IndexOutOfBoundsException if the file does not hold enough unused tuples
+   */
+  @Override
+  public synchronized List<DdnntInputTuple> getTriples(int amount) {
+    if (amount < 0 || amount > count - cursor) {
+      throw new IndexOutOfBoundsException(
+          "Can not get " + amount + " triples. " + (count - cursor) + " left in file.");
+    }
+    long first = cursor;
+    cursor += amount;
+    header.putLong(TripleFileFormat.CURSOR_OFFSET, cursor);
+    header.force();
+    if (amount == 0) {
+      return new ArrayList<>(0);
+    }
+    ByteBuffer records = ExceptionConverter.safe(() -> channel.map(MapMode.READ_ONLY,
+        format.recordOffset(first), (long) amount * format.recordSize()),
+        "Failed to map tuples from file");
+    List<DdnntInputTuple> tuples = new ArrayList<>(amount);
+    for (int i = 0; i < amount; i++) {
+      FieldElement shareA = format.getElement(records);
+      FieldElement macA = format.getElement(records);
+      FieldElement shareB = format.getElement(records);
+      FieldElement shareC = format.getElement(records);
+      tuples.add(new SpdzDdnntTuple(new SpdzSInt(shareA, macA), shareB, shareC));
+    }
+    return tuples;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+}
@@ -0,0 +1,216 @@
+package dk.alexandra.fresco.outsourcing.client.ddnnt;
+
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A triple distributor generating triples ahead of demand on a background thread.
+ *
+ * <p>
+ * Ready triples are kept in a bounded buffer. The background producer fills the buffer up to the
+ * high watermark, and then pauses until the buffer has been drained down to the low watermark.
+ * Requests are served from the buffer and only block if the producer has not caught up yet.
+ * </p>
+ *
+ * <p>
+ * The producer only generates triples that have been announced through {@link #reserve(int)}, or
+ * requested through {@link #getTriples(int)}, so it does not run far ahead of the clients. Triples
+ * announced for clients that are dropped are generated, but never requested, which does not affect
+ * the order in which the other triples are served.
+ * </p>
+ *
+ * <p>
+ * The source is called from the background thread only. It must therefore not be shared with
+ * anything else, such as the computations of the server, as a SPDZ data supplier is not thread
+ * safe, and the servers would take the triples in different orders. Use a source of its own,
+ * e.g., from {@link dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils#getDummyTripleSupplier} or
+ * {@link dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils#getMascotTripleSupplier}.
+ * </p>
+ *
+ * <p>
+ * As for any triple distributor, all servers must request triples in the same order to agree on
+ * which triples are used for which client. This distributor is meant to be shared by all sessions
+ * of an endpoint and called only from the thread producing the sessions.
+ * </p>
+ */
+public class PrefetchingTripleDistributor implements TripleDistributor, Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PrefetchingTripleDistributor.class);
+  public static final int DEFAULT_LOW_WATERMARK = 1000;
+  public static final int DEFAULT_HIGH_WATERMARK = 10000;
+
+  private final Supplier<DdnntInputTuple> source;
+  private final int lowWatermark;
+  private final int highWatermark;
+  private final Deque<DdnntInputTuple> ready;
+  private final ReentrantLock lock;
+  private final Condition produce;
+  private final Condition available;
+  private final Thread producer;
+  private long reserved;
+  private long requested;
+  private long produced;
+  private boolean filling;
+  private boolean closed;
+  private RuntimeException failure;
+
+  /**
+   * Constructs a new distributor with the default watermarks.
+   *
+   * @param source the source to generate triples from
+   */
+  public PrefetchingTripleDistributor(Supplier<DdnntInputTuple> source) {
+    this(source, DEFAULT_LOW_WATERMARK, DEFAULT_HIGH_WATERMARK);
+  }
+
+  /**
+   * Constructs a new distributor.
+   *
+   * @param source the source to generate triples from
+   * @param lowWatermark the number of ready triples at which the producer resumes
+   * @param highWatermark the maximum number of ready triples
+   */
+  public PrefetchingTripleDistributor(Supplier<DdnntInputTuple> source, int lowWatermark,
+      int highWatermark) {
+    if (lowWatermark < 0 || highWatermark < 1 || lowWatermark >= highWatermark) {
+      throw new IllegalArgumentException(
+          "Watermarks must satisfy 0 <= low < high, but were: " + lowWatermark + ", "
+              + highWatermark);
+    }
+    this.source = Objects.requireNonNull(source);
+    this.lowWatermark = lowWatermark;
+    this.highWatermark = highWatermark;
+    this.ready = new ArrayDeque<>(highWatermark);
+    this.lock = new ReentrantLock();
+    this.produce = lock.newCondition();
+    this.available = lock.newCondition();
+    this.filling = true;
+    this.producer = new Thread(this::produce);
+    this.producer.setDaemon(true);
+    this.producer.setName("Triple Prefetcher");
+    this.producer.start();
+  }
+
+  @Override
+  public void reserve(int amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("Can not reserve " + amount + " triples.");
+    }
+    lock.lock();
+    try {
+      reserved += amount;
+      produce.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Serves triples in the order they were generated.
+   *
+   * <p>
+   * Triples requested beyond what has been reserved are reserved implicitly.
+   * </p>
+   */
+  @Override
+  public List<DdnntInputTuple> getTriples(int amount) {
+    if (amount < 0) {
+      throw new IndexOutOfBoundsException("Can not get " + amount + " triples.");
+    }
+    List<DdnntInputTuple> triples = new ArrayList<>(amount);
+    lock.lock();
+    try {
+      requested += amount;
+      if (requested > reserved) {
+        reserved = requested;
+        produce.signal();
+      }
+      while (triples.size() < amount) {
+        while (ready.isEmpty()) {
+          if (failure != null) {
+            throw new RuntimeException("Failed to generate triples", failure);
+          }
+          if (closed) {
+            throw new IllegalStateException("Distributor is closed");
+          }
+          available.awaitUninterruptibly();
+        }
+        triples.add(ready.poll());
+        if (!filling && ready.size() <= lowWatermark) {
+          filling = true;
+          produce.signal();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return triples;
+  }
+
+  /**
+   * Stops the background producer. Triples already generated can still be requested.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      produce.signal();
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void produce() {
+    while (true) {
+      lock.lock();
+      try {
+        while (!closed && !(filling && produced < reserved)) {
+          produce.awaitUninterruptibly();
+        }
+        if (closed) {
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+      DdnntInputTuple tuple;
+      try {
+        tuple = source.get();
+      } catch (RuntimeException e) {
+        logger.error("Failed to generate triple", e);
+        lock.lock();
+        try {
+          failure = e;
+          available.signalAll();
+        } finally {
+          lock.unlock();
+        }
+        return;
+      }
+      lock.lock();
+      try {
+        ready.add(tuple);
+        produced++;
+        if (ready.size() >= highWatermark) {
+          filling = false;
+        }
+        available.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+}
@@ -28,4 +28,14 @@ public interface TripleDistributor {
    */
   List<DdnntInputTuple> getTriples(int amount);
 
+  /**
+   * Announces that the given amount of triples will be requested later on. This lets
+   * distributors prepare triples ahead of time. Clients register concurrently, so this may be
+   * called by several threads at once. By default this does nothing.
+   *
+   * @param amount the amount of triples that will be requested
+   */
+  default void reserve(int amount) {
+  }
+
 }
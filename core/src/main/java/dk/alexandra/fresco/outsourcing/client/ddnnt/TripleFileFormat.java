@@ -0,0 +1,139 @@
+package dk.alexandra.fresco.outsourcing.client.ddnnt;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The binary layout of a file of DDNNT tuples, as written by {@link TripleFileWriter} and read by
+ * {@link MappedFileTripleDistributor}.
+ *
+ * <p>
+ * The file starts with a header, followed by fixed size records of one tuple each. All numbers are
+ * big endian.
+ * <ol>
+ * <li>Bytes 0-3: magic number
+ * <li>Bytes 4-7: format version
+ * <li>Bytes 8-15: number of tuples in the file
+ * <li>Bytes 16-23: cursor, i.e., index of the first tuple not yet used
+ * <li>Bytes 24-27: width in bytes of a field element
+ * <li>Bytes 28-31: length of the modulus
+ * <li>The modulus (as a two's complement byte array)
+ * <li>This server's share of the MAC key, as an unsigned fixed width field element
+ * </ol>
+ * The MAC shares are only valid under the MAC key they were generated with, so the tuples can only
+ * be used by a resource pool with the same share of the MAC key.
+ * Each record holds the share of <i>a</i>, the MAC share of <i>a</i>, and the shares of <i>b</i> and
+ * <i>c</i>, each as an unsigned fixed width field element.
+ * </p>
+ */
+final class TripleFileFormat {
+
+  static final int MAGIC = 0x44444e54; // "DDNT"
+  static final int VERSION = 2;
+  static final int COUNT_OFFSET = 8;
+  static final int CURSOR_OFFSET = 16;
+  static final int ELEMENTS_PER_RECORD = 4;
+  private static final int FIXED_HEADER_SIZE = 32;
+
+  private final FieldDefinition definition;
+  private final byte[] modulus;
+  private final int elementWidth;
+
+  TripleFileFormat(FieldDefinition definition) {
+    this.definition = definition;
+    this.modulus = definition.getModulus().toByteArray();
+    this.elementWidth = (definition.getModulus().bitLength() + Byte.SIZE - 1) / Byte.SIZE;
+  }
+
+  int headerSize() {
+    return FIXED_HEADER_SIZE + modulus.length + elementWidth;
+  }
+
+  int recordSize() {
+    return ELEMENTS_PER_RECORD * elementWidth;
+  }
+
+  long recordOffset(long index) {
+    return headerSize() + index * recordSize();
+  }
+
+  /**
+   * Writes a header for an empty file.
+   *
+   * @param macKeyShare this server's share of the MAC key of the tuples
+   */
+  ByteBuffer newHeader(FieldElement macKeyShare) {
+    ByteBuffer header = ByteBuffer.allocate(headerSize());
+    header.putInt(MAGIC).putInt(VERSION).putLong(0).putLong(0).putInt(elementWidth)
+        .putInt(modulus.length).put(modulus);
+    putElement(header, macKeyShare);
+    header.flip();
+    return header;
+  }
+
+  /**
+   * Reads and validates the header of an existing file, checking that the tuples were generated
+   * with the given share of the MAC key.
+   *
+   * @throws IllegalArgumentException if the file is not a tuple file for this field and MAC key
+   */
+  void validateHeader(FileChannel channel, FieldElement macKeyShare) throws IOException {
+    BigInteger fileMacKeyShare = definition.convertToUnsigned(readHeader(channel));
+    if (!fileMacKeyShare.equals(definition.convertToUnsigned(macKeyShare))) {
+      throw new IllegalArgumentException("Tuple file was generated with a different MAC key");
+    }
+  }
+
+  /**
+   * Reads and validates the header of an existing file.
+   *
+   * @return this server's share of the MAC key of the tuples
+   * @throws IllegalArgumentException if the file is not a tuple file for this field
+   */
+  FieldElement readHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(headerSize());
+    if (channel.size() < headerSize() || channel.read(header, 0) < headerSize()) {
+      throw new IllegalArgumentException("Tuple file header is truncated");
+    }
+    header.flip();
+    if (header.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a tuple file");
+    }
+    int version = header.getInt();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported tuple file version " + version);
+    }
+    header.position(FIXED_HEADER_SIZE - 2 * Integer.BYTES);
+    int width = header.getInt();
+    int modulusLength = header.getInt();
+    byte[] fileModulus = new byte[modulus.length];
+    header.get(fileModulus);
+    if (width != elementWidth || modulusLength != modulus.length
+        || !Arrays.equals(modulus, fileModulus)) {
+      throw new IllegalArgumentException("Tuple file was generated for a different modulus");
+    }
+    return getElement(header);
+  }
+
+  void putElement(ByteBuffer buffer, FieldElement element) {
+    byte[] bytes = definition.convertToUnsigned(element).toByteArray();
+    // Strip the sign byte of BigInteger's encoding and left pad with zeros
+    int offset = bytes.length > elementWidth ? bytes.length - elementWidth : 0;
+    for (int i = bytes.length - offset; i < elementWidth; i++) {
+      buffer.put((byte) 0);
+    }
+    buffer.put(bytes, offset, bytes.length - offset);
+  }
+
+  FieldElement getElement(ByteBuffer buffer) {
+    byte[] bytes = new byte[elementWidth];
+    buffer.get(bytes);
+    return definition.createElement(new BigInteger(1, bytes));
+  }
+
+}
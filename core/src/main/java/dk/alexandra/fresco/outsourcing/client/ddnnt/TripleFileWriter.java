@@ -0,0 +1,148 @@
+package dk.alexandra.fresco.outsourcing.client.ddnnt;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
+import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes DDNNT tuples to a file, so they can be generated offline and used later through a
+ * {@link MappedFileTripleDistributor}.
+ *
+ * <p>
+ * If the file already exists, new tuples are appended to it. This way material can be accumulated
+ * over several offline runs. Note that each server writes its own file holding its shares, and that
+ * all servers must write the same number of tuples in each run for the files to stay aligned.
+ * </p>
+ *
+ * <p>
+ * The file holds this server's share of the MAC key of the tuples, so the tuples are only used with
+ * the same MAC key. With MASCOT, the MAC key of a later run is restored from the file by {@link
+ * dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils#getMascotSetup(int, java.util.Map,
+ * java.util.Map, int, dk.alexandra.fresco.outsourcing.field.FieldType, Path)}.
+ * </p>
+ */
+public class TripleFileWriter implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(TripleFileWriter.class);
+  private static final int RECORDS_PER_WRITE = 1024;
+
+  private final TripleFileFormat format;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long count;
+
+  /**
+   * Opens a file for writing tuples, creating it if it does not exist.
+   *
+   * @param file the file to write to
+   * @param definition the field of the tuples
+   * @param macKeyShare this server's share of the MAC key of the tuples
+   * @throws IOException if the file cannot be opened
+   * @throws IllegalArgumentException if the file is not a tuple file for the field and MAC key
+   */
+  public TripleFileWriter(Path file, FieldDefinition definition, FieldElement macKeyShare)
+      throws IOException {
+    this.format = new TripleFileFormat(definition);
+    boolean exists = Files.exists(file);
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    if (exists) {
+      try {
+        format.validateHeader(channel, macKeyShare);
+      } catch (IllegalArgumentException e) {
+        channel.close();
+        throw e;
+      }
+      ByteBuffer countBuffer = ByteBuffer.allocate(Long.BYTES);
+      channel.read(countBuffer, TripleFileFormat.COUNT_OFFSET);
+      countBuffer.flip();
+      this.count = countBuffer.getLong();
+    } else {
+      channel.write(format.newHeader(macKeyShare), 0);
+      this.count = 0;
+    }
+    channel.position(format.recordOffset(count));
+    this.buffer = ByteBuffer.allocate(format.recordSize() * RECORDS_PER_WRITE);
+  }
+
+  /**
+   * Writes a tuple to the file.
+   *
+   * @param tuple a tuple whose <i>a</i> is a {@link SpdzSInt}
+   * @throws IOException if writing fails
+   */
+  public void write(DdnntInputTuple tuple) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flush();
+    }
+    SpdzSInt a = (SpdzSInt) tuple.getA();
+    format.putElement(buffer, a.getShare());
+    format.putElement(buffer, a.getMac());
+    format.putElement(buffer, tuple.getShareB());
+    format.putElement(buffer, tuple.getShareC());
+  }
+
+  /**
+   * Writes any buffered tuples and updates the tuple count of the file.
+   *
+   * @throws IOException if writing fails
+   */
+  public void flush() throws IOException {
+    int records = buffer.position() / format.recordSize();
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    count += records;
+    ByteBuffer countBuffer = ByteBuffer.allocate(Long.BYTES);
+    countBuffer.putLong(count).flip();
+    channel.write(countBuffer, TripleFileFormat.COUNT_OFFSET);
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Generates tuples from the SPDZ data supplier of a resource pool and appends them to a file.
+   *
+   * <p>
+   * If the data supplier generates triples jointly with the other servers (as in MASCOT) all servers
+   * must run this at the same time with the same amount.
+   * </p>
+   *
+   * @param file the file to write to
+   * @param resourcePool the resource pool to take triples from
+   * @param amount the number of tuples to generate
+   * @throws IOException if writing fails
+   */
+  public static void generate(Path file, SpdzResourcePool resourcePool, long amount)
+      throws IOException {
+    logger.info("S{}: Generating {} tuples to {}", resourcePool.getMyId(), amount, file);
+    try (TripleFileWriter writer = new TripleFileWriter(file, resourcePool.getFieldDefinition(),
+        resourcePool.getDataSupplier().getSecretSharedKey())) {
+      for (long i = 0; i < amount; i++) {
+        writer.write(DdnntClientInputSessionEndpoint.nextSpdzTuple(resourcePool));
+      }
+    }
+  }
+
+}
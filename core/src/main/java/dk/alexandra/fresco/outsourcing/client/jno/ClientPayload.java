@@ -1,9 +1,21 @@
 package dk.alexandra.fresco.outsourcing.client.jno;
 
+import dk.alexandra.fresco.framework.MaliciousException;
 import dk.alexandra.fresco.framework.network.serializers.ByteSerializer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ClientPayload<T> {
+
+  /**
+   * The version of the single message encoding of a payload.
+   */
+  public static final byte WIRE_VERSION = 1;
+  private static final int HEADER_LENGTH = 1 + 2 * Integer.BYTES;
+  private static final int ELEMENTS_BEFORE_X = 3;
+
   private final T t;
   private final T k;
   private final T r;
@@ -39,6 +51,79 @@ public class ClientPayload<T> {
     return x;
   }
 
+  /**
+   * Encodes the payload as a single message.
+   *
+   * <p>
+   * The message starts with a header consisting of the {@link #WIRE_VERSION} byte, followed by the
+   * length of a single serialized element and the number of x values, both as big endian ints.
+   * After the header follows t, k, r and the x values, serialized contiguously.
+   * </p>
+   *
+   * @param serializer serializer of the elements, which must serialize all elements to the same
+   *     length
+   * @return the encoded payload
+   */
+  public byte[] serialize(ByteSerializer<T> serializer) {
+    List<T> elements = new ArrayList<>(ELEMENTS_BEFORE_X + x.size());
+    elements.add(t);
+    elements.add(k);
+    elements.add(r);
+    elements.addAll(x);
+    byte[] body = serializer.serialize(elements);
+    if (body.length % elements.size() != 0) {
+      throw new IllegalArgumentException("Elements must be serialized to a fixed length");
+    }
+    return ByteBuffer.allocate(HEADER_LENGTH + body.length)
+        .put(WIRE_VERSION)
+        .putInt(body.length / elements.size())
+        .putInt(x.size())
+        .put(body)
+        .array();
+  }
+
+  /**
+   * Decodes a payload encoded by {@link #serialize(ByteSerializer)}.
+   *
+   * <p>
+   * Each element is read from its position in the message, so the message is not split up first.
+   * </p>
+   *
+   * @param serializer serializer of the elements
+   * @param message the encoded payload
+   * @return the payload
+   */
+  public static <T> ClientPayload<T> deserialize(ByteSerializer<T> serializer, byte[] message) {
+    if (message.length < HEADER_LENGTH) {
+      throw new MaliciousException("Client payload of " + message.length + " bytes is too short");
+    }
+    ByteBuffer header = ByteBuffer.wrap(message, 0, HEADER_LENGTH);
+    byte version = header.get();
+    if (version != WIRE_VERSION) {
+      throw new MaliciousException("Unsupported client payload version " + version);
+    }
+    int elementLength = header.getInt();
+    int amount = header.getInt();
+    if (elementLength < 1 || amount < 0
+        || (long) elementLength * (ELEMENTS_BEFORE_X + amount) != message.length - HEADER_LENGTH) {
+      throw new MaliciousException("Malformed client payload");
+    }
+    T deserializedT = deserializeAt(serializer, message, 0, elementLength);
+    T deserializedK = deserializeAt(serializer, message, 1, elementLength);
+    T deserializedR = deserializeAt(serializer, message, 2, elementLength);
+    List<T> deserializedX = new ArrayList<>(amount);
+    for (int i = 0; i < amount; i++) {
+      deserializedX.add(deserializeAt(serializer, message, ELEMENTS_BEFORE_X + i, elementLength));
+    }
+    return new ClientPayload<>(deserializedT, deserializedK, deserializedR, deserializedX);
+  }
+
+  private static <T> T deserializeAt(ByteSerializer<T> serializer, byte[] message, int index,
+      int elementLength) {
+    int from = HEADER_LENGTH + index * elementLength;
+    return serializer.deserialize(Arrays.copyOfRange(message, from, from + elementLength));
+  }
+
   public static <T> ClientPayload<T> deserialize(ByteSerializer<T> serializer, byte[] t, byte[] k, byte[] r, byte[] xList) {
     T deserializedT = serializer.deserialize(t);
     T deserializedK = serializer.deserialize(k);
@@ -47,5 +132,4 @@ public class ClientPayload<T> {
     return new ClientPayload<>(deserializedT, deserializedK, deserializedR, deserializedX);
   }
 
-
 }
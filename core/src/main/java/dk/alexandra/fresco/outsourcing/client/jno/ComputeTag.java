@@ -0,0 +1,78 @@
+package dk.alexandra.fresco.outsourcing.client.jno;
+
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.builder.Computation;
+import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.lib.common.math.AdvancedNumeric;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the tag on a client's secret shared input, given the opened key.
+ *
+ * <p>
+ * For inputs <i>x<sub>1</sub>, ..., x<sub>n</sub></i>, randomness <i>r</i> and key <i>k</i>, the tag
+ * is <i>x<sub>1</sub>k + ... + x<sub>n</sub>k<sup>n</sup> + rk<sup>n+1</sup> +
+ * k<sup>n+3</sup></i>. As the key is public, all its powers are computed locally up front, and the
+ * tag is evaluated as a single inner product of the public powers with the secret values. This
+ * makes the tag a linear combination evaluated in parallel, rather than a chain of additions
+ * growing with the number of inputs.
+ * </p>
+ */
+public class ComputeTag implements Computation<SInt, ProtocolBuilderNumeric> {
+    private final List<DRes<SInt>> inputs;
+    private final DRes<BigInteger> key;
+    private final DRes<SInt> randomness;
+
+    /**
+     * Creates a new tag computation.
+     *
+     * @param inputs the shared inputs of the client
+     * @param key the opened key, which must be available when the computation is built
+     * @param randomness the shared randomness of the client
+     */
+    public ComputeTag(List<DRes<SInt>> inputs, DRes<BigInteger> key, DRes<SInt> randomness) {
+        this.inputs = inputs;
+        this.key = key;
+        this.randomness = randomness;
+    }
+
+    @Override
+    public DRes<SInt> buildComputation(ProtocolBuilderNumeric builder) {
+        BigInteger modulus = builder.getBasicNumericContext().getModulus();
+        List<BigInteger> powers = keyPowers(key.out(), inputs.size() + 3, modulus);
+        List<DRes<SInt>> values = new ArrayList<>(inputs.size() + 1);
+        values.addAll(inputs);
+        values.add(randomness);
+        return builder.seq(seq -> AdvancedNumeric.using(seq)
+                .innerProductWithPublicPart(powers.subList(0, values.size()), values))
+                .seq((seq, tag) -> seq.numeric().add(powers.get(powers.size() - 1), tag));
+    }
+
+    /**
+     * Computes the powers <i>k, k<sup>2</sup>, ..., k<sup>count</sup></i> of a key modulo a given
+     * modulus.
+     *
+     * <p>
+     * Each power is computed from the previous one with a single modular multiplication, which is
+     * cheaper than exponentiating for each power.
+     * </p>
+     *
+     * @param key the key
+     * @param count the number of powers
+     * @param modulus the modulus
+     * @return the powers in increasing order
+     */
+    static List<BigInteger> keyPowers(BigInteger key, int count, BigInteger modulus) {
+        List<BigInteger> powers = new ArrayList<>(count);
+        BigInteger reducedKey = key.mod(modulus);
+        BigInteger power = reducedKey;
+        for (int i = 0; i < count; i++) {
+            powers.add(power);
+            power = power.multiply(reducedKey).mod(modulus);
+        }
+        return powers;
+    }
+}
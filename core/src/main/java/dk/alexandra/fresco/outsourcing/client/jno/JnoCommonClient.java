@@ -5,8 +5,9 @@ import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.util.Drbg;
 import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
 import dk.alexandra.fresco.outsourcing.client.ConcreteClientBase;
-import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
 import dk.alexandra.fresco.outsourcing.utils.GenericUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,12 +22,52 @@ public class JnoCommonClient extends ConcreteClientBase {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final int amount;
     private final Drbg drbg;
+    private final boolean singleFramePayload;
 
     public JnoCommonClient(int amount, int clientId, List<Party> servers,
                            Function<BigInteger, FieldDefinition> definitionSupplier, Drbg drbg) {
-        super(clientId, servers);
+        this(amount, clientId, servers, definitionSupplier, drbg, true);
+    }
+
+    /**
+     * Constructs a new client and performs the handshake with the servers.
+     *
+     * @param amount the number of values the client sends
+     * @param clientId the id of the client
+     * @param servers the servers to connect to
+     * @param definitionSupplier supplier of the field definition given the modulus used by the
+     *     servers
+     * @param drbg randomness used to share the values
+     * @param singleFramePayload if true the payload is sent to each server in a single message,
+     *     otherwise the tag, key, randomness and values are sent as separate messages
+     */
+    public JnoCommonClient(int amount, int clientId, List<Party> servers,
+                           Function<BigInteger, FieldDefinition> definitionSupplier, Drbg drbg,
+                           boolean singleFramePayload) {
+        this(amount, clientId, servers, definitionSupplier, drbg, singleFramePayload,
+                ServerIoMode.CONCURRENT);
+    }
+
+    /**
+     * Constructs a new client and performs the handshake with the servers.
+     *
+     * @param amount the number of values the client sends
+     * @param clientId the id of the client
+     * @param servers the servers to connect to
+     * @param definitionSupplier supplier of the field definition given the modulus used by the
+     *     servers
+     * @param drbg randomness used to share the values
+     * @param singleFramePayload if true the payload is sent to each server in a single message,
+     *     otherwise the tag, key, randomness and values are sent as separate messages
+     * @param serverIoMode how to communicate with the servers
+     */
+    public JnoCommonClient(int amount, int clientId, List<Party> servers,
+                           Function<BigInteger, FieldDefinition> definitionSupplier, Drbg drbg,
+                           boolean singleFramePayload, ServerIoMode serverIoMode) {
+        super(clientId, servers, serverIoMode);
         this.amount = amount;
         this.drbg = drbg;
+        this.singleFramePayload = singleFramePayload;
         ExceptionConverter.safe(() -> {
             this.handshake(definitionSupplier, amount);
             return null;
@@ -60,15 +101,22 @@ public class JnoCommonClient extends ConcreteClientBase {
         return getDefinition().createElement(new BigInteger(1, bytes).mod(getDefinition().getModulus()));
     }
 
-    private FieldElement computeTag(List<FieldElement> inputs, FieldElement key, FieldElement randomness) {
-        FieldElement tag = getDefinition().createElement(0);
-        FieldElement currentKeyPower = key;
-        for (FieldElement current : inputs) {
-            tag = tag.add(current.multiply(currentKeyPower));
-            currentKeyPower = currentKeyPower.multiply(key);
+    /**
+     * Computes the tag on the inputs of a client, which the servers verify using {@link
+     * ComputeTag}.
+     *
+     * @param inputs the inputs of the client
+     * @param key the key
+     * @param randomness the randomness
+     * @return the tag
+     */
+    static FieldElement computeTag(List<FieldElement> inputs, FieldElement key, FieldElement randomness) {
+        // Horner evaluation of x_1 k + ... + x_n k^n + r k^(n+1) + k^(n+3), see ComputeTag
+        FieldElement tag = key.multiply(key).add(randomness);
+        for (int i = inputs.size() - 1; i >= 0; i--) {
+            tag = tag.multiply(key).add(inputs.get(i));
         }
-        tag = tag.add(randomness.multiply(currentKeyPower));
-        return tag.add(currentKeyPower.multiply(key).multiply(key));
+        return tag.multiply(key);
     }
 
     public void constructAndSendInputs(List<BigInteger> inputs) {
@@ -85,14 +133,27 @@ public class JnoCommonClient extends ConcreteClientBase {
         List<FieldElement> sharedRandomness = additivelyShare(randomness, getServers().size());
         FieldElement tag = computeTag(inputsInField, key, randomness);
         List<FieldElement> sharedTag = additivelyShare(tag, getServers().size());
-        for (int i = 0; i < getServers().size(); i++) {
-            TwoPartyNetwork network = getServerNetworks().get(getServers().get(i).getPartyId());
-            network.send(getDefinition().serialize(sharedTag.get(i)));
-            network.send(getDefinition().serialize(sharedKey.get(i)));
-            network.send(getDefinition().serialize(sharedRandomness.get(i)));
-            network.send(getDefinition().serialize(sharedInputs.get(i)));
-            logger.info("C{}: Send shared and tagged input to {}", getClientId(), getServers().get(i));
-        }
+        // The shares are computed up front, so only the sending is done per server
+        forEachServer((i, s, network) -> {
+            if (singleFramePayload) {
+                ClientPayload<FieldElement> payload = new ClientPayload<>(sharedTag.get(i),
+                        sharedKey.get(i), sharedRandomness.get(i), sharedInputs.get(i));
+                network.send(payload.serialize(getDefinition()));
+            } else {
+                network.send(getDefinition().serialize(sharedTag.get(i)));
+                network.send(getDefinition().serialize(sharedKey.get(i)));
+                network.send(getDefinition().serialize(sharedRandomness.get(i)));
+                network.send(getDefinition().serialize(sharedInputs.get(i)));
+            }
+            logger.info("C{}: Send shared and tagged input to {}", getClientId(), s);
+            return null;
+        });
+    }
+
+    @Override
+    protected int getCapabilities() {
+        return singleFramePayload
+                ? ClientCapabilities.SINGLE_FRAME_PAYLOAD : ClientCapabilities.NONE;
     }
 
     protected int getAmount() {
@@ -4,6 +4,7 @@ import dk.alexandra.fresco.framework.Party;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.util.Drbg;
 import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +21,44 @@ public class JnoInputClient extends JnoCommonClient implements InputClient {
     super(numInputs, clientId, servers, definitionSupplier, drbg);
   }
 
+  /**
+   * Constructs a new input client.
+   *
+   * @param numInputs the number of inputs to give
+   * @param clientId the id of the client
+   * @param servers the servers to give input to
+   * @param definitionSupplier supplier of the field definition given the modulus used by the
+   *     servers
+   * @param drbg randomness used to share the inputs
+   * @param singleFramePayload if true the shares of the inputs are sent to each server in a single
+   *     message, otherwise they are sent in separate messages
+   */
+  public JnoInputClient(int numInputs, int clientId, List<Party> servers,
+      Function<BigInteger, FieldDefinition> definitionSupplier, Drbg drbg,
+      boolean singleFramePayload) {
+    super(numInputs, clientId, servers, definitionSupplier, drbg, singleFramePayload);
+  }
+
+  /**
+   * Constructs a new input client.
+   *
+   * @param numInputs the number of inputs to give
+   * @param clientId the id of the client
+   * @param servers the servers to give input to
+   * @param definitionSupplier supplier of the field definition given the modulus used by the
+   *     servers
+   * @param drbg randomness used to share the inputs
+   * @param singleFramePayload if true the shares of the inputs are sent to each server in a single
+   *     message, otherwise they are sent in separate messages
+   * @param serverIoMode how to communicate with the servers
+   */
+  public JnoInputClient(int numInputs, int clientId, List<Party> servers,
+      Function<BigInteger, FieldDefinition> definitionSupplier, Drbg drbg,
+      boolean singleFramePayload, ServerIoMode serverIoMode) {
+    super(numInputs, clientId, servers, definitionSupplier, drbg, singleFramePayload,
+        serverIoMode);
+  }
+
   @Override
   public void putBigIntegerInputs(List<BigInteger> inputs) {
     constructAndSendInputs(inputs);
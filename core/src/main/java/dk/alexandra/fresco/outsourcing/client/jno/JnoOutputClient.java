@@ -6,13 +6,14 @@ import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefini
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.util.Drbg;
 import dk.alexandra.fresco.outsourcing.client.OutputClient;
-import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -29,6 +30,23 @@ public class JnoOutputClient extends JnoCommonClient implements OutputClient {
     super(amountOfOutputs, clientId, servers, definitionSupplier, drbg);
   }
 
+  /**
+   * Constructs a new output client.
+   *
+   * @param clientId the id of the client
+   * @param servers the servers to receive output from
+   * @param definitionSupplier supplier of the field definition given the modulus used by the
+   *     servers
+   * @param drbg randomness used to pad the outputs
+   * @param amountOfOutputs the number of outputs to receive
+   * @param serverIoMode how to communicate with the servers
+   */
+  public JnoOutputClient(int clientId, List<Party> servers,
+      Function<BigInteger, FieldDefinition> definitionSupplier, Drbg drbg, int amountOfOutputs,
+      ServerIoMode serverIoMode) {
+    super(amountOfOutputs, clientId, servers, definitionSupplier, drbg, true, serverIoMode);
+  }
+
   public JnoOutputClient(int clientId, List<Party> servers, Drbg drbg, int amountOfOutputs) {
     this(clientId, servers, BigIntegerFieldDefinition::new, drbg, amountOfOutputs);
   }
@@ -39,21 +57,23 @@ public class JnoOutputClient extends JnoCommonClient implements OutputClient {
         .mapToObj(num -> randomElement().toBigInteger()).collect(Collectors.toList());
     constructAndSendInputs(randomPaddings);
 
+    Map<Integer, List<BigInteger>> replies = forEachServer((s, network) -> {
+      List<BigInteger> reply = getDefinition().deserializeList(network.receive()).stream().map(cur -> cur.toBigInteger()).collect(Collectors.toList());
+      logger.info("C{}: Received output shares from server {}", getClientId(), s);
+      return reply;
+    });
     List<BigInteger> defaultReply = null;
-    for (Party s : getServers()) {
-      TwoPartyNetwork network = getServerNetworks().get(s.getPartyId());
+    for (List<BigInteger> current : replies.values()) {
       if (defaultReply == null) {
-        defaultReply = getDefinition().deserializeList(network.receive()).stream().map(cur -> cur.toBigInteger()).collect(Collectors.toList());
+        defaultReply = current;
       } else {
         // check consistency of server replies
-        List<BigInteger> current = getDefinition().deserializeList(network.receive()).stream().map(cur -> cur.toBigInteger()).collect(Collectors.toList());
         for (int i = 0; i < current.size(); i++) {
           if (!current.get(i).equals(defaultReply.get(i))) {
             throw new MaliciousException("The server output is not consistent");
           }
         }
       }
-      logger.info("C{}: Received output shares from server {}", getClientId(), s);
     }
     List<BigInteger> results = new ArrayList<>();
     for (int i = 0; i < getAmount(); i++) {
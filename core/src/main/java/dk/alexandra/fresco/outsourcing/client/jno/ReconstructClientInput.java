@@ -5,6 +5,8 @@ import dk.alexandra.fresco.framework.builder.Computation;
 import dk.alexandra.fresco.framework.builder.ComputationParallel;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.util.AesCtrDrbgFactory;
+import dk.alexandra.fresco.framework.util.Drbg;
 import dk.alexandra.fresco.framework.util.Pair;
 import dk.alexandra.fresco.framework.value.SInt;
 import dk.alexandra.fresco.lib.common.math.AdvancedNumeric;
@@ -17,83 +19,122 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.stream.Collectors;
 
+/**
+ * Reconstructs the inputs of a number of clients from the payloads each server received, and
+ * verifies the tags on the inputs.
+ *
+ * <p>
+ * The tags of all clients are verified together. The servers jointly open a random seed, from which
+ * a public coefficient is derived for each client. The differences between the computed and the
+ * supplied tags are combined using these coefficients, masked by a random element and opened. This
+ * makes the number of rounds independent of the number of clients, while a wrong tag of one client
+ * cannot be cancelled out by the tag of another client.
+ * </p>
+ */
 public class ReconstructClientInput implements Computation<Map<Integer, List<SInt>>, ProtocolBuilderNumeric> {
     private final SortedMap<Integer, ClientPayload<FieldElement>> clientPayload;
     private final int myId;
     private final int amountOfServers;
+    private final boolean bulkInput;
 
     public ReconstructClientInput(int myId, int amountOfServer, SortedMap<Integer, ClientPayload<FieldElement>> clientPayload) {
+        this(myId, amountOfServer, clientPayload, false);
+    }
+
+    /**
+     * Creates a new computation reconstructing the inputs of the clients.
+     *
+     * @param myId the id of this server
+     * @param amountOfServer the number of servers
+     * @param clientPayload the payload received by this server from each client, by client id
+     * @param bulkInput if true the values held by each server are input using a single
+     *     {@link SpdzBulkInputProtocol}, which requires the SPDZ protocol suite. Otherwise each
+     *     value is input on its own, which works with any protocol suite.
+     */
+    public ReconstructClientInput(int myId, int amountOfServer, SortedMap<Integer, ClientPayload<FieldElement>> clientPayload,
+                                  boolean bulkInput) {
         this.myId = myId;
         this.amountOfServers = amountOfServer;
         this.clientPayload = clientPayload;
+        this.bulkInput = bulkInput;
     }
 
     @Override
     public DRes<Map<Integer, List<SInt>>> buildComputation(ProtocolBuilderNumeric builder) {
         return builder.par((par) -> {
-            // Recover the client input values, t, k, r for each server and each client outsourced
+            // Input the client values, t, k, r of each server for each client outsourced, together
+            // with the seed used in the verification
             Map<Integer, List<ClientPayload<DRes<SInt>>>> clientInputShares = new HashMap<>();
-            for (Map.Entry<Integer, ClientPayload<FieldElement>> entry : clientPayload.entrySet()) {
-                ClientPayload<FieldElement> currentClientPayload = entry.getValue();
-                List<ClientPayload<DRes<SInt>>> sharesOfInput = new ArrayList<>();
-                for (int i = 1; i <= amountOfServers; i++) {
-                    DRes<SInt> t = par.numeric().input(i == myId ? currentClientPayload.getT().toBigInteger() : null, i);
-                    DRes<SInt> k = par.numeric().input(i == myId ? currentClientPayload.getK().toBigInteger() : null, i);
-                    DRes<SInt> r = par.numeric().input(i == myId ? currentClientPayload.getR().toBigInteger() : null, i);
-                    final int finalI = i;
-                    List<DRes<SInt>> xShareList = currentClientPayload.getX().stream().map(cur ->
-                                    par.numeric().input(finalI == myId ? cur.toBigInteger() : null, finalI))
-                            .collect(Collectors.toList());
-                    ClientPayload<DRes<SInt>> currentClientShares = new ClientPayload<>(t, k, r, xShareList);
-                    sharesOfInput.add(currentClientShares);
-                }
-                clientInputShares.put(entry.getKey(), sharesOfInput);
-            }
-            return () -> clientInputShares;
-        }).par( (par, clientInputShares) -> {
-            // Combine the shares of the different servers to get a ClientPayload element for each client
-            Map<Integer, DRes<ClientPayload<DRes<SInt>>>> clientInput = new HashMap<>();
-            for (Integer clientId : clientInputShares.keySet()) {
-                clientInput.put(clientId, par.par(combineClientShares(clientInputShares.get(clientId))));
+            for (Integer clientId : clientPayload.keySet()) {
+                clientInputShares.put(clientId, new ArrayList<>(amountOfServers));
             }
-            return () -> clientInput;
-        }).par( (par, clientInput) -> {
-            // According to the protocol, open the k value for each of the clients
-            Map<Integer, DRes<BigInteger>> openedKs = new HashMap<>();
-            for (Integer clientId : clientInput.keySet()) {
-                DRes<BigInteger> openK = par.numeric().open(clientInput.get(clientId).out().getK());
-                openedKs.put(clientId, openK);
+            for (int i = 1; i <= amountOfServers; i++) {
+                // The values of all clients held by server i, as t, k, r and x of each client in turn
+                List<BigInteger> values = new ArrayList<>();
+                int count = 0;
+                for (ClientPayload<FieldElement> currentClientPayload : clientPayload.values()) {
+                    count += 3 + currentClientPayload.getX().size();
+                    if (i == myId) {
+                        values.add(currentClientPayload.getT().toBigInteger());
+                        values.add(currentClientPayload.getK().toBigInteger());
+                        values.add(currentClientPayload.getR().toBigInteger());
+                        for (FieldElement x : currentClientPayload.getX()) {
+                            values.add(x.toBigInteger());
+                        }
+                    }
+                }
+                List<DRes<SInt>> inputs = input(par, i == myId ? values : null, i, count);
+                int offset = 0;
+                for (Map.Entry<Integer, ClientPayload<FieldElement>> entry : clientPayload.entrySet()) {
+                    int amountOfX = entry.getValue().getX().size();
+                    ClientPayload<DRes<SInt>> currentClientShares = new ClientPayload<>(
+                            inputs.get(offset), inputs.get(offset + 1), inputs.get(offset + 2),
+                            inputs.subList(offset + 3, offset + 3 + amountOfX));
+                    clientInputShares.get(entry.getKey()).add(currentClientShares);
+                    offset += 3 + amountOfX;
+                }
             }
-            return ()-> new Pair<>(openedKs, clientInput);
+            DRes<SInt> seed = par.numeric().randomElement();
+            return () -> new Pair<>(clientInputShares, seed);
         }).par((par, pair) -> {
-            // According to the protocol compute the tag on the client's input, for each client
-            Map<Integer, DRes<SInt>> refTags = new HashMap<>();
-            for (Integer clientId : pair.getSecond().keySet()) {
-                DRes<SInt> referenceTag = par.seq(computeTag(pair.getSecond().get(clientId).out().getX(),
-                        pair.getFirst().get(clientId), pair.getSecond().get(clientId).out().getR()));
-                refTags.put(clientId, referenceTag);
+            // Combine the shares of the different servers to get a ClientPayload element for each
+            // client, and open its k value according to the protocol. The seed is opened in the
+            // same round.
+            Map<Integer, DRes<Pair<ClientPayload<DRes<SInt>>, DRes<BigInteger>>>> clientInput = new HashMap<>();
+            for (Integer clientId : clientPayload.keySet()) {
+                List<ClientPayload<DRes<SInt>>> shares = pair.getFirst().get(clientId);
+                clientInput.put(clientId, par.seq(seq -> seq.par(combineClientShares(shares))
+                        .seq((open, payload) -> {
+                            DRes<BigInteger> openK = open.numeric().open(payload.getK());
+                            return () -> new Pair<>(payload, openK);
+                        })));
             }
-            return ()-> new Pair<>(refTags, pair.getSecond());
-        }).par((par, pair) -> {
-            // Recover the list of the client's secret shared input from ClientPayload, for each client.
-            // That is, the list of x values. Furthermore, subtract the computed tag from the tag given as input.
-            Map<Integer, List<DRes<SInt>>> unopenedResult = new HashMap<>();
+            DRes<BigInteger> openSeed = par.numeric().open(pair.getSecond());
+            return () -> new Pair<>(clientInput, openSeed);
+        }).seq((seq, pair) -> {
+            // According to the protocol compute the tag on the client's input, and subtract the tag
+            // given as input, for each client. Then combine the differences using the public
+            // coefficients derived from the seed.
+            List<DRes<SInt>> refValues = new ArrayList<>(clientPayload.size());
             Map<Integer, List<SInt>> finalResult = new HashMap<>();
-            List<DRes<SInt>> refValues = new ArrayList<>();
-            for (Integer clientId : pair.getSecond().keySet()) {
-                unopenedResult.put(clientId, pair.getSecond().get(clientId).out().getX());
-                refValues.add(par.numeric().sub(pair.getFirst().get(clientId), pair.getSecond().get(clientId).out().getT()));
-                finalResult.put(clientId, unopenedResult.get(clientId).stream().map(cur -> cur.out()).collect(Collectors.toList()));
+            for (Integer clientId : clientPayload.keySet()) {
+                ClientPayload<DRes<SInt>> payload = pair.getFirst().get(clientId).out().getFirst();
+                DRes<BigInteger> openK = pair.getFirst().get(clientId).out().getSecond();
+                DRes<SInt> referenceTag = seq.seq(new ComputeTag(payload.getX(), openK, payload.getR()));
+                refValues.add(seq.numeric().sub(referenceTag, payload.getT()));
+                finalResult.put(clientId, payload.getX().stream().map(cur -> cur.out()).collect(Collectors.toList()));
             }
-            return () -> new Pair<List<DRes<SInt>>, Map<Integer, List<SInt>>>(refValues, finalResult);
-        }).seq( (par, pair) -> {
-            // Multiply the sum of the reference values (difference between computed and supplied tag) with a random
-            // element and open the result, in order to validate consistency.
-            DRes<SInt> sum = AdvancedNumeric.using(par).sum(pair.getFirst());
-            DRes<SInt> rand = par.numeric().randomElement();
-            DRes<SInt> randomProduct = par.numeric().mult(sum, rand);
-            DRes<BigInteger> res = par.numeric().open(randomProduct);
-            return ()-> new Pair<>(res, pair.getSecond());
+            List<BigInteger> coefficients = coefficients(pair.getSecond().out(), refValues.size(),
+                    seq.getBasicNumericContext().getModulus());
+            DRes<SInt> combined = AdvancedNumeric.using(seq).innerProductWithPublicPart(coefficients, refValues);
+            return () -> new Pair<>(combined, finalResult);
+        }).seq((seq, pair) -> {
+            // Multiply the combination of the reference values with a random element and open the
+            // result, in order to validate consistency.
+            DRes<SInt> rand = seq.numeric().randomElement();
+            DRes<SInt> randomProduct = seq.numeric().mult(pair.getFirst(), rand);
+            DRes<BigInteger> res = seq.numeric().open(randomProduct);
+            return () -> new Pair<>(res, pair.getSecond());
         }).par( (par, pair) -> {
             if (!pair.getFirst().out().equals(BigInteger.ZERO)) {
                 throw new IllegalArgumentException("The client tags did no verify");
@@ -102,6 +143,23 @@ public class ReconstructClientInput implements Computation<Map<Integer, List<SIn
         });
     }
 
+    private List<DRes<SInt>> input(ProtocolBuilderNumeric builder, List<BigInteger> values, int inputter,
+                                   int count) {
+        List<DRes<SInt>> inputs = new ArrayList<>(count);
+        if (bulkInput) {
+            DRes<List<SInt>> bulk = builder.append(new SpdzBulkInputProtocol(values, inputter, count));
+            for (int j = 0; j < count; j++) {
+                final int index = j;
+                inputs.add(() -> bulk.out().get(index));
+            }
+        } else {
+            for (int j = 0; j < count; j++) {
+                inputs.add(builder.numeric().input(values == null ? null : values.get(j), inputter));
+            }
+        }
+        return inputs;
+    }
+
     private ComputationParallel<ClientPayload<DRes<SInt>>, ProtocolBuilderNumeric> combineClientShares(List<ClientPayload<DRes<SInt>>> sharedPayloads) {
         return builder -> {
             List<DRes<SInt>> tShares = sharedPayloads.stream().map(cur -> cur.getT()).collect(Collectors.toList());
@@ -118,16 +176,29 @@ public class ReconstructClientInput implements Computation<Map<Integer, List<SIn
         };
     }
 
-    private ComputationParallel<SInt, ProtocolBuilderNumeric> computeTag(List<DRes<SInt>> inputs, DRes<BigInteger> key, DRes<SInt> randomness) {
-        return builder -> {
-            DRes<SInt> tag = builder.numeric().known(0);
-            BigInteger currentKeyPower = key.out();
-            for (DRes<SInt> current : inputs) {
-                tag = builder.numeric().add(tag, builder.numeric().mult(currentKeyPower, current));
-                currentKeyPower = currentKeyPower.multiply(key.out()).mod(builder.getBasicNumericContext().getModulus());
-            }
-            tag = builder.numeric().add(tag, builder.numeric().mult(currentKeyPower, randomness));
-            return builder.numeric().add(currentKeyPower.multiply(key.out()).multiply(key.out()), tag);
-        };
+    /**
+     * Derives the public coefficients used to combine the tags of the clients from a jointly
+     * opened seed.
+     *
+     * <p>
+     * As the seed is only opened once the inputs of all clients are fixed, the coefficients are
+     * unknown to the clients when they choose their tags.
+     * </p>
+     *
+     * @param seed the opened seed
+     * @param count the number of coefficients
+     * @param modulus the modulus of the field
+     * @return the coefficients
+     */
+    static List<BigInteger> coefficients(BigInteger seed, int count, BigInteger modulus) {
+        Drbg drbg = AesCtrDrbgFactory.fromDerivedSeed(seed.toByteArray());
+        // Sample twice the bit length to avoid a noticeable bias after reduction, as done by the clients
+        byte[] bytes = new byte[1 + (2 * modulus.bitLength()) / Byte.SIZE];
+        List<BigInteger> coefficients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            drbg.nextBytes(bytes);
+            coefficients.add(new BigInteger(1, bytes).mod(modulus));
+        }
+        return coefficients;
     }
 }
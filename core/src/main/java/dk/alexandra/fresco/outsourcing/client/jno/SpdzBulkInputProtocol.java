@@ -0,0 +1,154 @@
+package dk.alexandra.fresco.outsourcing.client.jno;
+
+import dk.alexandra.fresco.framework.MaliciousException;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzInputMask;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
+import dk.alexandra.fresco.suite.spdz.gates.SpdzNativeProtocol;
+import dk.alexandra.fresco.suite.spdz.storage.SpdzDataSupplier;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inputs a vector of values held by a single party into SPDZ.
+ *
+ * <p>
+ * This works as the SPDZ input protocol for each value, but the masked values are sent to each
+ * party as a single length-prefixed frame, and the broadcast of all values is validated with a
+ * single digest of the frame. Compared to inputting each value on its own, this saves a digest per
+ * value and party, and the overhead of evaluating a protocol per value. An input mask is still used
+ * for each value.
+ * </p>
+ *
+ * <p>
+ * The protocol evaluator only allows short messages, but sends all messages of a round to a party
+ * together. The frame is therefore split into messages of the maximum length, which reach the other
+ * parties in the same batch, and is joined again before it is read.
+ * </p>
+ */
+public class SpdzBulkInputProtocol extends SpdzNativeProtocol<List<SInt>> {
+
+    // The batching of messages done by the protocol evaluator does not allow longer messages
+    private static final int MAX_MESSAGE_LENGTH = 127;
+    private static final int LENGTH_PREFIX = Integer.BYTES;
+
+    private final List<BigInteger> inputs;
+    private final int inputter;
+    private final int count;
+    private List<SpdzInputMask> inputMasks;
+    private List<FieldElement> valuesMasked;
+    private byte[] digest;
+    private List<SInt> out;
+
+    /**
+     * Creates a new bulk input protocol.
+     *
+     * @param inputs the values to input if this party is the inputter, otherwise ignored
+     * @param inputter the id of the party holding the values
+     * @param count the number of values
+     */
+    public SpdzBulkInputProtocol(List<BigInteger> inputs, int inputter, int count) {
+        this.inputs = inputs;
+        this.inputter = inputter;
+        this.count = count;
+    }
+
+    @Override
+    public EvaluationStatus evaluate(int round, SpdzResourcePool resourcePool, Network network) {
+        int myId = resourcePool.getMyId();
+        SpdzDataSupplier dataSupplier = resourcePool.getDataSupplier();
+        FieldDefinition definition = resourcePool.getFieldDefinition();
+        if (round == 0) {
+            inputMasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                inputMasks.add(dataSupplier.getNextInputMask(inputter));
+            }
+            if (myId == inputter) {
+                if (inputs.size() != count) {
+                    throw new IllegalArgumentException(
+                            "Expected " + count + " inputs, but got " + inputs.size());
+                }
+                List<FieldElement> masked = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    masked.add(definition.createElement(inputs.get(i))
+                            .subtract(inputMasks.get(i).getRealValue()));
+                }
+                byte[] values = definition.serialize(masked);
+                byte[] frame = ByteBuffer.allocate(LENGTH_PREFIX + values.length)
+                        .putInt(values.length).put(values).array();
+                for (int from = 0; from < frame.length; from += MAX_MESSAGE_LENGTH) {
+                    int to = Math.min(frame.length, from + MAX_MESSAGE_LENGTH);
+                    network.sendToAll(Arrays.copyOfRange(frame, from, to));
+                }
+            }
+            return EvaluationStatus.HAS_MORE_ROUNDS;
+        } else if (round == 1) {
+            byte[] frame = receiveFrame(network, frameLength(definition));
+            valuesMasked = definition.deserializeList(
+                    Arrays.copyOfRange(frame, LENGTH_PREFIX, frame.length));
+            if (valuesMasked.size() != count) {
+                throw new MaliciousException("Received malformed masked inputs from party "
+                        + inputter);
+            }
+            digest = resourcePool.getMessageDigest().digest(frame);
+            network.sendToAll(digest);
+            return EvaluationStatus.HAS_MORE_ROUNDS;
+        } else {
+            for (byte[] otherDigest : network.receiveFromAll()) {
+                if (!Arrays.equals(digest, otherDigest)) {
+                    throw new MaliciousException("Broadcast digests did not match");
+                }
+            }
+            FieldElement ssk = dataSupplier.getSecretSharedKey();
+            out = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                FieldElement valueMasked = valuesMasked.get(i);
+                SpdzSInt valueMaskedElement = new SpdzSInt(valueMasked, ssk.multiply(valueMasked));
+                out.add(inputMasks.get(i).getMask().add(valueMaskedElement, myId));
+            }
+            return EvaluationStatus.IS_DONE;
+        }
+    }
+
+    /**
+     * Joins the messages holding the frame of masked values sent by the inputter.
+     *
+     * @param network the network of this party
+     * @param expectedLength the length of the frame, including the length prefix
+     * @return the frame
+     */
+    private byte[] receiveFrame(Network network, int expectedLength) {
+        ByteBuffer frame = ByteBuffer.allocate(expectedLength);
+        while (frame.hasRemaining()) {
+            byte[] message = network.receive(inputter);
+            if (message.length > frame.remaining()) {
+                throw new MaliciousException("Received malformed masked inputs from party "
+                        + inputter);
+            }
+            frame.put(message);
+            if (frame.position() >= LENGTH_PREFIX
+                    && frame.getInt(0) != expectedLength - LENGTH_PREFIX) {
+                throw new MaliciousException("Received malformed masked inputs from party "
+                        + inputter);
+            }
+        }
+        return frame.array();
+    }
+
+    private int frameLength(FieldDefinition definition) {
+        int elementLength = definition.serialize(definition.createElement(0)).length;
+        return LENGTH_PREFIX + count * elementLength;
+    }
+
+    @Override
+    public List<SInt> out() {
+        return out;
+    }
+}
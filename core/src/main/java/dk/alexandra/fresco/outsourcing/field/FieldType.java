@@ -0,0 +1,38 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import java.math.BigInteger;
+import java.util.function.Function;
+
+/**
+ * The implementations of the field arithmetic that can be used by servers and clients.
+ *
+ * <p>
+ * The implementations serialize elements in the same way, so a client can use a different field
+ * type than the servers. A field type can be given directly as the definition supplier of a
+ * client. The servers must use the same field type. Server 1 sends its field type to the clients in
+ * the handshake, and the clients relay it to the other servers, which reject the client if their
+ * field type differs.
+ * </p>
+ */
+public enum FieldType implements Function<BigInteger, FieldDefinition> {
+  /**
+   * The {@link BigIntegerFieldDefinition} of FRESCO, supporting any modulus.
+   */
+  BIG_INTEGER {
+    @Override
+    public FieldDefinition apply(BigInteger modulus) {
+      return new BigIntegerFieldDefinition(modulus);
+    }
+  },
+  /**
+   * The fixed width {@link MontgomeryFieldDefinition}, supporting any odd modulus.
+   */
+  MONTGOMERY {
+    @Override
+    public FieldDefinition apply(BigInteger modulus) {
+      return new MontgomeryFieldDefinition(modulus);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.util.StrictBitVector;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A prime field definition with elements of a fixed number of 64 bit limbs, using Montgomery
+ * multiplication.
+ *
+ * <p>
+ * This can be used in place of the
+ * {@link dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition} of FRESCO,
+ * both by the servers and as the definition supplier of the clients. Elements are serialized in
+ * the same format, so servers and clients using either definition can be mixed. Any odd modulus is
+ * supported, including those found by
+ * {@link dk.alexandra.fresco.framework.builder.numeric.field.ModulusFinder}.
+ * </p>
+ */
+public final class MontgomeryFieldDefinition implements FieldDefinition {
+
+  private final PackedField field;
+  private final BigInteger modulusHalf;
+
+  /**
+   * Creates a new field definition.
+   *
+   * @param modulus the modulus, which must be odd and greater than one
+   */
+  public MontgomeryFieldDefinition(BigInteger modulus) {
+    this.field = new PackedField(modulus);
+    this.modulusHalf = modulus.shiftRight(1);
+  }
+
+  @Override
+  public FieldElement createElement(long value) {
+    return createElement(BigInteger.valueOf(value));
+  }
+
+  @Override
+  public FieldElement createElement(String value) {
+    return createElement(new BigInteger(value));
+  }
+
+  @Override
+  public FieldElement createElement(BigInteger value) {
+    return MontgomeryFieldElement.create(value, field);
+  }
+
+  @Override
+  public BigInteger getModulus() {
+    return field.getModulus();
+  }
+
+  @Override
+  public int getBitLength() {
+    return field.getModulus().bitLength();
+  }
+
+  @Override
+  public StrictBitVector convertToBitVector(FieldElement fieldElement) {
+    return new StrictBitVector(serialize(fieldElement));
+  }
+
+  @Override
+  public BigInteger convertToUnsigned(FieldElement value) {
+    return value.toBigInteger();
+  }
+
+  @Override
+  public BigInteger convertToSigned(BigInteger signed) {
+    if (signed.compareTo(modulusHalf) > 0) {
+      return signed.subtract(getModulus());
+    } else {
+      return signed;
+    }
+  }
+
+  @Override
+  public byte[] serialize(FieldElement object) {
+    byte[] bytes = new byte[field.getByteLength()];
+    ((MontgomeryFieldElement) object).serialize(bytes, 0, new long[field.scratchLength()]);
+    return bytes;
+  }
+
+  @Override
+  public byte[] serialize(List<FieldElement> objects) {
+    int byteLength = field.getByteLength();
+    byte[] bytes = new byte[objects.size() * byteLength];
+    long[] scratch = new long[field.scratchLength()];
+    for (int i = 0; i < objects.size(); i++) {
+      ((MontgomeryFieldElement) objects.get(i)).serialize(bytes, i * byteLength, scratch);
+    }
+    return bytes;
+  }
+
+  @Override
+  public FieldElement deserialize(byte[] bytes) {
+    if (bytes.length < field.getByteLength()) {
+      throw new IllegalArgumentException("Expected at least " + field.getByteLength()
+          + " bytes, but got " + bytes.length);
+    }
+    return MontgomeryFieldElement.deserialize(bytes, 0, field, new long[field.scratchLength()]);
+  }
+
+  @Override
+  public List<FieldElement> deserializeList(byte[] bytes) {
+    int byteLength = field.getByteLength();
+    if (bytes.length % byteLength != 0) {
+      throw new IllegalArgumentException("Length " + bytes.length
+          + " is not a multiple of the element length " + byteLength);
+    }
+    List<FieldElement> elements = new ArrayList<>(bytes.length / byteLength);
+    long[] scratch = new long[field.scratchLength()];
+    for (int i = 0; i < bytes.length; i += byteLength) {
+      elements.add(MontgomeryFieldElement.deserialize(bytes, i, field, scratch));
+    }
+    return elements;
+  }
+}
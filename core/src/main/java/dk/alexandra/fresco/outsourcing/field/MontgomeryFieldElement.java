@@ -0,0 +1,116 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.util.MathUtils;
+import java.math.BigInteger;
+
+/**
+ * An element of a {@link MontgomeryFieldDefinition}, stored in Montgomery form as a fixed number of
+ * 64 bit limbs, see {@link PackedField}.
+ *
+ * <p>
+ * Elements are immutable, and must only be combined with elements of the same field.
+ * </p>
+ */
+final class MontgomeryFieldElement implements FieldElement {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long[] value;
+  private final PackedField field;
+  // The value as an integer, kept as the servers often convert back and forth
+  private BigInteger integer;
+
+  private MontgomeryFieldElement(long[] value, PackedField field) {
+    this.value = value;
+    this.field = field;
+  }
+
+  static FieldElement create(BigInteger value, PackedField field) {
+    BigInteger modulus = field.getModulus();
+    if (value.signum() < 0 || value.compareTo(modulus) >= 0) {
+      value = value.mod(modulus);
+    }
+    long[] limbs = new long[field.getLimbs()];
+    field.setLimbs(limbs, 0, value, new long[field.scratchLength()]);
+    MontgomeryFieldElement element = new MontgomeryFieldElement(limbs, field);
+    element.integer = value;
+    return element;
+  }
+
+  static FieldElement deserialize(byte[] bytes, int byteOffset, PackedField field,
+      long[] scratch) {
+    long[] limbs = new long[field.getLimbs()];
+    field.deserialize(bytes, byteOffset, limbs, 0, scratch);
+    return new MontgomeryFieldElement(limbs, field);
+  }
+
+  void serialize(byte[] bytes, int byteOffset, long[] scratch) {
+    field.serialize(value, 0, bytes, byteOffset, scratch);
+  }
+
+  @Override
+  public FieldElement add(FieldElement operand) {
+    long[] result = value.clone();
+    field.add(result, 0, limbs(operand), 0);
+    return new MontgomeryFieldElement(result, field);
+  }
+
+  @Override
+  public FieldElement subtract(FieldElement operand) {
+    long[] result = value.clone();
+    field.subtract(result, 0, limbs(operand), 0);
+    return new MontgomeryFieldElement(result, field);
+  }
+
+  @Override
+  public FieldElement negate() {
+    long[] result = new long[value.length];
+    field.subtract(result, 0, value, 0);
+    return new MontgomeryFieldElement(result, field);
+  }
+
+  @Override
+  public FieldElement multiply(FieldElement operand) {
+    long[] result = new long[value.length];
+    field.multiply(value, 0, limbs(operand), 0, result, 0, new long[field.scratchLength()]);
+    return new MontgomeryFieldElement(result, field);
+  }
+
+  @Override
+  public FieldElement sqrt() {
+    return create(MathUtils.modularSqrt(toBigInteger(), field.getModulus()), field);
+  }
+
+  @Override
+  public FieldElement modInverse() {
+    return create(toBigInteger().modInverse(field.getModulus()), field);
+  }
+
+  @Override
+  public boolean isZero() {
+    return field.isZero(value, 0);
+  }
+
+  @Override
+  public BigInteger toBigInteger() {
+    BigInteger result = integer;
+    if (result == null) {
+      result = field.toBigInteger(value, 0, new long[field.scratchLength()]);
+      integer = result;
+    }
+    return result;
+  }
+
+  private static long[] limbs(FieldElement element) {
+    return ((MontgomeryFieldElement) element).value;
+  }
+
+  @Override
+  public String toString() {
+    return "MontgomeryFieldElement{"
+        + "value=" + toBigInteger()
+        + ", modulus=" + field.getModulus()
+        + '}';
+  }
+}
@@ -0,0 +1,382 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/**
+ * A prime field whose elements are stored as 64 bit limbs in {@link PackedFieldVector}s.
+ *
+ * <p>
+ * This holds the modulus and the constants needed to do arithmetic directly on the limbs, without
+ * allocating objects per element. Elements are serialized in the same format as the
+ * {@link dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition} used by
+ * the servers, i.e., as big-endian unsigned integers of a fixed number of bytes, so vectors can be
+ * read from and written to the network directly.
+ * </p>
+ *
+ * <p>
+ * Elements are stored in Montgomery form, i.e., an element x is stored as x * R mod p with
+ * R = 2^(64 * limbs), so a multiplication is a single Montgomery multiplication, and the modulus
+ * must be odd. Addition, subtraction and comparisons work on the stored form directly. Elements are
+ * only converted when set from or read as integers, and when serialized or deserialized.
+ * </p>
+ */
+public final class PackedField implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final long LOW_MASK = 0xFFFFFFFFL;
+
+  private final BigInteger modulus;
+  private final int limbs;
+  private final int byteLength;
+  private final long[] modulusLimbs;
+  // -modulus^-1 mod 2^64
+  private final long inverse;
+  // R^2 mod modulus with R = 2^(64 * limbs), used to bring values into Montgomery form
+  private final long[] rSquared;
+  // One as a normal integer, used to bring values out of Montgomery form
+  private final long[] one;
+
+  /**
+   * Creates a new field.
+   *
+   * @param modulus the modulus, which must be odd and greater than one
+   */
+  public PackedField(BigInteger modulus) {
+    if (modulus.compareTo(BigInteger.ONE) <= 0 || !modulus.testBit(0)) {
+      throw new IllegalArgumentException("Modulus must be odd and greater than one, but was "
+          + modulus);
+    }
+    this.modulus = modulus;
+    this.limbs = (modulus.bitLength() + Long.SIZE - 1) / Long.SIZE;
+    this.byteLength = 1 + (modulus.bitLength() - 1) / Byte.SIZE;
+    this.modulusLimbs = new long[limbs];
+    toLimbs(modulus, modulusLimbs, 0, limbs);
+    this.inverse = -inverse(modulusLimbs[0]);
+    this.rSquared = new long[limbs];
+    toLimbs(BigInteger.ONE.shiftLeft(2 * Long.SIZE * limbs).mod(modulus), rSquared, 0, limbs);
+    this.one = new long[limbs];
+    one[0] = 1;
+  }
+
+  /**
+   * Creates a vector of zeros.
+   *
+   * @param size the number of elements
+   * @return the vector
+   */
+  public PackedFieldVector zeros(int size) {
+    return new PackedFieldVector(this, size);
+  }
+
+  /**
+   * Reads a vector from serialized elements.
+   *
+   * @param bytes the elements serialized one after the other
+   * @return the vector
+   */
+  public PackedFieldVector deserialize(byte[] bytes) {
+    if (bytes.length % byteLength != 0) {
+      throw new IllegalArgumentException("Length " + bytes.length
+          + " is not a multiple of the element length " + byteLength);
+    }
+    PackedFieldVector vector = zeros(bytes.length / byteLength);
+    vector.setSerialized(bytes, 0, 0, vector.size());
+    return vector;
+  }
+
+  /**
+   * Gives the modulus of the field.
+   *
+   * @return the modulus
+   */
+  public BigInteger getModulus() {
+    return modulus;
+  }
+
+  /**
+   * Gives the number of bytes of a serialized element.
+   *
+   * @return the byte length
+   */
+  public int getByteLength() {
+    return byteLength;
+  }
+
+  int getLimbs() {
+    return limbs;
+  }
+
+  /**
+   * Sets an element to a value, reduced modulo the modulus. The scratch space must hold
+   * {@link #scratchLength()} limbs.
+   */
+  void setLimbs(long[] values, int offset, BigInteger value, long[] scratch) {
+    if (value.signum() < 0 || value.compareTo(modulus) >= 0) {
+      value = value.mod(modulus);
+    }
+    toLimbs(value, values, offset, limbs);
+    toMontgomery(values, offset, scratch);
+  }
+
+  /**
+   * Gives an element as an integer. The scratch space must hold {@link #scratchLength()} limbs.
+   */
+  BigInteger toBigInteger(long[] values, int offset, long[] scratch) {
+    byte[] bytes = new byte[byteLength];
+    serialize(values, offset, bytes, 0, scratch);
+    return new BigInteger(1, bytes);
+  }
+
+  /**
+   * Writes an element as a big-endian unsigned integer. The scratch space must hold
+   * {@link #scratchLength()} limbs.
+   */
+  void serialize(long[] values, int offset, byte[] bytes, int byteOffset, long[] scratch) {
+    montgomeryMultiply(values, offset, one, 0, scratch);
+    for (int i = 0; i < byteLength; i++) {
+      long limb = scratch[i / Long.BYTES];
+      bytes[byteOffset + byteLength - 1 - i] = (byte) (limb >>> (Byte.SIZE * (i % Long.BYTES)));
+    }
+  }
+
+  /**
+   * Reads an element written by {@link #serialize(long[], int, byte[], int, long[])}. The scratch
+   * space must hold {@link #scratchLength()} limbs.
+   */
+  void deserialize(byte[] bytes, int byteOffset, long[] values, int offset, long[] scratch) {
+    for (int i = 0; i < limbs; i++) {
+      values[offset + i] = 0;
+    }
+    for (int i = 0; i < byteLength; i++) {
+      long b = bytes[byteOffset + byteLength - 1 - i] & 0xFF;
+      values[offset + i / Long.BYTES] |= b << (Byte.SIZE * (i % Long.BYTES));
+    }
+    // Honest parties only send reduced elements, but the serialization has room for up to 2^8 times
+    // the modulus
+    while (!lessThanModulus(values, offset, 0)) {
+      subtractModulus(values, offset);
+    }
+    toMontgomery(values, offset, scratch);
+  }
+
+  /**
+   * Sets a = a + b mod p.
+   */
+  void add(long[] a, int aOffset, long[] b, int bOffset) {
+    long carry = 0;
+    for (int i = 0; i < limbs; i++) {
+      long x = a[aOffset + i];
+      long sum = x + b[bOffset + i];
+      long carryOut = Long.compareUnsigned(sum, x) < 0 ? 1 : 0;
+      long withCarry = sum + carry;
+      carryOut |= Long.compareUnsigned(withCarry, sum) < 0 ? 1 : 0;
+      a[aOffset + i] = withCarry;
+      carry = carryOut;
+    }
+    if (!lessThanModulus(a, aOffset, carry)) {
+      subtractModulus(a, aOffset);
+    }
+  }
+
+  /**
+   * Sets a = a - b mod p.
+   */
+  void subtract(long[] a, int aOffset, long[] b, int bOffset) {
+    long borrow = 0;
+    for (int i = 0; i < limbs; i++) {
+      long x = a[aOffset + i];
+      long difference = x - b[bOffset + i];
+      long borrowOut = Long.compareUnsigned(x, b[bOffset + i]) < 0 ? 1 : 0;
+      long withBorrow = difference - borrow;
+      borrowOut |= Long.compareUnsigned(difference, borrow) < 0 ? 1 : 0;
+      a[aOffset + i] = withBorrow;
+      borrow = borrowOut;
+    }
+    if (borrow != 0) {
+      long carry = 0;
+      for (int i = 0; i < limbs; i++) {
+        long x = a[aOffset + i];
+        long sum = x + modulusLimbs[i];
+        long carryOut = Long.compareUnsigned(sum, x) < 0 ? 1 : 0;
+        long withCarry = sum + carry;
+        carryOut |= Long.compareUnsigned(withCarry, sum) < 0 ? 1 : 0;
+        a[aOffset + i] = withCarry;
+        carry = carryOut;
+      }
+    }
+  }
+
+  /**
+   * Sets out = a * b mod p. The scratch space must hold {@link #scratchLength()} limbs, and out may
+   * be one of the inputs.
+   */
+  void multiply(long[] a, int aOffset, long[] b, int bOffset, long[] out, int outOffset,
+      long[] scratch) {
+    // (a * R) * (b * R) * R^-1 is a * b in Montgomery form
+    montgomeryMultiply(a, aOffset, b, bOffset, scratch);
+    System.arraycopy(scratch, 0, out, outOffset, limbs);
+  }
+
+  /**
+   * Returns true if the elements at the given offsets are equal.
+   */
+  boolean equal(long[] a, int aOffset, long[] b, int bOffset) {
+    for (int i = 0; i < limbs; i++) {
+      if (a[aOffset + i] != b[bOffset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the element at the given offset is zero.
+   */
+  boolean isZero(long[] a, int aOffset) {
+    for (int i = 0; i < limbs; i++) {
+      if (a[aOffset + i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int scratchLength() {
+    return limbs + 2;
+  }
+
+  /**
+   * Brings an element given as a normal integer into Montgomery form, in place.
+   */
+  private void toMontgomery(long[] values, int offset, long[] scratch) {
+    montgomeryMultiply(values, offset, rSquared, 0, scratch);
+    System.arraycopy(scratch, 0, values, offset, limbs);
+  }
+
+  /**
+   * Computes a * b * R^-1 mod p into the first limbs of the scratch space, using the coarsely
+   * integrated operand scanning method. The first limbs + 2 limbs of the scratch space are used.
+   */
+  private void montgomeryMultiply(long[] a, int aOffset, long[] b, int bOffset, long[] t) {
+    for (int i = 0; i < limbs + 2; i++) {
+      t[i] = 0;
+    }
+    for (int i = 0; i < limbs; i++) {
+      long bi = b[bOffset + i];
+      long carry = 0;
+      for (int j = 0; j < limbs; j++) {
+        long aj = a[aOffset + j];
+        long low = aj * bi;
+        long high = multiplyHighUnsigned(aj, bi);
+        long sum = low + t[j];
+        high += Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+        long withCarry = sum + carry;
+        high += Long.compareUnsigned(withCarry, sum) < 0 ? 1 : 0;
+        t[j] = withCarry;
+        carry = high;
+      }
+      long sum = t[limbs] + carry;
+      t[limbs + 1] = Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+      t[limbs] = sum;
+
+      long m = t[0] * inverse;
+      long low = m * modulusLimbs[0];
+      long high = multiplyHighUnsigned(m, modulusLimbs[0]);
+      high += Long.compareUnsigned(low + t[0], low) < 0 ? 1 : 0;
+      carry = high;
+      for (int j = 1; j < limbs; j++) {
+        low = m * modulusLimbs[j];
+        high = multiplyHighUnsigned(m, modulusLimbs[j]);
+        long partial = low + t[j];
+        high += Long.compareUnsigned(partial, low) < 0 ? 1 : 0;
+        long withCarry = partial + carry;
+        high += Long.compareUnsigned(withCarry, partial) < 0 ? 1 : 0;
+        t[j - 1] = withCarry;
+        carry = high;
+      }
+      sum = t[limbs] + carry;
+      t[limbs - 1] = sum;
+      t[limbs] = t[limbs + 1] + (Long.compareUnsigned(sum, carry) < 0 ? 1 : 0);
+    }
+    if (!lessThanModulus(t, 0, t[limbs])) {
+      subtractModulus(t, 0);
+    }
+  }
+
+  /**
+   * Returns true if the value at the given offset, with an extra most significant limb, is less
+   * than the modulus.
+   */
+  private boolean lessThanModulus(long[] values, int offset, long extra) {
+    if (extra != 0) {
+      return false;
+    }
+    for (int i = limbs - 1; i >= 0; i--) {
+      int comparison = Long.compareUnsigned(values[offset + i], modulusLimbs[i]);
+      if (comparison != 0) {
+        return comparison < 0;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Subtracts the modulus, ignoring any borrow out of the most significant limb.
+   */
+  private void subtractModulus(long[] values, int offset) {
+    long borrow = 0;
+    for (int i = 0; i < limbs; i++) {
+      long x = values[offset + i];
+      long difference = x - modulusLimbs[i];
+      long borrowOut = Long.compareUnsigned(x, modulusLimbs[i]) < 0 ? 1 : 0;
+      long withBorrow = difference - borrow;
+      borrowOut |= Long.compareUnsigned(difference, borrow) < 0 ? 1 : 0;
+      values[offset + i] = withBorrow;
+      borrow = borrowOut;
+    }
+  }
+
+  /**
+   * Writes a non-negative value of at most the given number of limbs.
+   */
+  private static void toLimbs(BigInteger value, long[] values, int offset, int limbs) {
+    // The big-endian two's complement bytes, which may have a leading zero byte
+    byte[] bytes = value.toByteArray();
+    for (int i = 0; i < limbs; i++) {
+      values[offset + i] = 0;
+    }
+    for (int i = 0; i < bytes.length && i < limbs * Long.BYTES; i++) {
+      long b = bytes[bytes.length - 1 - i] & 0xFF;
+      values[offset + i / Long.BYTES] |= b << (Byte.SIZE * (i % Long.BYTES));
+    }
+  }
+
+  /**
+   * The high 64 bits of the unsigned 128 bit product of two longs.
+   */
+  static long multiplyHighUnsigned(long x, long y) {
+    long x0 = x & LOW_MASK;
+    long x1 = x >>> 32;
+    long y0 = y & LOW_MASK;
+    long y1 = y >>> 32;
+    long p00 = x0 * y0;
+    long p01 = x0 * y1;
+    long p10 = x1 * y0;
+    long p11 = x1 * y1;
+    long middle = (p00 >>> 32) + (p01 & LOW_MASK) + (p10 & LOW_MASK);
+    return p11 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+  }
+
+  /**
+   * The inverse of an odd number modulo 2^64, using Newton iteration.
+   */
+  private static long inverse(long x) {
+    // Correct to 3 bits, as x * x = 1 mod 8 for odd x, and each iteration doubles the correct bits
+    long y = x;
+    for (int i = 0; i < 5; i++) {
+      y *= 2 - x * y;
+    }
+    return y;
+  }
+}
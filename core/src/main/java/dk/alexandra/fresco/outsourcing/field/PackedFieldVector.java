@@ -0,0 +1,223 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import java.math.BigInteger;
+
+/**
+ * A vector of elements of a {@link PackedField}, stored as 64 bit limbs in a single array.
+ *
+ * <p>
+ * The arithmetic operations work in place and do not allocate per element, which makes the vector
+ * suited for summing and checking large numbers of shares. A vector is not thread safe.
+ * </p>
+ */
+public final class PackedFieldVector {
+
+  private final PackedField field;
+  private final int size;
+  private final int limbs;
+  private final long[] values;
+  private long[] scratch;
+
+  PackedFieldVector(PackedField field, int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size cannot be negative, but was " + size);
+    }
+    this.field = field;
+    this.size = size;
+    this.limbs = field.getLimbs();
+    this.values = new long[size * limbs];
+  }
+
+  /**
+   * Gives the number of elements.
+   *
+   * @return the size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gives the field of the elements.
+   *
+   * @return the field
+   */
+  public PackedField getField() {
+    return field;
+  }
+
+  /**
+   * Gives an element as an integer between zero and the modulus.
+   *
+   * @param index the index of the element
+   * @return the element
+   */
+  public BigInteger get(int index) {
+    return field.toBigInteger(values, offset(index), getScratch());
+  }
+
+  /**
+   * Sets an element to a value, reduced modulo the modulus.
+   *
+   * @param index the index of the element
+   * @param value the value
+   */
+  public void set(int index, BigInteger value) {
+    field.setLimbs(values, offset(index), value, getScratch());
+  }
+
+  /**
+   * Adds another vector to this vector, element by element.
+   *
+   * @param other the vector to add
+   * @return this vector
+   */
+  public PackedFieldVector add(PackedFieldVector other) {
+    checkSize(other);
+    for (int i = 0; i < values.length; i += limbs) {
+      field.add(values, i, other.values, i);
+    }
+    return this;
+  }
+
+  /**
+   * Subtracts another vector from this vector, element by element.
+   *
+   * @param other the vector to subtract
+   * @return this vector
+   */
+  public PackedFieldVector subtract(PackedFieldVector other) {
+    checkSize(other);
+    for (int i = 0; i < values.length; i += limbs) {
+      field.subtract(values, i, other.values, i);
+    }
+    return this;
+  }
+
+  /**
+   * Multiplies this vector with another vector, element by element.
+   *
+   * @param other the vector to multiply with
+   * @return this vector
+   */
+  public PackedFieldVector multiply(PackedFieldVector other) {
+    checkSize(other);
+    long[] scratch = getScratch();
+    for (int i = 0; i < values.length; i += limbs) {
+      field.multiply(values, i, other.values, i, values, i, scratch);
+    }
+    return this;
+  }
+
+  /**
+   * Checks if an element of this vector is the product of two elements of other vectors, which
+   * may be this vector.
+   *
+   * @param index the index of the element in this vector
+   * @param left the vector holding the left factor
+   * @param leftIndex the index of the left factor
+   * @param right the vector holding the right factor
+   * @param rightIndex the index of the right factor
+   * @return true if the element is the product of the factors
+   */
+  public boolean isProduct(int index, PackedFieldVector left, int leftIndex,
+      PackedFieldVector right, int rightIndex) {
+    long[] scratch = getScratch();
+    int productOffset = field.scratchLength();
+    field.multiply(left.values, left.offset(leftIndex), right.values, right.offset(rightIndex),
+        scratch, productOffset, scratch);
+    return field.equal(values, offset(index), scratch, productOffset);
+  }
+
+  /**
+   * Checks if every element of this vector is the product of the elements at the same index of two
+   * other vectors, which may be this vector.
+   *
+   * <p>
+   * This is a single pass over the vectors, multiplying and comparing the limbs directly, so it
+   * takes one multiplication per element.
+   * </p>
+   *
+   * @param left the vector holding the left factors
+   * @param right the vector holding the right factors
+   * @return the index of the first element that is not the product of its factors, or -1 if all
+   *     elements are
+   */
+  public int indexOfNonProduct(PackedFieldVector left, PackedFieldVector right) {
+    checkSize(left);
+    checkSize(right);
+    long[] scratch = getScratch();
+    int productOffset = field.scratchLength();
+    for (int i = 0; i < values.length; i += limbs) {
+      field.multiply(left.values, i, right.values, i, scratch, productOffset, scratch);
+      if (!field.equal(values, i, scratch, productOffset)) {
+        return i / limbs;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Sets a range of elements from serialized elements.
+   *
+   * @param bytes the serialized elements
+   * @param byteOffset the offset of the first serialized element
+   * @param index the index of the first element to set
+   * @param count the number of elements to set
+   */
+  public void setSerialized(byte[] bytes, int byteOffset, int index, int count) {
+    int byteLength = field.getByteLength();
+    if (byteOffset < 0 || byteOffset + count * byteLength > bytes.length) {
+      throw new IllegalArgumentException("Not enough bytes for " + count + " elements");
+    }
+    offset(index);
+    if (count > 0) {
+      offset(index + count - 1);
+    }
+    long[] scratch = getScratch();
+    for (int i = 0; i < count; i++) {
+      field.deserialize(bytes, byteOffset + i * byteLength, values, (index + i) * limbs, scratch);
+    }
+  }
+
+  /**
+   * Serializes the elements one after the other, in the same format as the field definitions of
+   * FRESCO.
+   *
+   * @return the serialized elements
+   */
+  public byte[] serialize() {
+    int byteLength = field.getByteLength();
+    byte[] bytes = new byte[size * byteLength];
+    long[] scratch = getScratch();
+    for (int i = 0; i < size; i++) {
+      field.serialize(values, i * limbs, bytes, i * byteLength, scratch);
+    }
+    return bytes;
+  }
+
+  private int offset(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+    return index * limbs;
+  }
+
+  private void checkSize(PackedFieldVector other) {
+    if (other.field != field) {
+      throw new IllegalArgumentException("Vectors must be over the same field");
+    }
+    if (other.size != size) {
+      throw new IllegalArgumentException("Vectors must have the same size, but had sizes " + size
+          + " and " + other.size);
+    }
+  }
+
+  private long[] getScratch() {
+    if (scratch == null) {
+      // The scratch space of the field, followed by room for a product
+      scratch = new long[field.scratchLength() + limbs];
+    }
+    return scratch;
+  }
+}
@@ -0,0 +1,45 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that is only ever increased, e.g., of bytes sent. Increasing it from many threads at once
+ * does not contend.
+ */
+public class Counter implements Metric {
+
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Increases the count by one.
+   */
+  public void increment() {
+    count.increment();
+  }
+
+  /**
+   * Increases the count.
+   *
+   * @param amount the amount to add
+   */
+  public void add(long amount) {
+    count.add(amount);
+  }
+
+  /**
+   * Gives the count.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public Map<String, Number> getValues() {
+    return Collections.singletonMap("count", getCount());
+  }
+
+}
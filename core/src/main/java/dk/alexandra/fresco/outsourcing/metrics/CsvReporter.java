@@ -0,0 +1,78 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+/**
+ * Writes the values of the metrics as CSV, with one row per value and report.
+ *
+ * <p>
+ * The columns are the time of the report in milliseconds since the epoch, the name of the metric,
+ * the name of the value and the value, so the rows of successive reports can be appended to the
+ * same file and compared over time.
+ * </p>
+ */
+public class CsvReporter implements MetricsReporter {
+
+  static final String HEADER = "timestamp,metric,field,value";
+  private final Writer writer;
+  private boolean headerWritten;
+
+  /**
+   * Creates a new reporter writing to the given writer, starting with a header.
+   *
+   * @param writer the writer, which is closed when the reporter is
+   */
+  public CsvReporter(Writer writer) {
+    this.writer = Objects.requireNonNull(writer);
+  }
+
+  /**
+   * Creates a new reporter appending to the given file. A header is written unless the file
+   * already has content.
+   *
+   * @param path the file
+   * @throws IOException if the file could not be opened
+   */
+  public CsvReporter(Path path) throws IOException {
+    this(Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND));
+    this.headerWritten = Files.size(path) > 0;
+  }
+
+  @Override
+  public synchronized void report(MetricsRegistry registry) throws IOException {
+    if (!headerWritten) {
+      writer.write(HEADER);
+      writer.write('\n');
+      headerWritten = true;
+    }
+    long timestamp = System.currentTimeMillis();
+    for (Entry<String, Metric> metric : registry.getMetrics().entrySet()) {
+      String name = escape(metric.getKey());
+      for (Entry<String, Number> value : metric.getValue().getValues().entrySet()) {
+        writer.write(timestamp + "," + name + "," + value.getKey() + "," + value.getValue() + "\n");
+      }
+    }
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  private static String escape(String field) {
+    if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+      return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+    return field;
+  }
+
+}
@@ -0,0 +1,38 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * A value read when reported, e.g., the length of a queue.
+ */
+public final class Gauge implements Metric {
+
+  private final LongSupplier supplier;
+
+  /**
+   * Creates a new gauge.
+   *
+   * @param supplier reads the current value, and may be called from any thread
+   */
+  public Gauge(LongSupplier supplier) {
+    this.supplier = Objects.requireNonNull(supplier);
+  }
+
+  /**
+   * Gives the current value.
+   *
+   * @return the value
+   */
+  public long getValue() {
+    return supplier.getAsLong();
+  }
+
+  @Override
+  public Map<String, Number> getValues() {
+    return Collections.singletonMap("value", getValue());
+  }
+
+}
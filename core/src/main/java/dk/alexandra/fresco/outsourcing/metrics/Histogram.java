@@ -0,0 +1,153 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of non-negative values, e.g., of the number of bytes sent to each client.
+ *
+ * <p>
+ * Values are counted in buckets, so percentiles are estimates. Each power of two is split into
+ * {@value #SUB_BUCKETS} buckets, so an estimate is at most 12.5% above the actual value. Small
+ * values are counted exactly. Recording a value takes constant time and memory, and does not lock.
+ * </p>
+ */
+public class Histogram implements Metric {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+  /**
+   * Records a value.
+   *
+   * @param value the value, where negative values are recorded as zero
+   */
+  public void update(long value) {
+    long v = Math.max(0, value);
+    buckets.incrementAndGet(bucketOf(v));
+    count.increment();
+    sum.add(v);
+    min.accumulateAndGet(v, Math::min);
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  /**
+   * Gives the number of values recorded.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gives the sum of the values recorded.
+   *
+   * @return the sum
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Gives the smallest value recorded.
+   *
+   * @return the smallest value, or 0 if no values have been recorded
+   */
+  public long getMin() {
+    long result = min.get();
+    return result == Long.MAX_VALUE ? 0 : result;
+  }
+
+  /**
+   * Gives the largest value recorded.
+   *
+   * @return the largest value, or 0 if no values have been recorded
+   */
+  public long getMax() {
+    long result = max.get();
+    return result == Long.MIN_VALUE ? 0 : result;
+  }
+
+  /**
+   * Gives the mean of the values recorded.
+   *
+   * @return the mean, or 0 if no values have been recorded
+   */
+  public double getMean() {
+    long n = getCount();
+    return n == 0 ? 0 : (double) getSum() / n;
+  }
+
+  /**
+   * Estimates a percentile of the values recorded, i.e., the smallest value that at least the
+   * given fraction of the values are less than or equal to.
+   *
+   * @param quantile the fraction of values, between 0 and 1
+   * @return the estimate, or 0 if no values have been recorded
+   */
+  public long getPercentile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1, but was " + quantile);
+    }
+    long total = 0;
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    int bucket = 0;
+    while (seen + counts[bucket] < rank) {
+      seen += counts[bucket];
+      bucket++;
+    }
+    return Math.max(getMin(), Math.min(getMax(), upperBound(bucket)));
+  }
+
+  @Override
+  public Map<String, Number> getValues() {
+    Map<String, Number> values = new LinkedHashMap<>();
+    values.put("count", getCount());
+    values.put("min", getMin());
+    values.put("mean", getMean());
+    values.put("max", getMax());
+    values.put("p50", getPercentile(0.5));
+    values.put("p90", getPercentile(0.9));
+    values.put("p99", getPercentile(0.99));
+    return values;
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+}
@@ -0,0 +1,165 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes the metrics of a registry as the attributes of an MBean, e.g., for JConsole or a JMX
+ * exporter.
+ *
+ * <p>
+ * The MBean is registered by the first report, and reads the current values of the metrics every
+ * time it is queried, so later reports do nothing. Each value of each metric is an attribute named
+ * by the name of the metric and the name of the value, e.g., <code>ddnnt.input.unmask.p99</code>.
+ * The MBean is unregistered when the reporter is closed.
+ * </p>
+ */
+public class JmxReporter implements MetricsReporter {
+
+  public static final String DOMAIN = "dk.alexandra.fresco.outsourcing";
+  private final MBeanServer server;
+  private final ObjectName objectName;
+  private boolean registered;
+
+  /**
+   * Creates a new reporter registering the MBean with the platform MBean server.
+   *
+   * @param name the name of the MBean, e.g., identifying the server
+   */
+  public JmxReporter(String name) {
+    this(ManagementFactory.getPlatformMBeanServer(), name);
+  }
+
+  /**
+   * Creates a new reporter registering the MBean with the given MBean server.
+   *
+   * @param server the MBean server
+   * @param name the name of the MBean, e.g., identifying the server
+   */
+  public JmxReporter(MBeanServer server, String name) {
+    this.server = Objects.requireNonNull(server);
+    try {
+      this.objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+    } catch (JMException e) {
+      throw new IllegalArgumentException("Invalid MBean name " + name, e);
+    }
+  }
+
+  /**
+   * Gives the name the MBean is registered under.
+   *
+   * @return the object name
+   */
+  public ObjectName getObjectName() {
+    return objectName;
+  }
+
+  @Override
+  public synchronized void report(MetricsRegistry registry) throws IOException {
+    if (!registered) {
+      try {
+        server.registerMBean(new MetricsMBean(registry), objectName);
+      } catch (JMException e) {
+        throw new IOException("Failed to register " + objectName, e);
+      }
+      registered = true;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (registered) {
+      try {
+        server.unregisterMBean(objectName);
+      } catch (JMException e) {
+        throw new IOException("Failed to unregister " + objectName, e);
+      }
+      registered = false;
+    }
+  }
+
+  /**
+   * A read-only MBean with an attribute for each value of each metric of a registry.
+   */
+  private static class MetricsMBean implements DynamicMBean {
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+      this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      int separator = attribute.lastIndexOf('.');
+      if (separator > 0) {
+        Metric metric = registry.getMetrics().get(attribute.substring(0, separator));
+        if (metric != null) {
+          Number value = metric.getValues().get(attribute.substring(separator + 1));
+          if (value != null) {
+            return value;
+          }
+        }
+      }
+      throw new AttributeNotFoundException("No metric value " + attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        try {
+          list.add(new Attribute(attribute, getAttribute(attribute)));
+        } catch (AttributeNotFoundException e) {
+          // Left out, as required by DynamicMBean
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+        throws ReflectionException {
+      throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> attributes = new ArrayList<>();
+      for (Entry<String, Metric> metric : registry.getMetrics().entrySet()) {
+        for (Entry<String, Number> value : metric.getValue().getValues().entrySet()) {
+          String name = metric.getKey() + "." + value.getKey();
+          attributes.add(new MBeanAttributeInfo(name, value.getValue().getClass().getName(),
+              value.getKey() + " of " + metric.getKey(), true, false, false));
+        }
+      }
+      return new MBeanInfo(MetricsMBean.class.getName(), "Outsourcing server metrics",
+          attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+/**
+ * Writes the values of the metrics as JSON, with one line per report.
+ *
+ * <p>
+ * Each line is an object of the form <code>{"timestamp":1234,"metrics":{"name":{"count":1}}}</code>,
+ * where the timestamp is in milliseconds since the epoch.
+ * </p>
+ */
+public class JsonReporter implements MetricsReporter {
+
+  private final Writer writer;
+
+  /**
+   * Creates a new reporter writing to the given writer.
+   *
+   * @param writer the writer, which is closed when the reporter is
+   */
+  public JsonReporter(Writer writer) {
+    this.writer = Objects.requireNonNull(writer);
+  }
+
+  /**
+   * Creates a new reporter appending to the given file.
+   *
+   * @param path the file
+   * @throws IOException if the file could not be opened
+   */
+  public JsonReporter(Path path) throws IOException {
+    this(Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND));
+  }
+
+  @Override
+  public synchronized void report(MetricsRegistry registry) throws IOException {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"metrics\":{");
+    String metricSeparator = "";
+    for (Entry<String, Metric> metric : registry.getMetrics().entrySet()) {
+      json.append(metricSeparator).append(quote(metric.getKey())).append(":{");
+      String valueSeparator = "";
+      for (Entry<String, Number> value : metric.getValue().getValues().entrySet()) {
+        json.append(valueSeparator).append(quote(value.getKey())).append(':')
+            .append(format(value.getValue()));
+        valueSeparator = ",";
+      }
+      json.append('}');
+      metricSeparator = ",";
+    }
+    json.append("}}\n");
+    writer.write(json.toString());
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  private static String format(Number value) {
+    double d = value.doubleValue();
+    if (Double.isNaN(d) || Double.isInfinite(d)) {
+      return "null";
+    }
+    return value.toString();
+  }
+
+  private static String quote(String string) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : string.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+}
@@ -0,0 +1,19 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.util.Map;
+
+/**
+ * A measurement kept in a {@link MetricsRegistry}, e.g., a counter or the durations of a protocol
+ * phase.
+ */
+public interface Metric {
+
+  /**
+   * Gives the current values of the metric, e.g., a count and a mean, by name. The names are the
+   * same, and in the same order, every time.
+   *
+   * @return the values of the metric
+   */
+  Map<String, Number> getValues();
+
+}
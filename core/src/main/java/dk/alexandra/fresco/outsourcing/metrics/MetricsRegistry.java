@@ -0,0 +1,228 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the metrics of a server by name, e.g., the durations of each protocol phase.
+ *
+ * <p>
+ * Metrics are created the first time they are asked for, and the same metric is given for the
+ * same name afterwards, so components can look up their metrics without coordinating. Names are
+ * dot separated, starting with the component, e.g., <code>ddnnt.input.unmask</code>.
+ * </p>
+ *
+ * <p>
+ * The metrics are exposed by {@link MetricsReporter}s, either once by {@link
+ * #report(MetricsReporter)}, or periodically by {@link #startReporting(MetricsReporter,
+ * Duration)}.
+ * </p>
+ */
+public class MetricsRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+  private static final MetricsRegistry DISABLED = new MetricsRegistry(false);
+  private static final Counter NOOP_COUNTER = new Counter() {
+    @Override
+    public void increment() {
+    }
+
+    @Override
+    public void add(long amount) {
+    }
+  };
+  private static final Histogram NOOP_HISTOGRAM = new Histogram() {
+    @Override
+    public void update(long value) {
+    }
+  };
+  private static final Timer NOOP_TIMER = new Timer(NOOP_HISTOGRAM);
+
+  private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+  // The metrics of other types given by a disabled registry, one of each type
+  private final Map<Class<?>, Metric> shared = new ConcurrentHashMap<>();
+  private final boolean enabled;
+
+  /**
+   * Creates a new empty registry.
+   */
+  public MetricsRegistry() {
+    this(true);
+  }
+
+  private MetricsRegistry(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Gives a registry that does not keep any metrics, for servers not reporting their metrics.
+   *
+   * <p>
+   * The counters, histograms and timers it gives are shared no-ops, which record nothing. Metrics
+   * of other types, see {@link #getOrCreate(String, Class, Supplier)}, are created once per type
+   * and shared by all names. Either way, looking up a metric does not allocate, and the metrics
+   * are never reported.
+   * </p>
+   *
+   * @return the registry
+   */
+  public static MetricsRegistry disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Gives the counter of the given name, creating it if needed.
+   *
+   * @param name the name
+   * @return the counter
+   */
+  public Counter counter(String name) {
+    if (!enabled) {
+      return NOOP_COUNTER;
+    }
+    return getOrCreate(name, Counter.class, Counter::new);
+  }
+
+  /**
+   * Gives the histogram of the given name, creating it if needed.
+   *
+   * @param name the name
+   * @return the histogram
+   */
+  public Histogram histogram(String name) {
+    if (!enabled) {
+      return NOOP_HISTOGRAM;
+    }
+    return getOrCreate(name, Histogram.class, Histogram::new);
+  }
+
+  /**
+   * Gives the timer of the given name, creating it if needed.
+   *
+   * @param name the name
+   * @return the timer
+   */
+  public Timer timer(String name) {
+    if (!enabled) {
+      return NOOP_TIMER;
+    }
+    return getOrCreate(name, Timer.class, Timer::new);
+  }
+
+  /**
+   * Adds a gauge reading its value from the given supplier, replacing any gauge of the same name.
+   *
+   * @param name the name
+   * @param supplier reads the current value
+   * @return the gauge
+   */
+  public Gauge gauge(String name, LongSupplier supplier) {
+    Gauge gauge = new Gauge(supplier);
+    if (enabled) {
+      Metric previous = metrics.put(name, gauge);
+      if (previous != null && !(previous instanceof Gauge)) {
+        metrics.put(name, previous);
+        throw new IllegalArgumentException(name + " is not a gauge");
+      }
+    }
+    return gauge;
+  }
+
+  /**
+   * Removes the metric of the given name, if any.
+   *
+   * @param name the name
+   */
+  public void remove(String name) {
+    metrics.remove(name);
+  }
+
+  /**
+   * Gives the metrics currently registered, ordered by name.
+   *
+   * @return the metrics
+   */
+  public SortedMap<String, Metric> getMetrics() {
+    return Collections.unmodifiableSortedMap(new TreeMap<>(metrics));
+  }
+
+  /**
+   * Reports the current values of the metrics.
+   *
+   * @param reporter the reporter
+   * @throws IOException if the reporter fails
+   */
+  public void report(MetricsReporter reporter) throws IOException {
+    reporter.report(this);
+  }
+
+  /**
+   * Reports the metrics periodically on a background thread, until the returned handle is closed.
+   * Closing the handle reports the metrics one last time, and closes the reporter.
+   *
+   * @param reporter the reporter
+   * @param period the time between reports
+   * @return a handle stopping the reports when closed
+   */
+  public Closeable startReporting(MetricsReporter reporter, Duration period) {
+    Objects.requireNonNull(reporter);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r);
+      t.setDaemon(true);
+      t.setName("Metrics Reporter");
+      return t;
+    });
+    scheduler.scheduleAtFixedRate(() -> {
+      try {
+        report(reporter);
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Failed to report metrics", e);
+      }
+    }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    return () -> {
+      scheduler.shutdownNow();
+      try {
+        report(reporter);
+      } finally {
+        reporter.close();
+      }
+    };
+  }
+
+  /**
+   * Gives the metric of the given name, creating it if needed. This lets other components define
+   * their own kinds of metrics.
+   *
+   * @param name the name
+   * @param type the type of the metric
+   * @param factory creates the metric if there is none of the name
+   * @param <T> the type of the metric
+   * @return the metric
+   * @throws IllegalArgumentException if a metric of another type has the name
+   */
+  public <T extends Metric> T getOrCreate(String name, Class<T> type, Supplier<T> factory) {
+    Metric metric = enabled
+        ? metrics.computeIfAbsent(name, n -> factory.get())
+        : shared.computeIfAbsent(type, t -> factory.get());
+    if (!type.isInstance(metric)) {
+      throw new IllegalArgumentException(
+          name + " is a " + metric.getClass().getSimpleName() + ", not a " + type.getSimpleName());
+    }
+    return type.cast(metric);
+  }
+
+}
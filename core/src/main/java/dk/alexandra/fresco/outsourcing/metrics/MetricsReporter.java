@@ -0,0 +1,32 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Exposes the metrics of a {@link MetricsRegistry}, e.g., by writing their current values to a file.
+ *
+ * @see JmxReporter
+ * @see CsvReporter
+ * @see JsonReporter
+ */
+public interface MetricsReporter extends Closeable {
+
+  /**
+   * Reports the current values of the metrics in the registry.
+   *
+   * @param registry the registry
+   * @throws IOException if the metrics could not be reported
+   */
+  void report(MetricsRegistry registry) throws IOException;
+
+  /**
+   * Releases the resources of the reporter. By default this does nothing.
+   *
+   * @throws IOException if releasing the resources fails
+   */
+  @Override
+  default void close() throws IOException {
+  }
+
+}
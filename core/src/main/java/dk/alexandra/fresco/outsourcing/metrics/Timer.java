@@ -0,0 +1,94 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The distribution of the durations of something, e.g., a protocol phase or a client session.
+ *
+ * <p>
+ * Durations are measured in nanoseconds, but reported in milliseconds. A duration is typically
+ * measured as follows:
+ * </p>
+ * <pre>
+ * long start = timer.start();
+ * try {
+ *   ...
+ * } finally {
+ *   timer.stop(start);
+ * }
+ * </pre>
+ */
+public final class Timer implements Metric {
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+  private final Histogram durations;
+
+  /**
+   * Creates a new timer.
+   */
+  public Timer() {
+    this(new Histogram());
+  }
+
+  Timer(Histogram durations) {
+    this.durations = durations;
+  }
+
+  /**
+   * Starts measuring a duration.
+   *
+   * @return the start time, to give to {@link #stop(long)}
+   */
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Stops measuring a duration, and records it.
+   *
+   * @param start the start time given by {@link #start()}
+   * @return the duration in nanoseconds
+   */
+  public long stop(long start) {
+    long duration = System.nanoTime() - start;
+    durations.update(duration);
+    return duration;
+  }
+
+  /**
+   * Records a duration measured elsewhere.
+   *
+   * @param duration the duration
+   * @param unit the unit of the duration
+   */
+  public void update(long duration, TimeUnit unit) {
+    durations.update(unit.toNanos(duration));
+  }
+
+  /**
+   * Gives the durations recorded, in nanoseconds.
+   *
+   * @return the durations
+   */
+  public Histogram getDurations() {
+    return durations;
+  }
+
+  @Override
+  public Map<String, Number> getValues() {
+    Map<String, Number> values = new LinkedHashMap<>();
+    for (Entry<String, Number> e : durations.getValues().entrySet()) {
+      if (e.getKey().equals("count")) {
+        values.put(e.getKey(), e.getValue());
+      } else {
+        values.put(e.getKey(), e.getValue().doubleValue() / NANOS_PER_MILLI);
+      }
+    }
+    values.put("total", durations.getSum() / NANOS_PER_MILLI);
+    return values;
+  }
+
+}
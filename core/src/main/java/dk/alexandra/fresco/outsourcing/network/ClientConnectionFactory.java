@@ -0,0 +1,27 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+/**
+ * A source of network connections made to an mpc server by clients.
+ *
+ * <p>
+ * Implementations listen for connections until explicitly told to stop, and hand out the
+ * connections made in FIFO order.
+ * </p>
+ */
+public interface ClientConnectionFactory {
+
+  /**
+   * Gives the next network connection to a client if any were made (in FIFO order). Otherwise
+   * blocks waiting for the next client make a connection.
+   *
+   * @return a network connected to a client.
+   */
+  TwoPartyNetwork getNetwork();
+
+  /**
+   * Stops this factory from listening for new connections. Connections already handed out are not
+   * affected.
+   */
+  void stopListening();
+
+}
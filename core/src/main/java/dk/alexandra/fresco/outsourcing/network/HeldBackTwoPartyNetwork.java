@@ -0,0 +1,73 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A network holding back outgoing messages until it is explicitly released.
+ *
+ * <p>
+ * Used to make sure the final messages of a handshake are sent before any messages of the session
+ * the handshake registers, even if the session starts running before the handshake has completed.
+ * Messages sent through {@link #sendDirectly(byte[])} bypass the held back messages, and once the
+ * network is released all held back messages are sent in order.
+ * </p>
+ */
+public class HeldBackTwoPartyNetwork implements TwoPartyNetwork {
+
+  private final TwoPartyNetwork network;
+  private List<byte[]> heldBack;
+
+  /**
+   * Wraps a network.
+   *
+   * @param network the underlying network
+   */
+  public HeldBackTwoPartyNetwork(TwoPartyNetwork network) {
+    this.network = Objects.requireNonNull(network);
+    this.heldBack = new ArrayList<>();
+  }
+
+  @Override
+  public synchronized void send(byte[] msg) {
+    if (heldBack != null) {
+      heldBack.add(msg);
+    } else {
+      network.send(msg);
+    }
+  }
+
+  /**
+   * Sends a message ahead of any held back messages.
+   *
+   * @param msg the message
+   */
+  public synchronized void sendDirectly(byte[] msg) {
+    network.send(msg);
+  }
+
+  /**
+   * Sends all held back messages, and lets any later messages through immediately.
+   */
+  public synchronized void release() {
+    if (heldBack != null) {
+      for (byte[] msg : heldBack) {
+        network.send(msg);
+      }
+      heldBack = null;
+    }
+  }
+
+  @Override
+  public byte[] receive() {
+    return network.receive();
+  }
+
+  @Override
+  public void close() throws IOException {
+    network.close();
+  }
+
+}
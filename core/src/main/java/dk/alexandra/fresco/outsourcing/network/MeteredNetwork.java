@@ -0,0 +1,75 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
+import dk.alexandra.fresco.framework.network.Network;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A network between the servers counting the messages and bytes sent to and received from the
+ * other servers, and the time spent blocked in {@link #receive(int)}.
+ *
+ * <p>
+ * The traffic is recorded in any number of {@link NetworkStats}, e.g., for all sessions of a
+ * server, or for a phase of a {@link NetworkProfile}. Messages a server sends to itself, e.g., by
+ * {@link #sendToAll(byte[])}, are not counted. Closing the network closes the underlying network if
+ * it is closeable.
+ * </p>
+ */
+public class MeteredNetwork implements CloseableNetwork {
+
+  private final Network network;
+  private final int myId;
+  private final List<NetworkStats> stats;
+
+  /**
+   * Wraps a network.
+   *
+   * @param network the underlying network
+   * @param myId the id of this server, whose messages to itself are not counted
+   * @param stats the stats to record the traffic in
+   */
+  public MeteredNetwork(Network network, int myId, NetworkStats... stats) {
+    this.network = Objects.requireNonNull(network);
+    this.myId = myId;
+    this.stats = Arrays.asList(stats);
+  }
+
+  @Override
+  public void send(int partyId, byte[] data) {
+    network.send(partyId, data);
+    if (partyId != myId) {
+      for (NetworkStats s : stats) {
+        s.sent(data.length);
+      }
+    }
+  }
+
+  @Override
+  public byte[] receive(int partyId) {
+    long start = System.nanoTime();
+    byte[] data = network.receive(partyId);
+    long blocked = System.nanoTime() - start;
+    if (partyId != myId) {
+      for (NetworkStats s : stats) {
+        s.received(data.length, blocked);
+      }
+    }
+    return data;
+  }
+
+  @Override
+  public int getNoOfParties() {
+    return network.getNoOfParties();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (network instanceof CloseableNetwork) {
+      ((CloseableNetwork) network).close();
+    }
+  }
+
+}
@@ -0,0 +1,127 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.outsourcing.metrics.Counter;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A network counting the messages and bytes sent and received over it, and the time spent blocked
+ * in {@link #receive()}.
+ *
+ * <p>
+ * The traffic is recorded both for this connection, see {@link #getStats()}, and in any number of
+ * shared {@link NetworkStats}, e.g., for all client connections of a server, or for a phase of a
+ * {@link NetworkProfile}.
+ * </p>
+ */
+public class MeteredTwoPartyNetwork implements TwoPartyNetwork {
+
+  private final TwoPartyNetwork network;
+  private final NetworkStats stats = new NetworkStats();
+  private final List<NetworkStats> shared;
+  private final Counter totalSent;
+  private final Counter totalReceived;
+  private final Runnable onClose;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * Wraps a network, recording its traffic in the given stats as well.
+   *
+   * @param network the underlying network
+   * @param shared the stats shared with other networks
+   */
+  public MeteredTwoPartyNetwork(TwoPartyNetwork network, NetworkStats... shared) {
+    this.network = Objects.requireNonNull(network);
+    this.shared = Arrays.asList(shared);
+    this.totalSent = new Counter();
+    this.totalReceived = new Counter();
+    this.onClose = () -> {
+    };
+  }
+
+  /**
+   * Wraps a network, recording its traffic in the stats <code>prefix</code> of a registry, shared
+   * by all networks metered with the same prefix. The bytes are also counted in the counters <code>
+   * prefix.bytesSent</code> and <code>prefix.bytesReceived</code>, and when closed, the bytes of this
+   * connection are recorded in the histograms <code>prefix.connectionBytesSent</code> and <code>
+   * prefix.connectionBytesReceived</code>.
+   *
+   * @param network the underlying network
+   * @param metrics the registry to record the traffic in
+   * @param prefix the name of the stats in the registry
+   */
+  public MeteredTwoPartyNetwork(TwoPartyNetwork network, MetricsRegistry metrics, String prefix) {
+    this.network = Objects.requireNonNull(network);
+    this.shared = Arrays.asList(
+        metrics.getOrCreate(prefix, NetworkStats.class, NetworkStats::new));
+    this.totalSent = metrics.counter(prefix + ".bytesSent");
+    this.totalReceived = metrics.counter(prefix + ".bytesReceived");
+    this.onClose = () -> {
+      metrics.histogram(prefix + ".connectionBytesSent").update(stats.getBytesSent());
+      metrics.histogram(prefix + ".connectionBytesReceived").update(stats.getBytesReceived());
+    };
+  }
+
+  @Override
+  public void send(byte[] msg) {
+    network.send(msg);
+    stats.sent(msg.length);
+    totalSent.add(msg.length);
+    for (NetworkStats s : shared) {
+      s.sent(msg.length);
+    }
+  }
+
+  @Override
+  public byte[] receive() {
+    long start = System.nanoTime();
+    byte[] msg = network.receive();
+    long blocked = System.nanoTime() - start;
+    stats.received(msg.length, blocked);
+    totalReceived.add(msg.length);
+    for (NetworkStats s : shared) {
+      s.received(msg.length, blocked);
+    }
+    return msg;
+  }
+
+  /**
+   * Gives the traffic of this connection.
+   *
+   * @return the stats
+   */
+  public NetworkStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Gives the number of bytes sent over this connection.
+   *
+   * @return the bytes sent
+   */
+  public long getBytesSent() {
+    return stats.getBytesSent();
+  }
+
+  /**
+   * Gives the number of bytes received over this connection.
+   *
+   * @return the bytes received
+   */
+  public long getBytesReceived() {
+    return stats.getBytesReceived();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed.compareAndSet(false, true)) {
+      onClose.run();
+    }
+    network.close();
+  }
+
+}
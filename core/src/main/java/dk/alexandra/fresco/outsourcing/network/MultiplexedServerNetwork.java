@@ -0,0 +1,367 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.framework.configuration.NetworkConfiguration;
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A network between the servers carrying any number of logical channels over a single persistent
+ * connection per pair of servers.
+ *
+ * <p>
+ * The servers connect once when the network is created, using one port per server. Afterwards, any
+ * number of channels can be opened on top of the connections through {@link #openChannel(int)},
+ * each giving a regular FRESCO network, e.g., one for each input or output session, and one for
+ * running applications. This avoids having to connect a new network between the servers for each
+ * session, and to reserve separate ports for each kind of session.
+ * </p>
+ *
+ * <p>
+ * Each message is sent as a big endian int channel id, followed by a big endian int generation, a
+ * big endian int length and the message bytes. The generation of a channel counts how many times
+ * the channel id has been opened before, so a channel id can be reused without mixing up the
+ * messages of its uses. Each connection has a dedicated thread reading incoming messages and
+ * queueing them by channel and generation, so messages for a channel that has not been opened yet
+ * are kept until it is opened. When a channel is closed, any messages left in its queues, or
+ * arriving later for that generation, are discarded. The servers must agree on which channel id is
+ * used for what, e.g., by opening channels in the same order.
+ * </p>
+ */
+public class MultiplexedServerNetwork implements Closeable {
+
+  /**
+   * The channel used for running MPC applications.
+   */
+  public static final int APPLICATION_CHANNEL = 0;
+  /**
+   * The channel used for generating preprocessed material alongside the MPC applications. The
+   * channels of the server sessions count up from 1, so this never collides with them.
+   */
+  public static final int PREPROCESSING_CHANNEL = -1;
+  private static final Duration DEFAULT_CONNECTION_TIMEOUT =
+      OutsourcingConnector.DEFAULT_CONNECTION_TIMEOUT;
+  private static final long RECEIVE_POLL_MILLIS = 100;
+  private static final Logger logger = LoggerFactory.getLogger(MultiplexedServerNetwork.class);
+
+  private final NetworkConfiguration conf;
+  private final Map<Integer, Connection> connections;
+  private final ConcurrentMap<Integer, ConcurrentMap<Long, BlockingQueue<byte[]>>> inboxes;
+  private final ConcurrentMap<Integer, Integer> generations;
+  private final Set<Integer> openChannels;
+  private volatile boolean closed;
+
+  /**
+   * Connects the network using the default connection timeout.
+   *
+   * @param conf the configuration of the network, giving the port of each server
+   */
+  public MultiplexedServerNetwork(NetworkConfiguration conf) {
+    this(conf, DEFAULT_CONNECTION_TIMEOUT);
+  }
+
+  /**
+   * Connects the network.
+   *
+   * @param conf the configuration of the network, giving the port of each server
+   * @param timeout the time to wait for the other servers to connect
+   */
+  public MultiplexedServerNetwork(NetworkConfiguration conf, Duration timeout) {
+    this.conf = conf;
+    this.inboxes = new ConcurrentHashMap<>(conf.noOfParties());
+    for (int i = 1; i <= conf.noOfParties(); i++) {
+      inboxes.put(i, new ConcurrentHashMap<>());
+    }
+    this.generations = new ConcurrentHashMap<>();
+    this.openChannels = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    Map<Integer, Socket> sockets = new OutsourcingConnector(conf, timeout).getSocketMap();
+    this.connections = new HashMap<>(sockets.size());
+    for (Map.Entry<Integer, Socket> entry : sockets.entrySet()) {
+      connections.put(entry.getKey(), new Connection(entry.getKey(), entry.getValue()));
+    }
+    for (Connection connection : connections.values()) {
+      connection.start();
+    }
+    logger.info("P{}: Connected multiplexed server network", conf.getMyId());
+  }
+
+  /**
+   * Opens a channel on the network.
+   *
+   * <p>
+   * The channel is closed by closing the returned network, after which the channel id can be
+   * reused. Messages of the closed channel never reach the channels later opened with the same id.
+   * The underlying connections stay open until this network is closed.
+   * </p>
+   *
+   * @param channel the id of the channel
+   * @return a network sending and receiving on the given channel
+   */
+  public CloseableNetwork openChannel(int channel) {
+    if (closed) {
+      throw new IllegalStateException("Network is closed");
+    }
+    if (!openChannels.add(channel)) {
+      throw new IllegalStateException("Channel " + channel + " is already open");
+    }
+    return new ChannelNetwork(channel, generations.getOrDefault(channel, 0));
+  }
+
+  /**
+   * Gives the number of parties in the network.
+   *
+   * @return the number of parties
+   */
+  public int getNoOfParties() {
+    return conf.noOfParties();
+  }
+
+  /**
+   * Checks if the connections to all other servers are still open.
+   *
+   * @return true if the network can still be used
+   */
+  public boolean isHealthy() {
+    if (closed) {
+      return false;
+    }
+    for (Connection connection : connections.values()) {
+      if (!connection.isRunning()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      for (Connection connection : connections.values()) {
+        connection.close();
+      }
+    }
+  }
+
+  private static long key(int channel, int generation) {
+    return ((long) channel << Integer.SIZE) | (generation & 0xffffffffL);
+  }
+
+  private boolean isReleased(int channel, int generation) {
+    return generation < generations.getOrDefault(channel, 0);
+  }
+
+  private BlockingQueue<byte[]> inbox(int partyId, int channel, int generation) {
+    return inboxes.get(partyId)
+        .computeIfAbsent(key(channel, generation), k -> new LinkedBlockingQueue<>());
+  }
+
+  private void deliver(int partyId, int channel, int generation, byte[] msg) {
+    // Done atomically with respect to releasing the channel, so no queue is left behind
+    inboxes.get(partyId).compute(key(channel, generation), (k, inbox) -> {
+      if (isReleased(channel, generation)) {
+        logger.debug("P{}: Discarding message from P{} on closed channel {}", conf.getMyId(),
+            partyId, channel);
+        return null;
+      }
+      BlockingQueue<byte[]> res = inbox == null ? new LinkedBlockingQueue<>() : inbox;
+      res.add(msg);
+      return res;
+    });
+  }
+
+  private void release(int channel, int generation) {
+    // Marked released before the queues are removed, so later messages are not queued again
+    generations.put(channel, generation + 1);
+    for (ConcurrentMap<Long, BlockingQueue<byte[]>> partyInboxes : inboxes.values()) {
+      BlockingQueue<byte[]> inbox = partyInboxes.remove(key(channel, generation));
+      if (inbox != null && !inbox.isEmpty()) {
+        logger.debug("P{}: Discarding {} unread messages on closed channel {}", conf.getMyId(),
+            inbox.size(), channel);
+      }
+    }
+    openChannels.remove(channel);
+  }
+
+  private void inRange(int partyId) {
+    if (partyId < 1 || partyId > conf.noOfParties()) {
+      throw new IllegalArgumentException(
+          "Party id " + partyId + " not in range 1 ... " + conf.noOfParties());
+    }
+  }
+
+  /**
+   * A single logical channel on the network.
+   */
+  private class ChannelNetwork implements CloseableNetwork {
+
+    private final int channel;
+    private final int generation;
+    private volatile boolean channelClosed;
+
+    ChannelNetwork(int channel, int generation) {
+      this.channel = channel;
+      this.generation = generation;
+    }
+
+    @Override
+    public void send(int partyId, byte[] data) {
+      inRange(partyId);
+      if (channelClosed) {
+        throw new IllegalStateException("Channel " + channel + " is closed");
+      }
+      if (partyId == conf.getMyId()) {
+        deliver(partyId, channel, generation, data);
+      } else {
+        connections.get(partyId).send(channel, generation, data);
+      }
+    }
+
+    @Override
+    public byte[] receive(int partyId) {
+      inRange(partyId);
+      if (channelClosed) {
+        throw new IllegalStateException("Channel " + channel + " is closed");
+      }
+      BlockingQueue<byte[]> inbox = inbox(partyId, channel, generation);
+      Connection connection = connections.get(partyId);
+      byte[] data = null;
+      while (data == null) {
+        data = ExceptionConverter.safe(
+            () -> inbox.poll(RECEIVE_POLL_MILLIS, TimeUnit.MILLISECONDS),
+            "Receive interrupted");
+        if (data == null && connection != null && !connection.isRunning()) {
+          throw new RuntimeException("P" + conf.getMyId() + ": Unable to receive from P"
+              + partyId + ". Connection is closed.");
+        }
+      }
+      return data;
+    }
+
+    @Override
+    public int getNoOfParties() {
+      return conf.noOfParties();
+    }
+
+    @Override
+    public void close() {
+      if (!channelClosed) {
+        channelClosed = true;
+        release(channel, generation);
+      }
+    }
+  }
+
+  /**
+   * The connection to a single other server.
+   */
+  private class Connection implements Runnable {
+
+    private final int partyId;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Thread receiver;
+    private volatile boolean running;
+
+    Connection(int partyId, Socket socket) {
+      this.partyId = partyId;
+      this.socket = socket;
+      ExceptionConverter.safe(() -> {
+        socket.setTcpNoDelay(true);
+        return null;
+      }, "Unable to disable Nagle's algorithm for P" + partyId);
+      this.in = ExceptionConverter.safe(
+          () -> new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+          "Unable to get input stream for P" + partyId);
+      this.out = ExceptionConverter.safe(
+          () -> new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())),
+          "Unable to get output stream for P" + partyId);
+      this.receiver = new Thread(this);
+      this.receiver.setDaemon(true);
+      this.receiver.setName(
+          "MultiplexedServerNetwork Receiver P" + conf.getMyId() + " from P" + partyId);
+      this.running = true;
+    }
+
+    void start() {
+      receiver.start();
+    }
+
+    boolean isRunning() {
+      return running;
+    }
+
+    synchronized void send(int channel, int generation, byte[] data) {
+      if (!running) {
+        throw new RuntimeException("P" + conf.getMyId() + ": Unable to send to P" + partyId
+            + ". Connection is closed.");
+      }
+      try {
+        out.writeInt(channel);
+        out.writeInt(generation);
+        out.writeInt(data.length);
+        out.write(data);
+        out.flush();
+      } catch (IOException e) {
+        running = false;
+        throw new RuntimeException(
+            "P" + conf.getMyId() + ": Failed to send to P" + partyId, e);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          int channel = in.readInt();
+          int generation = in.readInt();
+          int length = in.readInt();
+          if (length < 0) {
+            throw new IOException("Received negative message length " + length);
+          }
+          byte[] data = new byte[length];
+          in.readFully(data);
+          deliver(partyId, channel, generation, data);
+        }
+      } catch (EOFException e) {
+        logger.debug("P{}: Connection to P{} closed by peer", conf.getMyId(), partyId);
+      } catch (IOException e) {
+        if (!closed) {
+          logger.error("P" + conf.getMyId() + ": Lost connection to P" + partyId, e);
+        }
+      } finally {
+        running = false;
+      }
+    }
+
+    void close() {
+      running = false;
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.warn("P" + conf.getMyId() + ": Failed to close connection to P" + partyId, e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attributes the communication of a session to the phases of the protocol run by a server.
+ *
+ * <p>
+ * Each phase meters the networks it uses by {@link #meter(String, TwoPartyNetwork)} or {@link
+ * #meter(String, Network, int)}. The traffic of a phase is recorded for this session, see {@link
+ * #getPhases()}, and accumulated over all sessions in the stats <code>prefix.network.phase</code>
+ * of a registry.
+ * </p>
+ */
+public class NetworkProfile {
+
+  private final MetricsRegistry metrics;
+  private final String prefix;
+  private final Map<String, NetworkStats> phases = new LinkedHashMap<>();
+
+  /**
+   * Creates a new profile of a session.
+   *
+   * @param metrics the registry to accumulate the traffic of each phase in
+   * @param prefix the prefix of the stats in the registry, e.g., <code>ddnnt.input</code>
+   */
+  public NetworkProfile(MetricsRegistry metrics, String prefix) {
+    this.metrics = metrics;
+    this.prefix = prefix;
+  }
+
+  /**
+   * Gives the traffic of a phase in this session, creating it if needed.
+   *
+   * @param name the name of the phase
+   * @return the stats of the phase
+   */
+  public synchronized NetworkStats phase(String name) {
+    return phases.computeIfAbsent(name, n -> new NetworkStats());
+  }
+
+  /**
+   * Meters a network to a client used in a phase.
+   *
+   * @param phase the name of the phase
+   * @param network the network
+   * @return the metered network
+   */
+  public TwoPartyNetwork meter(String phase, TwoPartyNetwork network) {
+    return new MeteredTwoPartyNetwork(network, phase(phase), total(phase));
+  }
+
+  /**
+   * Meters the network between the servers used in a phase.
+   *
+   * @param phase the name of the phase
+   * @param network the network
+   * @param myId the id of this server
+   * @return the metered network
+   */
+  public Network meter(String phase, Network network, int myId) {
+    return new MeteredNetwork(network, myId, phase(phase), total(phase));
+  }
+
+  /**
+   * Gives the traffic of each phase in this session, in the order the phases first communicated.
+   *
+   * @return the stats by phase
+   */
+  public synchronized Map<String, NetworkStats> getPhases() {
+    return Collections.unmodifiableMap(new LinkedHashMap<>(phases));
+  }
+
+  /**
+   * Formats the traffic of each phase as a table for logging.
+   *
+   * @return the table
+   */
+  public String format() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-16s %10s %12s %10s %12s %12s%n", "phase", "msgs sent", "bytes sent",
+        "msgs recv", "bytes recv", "blocked ms"));
+    for (Map.Entry<String, NetworkStats> e : getPhases().entrySet()) {
+      NetworkStats s = e.getValue();
+      sb.append(String.format("%-16s %10d %12d %10d %12d %12d%n", e.getKey(),
+          s.getMessagesSent(), s.getBytesSent(), s.getMessagesReceived(), s.getBytesReceived(),
+          TimeUnit.NANOSECONDS.toMillis(s.getReceiveBlockedNanos())));
+    }
+    return sb.toString();
+  }
+
+  private NetworkStats total(String phase) {
+    return metrics.getOrCreate(prefix + ".network." + phase, NetworkStats.class,
+        NetworkStats::new);
+  }
+
+}
@@ -0,0 +1,90 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.outsourcing.metrics.Metric;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The messages and bytes sent and received over one or more networks, and the time spent waiting
+ * for messages to arrive. Recorded by {@link MeteredTwoPartyNetwork} and {@link MeteredNetwork}.
+ *
+ * <p>
+ * As a {@link Metric}, the time spent blocked is reported in milliseconds.
+ * </p>
+ */
+public final class NetworkStats implements Metric {
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+  private final LongAdder messagesSent = new LongAdder();
+  private final LongAdder bytesSent = new LongAdder();
+  private final LongAdder messagesReceived = new LongAdder();
+  private final LongAdder bytesReceived = new LongAdder();
+  private final LongAdder receiveBlockedNanos = new LongAdder();
+
+  /**
+   * Records a message sent.
+   *
+   * @param bytes the size of the message
+   */
+  public void sent(int bytes) {
+    messagesSent.increment();
+    bytesSent.add(bytes);
+  }
+
+  /**
+   * Records a message received.
+   *
+   * @param bytes the size of the message
+   * @param blockedNanos the time spent waiting for the message
+   */
+  public void received(int bytes, long blockedNanos) {
+    messagesReceived.increment();
+    bytesReceived.add(bytes);
+    receiveBlockedNanos.add(blockedNanos);
+  }
+
+  public long getMessagesSent() {
+    return messagesSent.sum();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.sum();
+  }
+
+  public long getMessagesReceived() {
+    return messagesReceived.sum();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.sum();
+  }
+
+  public long getReceiveBlockedNanos() {
+    return receiveBlockedNanos.sum();
+  }
+
+  @Override
+  public Map<String, Number> getValues() {
+    Map<String, Number> values = new LinkedHashMap<>();
+    values.put("messagesSent", getMessagesSent());
+    values.put("bytesSent", getBytesSent());
+    values.put("messagesReceived", getMessagesReceived());
+    values.put("bytesReceived", getBytesReceived());
+    values.put("receiveBlocked", getReceiveBlockedNanos() / NANOS_PER_MILLI);
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return "NetworkStats{"
+        + "messagesSent=" + getMessagesSent()
+        + ", bytesSent=" + getBytesSent()
+        + ", messagesReceived=" + getMessagesReceived()
+        + ", bytesReceived=" + getBytesReceived()
+        + ", receiveBlockedNanos=" + getReceiveBlockedNanos()
+        + '}';
+  }
+
+}
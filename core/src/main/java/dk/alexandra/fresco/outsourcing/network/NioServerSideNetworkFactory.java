@@ -0,0 +1,275 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.outsourcing.network.ClientSideNetworkFactory.Parties;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A factory for mpc servers to get network connections made from clients, based on non-blocking
+ * channels.
+ *
+ * <p>
+ * As opposed to the {@link ServerSideNetworkFactory}, which wraps each client connection in a
+ * {@code SocketNetwork} with its own sender and receiver threads, this factory multiplexes all
+ * client connections over a small fixed number of I/O threads. Each I/O thread runs its own
+ * {@link Selector}, and new connections are assigned to the I/O threads in round robin order. This
+ * allows a server to keep thousands of client connections open at once.
+ * </p>
+ *
+ * <p>
+ * The factory will listen for new connections from clients until the factory is explicitly told to
+ * stop. A connection is queued once the client has identified itself, and connections are returned
+ * in FIFO order. The I/O threads stay alive until listening has stopped and all connections they
+ * serve have been closed.
+ * </p>
+ */
+public class NioServerSideNetworkFactory implements ClientConnectionFactory {
+
+  public static final int DEFAULT_IO_THREADS = 2;
+  private static final int PARTY_ID_BYTES = 1;
+  private static final Logger logger = LoggerFactory.getLogger(NioServerSideNetworkFactory.class);
+
+  private final int port;
+  private final ServerSocketChannel serverChannel;
+  private final BlockingQueue<TwoPartyNetwork> processingQueue;
+  private final IoLoop[] ioLoops;
+  private final Thread acceptThread;
+  private volatile boolean listening;
+
+  /**
+   * Constructs a new network factory using {@value #DEFAULT_IO_THREADS} I/O threads.
+   *
+   * @param port the port number to listen for connection on
+   */
+  public NioServerSideNetworkFactory(int port) {
+    this(port, DEFAULT_IO_THREADS);
+  }
+
+  /**
+   * Constructs a new network factory.
+   *
+   * @param port the port number to listen for connection on
+   * @param ioThreads the number of threads used to serve client connections
+   */
+  public NioServerSideNetworkFactory(int port, int ioThreads) {
+    if (ioThreads < 1) {
+      throw new IllegalArgumentException("Need at least one I/O thread, but was: " + ioThreads);
+    }
+    this.port = port;
+    this.processingQueue = new LinkedBlockingQueue<>();
+    this.serverChannel = ExceptionConverter.safe(() -> {
+      ServerSocketChannel channel = ServerSocketChannel.open();
+      channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      channel.bind(new InetSocketAddress(port));
+      return channel;
+    }, "Could not bind to port " + port);
+    this.listening = true;
+    this.ioLoops = new IoLoop[ioThreads];
+    for (int i = 0; i < ioThreads; i++) {
+      ioLoops[i] = new IoLoop();
+      Thread t = new Thread(ioLoops[i]);
+      t.setDaemon(true);
+      t.setName("NioServerSideNetworkFactory I/O " + i + " (port " + port + ")");
+      t.start();
+    }
+    this.acceptThread = new Thread(this::accept);
+    this.acceptThread.setDaemon(true);
+    this.acceptThread.setName("NioServerSideNetworkFactory Acceptor (port " + port + ")");
+    this.acceptThread.start();
+  }
+
+  @Override
+  public TwoPartyNetwork getNetwork() {
+    return ExceptionConverter.safe(() -> this.processingQueue.take(),
+        "Interrupted waiting for the next client connection.");
+  }
+
+  @Override
+  public void stopListening() {
+    if (listening) {
+      listening = false;
+      try {
+        serverChannel.close();
+      } catch (IOException e) {
+        logger.warn("Failed to close server channel on port " + port, e);
+      }
+      for (IoLoop loop : ioLoops) {
+        loop.selector.wakeup();
+      }
+    }
+  }
+
+  /**
+   * Accepts connections from clients and hands them to the I/O threads.
+   */
+  private void accept() {
+    logger.info("Listening for client connections on port {}", port);
+    int next = 0;
+    while (listening) {
+      try {
+        SocketChannel channel = serverChannel.accept();
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        ioLoops[next].register(channel);
+        next = (next + 1) % ioLoops.length;
+      } catch (ClosedChannelException e) {
+        // Listening was stopped
+        return;
+      } catch (IOException e) {
+        logger.error("Failed to accept client connection on port " + port, e);
+      }
+    }
+  }
+
+  /**
+   * A single I/O thread serving a subset of the client connections.
+   */
+  private class IoLoop implements Runnable {
+
+    private final Selector selector;
+    private final Queue<SocketChannel> newChannels;
+    private final Queue<NioTwoPartyNetwork> pendingWrites;
+
+    IoLoop() {
+      this.selector = ExceptionConverter.safe(Selector::open, "Could not open selector");
+      this.newChannels = new ConcurrentLinkedQueue<>();
+      this.pendingWrites = new ConcurrentLinkedQueue<>();
+    }
+
+    void register(SocketChannel channel) {
+      newChannels.add(channel);
+      selector.wakeup();
+    }
+
+    void scheduleWrite(NioTwoPartyNetwork network) {
+      pendingWrites.add(network);
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (listening || !newChannels.isEmpty() || !selector.keys().isEmpty()) {
+          // Once listening stops, select with a timeout so cancelled keys are eventually purged
+          selector.select(listening ? 0 : 100);
+          registerNewChannels();
+          flushPendingWrites();
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            handle(key);
+          }
+        }
+      } catch (IOException | ClosedSelectorException e) {
+        logger.error("I/O thread for client connections on port " + port + " failed", e);
+      } finally {
+        ExceptionConverter.safe(() -> {
+          selector.close();
+          return null;
+        }, "Failed to close selector");
+      }
+    }
+
+    private void registerNewChannels() throws IOException {
+      SocketChannel channel;
+      while ((channel = newChannels.poll()) != null) {
+        channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(PARTY_ID_BYTES));
+      }
+    }
+
+    private void flushPendingWrites() {
+      NioTwoPartyNetwork network;
+      while ((network = pendingWrites.poll()) != null) {
+        if (!network.isClosed()) {
+          try {
+            network.onWritable();
+          } catch (IOException e) {
+            logger.warn("Failed writing to client, closing connection", e);
+            network.terminate();
+          }
+        }
+      }
+    }
+
+    private void handle(SelectionKey key) {
+      if (key.attachment() instanceof ByteBuffer) {
+        readPartyId(key);
+        return;
+      }
+      NioTwoPartyNetwork network = (NioTwoPartyNetwork) key.attachment();
+      try {
+        if (key.isValid() && key.isWritable()) {
+          network.onWritable();
+        }
+        if (key.isValid() && key.isReadable()) {
+          network.onReadable();
+        }
+      } catch (IOException e) {
+        logger.warn("Lost connection to client, closing connection", e);
+        network.terminate();
+      }
+    }
+
+    /**
+     * Reads the party id sent by a newly connected client, and queues the connection once the id is
+     * known to be the client id.
+     */
+    private void readPartyId(SelectionKey key) {
+      SocketChannel channel = (SocketChannel) key.channel();
+      ByteBuffer idBuffer = (ByteBuffer) key.attachment();
+      try {
+        if (channel.read(idBuffer) < 0) {
+          throw new IOException("Client disconnected before sending its id");
+        }
+        if (idBuffer.hasRemaining()) {
+          return;
+        }
+        idBuffer.flip();
+        int id = 0;
+        for (int j = 0; j < PARTY_ID_BYTES; j++) {
+          id ^= (idBuffer.get() & 0xff) << j * Byte.SIZE;
+        }
+        if (id != Parties.CLIENT.id()) {
+          throw new IOException(
+              "Expected connection from client id " + Parties.CLIENT.id() + " but was " + id);
+        }
+        NioTwoPartyNetwork network = new NioTwoPartyNetwork(channel, this::scheduleWrite);
+        network.setKey(key);
+        key.attach(network);
+        processingQueue.add(network);
+        logger.info("Accepted connection from client");
+        // The client may already have sent its first messages
+        network.onReadable();
+      } catch (IOException e) {
+        if (key.attachment() instanceof NioTwoPartyNetwork) {
+          logger.warn("Lost connection to client, closing connection", e);
+          ((NioTwoPartyNetwork) key.attachment()).terminate();
+          return;
+        }
+        logger.warn("Rejected client connection", e);
+        key.cancel();
+        ExceptionConverter.safe(() -> {
+          channel.close();
+          return null;
+        }, "Failed to close client channel");
+      }
+    }
+  }
+}
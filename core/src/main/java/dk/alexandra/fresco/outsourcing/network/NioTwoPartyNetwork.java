@@ -0,0 +1,189 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A two party network backed by a non-blocking {@link SocketChannel}.
+ *
+ * <p>
+ * All actual reading and writing on the channel is done by the I/O thread owning the channel (see
+ * {@link NioServerSideNetworkFactory}). Sending a message only queues it and notifies the I/O
+ * thread, while receiving a message takes it from a queue filled by the I/O thread.
+ * </p>
+ *
+ * <p>
+ * The wire format is the same as used by the FRESCO {@code SocketNetwork}: each message is sent as
+ * a big endian int length followed by the message bytes, and a negative length signals that the
+ * sender closed the connection. Hence, clients can use a regular {@code SocketNetwork} to talk to
+ * this network.
+ * </p>
+ */
+class NioTwoPartyNetwork implements TwoPartyNetwork {
+
+  private static final byte[] CLOSED = new byte[0];
+  private static final int CLOSE_MARKER = -1;
+
+  private final SocketChannel channel;
+  private final Consumer<NioTwoPartyNetwork> writeScheduler;
+  private final BlockingQueue<byte[]> received;
+  private final Queue<ByteBuffer[]> pendingWrites;
+  private final AtomicBoolean writeScheduled;
+  private final AtomicBoolean closing;
+  private final ByteBuffer header;
+  private ByteBuffer body;
+  private volatile boolean closed;
+  private SelectionKey key;
+
+  /**
+   * Creates a new network over a connected channel.
+   *
+   * @param channel a connected non-blocking channel
+   * @param writeScheduler callback used to ask the owning I/O thread to flush pending writes
+   */
+  NioTwoPartyNetwork(SocketChannel channel, Consumer<NioTwoPartyNetwork> writeScheduler) {
+    this.channel = channel;
+    this.writeScheduler = writeScheduler;
+    this.received = new LinkedBlockingQueue<>();
+    this.pendingWrites = new ConcurrentLinkedQueue<>();
+    this.writeScheduled = new AtomicBoolean(false);
+    this.closing = new AtomicBoolean(false);
+    this.header = ByteBuffer.allocate(Integer.BYTES);
+  }
+
+  @Override
+  public void send(byte[] msg) {
+    if (closing.get() || closed) {
+      throw new IllegalStateException("Cannot send on a closed network");
+    }
+    enqueue(msg.length, msg);
+  }
+
+  @Override
+  public byte[] receive() {
+    byte[] msg = ExceptionConverter.safe(received::take,
+        "Interrupted waiting to receive a message");
+    if (msg == CLOSED) {
+      // Leave the marker for any later calls to receive
+      received.add(CLOSED);
+      throw new RuntimeException("Connection closed by the client");
+    }
+    return msg;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closing.compareAndSet(false, true) && !closed) {
+      enqueue(CLOSE_MARKER, new byte[0]);
+    }
+  }
+
+  private void enqueue(int length, byte[] msg) {
+    ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES);
+    frame.putInt(length).flip();
+    // Header and body are queued as one unit, so frames of concurrent sends do not interleave
+    pendingWrites.add(new ByteBuffer[]{frame, ByteBuffer.wrap(msg)});
+    if (writeScheduled.compareAndSet(false, true)) {
+      writeScheduler.accept(this);
+    }
+  }
+
+  SocketChannel getChannel() {
+    return channel;
+  }
+
+  void setKey(SelectionKey key) {
+    this.key = key;
+  }
+
+  /**
+   * Reads as much as is available from the channel, queueing any completed messages. Called only
+   * by the owning I/O thread.
+   *
+   * @throws IOException if reading fails or the stream ends before the client closed gracefully
+   */
+  void onReadable() throws IOException {
+    while (true) {
+      if (body == null) {
+        if (channel.read(header) < 0) {
+          throw new EOFException("Connection reset by client");
+        }
+        if (header.hasRemaining()) {
+          return;
+        }
+        header.flip();
+        int length = header.getInt();
+        header.clear();
+        if (length < 0) {
+          terminate();
+          return;
+        }
+        body = ByteBuffer.allocate(length);
+      }
+      if (channel.read(body) < 0) {
+        throw new EOFException("Connection reset by client");
+      }
+      if (body.hasRemaining()) {
+        return;
+      }
+      received.add(body.array());
+      body = null;
+    }
+  }
+
+  /**
+   * Writes as much of the pending messages as the channel accepts. Called only by the owning I/O
+   * thread.
+   *
+   * @throws IOException if writing fails
+   */
+  void onWritable() throws IOException {
+    writeScheduled.set(false);
+    ByteBuffer[] next;
+    while ((next = pendingWrites.peek()) != null) {
+      channel.write(next);
+      if (next[next.length - 1].hasRemaining()) {
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        return;
+      }
+      pendingWrites.poll();
+    }
+    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    if (closing.get() && pendingWrites.isEmpty()) {
+      terminate();
+    }
+  }
+
+  /**
+   * Closes the underlying channel and wakes up anyone waiting to receive. Called only by the owning
+   * I/O thread.
+   */
+  void terminate() {
+    if (!closed) {
+      closed = true;
+      if (key != null) {
+        key.cancel();
+      }
+      ExceptionConverter.safe(() -> {
+        channel.close();
+        return null;
+      }, "Failed to close client channel");
+      received.add(CLOSED);
+    }
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+}
@@ -0,0 +1,264 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import dk.alexandra.fresco.framework.configuration.NetworkConfiguration;
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool keeping the connections between the servers open, and leasing them out to sessions and
+ * applications.
+ *
+ * <p>
+ * The pool holds a single {@link MultiplexedServerNetwork}, which is connected on the first lease.
+ * Each lease is a channel on this network, and the channel is returned to the pool by closing the
+ * leased network. Before handing out a lease, the pool checks that the connections to the other
+ * servers are still open, and reconnects if they are not.
+ * </p>
+ *
+ * <p>
+ * Connecting is done by a single thread without holding the lock of the pool, so returning leases,
+ * evicting and closing the pool are not blocked while waiting for the other servers to connect.
+ * Other threads leasing in the meantime wait for that connection instead of connecting on their
+ * own. The servers can connect at an agreed point by calling {@link #connect()}, e.g., before
+ * processing a batch of clients, rather than on whichever lease happens to need it.
+ * </p>
+ *
+ * <p>
+ * Optionally, the connections are closed once no channels have been leased for a given idle
+ * timeout, and are reconnected on the next lease. Since reconnecting requires all servers to
+ * connect at the same time, the idle timeout should only be used if the servers are idle at the
+ * same time, e.g., between processing batches of clients.
+ * </p>
+ */
+public class ServerNetworkPool implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ServerNetworkPool.class);
+
+  private final Supplier<MultiplexedServerNetwork> connector;
+  private final Duration idleTimeout;
+  private final ScheduledExecutorService evictor;
+  private MultiplexedServerNetwork network;
+  private boolean connecting;
+  private int leases;
+  private long lastReturned;
+  private boolean closed;
+
+  /**
+   * Creates a new pool never closing idle connections.
+   *
+   * @param conf the configuration of the network between the servers
+   */
+  public ServerNetworkPool(NetworkConfiguration conf) {
+    this(conf, Duration.ZERO);
+  }
+
+  /**
+   * Creates a new pool.
+   *
+   * @param conf the configuration of the network between the servers
+   * @param idleTimeout the time after which unused connections are closed, or zero to keep the
+   *     connections open until the pool is closed
+   */
+  public ServerNetworkPool(NetworkConfiguration conf, Duration idleTimeout) {
+    this(() -> new MultiplexedServerNetwork(conf), idleTimeout);
+  }
+
+  /**
+   * Creates a new pool.
+   *
+   * @param connector connects a new network between the servers
+   * @param idleTimeout the time after which unused connections are closed, or zero to keep the
+   *     connections open until the pool is closed
+   */
+  public ServerNetworkPool(Supplier<MultiplexedServerNetwork> connector, Duration idleTimeout) {
+    if (idleTimeout.isNegative()) {
+      throw new IllegalArgumentException(
+          "Idle timeout cannot be negative, but was: " + idleTimeout);
+    }
+    this.connector = Objects.requireNonNull(connector);
+    this.idleTimeout = idleTimeout;
+    if (idleTimeout.isZero()) {
+      this.evictor = null;
+    } else {
+      this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("ServerNetworkPool Evictor");
+        return t;
+      });
+      long period = Math.max(1, idleTimeout.toMillis() / 2);
+      this.evictor.scheduleAtFixedRate(this::evictIfIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Leases a channel on the network between the servers, connecting the network if needed.
+   *
+   * <p>
+   * The servers must agree on which channel is used for what, e.g., by leasing channels in the same
+   * order. Closing the returned network returns the lease.
+   * </p>
+   *
+   * @param channel the id of the channel
+   * @return a network sending and receiving on the given channel
+   */
+  public CloseableNetwork lease(int channel) {
+    while (true) {
+      MultiplexedServerNetwork connected = connect();
+      synchronized (this) {
+        // The network may have been evicted or lost since it was connected
+        if (network == connected && connected.isHealthy()) {
+          CloseableNetwork leased = connected.openChannel(channel);
+          leases++;
+          return new Lease(leased);
+        }
+      }
+    }
+  }
+
+  /**
+   * Connects the network between the servers, unless it is already connected and healthy.
+   *
+   * <p>
+   * The other servers must connect at the same time. If another thread is already connecting, this
+   * waits for it to finish. The lock of the pool is not held while connecting.
+   * </p>
+   *
+   * @return the connected network
+   */
+  public MultiplexedServerNetwork connect() {
+    synchronized (this) {
+      while (true) {
+        if (closed) {
+          throw new IllegalStateException("Pool is closed");
+        }
+        if (network != null && network.isHealthy()) {
+          return network;
+        }
+        if (!connecting) {
+          break;
+        }
+        ExceptionConverter.safe(() -> {
+          wait();
+          return null;
+        }, "Interrupted while waiting for the servers to connect");
+      }
+      if (network != null) {
+        logger.warn("Lost connection to the other servers, reconnecting");
+        network.close();
+        network = null;
+      }
+      connecting = true;
+    }
+    MultiplexedServerNetwork connected = null;
+    try {
+      connected = connector.get();
+    } finally {
+      synchronized (this) {
+        connecting = false;
+        if (!closed) {
+          network = connected;
+          lastReturned = System.nanoTime();
+        }
+        notifyAll();
+      }
+    }
+    synchronized (this) {
+      if (closed) {
+        // Closed while connecting, so the connection is not kept
+        connected.close();
+        throw new IllegalStateException("Pool is closed");
+      }
+    }
+    return connected;
+  }
+
+  /**
+   * Gives the number of leases not yet returned.
+   *
+   * @return the number of active leases
+   */
+  public synchronized int getActiveLeases() {
+    return leases;
+  }
+
+  /**
+   * Closes the connections between the servers. Active leases can no longer be used.
+   */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      notifyAll();
+      if (evictor != null) {
+        evictor.shutdownNow();
+      }
+      if (network != null) {
+        network.close();
+        network = null;
+      }
+    }
+  }
+
+  private synchronized void returnLease() {
+    leases--;
+    lastReturned = System.nanoTime();
+  }
+
+  private synchronized void evictIfIdle() {
+    if (network != null && !connecting && leases == 0
+        && System.nanoTime() - lastReturned >= idleTimeout.toNanos()) {
+      logger.info("Closing idle connections to the other servers");
+      network.close();
+      network = null;
+    }
+  }
+
+  /**
+   * A leased channel, returned to the pool when closed.
+   */
+  private class Lease implements CloseableNetwork {
+
+    private final CloseableNetwork channel;
+    private boolean returned;
+
+    Lease(CloseableNetwork channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void send(int partyId, byte[] data) {
+      channel.send(partyId, data);
+    }
+
+    @Override
+    public byte[] receive(int partyId) {
+      return channel.receive(partyId);
+    }
+
+    @Override
+    public int getNoOfParties() {
+      return channel.getNoOfParties();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (!returned) {
+        returned = true;
+        channel.close();
+        returnLease();
+      }
+    }
+  }
+
+}
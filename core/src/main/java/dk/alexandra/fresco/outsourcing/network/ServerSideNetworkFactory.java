@@ -25,7 +25,7 @@ import org.slf4j.LoggerFactory;
  * stop. All connections made will be queued and returned in FIFO order.
  * </p>
  */
-public class ServerSideNetworkFactory {
+public class ServerSideNetworkFactory implements ClientConnectionFactory {
 
   private static final int PARTY_ID_BYTES = 1;
   private static final Logger logger = LoggerFactory.getLogger(ServerSideNetworkFactory.class);
@@ -50,20 +50,13 @@ public class ServerSideNetworkFactory {
     this.thread.start();
   }
 
-  /**
-   * Gives the next network connection to a client if any were made (in FIFO order). Otherwise
-   * blocks waiting for the next client make a connection.
-   *
-   * @return a network connected to a client.
-   */
+  @Override
   public TwoPartyNetwork getNetwork() {
     return ExceptionConverter.safe(() -> this.processingQueue.take(),
         "Interrupted waiting for the next client connection.");
   }
 
-  /**
-   * Stops this factory from listening for new connections.
-   */
+  @Override
   public void stopListening() {
     if (!this.thread.isInterrupted()) {
       this.thread.interrupt();
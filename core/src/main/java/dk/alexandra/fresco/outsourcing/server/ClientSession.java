@@ -2,6 +2,7 @@ package dk.alexandra.fresco.outsourcing.server;
 
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.network.serializers.ByteSerializer;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 
 /**
@@ -30,4 +31,13 @@ public interface ClientSession {
    */
   ByteSerializer<FieldElement> getSerializer();
 
+  /**
+   * Gives the optional protocol features the client announced during the handshake.
+   *
+   * @return the capability flags as defined in {@link ClientCapabilities}
+   */
+  default int getCapabilities() {
+    return ClientCapabilities.NONE;
+  }
+
 }
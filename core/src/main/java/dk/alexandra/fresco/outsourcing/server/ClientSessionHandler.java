@@ -1,5 +1,52 @@
 package dk.alexandra.fresco.outsourcing.server;
 
+import dk.alexandra.fresco.framework.network.Network;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
 public interface ClientSessionHandler<T extends ClientSession> extends ClientSessionRegistration<T>,
         ClientSessionProducer<T> {
+
+  /**
+   * Agrees with the other servers on the clients whose sessions are produced.
+   *
+   * <p>
+   * All servers must call this on a network between them before using the network for anything
+   * else, and before producing sessions. By default all expected clients are assumed to register
+   * with every server, so nothing is communicated and the number of expected clients is returned.
+   * </p>
+   *
+   * @param network the network to the other servers
+   * @return the number of sessions produced
+   */
+  default int closeAdmission(Network network) {
+    return getExpectedClients();
+  }
+
+  /**
+   * Gives the time a client has from its session being produced until it must have sent its
+   * inputs. A client that does not, or whose connection fails before that, is dropped, see {@link
+   * #agreeOnFailedClients(Network, Collection)}. By default the servers wait for the inputs of
+   * every client, and any client failing fails the session.
+   *
+   * @return the timeout, or null to wait for every client
+   */
+  default Duration getInputTimeout() {
+    return null;
+  }
+
+  /**
+   * Agrees with the other servers on the clients that failed to send their inputs, so all servers
+   * leave out the same clients. Only called if {@link #getInputTimeout()} is not null, and then by
+   * all servers at the same point of the session.
+   *
+   * @param network the network to the other servers
+   * @param failedClientIds the ids of the clients that failed on this server
+   * @return the ids of the clients that failed on any server
+   */
+  default Set<Integer> agreeOnFailedClients(Network network, Collection<Integer> failedClientIds) {
+    throw new UnsupportedOperationException("Clients are not dropped by this handler");
+  }
+
 }
@@ -3,12 +3,32 @@ package dk.alexandra.fresco.outsourcing.server;
 import static dk.alexandra.fresco.outsourcing.utils.GenericUtils.intFromBytes;
 
 import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
+import dk.alexandra.fresco.outsourcing.network.ClientConnectionFactory;
+import dk.alexandra.fresco.outsourcing.network.HeldBackTwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.network.MeteredTwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.network.ServerSideNetworkFactory;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.utils.GlobalExceptionHandler;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import javax.net.ServerSocketFactory;
 import org.slf4j.Logger;
@@ -47,10 +67,23 @@ public class DemoClientSessionRequestHandler<T extends ClientSession, K extends
   }
   private static final Logger logger = LoggerFactory
       .getLogger(DemoClientSessionRequestHandler.class);
+  public static final int DEFAULT_HANDSHAKE_THREADS = 8;
+  public static final Duration DEFAULT_HANDSHAKE_TIMEOUT = Duration.ofMinutes(1);
+  /**
+   * The number of expected clients making the handler listen for clients for as long as the
+   * process runs, e.g., to serve successive epochs of clients.
+   */
+  public static final int UNLIMITED_CLIENTS = Integer.MAX_VALUE;
+  private static final int HANDSHAKE_QUEUE_FACTOR = 4;
   private final SpdzResourcePool resourcePool;
   private final int port;
   private final int expectedClients;
   private final Predicate<Integer> isInputClient;
+  private final IntFunction<ClientConnectionFactory> networkFactoryProvider;
+  private final int handshakeThreads;
+  private final Duration handshakeTimeout;
+  private final MetricsRegistry metrics;
+  private final Timer handshakeTimer;
   private ClientSessionRegistration<T> inputSessionRequestHandler;
   private ClientSessionRegistration<K> outputSessionRequestHandler;
 
@@ -68,34 +101,232 @@ public class DemoClientSessionRequestHandler<T extends ClientSession, K extends
    */
   public DemoClientSessionRequestHandler(SpdzResourcePool resourcePool,
       int port, int expectedClients, Predicate<Integer> isInputClient) {
+    this(resourcePool, port, expectedClients, isInputClient,
+        p -> new ServerSideNetworkFactory(p, ServerSocketFactory.getDefault()));
+  }
+
+  /**
+   * Constructs a new client session producer using a custom factory for client connections.
+   *
+   * <p>
+   * This allows, e.g., to use a {@link dk.alexandra.fresco.outsourcing.network.NioServerSideNetworkFactory}
+   * to serve a large number of clients with a few threads.
+   * </p>
+   *
+   * @param resourcePool a spdz resource pool to use for the input protocol
+   * @param port a port to listen for incoming sessions on
+   * @param expectedClients the number of clients to listen for
+   * @param isInputClient predicate deciding from the client id if a client is an input client
+   * @param networkFactoryProvider creates the factory listening for clients on a given port
+   */
+  public DemoClientSessionRequestHandler(SpdzResourcePool resourcePool,
+      int port, int expectedClients, Predicate<Integer> isInputClient,
+      IntFunction<ClientConnectionFactory> networkFactoryProvider) {
+    this(resourcePool, port, expectedClients, isInputClient, networkFactoryProvider,
+        DEFAULT_HANDSHAKE_THREADS, DEFAULT_HANDSHAKE_TIMEOUT);
+  }
+
+  /**
+   * Constructs a new client session producer with a custom handshake configuration.
+   *
+   * <p>
+   * Handshakes are run concurrently by a bounded pool of workers. If the pool and its queue are
+   * full, the listener runs the handshake itself, which stops accepting new clients until workers
+   * free up. A client that has not sent its introduction within the handshake timeout is
+   * disconnected, and its slot is given to the next client connecting. Once a client has been
+   * registered, it keeps its slot even if the rest of its handshake fails, as server 1 has handed
+   * out its priority.
+   * </p>
+   *
+   * @param resourcePool a spdz resource pool to use for the input protocol
+   * @param port a port to listen for incoming sessions on
+   * @param expectedClients the number of clients to listen for
+   * @param isInputClient predicate deciding from the client id if a client is an input client
+   * @param networkFactoryProvider creates the factory listening for clients on a given port
+   * @param handshakeThreads the maximum number of handshakes to run concurrently
+   * @param handshakeTimeout the time a client has to introduce itself after connecting
+   */
+  public DemoClientSessionRequestHandler(SpdzResourcePool resourcePool,
+      int port, int expectedClients, Predicate<Integer> isInputClient,
+      IntFunction<ClientConnectionFactory> networkFactoryProvider, int handshakeThreads,
+      Duration handshakeTimeout) {
+    this(resourcePool, port, expectedClients, isInputClient, networkFactoryProvider,
+        handshakeThreads, handshakeTimeout, MetricsRegistry.disabled());
+  }
+
+  /**
+   * Constructs a new client session producer with a custom handshake configuration, recording its
+   * metrics in the given registry.
+   *
+   * <p>
+   * The durations of the handshakes are recorded by the timer <code>client.handshake</code>, and the
+   * failed handshakes by the counter <code>client.handshakeFailures</code>. The bytes sent and
+   * received over the client connections are counted under the prefix <code>client.network</code>,
+   * see {@link MeteredTwoPartyNetwork}.
+   * </p>
+   *
+   * @param resourcePool a spdz resource pool to use for the input protocol
+   * @param port a port to listen for incoming sessions on
+   * @param expectedClients the number of clients to listen for, or {@link #UNLIMITED_CLIENTS}
+   * @param isInputClient predicate deciding from the client id if a client is an input client
+   * @param networkFactoryProvider creates the factory listening for clients on a given port
+   * @param handshakeThreads the maximum number of handshakes to run concurrently
+   * @param handshakeTimeout the time a client has to introduce itself after connecting
+   * @param metrics the registry to record the metrics in
+   */
+  public DemoClientSessionRequestHandler(SpdzResourcePool resourcePool,
+      int port, int expectedClients, Predicate<Integer> isInputClient,
+      IntFunction<ClientConnectionFactory> networkFactoryProvider, int handshakeThreads,
+      Duration handshakeTimeout, MetricsRegistry metrics) {
     if (port < 0) {
       throw new IllegalArgumentException("Port number cannot be negative, but was: " + port);
     }
+    if (handshakeThreads < 1) {
+      throw new IllegalArgumentException(
+          "Need at least one handshake thread, but was: " + handshakeThreads);
+    }
     this.resourcePool = Objects.requireNonNull(resourcePool);
     this.port = port;
     this.expectedClients = expectedClients;
     this.isInputClient = isInputClient;
+    this.networkFactoryProvider = Objects.requireNonNull(networkFactoryProvider);
+    this.handshakeThreads = handshakeThreads;
+    this.handshakeTimeout = Objects.requireNonNull(handshakeTimeout);
+    this.metrics = Objects.requireNonNull(metrics);
+    this.handshakeTimer = metrics.timer("client.handshake");
   }
 
   private void listenForClients() {
-    logger.info("Started Listening for " + expectedClients + " client connections.");
-    ServerSideNetworkFactory networkFactory =
-        new ServerSideNetworkFactory(port, ServerSocketFactory.getDefault());
-    for (int i = 0; i < expectedClients; i++) {
-      logger.info("S{}: Waiting for next client.", resourcePool.getMyId());
-      TwoPartyNetwork network = networkFactory.getNetwork();
-      logger.info("S{}: Client connected. Starting handshake ... ", resourcePool.getMyId());
-      handshake(network);
+    if (expectedClients == UNLIMITED_CLIENTS) {
+      logger.info("Started listening for client connections.");
+    } else {
+      logger.info("Started Listening for " + expectedClients + " client connections.");
+    }
+    ClientConnectionFactory networkFactory = networkFactoryProvider.apply(port);
+    ThreadPoolExecutor handshakeExecutor = new ThreadPoolExecutor(handshakeThreads,
+        handshakeThreads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(handshakeThreads * HANDSHAKE_QUEUE_FACTOR),
+        daemonThreadFactory("DemoClientSessionRequestHandler Handshake"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+        daemonThreadFactory("DemoClientSessionRequestHandler Handshake Timeout"));
+    // A slot is taken for every client accepted, and handed back if its handshake fails
+    Semaphore slots = new Semaphore(expectedClients);
+    AtomicInteger completed = new AtomicInteger();
+    try {
+      while (completed.get() < expectedClients) {
+        slots.acquire();
+        if (completed.get() >= expectedClients) {
+          break;
+        }
+        logger.info("S{}: Waiting for next client.", resourcePool.getMyId());
+        TwoPartyNetwork network = new MeteredTwoPartyNetwork(networkFactory.getNetwork(), metrics,
+            "client.network");
+        logger.info("S{}: Client connected. Starting handshake ... ", resourcePool.getMyId());
+        handshakeExecutor.execute(() -> {
+          if (timedHandshake(network, watchdog)) {
+            if (completed.incrementAndGet() == expectedClients) {
+              // Wake up the listener so it can stop
+              slots.release();
+            }
+          } else {
+            slots.release();
+          }
+        });
+      }
+    } catch (InterruptedException e) {
+      logger.error("Interrupted while listening for clients", e);
+      Thread.currentThread().interrupt();
+    } finally {
+      networkFactory.stopListening();
+      handshakeExecutor.shutdown();
+      watchdog.shutdownNow();
     }
-    networkFactory.stopListening();
   }
 
-  private void handshake(TwoPartyNetwork network) {
-    // The introduction message from the client is expected to be the following 12 bytes
+  /**
+   * Runs the handshake, disconnecting the client if it does not introduce itself in time.
+   *
+   * @return true if the handshake succeeded, false otherwise
+   */
+  private boolean timedHandshake(TwoPartyNetwork network, ScheduledExecutorService watchdog) {
+    AtomicBoolean introduced = new AtomicBoolean(false);
+    ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+      if (introduced.compareAndSet(false, true)) {
+        logger.warn("S{}: Client did not finish handshake within {}, disconnecting.",
+            resourcePool.getMyId(), handshakeTimeout);
+        closeQuietly(network);
+      }
+    }, handshakeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    long start = handshakeTimer.start();
+    try {
+      byte[] introBytes = network.receive();
+      if (!introduced.compareAndSet(false, true)) {
+        metrics.counter("client.handshakeFailures").increment();
+        return false;
+      }
+      timeout.cancel(false);
+      handshake(network, introBytes);
+      handshakeTimer.stop(start);
+      return true;
+    } catch (RuntimeException e) {
+      logger.warn("S{}: Handshake with client failed.", resourcePool.getMyId(), e);
+      metrics.counter("client.handshakeFailures").increment();
+      timeout.cancel(false);
+      closeQuietly(network);
+      return false;
+    }
+  }
+
+  private void closeQuietly(TwoPartyNetwork network) {
+    try {
+      network.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close client network", e);
+    }
+  }
+
+  private static ThreadFactory daemonThreadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r);
+      t.setDaemon(true);
+      t.setName(name + " " + count.getAndIncrement());
+      return t;
+    };
+  }
+
+  private void handshake(TwoPartyNetwork network, byte[] introBytes) {
+    // The introduction message from the client starts with the following 12 bytes
     // Bytes 0-3: client priority, assigned by server 1 (big endian int)
     // Bytes 4-7: unique id for client (big endian int)
-    byte[] introBytes = network.receive();
+    // Bytes 8-11: number of inputs or outputs (big endian int)
     int clientId = getClientId(introBytes);
+    // Bytes 12-15: optional capability flags (big endian int)
+    // Bytes 16-: the field type of server 1, relayed by clients announcing the capability
+    int capabilities = getCapabilities(introBytes);
+    boolean checksFieldType = ClientCapabilities.supports(capabilities,
+        ClientCapabilities.FIELD_TYPE);
+    if (checksFieldType && resourcePool.getMyId() != 1) {
+      // Checked before the client is registered, so servers configured differently are found at
+      // the first handshake
+      String serverOneFieldType = new String(
+          Arrays.copyOfRange(introBytes, Integer.BYTES * 4, introBytes.length),
+          StandardCharsets.UTF_8);
+      if (!serverOneFieldType.equals(getFieldType())) {
+        throw new IllegalStateException("Server 1 uses field type " + serverOneFieldType
+            + ", but server " + resourcePool.getMyId() + " uses " + getFieldType());
+      }
+    }
+
+    // Server 1 replies to the client after registering it, but the session may start sending to
+    // the client as soon as it is registered, so messages of the session are held back until the
+    // reply has been sent
+    HeldBackTwoPartyNetwork sessionNetwork = null;
+    if (resourcePool.getMyId() == 1) {
+      sessionNetwork = new HeldBackTwoPartyNetwork(network);
+      network = sessionNetwork;
+    }
 
     int assignedPriority;
     if (this.isInputClient.test(clientId)) {
@@ -111,10 +342,24 @@ public class DemoClientSessionRequestHandler<T extends ClientSession, K extends
     }
 
     // send updated priority to client if this is main server
-    if (resourcePool.getMyId() == 1) {
-      byte[] priorityBytes = ByteAndBitConverter.toByteArray(assignedPriority);
-      network.send(priorityBytes);
-      network.send(resourcePool.getModulus().toByteArray());
+    if (sessionNetwork != null) {
+      try {
+        byte[] priorityBytes = ByteAndBitConverter.toByteArray(assignedPriority);
+        sessionNetwork.sendDirectly(priorityBytes);
+        sessionNetwork.sendDirectly(resourcePool.getModulus().toByteArray());
+        if (checksFieldType) {
+          sessionNetwork.sendDirectly(getFieldType().getBytes(StandardCharsets.UTF_8));
+        }
+        sessionNetwork.release();
+      } catch (RuntimeException e) {
+        // The priority is taken, and is never handed out again, so the client keeps its slot. Its
+        // session fails on the closed network, rather than all later clients waiting for it
+        logger.warn("S{}: Failed to reply to client {} with priority {}.",
+            resourcePool.getMyId(), clientId, assignedPriority, e);
+        metrics.counter("client.handshakeFailures").increment();
+        closeQuietly(network);
+        return;
+      }
     }
     logger.info("S{}: Finished handskake for client {} with priority {}.",
         resourcePool.getMyId(), clientId, assignedPriority);
@@ -127,6 +372,23 @@ public class DemoClientSessionRequestHandler<T extends ClientSession, K extends
     return intFromBytes(Arrays.copyOfRange(introBytes, Integer.BYTES, Integer.BYTES * 2));
   }
 
+  /**
+   * Gets the capabilities from handshake, which older clients leave out.
+   */
+  private int getCapabilities(byte[] introBytes) {
+    if (introBytes.length < Integer.BYTES * 4) {
+      return ClientCapabilities.NONE;
+    }
+    return intFromBytes(Arrays.copyOfRange(introBytes, Integer.BYTES * 3, Integer.BYTES * 4));
+  }
+
+  /**
+   * Gives the field type of this server, i.e., the implementation of its field definition.
+   */
+  private String getFieldType() {
+    return resourcePool.getFieldDefinition().getClass().getName();
+  }
+
   @Override
   public void setInputRegistrationHandler(ClientSessionRegistration<T> handler) {
     if (this.inputSessionRequestHandler != null) {
@@ -156,11 +418,18 @@ public class DemoClientSessionRequestHandler<T extends ClientSession, K extends
     int priority;
     int clientId;
     int inputAmount;
+    int capabilities;
     TwoPartyNetwork network;
 
     public QueuedClient(int priority, int clientId, int inputAmount, TwoPartyNetwork network) {
+      this(priority, clientId, inputAmount, ClientCapabilities.NONE, network);
+    }
+
+    public QueuedClient(int priority, int clientId, int inputAmount, int capabilities,
+        TwoPartyNetwork network) {
       this.clientId = clientId;
       this.inputAmount = inputAmount;
+      this.capabilities = capabilities;
       this.network = network;
       this.priority = priority;
     }
@@ -180,6 +449,10 @@ public class DemoClientSessionRequestHandler<T extends ClientSession, K extends
     public int getPriority() {
       return priority;
     }
+
+    public int getCapabilities() {
+      return capabilities;
+    }
   }
 
 }
@@ -0,0 +1,108 @@
+package dk.alexandra.fresco.outsourcing.server;
+
+import static dk.alexandra.fresco.outsourcing.utils.GenericUtils.intFromBytes;
+
+import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
+import dk.alexandra.fresco.outsourcing.client.AbstractSessionEndPoint;
+import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntFunction;
+
+/**
+ * Registers the clients of successive epochs, each served by its own session endpoint.
+ *
+ * <p>
+ * Server 1 numbers the clients in the order they register, continuing across epochs, and sends
+ * this number to the client as its priority. The first <code>clientsPerEpoch</code> clients belong
+ * to epoch 0, the next to epoch 1, and so on. The other servers learn the epoch of a client from
+ * the priority it presents, so all servers agree on the epoch of each client, even if clients of
+ * different epochs register concurrently. Within its epoch, a client is registered with the
+ * priority it would have had if the epoch was served on its own.
+ * </p>
+ *
+ * <p>
+ * The endpoint of an epoch is created the first time a client of the epoch registers, or the
+ * endpoint is asked for by {@link #getEndpoint(int)}, whichever comes first.
+ * </p>
+ *
+ * @param <T> the type of the sessions
+ */
+public class EpochSessionRegistration<T extends ClientSession> implements
+    ClientSessionRegistration<T> {
+
+  private final int myId;
+  private final int clientsPerEpoch;
+  private final IntFunction<? extends AbstractSessionEndPoint<T>> endpointFactory;
+  private final ConcurrentMap<Integer, AbstractSessionEndPoint<T>> endpoints;
+  private int registered;
+
+  /**
+   * Creates a new registration.
+   *
+   * @param myId the id of this server
+   * @param clientsPerEpoch the number of clients of each epoch
+   * @param endpointFactory creates the endpoint of a given epoch
+   */
+  public EpochSessionRegistration(int myId, int clientsPerEpoch,
+      IntFunction<? extends AbstractSessionEndPoint<T>> endpointFactory) {
+    if (clientsPerEpoch < 1) {
+      throw new IllegalArgumentException(
+          "Need at least one client per epoch, but was: " + clientsPerEpoch);
+    }
+    this.myId = myId;
+    this.clientsPerEpoch = clientsPerEpoch;
+    this.endpointFactory = Objects.requireNonNull(endpointFactory);
+    this.endpoints = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Gives the endpoint of an epoch, creating it if needed.
+   *
+   * @param epoch the epoch
+   * @return the endpoint
+   */
+  public AbstractSessionEndPoint<T> getEndpoint(int epoch) {
+    return endpoints.computeIfAbsent(epoch, endpointFactory::apply);
+  }
+
+  /**
+   * Forgets the endpoint of an epoch that has ended.
+   *
+   * @param epoch the epoch
+   */
+  public void removeEndpoint(int epoch) {
+    endpoints.remove(epoch);
+  }
+
+  @Override
+  public int registerNewSessionRequest(byte[] handshakeMessage, TwoPartyNetwork network) {
+    if (myId == 1) {
+      // Numbering and registering must happen together, so the order within an epoch matches
+      synchronized (this) {
+        int priority = registered++;
+        getEndpoint(priority / clientsPerEpoch).registerNewSessionRequest(handshakeMessage,
+            network);
+        return priority;
+      }
+    } else {
+      int priority = intFromBytes(Arrays.copyOfRange(handshakeMessage, 0, Integer.BYTES));
+      byte[] epochMessage = handshakeMessage.clone();
+      System.arraycopy(ByteAndBitConverter.toByteArray(priority % clientsPerEpoch), 0,
+          epochMessage, 0, Integer.BYTES);
+      getEndpoint(priority / clientsPerEpoch).registerNewSessionRequest(epochMessage, network);
+      return priority;
+    }
+  }
+
+  /**
+   * Gives the number of clients of each epoch.
+   */
+  @Override
+  public int getExpectedClients() {
+    return clientsPerEpoch;
+  }
+
+}
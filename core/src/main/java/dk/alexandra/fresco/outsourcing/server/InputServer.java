@@ -1,9 +1,13 @@
 package dk.alexandra.fresco.outsourcing.server;
 
 import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
 import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.NetworkProfile;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 /**
@@ -19,6 +23,32 @@ public interface InputServer {
    */
   Future<Map<Integer, List<SInt>>> getClientInputs();
 
+  /**
+   * A future for the inputs of a single client.
+   *
+   * <p>
+   * By default this completes when the inputs of all clients are ready. Servers that process
+   * clients incrementally may complete it as soon as the inputs of the given client are ready.
+   * </p>
+   *
+   * @param clientId the id of the client
+   * @return the inputs provided by the client
+   */
+  default CompletableFuture<List<SInt>> getClientInput(int clientId) {
+    return CompletableFuture.supplyAsync(() -> ExceptionConverter.safe(
+        () -> getClientInputs().get().get(clientId), "Input step failed"));
+  }
+
   <ResourcePoolT extends NumericResourcePool> ServerSession<ResourcePoolT> getSession();
 
+  /**
+   * Gives the communication of the session of this server, attributed to the phases of the
+   * protocol.
+   *
+   * @return the profile, by default an empty one for servers not profiling their communication
+   */
+  default NetworkProfile getNetworkProfile() {
+    return new NetworkProfile(MetricsRegistry.disabled(), "");
+  }
+
 }
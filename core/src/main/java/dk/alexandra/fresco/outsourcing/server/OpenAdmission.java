@@ -0,0 +1,131 @@
+package dk.alexandra.fresco.outsourcing.server;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Decides when to stop admitting clients to a session whose number of clients is not known in
+ * advance.
+ *
+ * <p>
+ * Clients are admitted in the order they register with server 1, until either the maximum number
+ * of clients has registered, or the admission window has passed since the first client registered,
+ * whichever comes first. Server 1 then tells the other servers how many clients were admitted, and
+ * clients registering after that are turned away.
+ * </p>
+ *
+ * <p>
+ * Admitted clients can still go missing in two ways, and all servers drop them alike:
+ * </p>
+ * <ul>
+ *   <li>A client that has not registered with every server within the straggler timeout is dropped
+ *   when the servers agree on the clients admitted, see {@link
+ *   ClientSessionHandler#closeAdmission(dk.alexandra.fresco.framework.network.Network)}.</li>
+ *   <li>A client that has not sent its inputs to a server within the input timeout, counted from its
+ *   session being produced, or whose connection fails before that, is dropped when the servers
+ *   agree on the clients that failed, see {@link
+ *   ClientSessionHandler#agreeOnFailedClients(dk.alexandra.fresco.framework.network.Network,
+ *   java.util.Collection)}. The input servers do so before validating (DDNNT) or reconstructing
+ *   (JNO) the inputs.</li>
+ * </ul>
+ *
+ * <p>
+ * The session is thus run on the inputs of the clients that completed the input protocol with all
+ * servers, while waiting for any client for at most the straggler and input timeouts.
+ * </p>
+ */
+public final class OpenAdmission {
+
+  public static final Duration DEFAULT_INPUT_TIMEOUT = Duration.ofMinutes(1);
+
+  private final int maxClients;
+  private final Duration window;
+  private final Duration stragglerTimeout;
+  private final Duration inputTimeout;
+
+  /**
+   * Creates a new admission policy, waiting for stragglers for the default handshake timeout of
+   * {@link DemoClientSessionRequestHandler}.
+   *
+   * @param maxClients the number of clients closing the admission, or {@link Integer#MAX_VALUE} to
+   *     close by time only
+   * @param window the time from the first client registering until the admission closes
+   */
+  public OpenAdmission(int maxClients, Duration window) {
+    this(maxClients, window, DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_TIMEOUT);
+  }
+
+  /**
+   * Creates a new admission policy, giving clients {@link #DEFAULT_INPUT_TIMEOUT} to send their
+   * inputs.
+   *
+   * @param maxClients the number of clients closing the admission, or {@link Integer#MAX_VALUE} to
+   *     close by time only
+   * @param window the time from the first client registering until the admission closes
+   * @param stragglerTimeout the time from the admission closing until admitted clients that have
+   *     not registered with all servers are dropped
+   */
+  public OpenAdmission(int maxClients, Duration window, Duration stragglerTimeout) {
+    this(maxClients, window, stragglerTimeout, DEFAULT_INPUT_TIMEOUT);
+  }
+
+  /**
+   * Creates a new admission policy.
+   *
+   * @param maxClients the number of clients closing the admission, or {@link Integer#MAX_VALUE} to
+   *     close by time only
+   * @param window the time from the first client registering until the admission closes
+   * @param stragglerTimeout the time from the admission closing until admitted clients that have
+   *     not registered with all servers are dropped
+   * @param inputTimeout the time from the session of a client being produced until the client is
+   *     dropped, unless it has sent its inputs
+   */
+  public OpenAdmission(int maxClients, Duration window, Duration stragglerTimeout,
+      Duration inputTimeout) {
+    if (maxClients < 1) {
+      throw new IllegalArgumentException(
+          "Need to admit at least one client, but was: " + maxClients);
+    }
+    if (Objects.requireNonNull(window).isNegative()) {
+      throw new IllegalArgumentException("Admission window cannot be negative, but was: " + window);
+    }
+    if (Objects.requireNonNull(stragglerTimeout).isNegative()) {
+      throw new IllegalArgumentException(
+          "Straggler timeout cannot be negative, but was: " + stragglerTimeout);
+    }
+    if (Objects.requireNonNull(inputTimeout).isNegative()) {
+      throw new IllegalArgumentException(
+          "Input timeout cannot be negative, but was: " + inputTimeout);
+    }
+    this.maxClients = maxClients;
+    this.window = window;
+    this.stragglerTimeout = stragglerTimeout;
+    this.inputTimeout = inputTimeout;
+  }
+
+  /**
+   * Creates an admission policy closing by time only.
+   *
+   * @param window the time from the first client registering until the admission closes
+   */
+  public OpenAdmission(Duration window) {
+    this(Integer.MAX_VALUE, window);
+  }
+
+  public int getMaxClients() {
+    return maxClients;
+  }
+
+  public Duration getWindow() {
+    return window;
+  }
+
+  public Duration getStragglerTimeout() {
+    return stragglerTimeout;
+  }
+
+  public Duration getInputTimeout() {
+    return inputTimeout;
+  }
+
+}
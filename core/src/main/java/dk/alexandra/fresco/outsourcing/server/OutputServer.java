@@ -1,6 +1,8 @@
 package dk.alexandra.fresco.outsourcing.server;
 
 import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.NetworkProfile;
 import java.util.List;
 
 /**
@@ -18,6 +20,15 @@ public interface OutputServer<T> {
 
   <ResourcePoolT extends NumericResourcePool> ServerSession<ResourcePoolT> getSession();
 
+  /**
+   * Gives the communication of the session of this server, attributed to the phases of the
+   * protocol.
+   *
+   * @return the profile, by default an empty one for servers not profiling their communication
+   */
+  default NetworkProfile getNetworkProfile() {
+    return new NetworkProfile(MetricsRegistry.disabled(), "");
+  }
 
 
 }
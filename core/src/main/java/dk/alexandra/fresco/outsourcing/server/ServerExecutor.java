@@ -0,0 +1,310 @@
+package dk.alexandra.fresco.outsourcing.server;
+
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of threads shared by all input and output servers of a server, running the
+ * communication with the clients and the server sessions.
+ *
+ * <p>
+ * The executors created by {@link #create(String)} are views of the shared pool. Shutting down a
+ * view only stops it from accepting more tasks, and awaiting its termination waits for its own
+ * tasks only, so each session can manage its tasks as if it had its own executor.
+ * </p>
+ *
+ * <p>
+ * Tasks are queued once all threads are busy. When the queue is full, submitting a task blocks
+ * until there is room, which slows down accepting new client sessions rather than failing them.
+ * As a task may wait for tasks queued after it, e.g., a server session waiting for its client
+ * sessions, an input server needs up to three threads at once, which must be taken into account
+ * when choosing the number of threads.
+ * </p>
+ */
+public class ServerExecutor implements ExecutorFactory, Closeable {
+
+  public static final int DEFAULT_THREADS = 256;
+  public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+  public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 5000;
+  private static final Logger logger = LoggerFactory.getLogger(ServerExecutor.class);
+
+  private final ThreadPoolExecutor pool;
+  private final AtomicLong blockedSubmissions = new AtomicLong();
+
+  /**
+   * Creates a new executor with {@value #DEFAULT_THREADS} threads and room for
+   * {@value #DEFAULT_QUEUE_CAPACITY} queued tasks.
+   */
+  public ServerExecutor() {
+    this(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Creates a new executor.
+   *
+   * @param threads the maximum number of threads, which are stopped after being idle for a while
+   * @param queueCapacity the maximum number of tasks waiting for a thread
+   */
+  public ServerExecutor(int threads, int queueCapacity) {
+    if (threads < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("Threads and queue capacity must be positive, but were "
+          + threads + " and " + queueCapacity);
+    }
+    AtomicInteger count = new AtomicInteger();
+    this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(queueCapacity), r -> {
+          Thread t = new Thread(r);
+          t.setName("Server Worker-" + count.incrementAndGet());
+          return t;
+        }, (r, executor) -> {
+          if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Server executor has been shut down");
+          }
+          blockedSubmissions.incrementAndGet();
+          try {
+            executor.getQueue().put(r);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for room in the queue", e);
+          }
+        });
+    this.pool.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public ExecutorService create(String name) {
+    return new SessionExecutor(name);
+  }
+
+  /**
+   * Gives the number of threads currently running tasks.
+   *
+   * @return the number of active threads
+   */
+  public int getActiveThreads() {
+    return pool.getActiveCount();
+  }
+
+  /**
+   * Gives the largest number of threads that have been running at once.
+   *
+   * @return the largest number of threads
+   */
+  public int getLargestPoolSize() {
+    return pool.getLargestPoolSize();
+  }
+
+  /**
+   * Gives the number of tasks waiting for a thread.
+   *
+   * @return the number of queued tasks
+   */
+  public int getQueuedTasks() {
+    return pool.getQueue().size();
+  }
+
+  /**
+   * Gives the approximate number of tasks that have completed.
+   *
+   * @return the number of completed tasks
+   */
+  public long getCompletedTasks() {
+    return pool.getCompletedTaskCount();
+  }
+
+  /**
+   * Gives the number of times a task could not be queued right away, as the queue was full.
+   *
+   * @return the number of blocked submissions
+   */
+  public long getBlockedSubmissions() {
+    return blockedSubmissions.get();
+  }
+
+  /**
+   * Stops accepting tasks, and waits for the running and queued tasks to complete. Tasks still
+   * running after the timeout are interrupted.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return true if all tasks completed before the timeout
+   */
+  public boolean shutdown(long timeout, TimeUnit unit) {
+    pool.shutdown();
+    try {
+      if (pool.awaitTermination(timeout, unit)) {
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<Runnable> dropped = pool.shutdownNow();
+    logger.warn("Server executor did not terminate in time, interrupted running tasks and dropped "
+        + "{} queued tasks", dropped.size());
+    return false;
+  }
+
+  /**
+   * Shuts down with a timeout of {@value #DEFAULT_SHUTDOWN_TIMEOUT_MILLIS} milliseconds.
+   */
+  @Override
+  public void close() {
+    shutdown(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * A view of the shared pool, keeping track of its own tasks.
+   */
+  private class SessionExecutor extends AbstractExecutorService {
+
+    private final String name;
+    private final Set<SessionTask> tasks = new HashSet<>();
+    private boolean shutdown;
+
+    SessionExecutor(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      SessionTask task = new SessionTask(command);
+      synchronized (this) {
+        if (shutdown) {
+          throw new RejectedExecutionException(name + " has been shut down");
+        }
+        tasks.add(task);
+      }
+      try {
+        pool.execute(task);
+      } catch (RejectedExecutionException e) {
+        finished(task);
+        throw e;
+      }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+      shutdown = true;
+      notifyAll();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      List<Runnable> notStarted = new ArrayList<>();
+      List<SessionTask> cancelled = new ArrayList<>();
+      synchronized (this) {
+        shutdown = true;
+        for (SessionTask task : tasks) {
+          if (task.cancel()) {
+            cancelled.add(task);
+            notStarted.add(task.command);
+          }
+        }
+      }
+      for (SessionTask task : cancelled) {
+        pool.remove(task);
+        finished(task);
+      }
+      return notStarted;
+    }
+
+    /**
+     * Checks if this view, or the shared pool, has been shut down.
+     */
+    @Override
+    public synchronized boolean isShutdown() {
+      return shutdown || pool.isShutdown();
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+      return isShutdown() && tasks.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!isTerminated()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return true;
+    }
+
+    private synchronized void finished(SessionTask task) {
+      tasks.remove(task);
+      if (tasks.isEmpty()) {
+        notifyAll();
+      }
+    }
+
+    /**
+     * Runs a task under the name of the session, unless it was cancelled before starting.
+     */
+    private class SessionTask implements Runnable {
+
+      private final Runnable command;
+      private Thread runner;
+      private boolean cancelled;
+
+      SessionTask(Runnable command) {
+        this.command = command;
+      }
+
+      @Override
+      public void run() {
+        synchronized (this) {
+          if (cancelled) {
+            return;
+          }
+          runner = Thread.currentThread();
+        }
+        String poolName = runner.getName();
+        runner.setName(name + " (" + poolName + ")");
+        try {
+          command.run();
+        } finally {
+          synchronized (this) {
+            runner.setName(poolName);
+            runner = null;
+            // Clear an interrupt from shutdownNow, as the thread goes back to the pool
+            Thread.interrupted();
+          }
+          finished(this);
+        }
+      }
+
+      /**
+       * Cancels the task if not started, or interrupts it otherwise.
+       *
+       * @return true if the task was cancelled before starting
+       */
+      synchronized boolean cancel() {
+        if (runner != null) {
+          runner.interrupt();
+          return false;
+        }
+        cancelled = true;
+        return true;
+      }
+    }
+  }
+}
@@ -4,6 +4,7 @@ import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
 import dk.alexandra.fresco.framework.network.Network;
 import dk.alexandra.fresco.framework.sce.SecureComputationEngine;
+import java.io.Closeable;
 
 /**
  * Defines a session between the servers where they process the input delivered by clients or output
@@ -11,7 +12,7 @@ import dk.alexandra.fresco.framework.sce.SecureComputationEngine;
  *
  * @param <ResourcePoolT> the resource pool used
  */
-public interface ServerSession<ResourcePoolT extends NumericResourcePool> {
+public interface ServerSession<ResourcePoolT extends NumericResourcePool> extends Closeable {
 
   /**
    * Gets a network connecting the servers.
@@ -34,4 +35,12 @@ public interface ServerSession<ResourcePoolT extends NumericResourcePool> {
    */
   SecureComputationEngine<ResourcePoolT, ProtocolBuilderNumeric> getSce();
 
+  /**
+   * Ends the session, closing its network. E.g., a channel leased from a {@link
+   * dk.alexandra.fresco.outsourcing.network.ServerNetworkPool} is returned to the pool. Closing
+   * the session more than once has no effect.
+   */
+  @Override
+  void close();
+
 }
@@ -1,6 +1,8 @@
 package dk.alexandra.fresco.outsourcing.server;
 
 import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 
 /**
  * Produces server sessions. I.e., connects the servers for a session processing clients input in
@@ -12,4 +14,24 @@ public interface ServerSessionProducer<ResourcePoolT extends NumericResourcePool
 
   ServerSession<ResourcePoolT> next();
 
+  /**
+   * Gives the factory of the executors the servers using this producer should run their sessions
+   * and the communication with the clients on, unless given one explicitly.
+   *
+   * @return the executor factory, by default creating a new thread pool for each executor
+   */
+  default ExecutorFactory getExecutorFactory() {
+    return ExecutorFactory.platformThreads();
+  }
+
+  /**
+   * Gives the registry the servers using this producer should record their metrics in, e.g., the
+   * durations of each protocol phase.
+   *
+   * @return the registry, by default one not keeping any metrics
+   */
+  default MetricsRegistry getMetrics() {
+    return MetricsRegistry.disabled();
+  }
+
 }
@@ -10,16 +10,21 @@ import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.network.Network;
 import dk.alexandra.fresco.framework.util.ExceptionConverter;
-import dk.alexandra.fresco.framework.util.Pair;
 import dk.alexandra.fresco.framework.value.SInt;
 import dk.alexandra.fresco.outsourcing.client.AbstractSessionEndPoint;
 import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
 import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntClientInputSession;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
+import dk.alexandra.fresco.outsourcing.network.NetworkProfile;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.server.InputServer;
 import dk.alexandra.fresco.outsourcing.server.ServerSession;
 import dk.alexandra.fresco.outsourcing.server.ServerSessionProducer;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
+import java.io.IOException;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -28,13 +33,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +52,28 @@ import org.slf4j.LoggerFactory;
 /**
  * Input server using the DDNNT input protocol to provide input.
  *
+ * <p>
+ * The durations of the protocol phases are recorded in the metrics registry of the server session
+ * producer, by the timers <code>ddnnt.input.tripleFetch</code>, <code>clientSend</code>, <code>
+ * clientReceive</code>, <code>hashBroadcast</code>, <code>unmask</code> and <code>session</code>
+ * under the same prefix. The timer <code>ddnnt.input.client</code> records the latency of each
+ * client, from its session being produced until its masked input is received.
+ * </p>
+ *
+ * <p>
+ * The communication of the session is attributed to the phases <code>clientSend</code>, <code>
+ * clientReceive</code>, <code>failedClients</code>, <code>hashBroadcast</code> and <code>unmask
+ * </code> by a {@link NetworkProfile}, which is logged when the session ends.
+ * </p>
+ *
+ * <p>
+ * If the client session producer has an input timeout, see {@link
+ * dk.alexandra.fresco.outsourcing.server.ClientSessionHandler#getInputTimeout()}, a client that has
+ * not sent its masked input in time, or whose connection fails, is dropped instead of failing the
+ * session. Before validating the masked inputs of a batch, the servers agree on the clients of the
+ * batch that failed on any server, and all servers leave these clients out.
+ * </p>
+ *
  * @param <ResourcePoolT> type of resource pool used to run the protocol
  * @see <a href="https://eprint.iacr.org/2015/1006">Protocol Description on ePrint</a>
  */
@@ -50,8 +82,19 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
   private static final Logger logger = LoggerFactory.getLogger(DdnntInputServer.class);
   private static final String HASH_ALGO = "SHA-256";
   private final Future<Map<Integer, List<SInt>>> clientInputs;
+  private final Map<Integer, CompletableFuture<List<SInt>>> perClientInputs;
   private final AbstractSessionEndPoint<GenericClientSession> clientSessionProducer;
   private final ServerSessionProducer<ResourcePoolT> serverSessionProducer;
+  private final int batchSize;
+  private final ExecutorFactory executorFactory;
+  private final Timer tripleFetchTimer;
+  private final Timer clientSendTimer;
+  private final Timer clientReceiveTimer;
+  private final Timer clientTimer;
+  private final Timer hashBroadcastTimer;
+  private final Timer unmaskTimer;
+  private final Timer sessionTimer;
+  private final NetworkProfile networkProfile;
   private ServerSession<ResourcePoolT> serverInputSession;
 
   /**
@@ -63,19 +106,75 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
    * producers, e.g., the order in which clients give inputs, the number of MPC parties and so on.
    * </p>
    *
+   * <p>
+   * The inputs of all clients are unmasked together, once all clients are done.
+   * </p>
+   *
    * @param clientSessionProducer producer of client sessions
    * @param serverSessionProducer producer of server sessions
    */
   public DdnntInputServer(AbstractSessionEndPoint<GenericClientSession> clientSessionProducer,
                           ServerSessionProducer<ResourcePoolT> serverSessionProducer) {
+    this(clientSessionProducer, serverSessionProducer,
+        Math.max(1, clientSessionProducer.getExpectedClients()));
+  }
+
+  /**
+   * Creates a new server to handle an input session, unmasking client inputs in micro-batches.
+   *
+   * <p>
+   * Clients are grouped into batches of the given size in the order of their priority, which is the
+   * same on all servers. As soon as all clients of a batch are done, the masked inputs of that batch
+   * are validated and unmasked, while later clients are still being served. The inputs of a client
+   * are available from {@link #getClientInput(int)} once its batch is unmasked.
+   * </p>
+   *
+   * @param clientSessionProducer producer of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param batchSize the number of clients to unmask at a time
+   */
+  public DdnntInputServer(AbstractSessionEndPoint<GenericClientSession> clientSessionProducer,
+                          ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                          int batchSize) {
+    this(clientSessionProducer, serverSessionProducer, batchSize,
+        serverSessionProducer.getExecutorFactory());
+  }
+
+  /**
+   * Creates a new server to handle an input session, unmasking client inputs in micro-batches and
+   * communicating with the clients on executors from the given factory.
+   *
+   * @param clientSessionProducer producer of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param batchSize the number of clients to unmask at a time
+   * @param executorFactory factory of the executor running one task per client session
+   */
+  public DdnntInputServer(AbstractSessionEndPoint<GenericClientSession> clientSessionProducer,
+                          ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                          int batchSize, ExecutorFactory executorFactory) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, but was: " + batchSize);
+    }
     this.clientSessionProducer = Objects.requireNonNull(clientSessionProducer);
     this.serverSessionProducer = Objects.requireNonNull(serverSessionProducer);
+    this.batchSize = batchSize;
+    this.executorFactory = Objects.requireNonNull(executorFactory);
+    this.perClientInputs = new ConcurrentHashMap<>();
+    MetricsRegistry metrics = serverSessionProducer.getMetrics();
+    this.tripleFetchTimer = metrics.timer("ddnnt.input.tripleFetch");
+    this.clientSendTimer = metrics.timer("ddnnt.input.clientSend");
+    this.clientReceiveTimer = metrics.timer("ddnnt.input.clientReceive");
+    this.clientTimer = metrics.timer("ddnnt.input.client");
+    this.hashBroadcastTimer = metrics.timer("ddnnt.input.hashBroadcast");
+    this.unmaskTimer = metrics.timer("ddnnt.input.unmask");
+    this.sessionTimer = metrics.timer("ddnnt.input.session");
+    this.networkProfile = new NetworkProfile(metrics, "ddnnt.input");
     serverInputSession = serverSessionProducer.next();
     FutureTask<Map<Integer, List<SInt>>> ft = new FutureTask<>(this::runInputSession);
     this.clientInputs = ft;
-    Thread t = new Thread(ft);
-    t.setName("DDNNT Input Server");
-    t.start();
+    ExecutorService sessionExecutor = executorFactory.create("DDNNT Input Server");
+    sessionExecutor.execute(ft);
+    sessionExecutor.shutdown();
   }
 
   /**
@@ -90,12 +189,61 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
    */
   private Map<Integer, List<SInt>> runInputSession() throws Exception {
     logger.info("Running input session");
-    SortedMap<Integer, Pair<List<SInt>, byte[]>> maskPairs = getMaskPairs();
+    long sessionStart = sessionTimer.start();
+    ExecutorService es = executorFactory.create("DDNNT Client Input");
+    BlockingQueue<PendingInput> maskedInputs = new LinkedBlockingQueue<>();
+    es.submit(() -> dispatchClientSessions(es, maskedInputs));
     Network network = serverInputSession.getNetwork();
-    broadcastMaskedInput(maskPairs, network);
     ResourcePoolT resourcePool = serverInputSession.getResourcePool();
-    UnMaskingApp app = new UnMaskingApp(maskPairs, resourcePool.getFieldDefinition());
-    return serverInputSession.getSce().runApplication(app, resourcePool, network);
+    Network hashNetwork = networkProfile.meter("hashBroadcast", network, resourcePool.getMyId());
+    Network unmaskNetwork = networkProfile.meter("unmask", network, resourcePool.getMyId());
+    Network failedNetwork = networkProfile.meter("failedClients", network, resourcePool.getMyId());
+    boolean dropFailed = clientSessionProducer.getInputTimeout() != null;
+    Map<Integer, List<SInt>> inputs = new HashMap<>();
+    try {
+      // Sessions are produced once the servers agree on the clients registered with all of them
+      int remaining = clientSessionProducer.closeAdmission(network);
+      while (remaining > 0) {
+        int amount = Math.min(batchSize, remaining);
+        List<Integer> failed = new ArrayList<>();
+        List<MaskedInput> batch = getMaskedInputs(maskedInputs, amount, failed);
+        remaining -= amount;
+        if (dropFailed) {
+          // The servers must hash the masked inputs of the same clients
+          batch = leaveOut(batch,
+              clientSessionProducer.agreeOnFailedClients(failedNetwork, failed));
+          if (batch.isEmpty()) {
+            continue;
+          }
+        }
+        long start = hashBroadcastTimer.start();
+        broadcastMaskedInput(batch, hashNetwork);
+        hashBroadcastTimer.stop(start);
+        UnMaskingApp app = new UnMaskingApp(batch, resourcePool.getFieldDefinition());
+        start = unmaskTimer.start();
+        Map<Integer, List<SInt>> batchInputs =
+            serverInputSession.getSce().runApplication(app, resourcePool, unmaskNetwork);
+        unmaskTimer.stop(start);
+        for (Entry<Integer, List<SInt>> e : batchInputs.entrySet()) {
+          inputs.put(e.getKey(), e.getValue());
+          getClientFuture(e.getKey()).complete(e.getValue());
+        }
+      }
+    } catch (Exception e) {
+      perClientInputs.values().forEach(f -> f.completeExceptionally(e));
+      // Stop the client sessions still waiting, so they do not hold on to threads
+      es.shutdownNow();
+      throw e;
+    } finally {
+      es.shutdown();
+      // Returns the network of the session, e.g., to a pool of connections between the servers
+      serverInputSession.close();
+    }
+    perClientInputs.values().forEach(f -> f.completeExceptionally(
+        new IllegalArgumentException("No input session for client")));
+    sessionTimer.stop(sessionStart);
+    logger.info("Communication of input session:\n{}", networkProfile.format());
+    return inputs;
   }
 
   /**
@@ -107,41 +255,106 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
    * Once having received all shares of the triple the client should then send back <i>x - a</i>,
    * i.e., a masking of the input element using <i>a</i> as the mask (or OTP key).
    *
-   * This method returns when all such client sessions are done. It returns for each client a list
-   * of masked inputs <i>x - a </i> (serialized as a byte array) and a list of SInts representing
-   * the masks <i>a</i>. The server part of the protocol will then work to unmask the input elements
-   * securely.
+   * A future for each client session is queued in the order the sessions are produced. It holds a
+   * list of masked inputs <i>x - a </i> (serialized as a byte array) and a list of SInts
+   * representing the masks <i>a</i>. The server part of the protocol will then work to unmask the
+   * input elements securely.
+   * </p>
+   *
+   * @param es executor to run the client communication on
+   * @param maskedInputs queue to put futures of the masked inputs on
+   */
+  private void dispatchClientSessions(ExecutorService es,
+      BlockingQueue<PendingInput> maskedInputs) {
+    Duration inputTimeout = clientSessionProducer.getInputTimeout();
+    try {
+      while (clientSessionProducer.hasNext()) {
+        DdnntClientInputSession clientSession =
+            (DdnntClientInputSession) clientSessionProducer.next();
+        logger.info("Running client input session for C{}", clientSession.getClientId());
+        long deadline = inputTimeout == null ? 0 : System.nanoTime() + inputTimeout.toNanos();
+        maskedInputs.add(new PendingInput(clientSession,
+            es.submit(new ClientCommunication(clientSession)), deadline));
+      }
+    } catch (RuntimeException e) {
+      CompletableFuture<MaskedInput> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      maskedInputs.add(new PendingInput(null, failed, 0));
+    }
+  }
+
+  /**
+   * Waits for the next clients to finish their part of the protocol.
+   *
+   * <p>
+   * If the client session producer has an input timeout, the clients that do not finish in time, or
+   * fail, are left out and their connections closed.
    * </p>
    *
-   * @return a map from client ids to a pair representing the mask and masked input respectively
+   * @param maskedInputs queue of the masked inputs being received
+   * @param amount the number of clients to wait for
+   * @param failed list to add the ids of the clients left out to
+   * @return the masked inputs of the clients in the order they were produced
    * @throws Exception if exceptions are thrown during the protocol execution.
    */
-  private SortedMap<Integer, Pair<List<SInt>, byte[]>> getMaskPairs() throws Exception {
-    ExecutorService es = Executors.newCachedThreadPool();
-    HashMap<Integer, Future<Pair<List<SInt>, byte[]>>> maskPairsFuture = new HashMap<>();
-    while (clientSessionProducer.hasNext()) {
-      DdnntClientInputSession clientSession =
-          (DdnntClientInputSession) clientSessionProducer.next();
-      logger.info("Running client input session for C{}", clientSession.getClientId());
-      Future<Pair<List<SInt>, byte[]>> f = es.submit(new ClientCommunication(clientSession));
-      maskPairsFuture.put(clientSession.getClientId(), f);
-    }
-    SortedMap<Integer, Pair<List<SInt>, byte[]>> maskPairs = new TreeMap<>();
-    for (Entry<Integer, Future<Pair<List<SInt>, byte[]>>> e : maskPairsFuture.entrySet()) {
-      Pair<List<SInt>, byte[]> p = e.getValue().get();
-      maskPairs.put(e.getKey(), p);
-      logger.info("Finished client input session for C{}", e.getKey());
-    }
-    es.shutdown();
-    return maskPairs;
-  }
-
-  private void broadcastMaskedInput(SortedMap<Integer, Pair<List<SInt>, byte[]>> maskPairs,
-      Network network) {
+  private List<MaskedInput> getMaskedInputs(BlockingQueue<PendingInput> maskedInputs,
+      int amount, List<Integer> failed) throws Exception {
+    boolean dropFailed = clientSessionProducer.getInputTimeout() != null;
+    List<MaskedInput> batch = new ArrayList<>(amount);
+    for (int i = 0; i < amount; i++) {
+      PendingInput pending = maskedInputs.take();
+      MaskedInput maskedInput;
+      if (!dropFailed || pending.session == null) {
+        maskedInput = pending.future.get();
+      } else {
+        try {
+          maskedInput = pending.future.get(
+              Math.max(0, pending.deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+          int clientId = pending.session.getClientId();
+          logger.warn("Client C{} failed to send its masked input", clientId, e);
+          pending.future.cancel(true);
+          closeQuietly(pending.session.getNetwork());
+          failed.add(clientId);
+          continue;
+        }
+      }
+      batch.add(maskedInput);
+      logger.info("Finished client input session for C{}", maskedInput.clientId);
+    }
+    return batch;
+  }
+
+  /**
+   * Leaves out the clients that failed on some server, failing their inputs.
+   */
+  private List<MaskedInput> leaveOut(List<MaskedInput> batch, Set<Integer> failed) {
+    List<MaskedInput> kept = new ArrayList<>(batch.size());
+    for (MaskedInput maskedInput : batch) {
+      if (!failed.contains(maskedInput.clientId)) {
+        kept.add(maskedInput);
+      }
+    }
+    for (int clientId : failed) {
+      getClientFuture(clientId).completeExceptionally(
+          new IllegalStateException("Client " + clientId + " failed to send its inputs"));
+    }
+    return kept;
+  }
+
+  private static void closeQuietly(TwoPartyNetwork network) {
+    try {
+      network.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close network of dropped client", e);
+    }
+  }
+
+  private void broadcastMaskedInput(List<MaskedInput> maskedInputs, Network network) {
     MessageDigest digest = ExceptionConverter.safe(() -> MessageDigest.getInstance(HASH_ALGO),
         "Unable to instantiate " + HASH_ALGO);
-    for (Pair<List<SInt>, byte[]> p : maskPairs.values()) {
-      digest.update(p.getSecond());
+    for (MaskedInput maskedInput : maskedInputs) {
+      digest.update(maskedInput.masked);
     }
     byte[] hash = digest.digest();
     network.sendToAll(hash);
@@ -153,15 +366,51 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
     }
   }
 
+  private CompletableFuture<List<SInt>> getClientFuture(int clientId) {
+    return perClientInputs.computeIfAbsent(clientId, id -> new CompletableFuture<>());
+  }
+
+  /**
+   * The masked input of a client being received, and the time by which it must be.
+   */
+  private static class PendingInput {
+
+    // Null if producing the session failed
+    private final DdnntClientInputSession session;
+    private final Future<MaskedInput> future;
+    private final long deadline;
+
+    PendingInput(DdnntClientInputSession session, Future<MaskedInput> future, long deadline) {
+      this.session = session;
+      this.future = future;
+      this.deadline = deadline;
+    }
+  }
+
+  /**
+   * The masks and masked inputs of a single client.
+   */
+  private static class MaskedInput {
+
+    private final int clientId;
+    private final List<SInt> masks;
+    private final byte[] masked;
+
+    MaskedInput(int clientId, List<SInt> masks, byte[] masked) {
+      this.clientId = clientId;
+      this.masks = masks;
+      this.masked = masked;
+    }
+  }
+
   private static class UnMaskingApp
       implements Application<Map<Integer, List<SInt>>, ProtocolBuilderNumeric> {
 
-    private final SortedMap<Integer, Pair<List<SInt>, byte[]>> maskPairs;
+    private final List<MaskedInput> maskedInputs;
     private final FieldDefinition definition;
 
-    UnMaskingApp(SortedMap<Integer, Pair<List<SInt>, byte[]>> maskPairs,
-        FieldDefinition definition) {
-      this.maskPairs = maskPairs;
+    UnMaskingApp(List<MaskedInput> maskedInputs, FieldDefinition definition) {
+      this.maskedInputs = maskedInputs;
       this.definition = definition;
     }
 
@@ -171,13 +420,11 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
     }
 
     private DRes<Map<Integer, List<SInt>>> unMaskAllInputs(ProtocolBuilderNumeric par) {
-      Map<Integer, DRes<List<SInt>>> inputMap = new HashMap<>(maskPairs.size());
-      for (Entry<Integer, Pair<List<SInt>, byte[]>> e : maskPairs.entrySet()) {
-        Pair<List<SInt>, byte[]> maskPair = e.getValue();
-        List<SInt> masks = maskPair.getFirst();
-        List<FieldElement> masked = definition.deserializeList(maskPair.getSecond());
-        DRes<List<SInt>> unMasked = par.par(unMaskClientInputs(masks, masked));
-        inputMap.put(e.getKey(), unMasked);
+      Map<Integer, DRes<List<SInt>>> inputMap = new HashMap<>(maskedInputs.size());
+      for (MaskedInput maskedInput : maskedInputs) {
+        List<FieldElement> masked = definition.deserializeList(maskedInput.masked);
+        DRes<List<SInt>> unMasked = par.par(unMaskClientInputs(maskedInput.masks, masked));
+        inputMap.put(maskedInput.clientId, unMasked);
       }
       return () -> inputMap.entrySet().stream()
           .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().out()));
@@ -198,35 +445,46 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
     }
   }
 
-  private static class ClientCommunication implements Callable<Pair<List<SInt>, byte[]>> {
+  private class ClientCommunication implements Callable<MaskedInput> {
 
     private final DdnntClientInputSession session;
+    private final long produced;
 
     public ClientCommunication(DdnntClientInputSession session) {
       this.session = session;
+      this.produced = clientTimer.start();
     }
 
     @Override
-    public Pair<List<SInt>, byte[]> call() {
+    public MaskedInput call() {
       TwoPartyNetwork net = session.getNetwork();
+      TwoPartyNetwork sendNet = networkProfile.meter("clientSend", net);
+      TwoPartyNetwork receiveNet = networkProfile.meter("clientReceive", net);
+      long start = tripleFetchTimer.start();
       List<DdnntInputTuple> inputTuples =
           session.getTripleDistributor().getTriples(session.getAmountOfInputs());
+      tripleFetchTimer.stop(start);
       List<FieldElement> listA = inputTuples.stream()
           .map(DdnntInputTuple::getShareA).collect(Collectors.toList());
       List<FieldElement> listB = inputTuples.stream()
           .map(DdnntInputTuple::getShareB).collect(Collectors.toList());
       List<FieldElement> listC = inputTuples.stream()
           .map(DdnntInputTuple::getShareC).collect(Collectors.toList());
-      net.send(session.getSerializer().serialize(listA));
-      net.send(session.getSerializer().serialize(listB));
-      net.send(session.getSerializer().serialize(listC));
+      start = clientSendTimer.start();
+      sendNet.send(session.getSerializer().serialize(listA));
+      sendNet.send(session.getSerializer().serialize(listB));
+      sendNet.send(session.getSerializer().serialize(listC));
+      clientSendTimer.stop(start);
       logger.info("Sent shares to C{}", session.getClientId());
-      byte[] msg = net.receive();
+      start = clientReceiveTimer.start();
+      byte[] msg = receiveNet.receive();
+      clientReceiveTimer.stop(start);
+      clientTimer.stop(produced);
       logger.info("Received masked inputs from C{}", session.getClientId());
       List<SInt> masks = inputTuples.stream()
           .map(DdnntInputTuple::getA)
           .collect(Collectors.toList());
-      return new Pair<>(masks, msg);
+      return new MaskedInput(session.getClientId(), masks, msg);
     }
 
   }
@@ -236,9 +494,23 @@ public class DdnntInputServer<ResourcePoolT extends NumericResourcePool> impleme
     return clientInputs;
   }
 
+  @Override
+  public CompletableFuture<List<SInt>> getClientInput(int clientId) {
+    CompletableFuture<List<SInt>> future = getClientFuture(clientId);
+    if (clientInputs.isDone() && !future.isDone()) {
+      future.completeExceptionally(new IllegalArgumentException("No input session for client"));
+    }
+    return future;
+  }
+
   @Override
   public ServerSession<ResourcePoolT> getSession() {
     return serverInputSession;
   }
 
+  @Override
+  public NetworkProfile getNetworkProfile() {
+    return networkProfile;
+  }
+
 }
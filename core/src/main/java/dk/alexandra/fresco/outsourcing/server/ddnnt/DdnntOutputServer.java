@@ -9,21 +9,39 @@ import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.network.Network;
 import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
 import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
+import dk.alexandra.fresco.outsourcing.network.NetworkProfile;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.server.*;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Output server using the DDNNT output protocol to deliver output to clients.
  *
  * <p>Parts of the code contributed by Mathias Rahbek.</p>
  *
+ * <p>
+ * The durations of the protocol phases are recorded in the metrics registry of the server session
+ * producer, by the timers <code>ddnnt.output.authenticate</code>, <code>clientSend</code> and <code>
+ * session</code> under the same prefix.
+ * </p>
+ *
+ * <p>
+ * The communication of the session is attributed to the phases <code>authenticate</code> and
+ * <code>clientSend</code> by a {@link NetworkProfile}, which is logged once the outputs are sent to
+ * all clients.
+ * </p>
+ *
  * @param <ResourcePoolT> type of resource pool used to run the protocol
  * @see <a href="https://eprint.iacr.org/2015/1006">Protocol Description on ePrint</a>
  */
@@ -31,16 +49,41 @@ public class DdnntOutputServer<ResourcePoolT extends NumericResourcePool, Client
         OutputServer<SInt> {
 
   private static final Logger logger = LoggerFactory.getLogger(DdnntOutputServer.class);
+  private static final int SHARES_PER_OUTPUT = 5;
   private final ClientSessionHandler<ClientSessionT> clientSessionHandler;
   private final ServerSessionProducer<ResourcePoolT> serverSessionProducer;
   private final Map<Integer, List<SInt>> idToOutputs;
+  private final ExecutorFactory executorFactory;
+  private final Timer authenticateTimer;
+  private final Timer clientSendTimer;
+  private final Timer sessionTimer;
+  private final NetworkProfile networkProfile;
   private ServerSession<ResourcePoolT> serverInputSession;
 
   public DdnntOutputServer(ClientSessionHandler<ClientSessionT> clientSessionHandler,
                            ServerSessionProducer<ResourcePoolT> serverSessionProducer) {
+    this(clientSessionHandler, serverSessionProducer, serverSessionProducer.getExecutorFactory());
+  }
+
+  /**
+   * Creates a new server sending output to the clients on executors from the given factory.
+   *
+   * @param clientSessionHandler handler of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param executorFactory factory of the executor running one task per client session
+   */
+  public DdnntOutputServer(ClientSessionHandler<ClientSessionT> clientSessionHandler,
+                           ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                           ExecutorFactory executorFactory) {
     this.clientSessionHandler = Objects.requireNonNull(clientSessionHandler);
     this.serverSessionProducer = Objects.requireNonNull(serverSessionProducer);
+    this.executorFactory = Objects.requireNonNull(executorFactory);
     this.idToOutputs = new HashMap<>();
+    MetricsRegistry metrics = serverSessionProducer.getMetrics();
+    this.authenticateTimer = metrics.timer("ddnnt.output.authenticate");
+    this.clientSendTimer = metrics.timer("ddnnt.output.clientSend");
+    this.sessionTimer = metrics.timer("ddnnt.output.session");
+    this.networkProfile = new NetworkProfile(metrics, "ddnnt.output");
     this.serverInputSession = serverSessionProducer.next();
   }
 
@@ -50,20 +93,48 @@ public class DdnntOutputServer<ResourcePoolT extends NumericResourcePool, Client
       return;
     }
     logger.info("Running output session");
+    long sessionStart = sessionTimer.start();
     ServerSession<ResourcePoolT> serverOutputSession = serverInputSession;
     Network network = serverOutputSession.getNetwork();
     ResourcePoolT resourcePool = serverOutputSession.getResourcePool();
+    List<ClientSession> clientSessions = new ArrayList<>(clientSessionHandler.getExpectedClients());
+    List<List<Map<String, DRes<SInt>>>> results;
+    try {
+      // Clients that did not register with all servers are left out
+      clientSessionHandler.closeAdmission(network);
 
-    ExecutorService es = Executors.newCachedThreadPool();
-    while (clientSessionHandler.hasNext()) {
-      ClientSession clientSession = clientSessionHandler.next();
-      logger.info("Running client output session for C{}", clientSession.getClientId());
-      AuthenticateOutput app = new AuthenticateOutput(idToOutputs.get(clientSession.getClientId()));
-      List<Map<String, DRes<SInt>>> result =
-              serverOutputSession.getSce().runApplication(app, resourcePool, network);
-      es.submit(new ClientCommunication(clientSession, result));
+      List<List<SInt>> clientOutputs = new ArrayList<>(clientSessionHandler.getExpectedClients());
+      while (clientSessionHandler.hasNext()) {
+        ClientSession clientSession = clientSessionHandler.next();
+        logger.info("Running client output session for C{}", clientSession.getClientId());
+        clientSessions.add(clientSession);
+        clientOutputs.add(idToOutputs.get(clientSession.getClientId()));
+      }
+      // Authenticate the outputs of all clients at once, to use a constant number of rounds
+      AuthenticateOutputs app = new AuthenticateOutputs(clientOutputs);
+      long start = authenticateTimer.start();
+      results = serverOutputSession.getSce().runApplication(app, resourcePool,
+          networkProfile.meter("authenticate", network, resourcePool.getMyId()));
+      authenticateTimer.stop(start);
+    } finally {
+      // The servers are done communicating once the outputs are authenticated
+      serverOutputSession.close();
+    }
+
+    ExecutorService es = executorFactory.create("DDNNT Client Output");
+    CompletableFuture<?>[] sent = new CompletableFuture<?>[clientSessions.size()];
+    for (int i = 0; i < clientSessions.size(); i++) {
+      ClientSession clientSession = clientSessions.get(i);
+      TwoPartyNetwork net = networkProfile.meter("clientSend", clientSession.getNetwork());
+      sent[i] = CompletableFuture.runAsync(
+          new ClientCommunication(clientSession, net, results.get(i), clientSendTimer), es);
     }
     es.shutdown();
+    // The session ends once the outputs have been sent to all clients
+    CompletableFuture.allOf(sent).whenComplete((v, e) -> {
+      sessionTimer.stop(sessionStart);
+      logger.info("Communication of output session:\n{}", networkProfile.format());
+    });
   }
 
   @Override
@@ -71,36 +142,55 @@ public class DdnntOutputServer<ResourcePoolT extends NumericResourcePool, Client
     return serverInputSession;
   }
 
-  private static class AuthenticateOutput
-      implements Application<List<Map<String, DRes<SInt>>>, ProtocolBuilderNumeric> {
+  @Override
+  public NetworkProfile getNetworkProfile() {
+    return networkProfile;
+  }
+
+  /**
+   * Computes the authenticated shares sent to the clients, for the outputs of all clients.
+   *
+   * <p>
+   * For each output y the random masks r and v are generated, and the products w = y * r and u = v
+   * * r are computed. The masks of all outputs are generated in parallel, followed by all the
+   * products in parallel, so the number of rounds does not depend on the number of clients or
+   * outputs.
+   * </p>
+   */
+  private static class AuthenticateOutputs
+      implements Application<List<List<Map<String, DRes<SInt>>>>, ProtocolBuilderNumeric> {
 
-    private final List<SInt> outputs;
+    private final List<List<SInt>> outputs;
 
-    AuthenticateOutput(List<SInt> outputs) {
+    AuthenticateOutputs(List<List<SInt>> outputs) {
       this.outputs = outputs;
     }
 
     @Override
-    public DRes<List<Map<String, DRes<SInt>>>> buildComputation(ProtocolBuilderNumeric builder) {
+    public DRes<List<List<Map<String, DRes<SInt>>>>> buildComputation(
+        ProtocolBuilderNumeric builder) {
       return builder.par(par -> {
-        List<Map<String, DRes<SInt>>> result = new ArrayList<>();
-        for (SInt output : outputs) {
-          DRes<SInt> maskR = par.numeric().randomElement();
-          DRes<SInt> maskV = par.numeric().randomElement();
-          par.seq(seq -> {
-            Numeric numeric = seq.numeric();
-            // TODO these could also happen in parallel
-            DRes<SInt> productW = numeric.mult(output, maskR);
-            DRes<SInt> productU = numeric.mult(maskV, maskR);
+        List<List<Map<String, DRes<SInt>>>> result = new ArrayList<>(outputs.size());
+        for (List<SInt> clientOutputs : outputs) {
+          List<Map<String, DRes<SInt>>> clientResult = new ArrayList<>(clientOutputs.size());
+          for (SInt output : clientOutputs) {
             Map<String, DRes<SInt>> resultShares = new HashMap<>();
-            resultShares.put("r", maskR);
-            resultShares.put("v", maskV);
-            resultShares.put("w", productW);
-            resultShares.put("u", productU);
+            resultShares.put("r", par.numeric().randomElement());
+            resultShares.put("v", par.numeric().randomElement());
             resultShares.put("y", output);
-            result.add(resultShares);
-            return () -> null;
-          });
+            clientResult.add(resultShares);
+          }
+          result.add(clientResult);
+        }
+        return () -> result;
+      }).par((par, result) -> {
+        Numeric numeric = par.numeric();
+        for (List<Map<String, DRes<SInt>>> clientResult : result) {
+          for (Map<String, DRes<SInt>> resultShares : clientResult) {
+            DRes<SInt> maskR = resultShares.get("r");
+            resultShares.put("w", numeric.mult(resultShares.get("y"), maskR));
+            resultShares.put("u", numeric.mult(resultShares.get("v"), maskR));
+          }
         }
         logger.info("Added output shares to result");
         return () -> result;
@@ -120,35 +210,58 @@ public class DdnntOutputServer<ResourcePoolT extends NumericResourcePool, Client
   private static class ClientCommunication implements Runnable {
 
     private final ClientSession session;
+    private final TwoPartyNetwork net;
     private final List<Map<String, DRes<SInt>>> outputs;
+    private final Timer timer;
 
-    ClientCommunication(ClientSession session, List<Map<String, DRes<SInt>>> outputs) {
+    ClientCommunication(ClientSession session, TwoPartyNetwork net,
+        List<Map<String, DRes<SInt>>> outputs, Timer timer) {
       this.outputs = outputs;
       this.session = session;
+      this.net = net;
+      this.timer = timer;
     }
 
     @Override
     public void run() {
-      TwoPartyNetwork net = session.getNetwork();
-      // send number of outputs to client
-      net.send(ByteAndBitConverter.toByteArray(outputs.size()));
-      // TODO these should all be batched
-      for (Map<String, DRes<SInt>> e : outputs) {
-        List<FieldElement> listOfOutputShares = new ArrayList<>();
-        SpdzSInt r = (SpdzSInt) e.get("r").out();
-        SpdzSInt v = (SpdzSInt) e.get("v").out();
-        SpdzSInt w = (SpdzSInt) e.get("w").out();
-        SpdzSInt u = (SpdzSInt) e.get("u").out();
-        SpdzSInt y = (SpdzSInt) e.get("y").out();
-        listOfOutputShares.add(r.getShare());
-        listOfOutputShares.add(v.getShare());
-        listOfOutputShares.add(w.getShare());
-        listOfOutputShares.add(u.getShare());
-        listOfOutputShares.add(y.getShare());
-        net.send(session.getSerializer().serialize(listOfOutputShares));
+      long start = timer.start();
+      if (ClientCapabilities.supports(session.getCapabilities(), ClientCapabilities.BATCHED_OUTPUT)) {
+        // Send the number of outputs followed by the shares of all outputs in a single message
+        List<FieldElement> listOfOutputShares = new ArrayList<>(outputs.size() * SHARES_PER_OUTPUT);
+        for (Map<String, DRes<SInt>> e : outputs) {
+          addOutputShares(e, listOfOutputShares);
+        }
+        byte[] shares = outputs.isEmpty()
+            ? new byte[0] : session.getSerializer().serialize(listOfOutputShares);
+        net.send(ByteBuffer.allocate(Integer.BYTES + shares.length)
+            .putInt(outputs.size())
+            .put(shares)
+            .array());
+      } else {
+        // send number of outputs to client
+        net.send(ByteAndBitConverter.toByteArray(outputs.size()));
+        for (Map<String, DRes<SInt>> e : outputs) {
+          List<FieldElement> listOfOutputShares = new ArrayList<>(SHARES_PER_OUTPUT);
+          addOutputShares(e, listOfOutputShares);
+          net.send(session.getSerializer().serialize(listOfOutputShares));
+        }
       }
+      timer.stop(start);
       logger.info("Sent shares to C{}", session.getClientId());
     }
+
+    private void addOutputShares(Map<String, DRes<SInt>> e, List<FieldElement> shares) {
+      SpdzSInt r = (SpdzSInt) e.get("r").out();
+      SpdzSInt v = (SpdzSInt) e.get("v").out();
+      SpdzSInt w = (SpdzSInt) e.get("w").out();
+      SpdzSInt u = (SpdzSInt) e.get("u").out();
+      SpdzSInt y = (SpdzSInt) e.get("y").out();
+      shares.add(r.getShare());
+      shares.add(v.getShare());
+      shares.add(w.getShare());
+      shares.add(u.getShare());
+      shares.add(y.getShare());
+    }
   }
 
 }
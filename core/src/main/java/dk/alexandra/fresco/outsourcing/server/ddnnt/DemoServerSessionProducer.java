@@ -8,27 +8,44 @@ import dk.alexandra.fresco.framework.sce.SecureComputationEngine;
 import dk.alexandra.fresco.framework.sce.SecureComputationEngineImpl;
 import dk.alexandra.fresco.framework.sce.evaluator.BatchedProtocolEvaluator;
 import dk.alexandra.fresco.framework.sce.evaluator.BatchedStrategy;
-import dk.alexandra.fresco.outsourcing.server.ServerSession;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.MeteredNetwork;
+import dk.alexandra.fresco.outsourcing.network.MultiplexedServerNetwork;
+import dk.alexandra.fresco.outsourcing.network.NetworkStats;
+import dk.alexandra.fresco.outsourcing.network.ServerNetworkPool;
 import dk.alexandra.fresco.outsourcing.server.ServerSessionProducer;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import dk.alexandra.fresco.suite.spdz.SpdzProtocolSuite;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * A simple demo server session producer based on SPDZ.
  *
  * <p>
  * Note this implementation is very simple and mainly suitable for demos. For each call to the
- * <code>next()</code> method it will set up a new session by connecting a new network between the
- * servers and creating a new SCE. All sessions will be using the same resource pool though, so the
- * sessions should not run concurrently.
+ * <code>next()</code> method it will set up a new session by getting a new network between the
+ * servers and creating a new SCE. The network is either connected from scratch for each session,
+ * or leased as a new channel from a {@link ServerNetworkPool} shared by all sessions. All
+ * sessions will be using the same resource pool though, so the sessions should not run
+ * concurrently.
+ * </p>
+ *
+ * <p>
+ * The traffic between the servers of all sessions is recorded in the stats <code>server.network
+ * </code> of the metrics registry.
  * </p>
  */
 public class DemoServerSessionProducer implements ServerSessionProducer<SpdzResourcePool> {
 
   public static final int DEFAULT_BATCH_SIZE = 10000;
+  private static final int FIRST_SESSION_CHANNEL = MultiplexedServerNetwork.APPLICATION_CHANNEL + 1;
   private final int batchSize;
   private final SpdzResourcePool resourcePool;
-  private final NetworkConfiguration conf;
+  private final Supplier<CloseableNetwork> networkSupplier;
+  private final ExecutorFactory executorFactory;
+  private final MetricsRegistry metrics;
 
   /**
    * Creates a new server session producer with a given batch size, resource pool and network
@@ -45,9 +62,8 @@ public class DemoServerSessionProducer implements ServerSessionProducer<SpdzReso
    */
   public DemoServerSessionProducer(int batchSize, SpdzResourcePool resourcePool,
       NetworkConfiguration conf) {
-    this.batchSize = batchSize;
-    this.resourcePool = resourcePool;
-    this.conf = conf;
+    this(batchSize, resourcePool, () -> new SocketNetwork(conf),
+        ExecutorFactory.platformThreads(), MetricsRegistry.disabled());
   }
 
   /**
@@ -61,9 +77,89 @@ public class DemoServerSessionProducer implements ServerSessionProducer<SpdzReso
     this(DEFAULT_BATCH_SIZE, resourcePool, conf);
   }
 
+  /**
+   * Creates a new server session producer running each session on a separate channel leased from
+   * a pool of connections between the servers.
+   *
+   * <p>
+   * Sessions are given consecutive channel ids, so all servers must produce their sessions in the
+   * same order.
+   * </p>
+   *
+   * @param batchSize the batch size for the MPC evaluator
+   * @param resourcePool the resource pool.
+   * @param serverNetworkPool the pool of connections between the servers.
+   */
+  public DemoServerSessionProducer(int batchSize, SpdzResourcePool resourcePool,
+      ServerNetworkPool serverNetworkPool) {
+    this(batchSize, resourcePool, serverNetworkPool, ExecutorFactory.platformThreads());
+  }
+
+  /**
+   * Creates a new server session producer running each session on a separate channel leased from
+   * a pool of connections between the servers, and giving the servers an executor factory to
+   * share, e.g., a {@link dk.alexandra.fresco.outsourcing.server.ServerExecutor}.
+   *
+   * @param batchSize the batch size for the MPC evaluator
+   * @param resourcePool the resource pool.
+   * @param serverNetworkPool the pool of connections between the servers.
+   * @param executorFactory the executor factory for the servers
+   */
+  public DemoServerSessionProducer(int batchSize, SpdzResourcePool resourcePool,
+      ServerNetworkPool serverNetworkPool, ExecutorFactory executorFactory) {
+    this(batchSize, resourcePool, serverNetworkPool, executorFactory, MetricsRegistry.disabled());
+  }
+
+  /**
+   * Creates a new server session producer running each session on a separate channel leased from
+   * a pool of connections between the servers, and giving the servers an executor factory to share
+   * and a registry to record their metrics in.
+   *
+   * @param batchSize the batch size for the MPC evaluator
+   * @param resourcePool the resource pool.
+   * @param serverNetworkPool the pool of connections between the servers.
+   * @param executorFactory the executor factory for the servers
+   * @param metrics the registry for the metrics of the servers
+   */
+  public DemoServerSessionProducer(int batchSize, SpdzResourcePool resourcePool,
+      ServerNetworkPool serverNetworkPool, ExecutorFactory executorFactory,
+      MetricsRegistry metrics) {
+    this(batchSize, resourcePool, new Supplier<CloseableNetwork>() {
+      private int nextChannel = FIRST_SESSION_CHANNEL;
+
+      @Override
+      public synchronized CloseableNetwork get() {
+        return serverNetworkPool.lease(nextChannel++);
+      }
+    }, executorFactory, metrics);
+  }
+
+  /**
+   * Convenience constructor for {@link #DemoServerSessionProducer(int, SpdzResourcePool,
+   * ServerNetworkPool)} with the batch size set to {@value #DEFAULT_BATCH_SIZE}.
+   *
+   * @param resourcePool the resource pool
+   * @param serverNetworkPool the pool of connections between the servers
+   */
+  public DemoServerSessionProducer(SpdzResourcePool resourcePool,
+      ServerNetworkPool serverNetworkPool) {
+    this(DEFAULT_BATCH_SIZE, resourcePool, serverNetworkPool);
+  }
+
+  private DemoServerSessionProducer(int batchSize, SpdzResourcePool resourcePool,
+      Supplier<CloseableNetwork> networkSupplier, ExecutorFactory executorFactory,
+      MetricsRegistry metrics) {
+    this.batchSize = batchSize;
+    this.resourcePool = resourcePool;
+    this.networkSupplier = networkSupplier;
+    this.executorFactory = Objects.requireNonNull(executorFactory);
+    this.metrics = Objects.requireNonNull(metrics);
+  }
+
   @Override
-  public ServerSession<SpdzResourcePool> next() {
-    CloseableNetwork net = new SocketNetwork(conf);
+  public ServerSessionImpl<SpdzResourcePool> next() {
+    CloseableNetwork net = new MeteredNetwork(networkSupplier.get(), resourcePool.getMyId(),
+        metrics.getOrCreate("server.network", NetworkStats.class, NetworkStats::new));
     SpdzProtocolSuite suite = new SpdzProtocolSuite(resourcePool.getModulus().bitLength());
     SecureComputationEngine<SpdzResourcePool, ProtocolBuilderNumeric> sce =
         new SecureComputationEngineImpl<>(suite,
@@ -71,4 +167,14 @@ public class DemoServerSessionProducer implements ServerSessionProducer<SpdzReso
     return new ServerSessionImpl<>(net, resourcePool, sce);
   }
 
+  @Override
+  public ExecutorFactory getExecutorFactory() {
+    return executorFactory;
+  }
+
+  @Override
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
+
 }
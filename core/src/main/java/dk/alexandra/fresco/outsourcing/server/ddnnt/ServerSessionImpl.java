@@ -4,6 +4,7 @@ import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
 import dk.alexandra.fresco.framework.network.CloseableNetwork;
 import dk.alexandra.fresco.framework.sce.SecureComputationEngine;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
 import dk.alexandra.fresco.outsourcing.server.ServerSession;
 
 /**
@@ -18,6 +19,7 @@ public class ServerSessionImpl<ResourcePoolT extends NumericResourcePool>
   private final CloseableNetwork network;
   private final ResourcePoolT resourcePool;
   private final SecureComputationEngine<ResourcePoolT, ProtocolBuilderNumeric> sce;
+  private boolean closed;
 
   /**
    * Constructs a server session.
@@ -48,4 +50,15 @@ public class ServerSessionImpl<ResourcePoolT extends NumericResourcePool>
     return sce;
   }
 
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      ExceptionConverter.safe(() -> {
+        network.close();
+        return null;
+      }, "Failed to close the network of the server session");
+    }
+  }
+
 }
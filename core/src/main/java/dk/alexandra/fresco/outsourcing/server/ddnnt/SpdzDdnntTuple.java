@@ -2,6 +2,7 @@ package dk.alexandra.fresco.outsourcing.server.ddnnt;
 
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
 import dk.alexandra.fresco.suite.spdz.datatypes.SpdzTriple;
 
 import java.util.Objects;
@@ -29,6 +30,20 @@ public class SpdzDdnntTuple implements DdnntInputTuple {
     this.shareC = Objects.requireNonNull(triple.getC().getShare());
   }
 
+  /**
+   * Constructs DDNNT tuple from its parts, e.g., when read back from storage.
+   *
+   * @param a the SPDZ representation of <i>a</i>, i.e., its share and MAC share
+   * @param shareB the share of <i>b</i>
+   * @param shareC the share of <i>c</i>
+   */
+  public SpdzDdnntTuple(SpdzSInt a, FieldElement shareB, FieldElement shareC) {
+    this.sintA = Objects.requireNonNull(a);
+    this.shareA = Objects.requireNonNull(a.getShare());
+    this.shareB = Objects.requireNonNull(shareB);
+    this.shareC = Objects.requireNonNull(shareC);
+  }
+
   @Override
   public FieldElement getShareA() {
     return shareA;
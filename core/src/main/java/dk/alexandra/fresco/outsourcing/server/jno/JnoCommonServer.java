@@ -2,53 +2,146 @@ package dk.alexandra.fresco.outsourcing.server.jno;
 
 import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.network.Network;
 import dk.alexandra.fresco.framework.util.Pair;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
 import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
 import dk.alexandra.fresco.outsourcing.client.jno.ClientPayload;
 import dk.alexandra.fresco.outsourcing.client.jno.JnoCommonClient;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
+import dk.alexandra.fresco.outsourcing.network.NetworkProfile;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.server.ClientSessionHandler;
 import dk.alexandra.fresco.outsourcing.server.ServerSessionProducer;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class JnoCommonServer<ResourcePoolT extends NumericResourcePool> {
     private static final Logger logger = LoggerFactory.getLogger(JnoCommonClient.class);
 
     private final ClientSessionHandler<GenericClientSession> clientSessionProducer;
     private final ServerSessionProducer<ResourcePoolT> serverSessionProducer;
+    private final ExecutorFactory executorFactory;
+    private final MetricsRegistry metrics;
+    private NetworkProfile networkProfile;
 
     public JnoCommonServer(ClientSessionHandler<GenericClientSession> clientSessionProducer,
                            ServerSessionProducer<ResourcePoolT> serverSessionProducer) {
+        this(clientSessionProducer, serverSessionProducer,
+            serverSessionProducer.getExecutorFactory());
+    }
+
+    /**
+     * Creates a new server communicating with the clients on executors from the given factory.
+     *
+     * @param clientSessionProducer producer of client sessions
+     * @param serverSessionProducer producer of server sessions
+     * @param executorFactory factory of the executors running one task per client session
+     */
+    public JnoCommonServer(ClientSessionHandler<GenericClientSession> clientSessionProducer,
+                           ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                           ExecutorFactory executorFactory) {
         this.clientSessionProducer = Objects.requireNonNull(clientSessionProducer);
         this.serverSessionProducer = Objects.requireNonNull(serverSessionProducer);
+        this.executorFactory = Objects.requireNonNull(executorFactory);
+        this.metrics = serverSessionProducer.getMetrics();
     }
 
-    protected Pair<SortedMap<Integer, ClientPayload<FieldElement>>, List<GenericClientSession>> getClientPayload() throws Exception {
-        ExecutorService es = Executors.newCachedThreadPool();
-        HashMap<Integer, Future<ClientPayload<FieldElement>>> clientInputFutures = new HashMap<>();
-        List<GenericClientSession> sessions = new ArrayList<>();
-        while (clientSessionProducer.hasNext()) {
-            GenericClientSession clientSession = clientSessionProducer.next();
-            sessions.add(clientSession);
-            logger.info("Running client input session for C{}", clientSession.getClientId());
-            Future<ClientPayload<FieldElement>> f = es.submit(new ClientInputCommunication(clientSession));
-            clientInputFutures.put(clientSession.getClientId(), f);
+    /**
+     * Receives the payloads of the clients.
+     *
+     * <p>
+     * If the client session producer has an input timeout, a client that has not sent its payload
+     * in time, or whose connection fails, is left out and its connection closed. The servers then
+     * agree on the clients that failed on any server over the given network, and all servers leave
+     * out these clients.
+     * </p>
+     *
+     * @param network the network to the other servers, only used if clients are dropped
+     * @return the payloads by client id, and the sessions of the clients not left out
+     * @throws Exception if receiving a payload fails, and clients are not dropped
+     */
+    protected Pair<SortedMap<Integer, ClientPayload<FieldElement>>, List<GenericClientSession>> getClientPayload(
+            Network network) throws Exception {
+        ExecutorService es = executorFactory.create("JNO Client Input");
+        Timer receiveTimer = metrics.timer(getMetricsPrefix() + ".clientReceive");
+        Timer clientTimer = metrics.timer(getMetricsPrefix() + ".client");
+        Duration inputTimeout = clientSessionProducer.getInputTimeout();
+        try {
+            HashMap<Integer, Future<ClientPayload<FieldElement>>> clientInputFutures = new HashMap<>();
+            Map<Integer, Long> deadlines = new HashMap<>();
+            List<GenericClientSession> sessions = new ArrayList<>();
+            while (clientSessionProducer.hasNext()) {
+                GenericClientSession clientSession = clientSessionProducer.next();
+                sessions.add(clientSession);
+                logger.info("Running client input session for C{}", clientSession.getClientId());
+                TwoPartyNetwork net =
+                    getNetworkProfile().meter("clientReceive", clientSession.getNetwork());
+                Future<ClientPayload<FieldElement>> f = es.submit(
+                    new ClientInputCommunication(clientSession, net, receiveTimer, clientTimer));
+                clientInputFutures.put(clientSession.getClientId(), f);
+                if (inputTimeout != null) {
+                    deadlines.put(clientSession.getClientId(),
+                        System.nanoTime() + inputTimeout.toNanos());
+                }
+            }
+            SortedMap<Integer, ClientPayload<FieldElement>> clientPayloads = new TreeMap<>();
+            List<Integer> failed = new ArrayList<>();
+            for (Map.Entry<Integer, Future<ClientPayload<FieldElement>>> e : clientInputFutures.entrySet()) {
+                ClientPayload<FieldElement> p;
+                if (inputTimeout == null) {
+                    p = e.getValue().get();
+                } else {
+                    try {
+                        p = e.getValue().get(Math.max(0, deadlines.get(e.getKey()) - System.nanoTime()),
+                            TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException | ExecutionException ex) {
+                        logger.warn("Client C{} failed to send its payload", e.getKey(), ex);
+                        e.getValue().cancel(true);
+                        failed.add(e.getKey());
+                        continue;
+                    }
+                }
+                clientPayloads.put(e.getKey(), p);
+                logger.info("Finished client input session for C{}", e.getKey());
+            }
+            if (inputTimeout != null) {
+                // The servers must use the payloads of the same clients
+                Set<Integer> agreedFailed = clientSessionProducer.agreeOnFailedClients(network, failed);
+                clientPayloads.keySet().removeAll(agreedFailed);
+                Iterator<GenericClientSession> it = sessions.iterator();
+                while (it.hasNext()) {
+                    GenericClientSession session = it.next();
+                    if (agreedFailed.contains(session.getClientId())) {
+                        closeQuietly(session.getNetwork());
+                        it.remove();
+                    }
+                }
+            }
+            return new Pair<>(clientPayloads, sessions);
+        } finally {
+            es.shutdown();
         }
-        SortedMap<Integer, ClientPayload<FieldElement>> clientPayloads = new TreeMap<>();
-        for (Map.Entry<Integer, Future<ClientPayload<FieldElement>>> e : clientInputFutures.entrySet()) {
-            ClientPayload<FieldElement> p = e.getValue().get();
-            clientPayloads.put(e.getKey(), p);
-            logger.info("Finished client input session for C{}", e.getKey());
+    }
+
+    private static void closeQuietly(TwoPartyNetwork network) {
+        try {
+            network.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close network of dropped client", e);
         }
-        es.shutdown();
-        return new Pair<>(clientPayloads, sessions);
     }
 
     protected ClientSessionHandler<GenericClientSession> getClientSessionProducer() {
@@ -59,23 +152,81 @@ public class JnoCommonServer<ResourcePoolT extends NumericResourcePool> {
         return serverSessionProducer;
     }
 
+    protected ExecutorFactory getExecutorFactory() {
+        return executorFactory;
+    }
+
+    protected MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gives the communication of the session of this server. The payloads received from the
+     * clients are attributed to the phase <code>clientReceive</code>, the agreement on the clients
+     * that failed to send them to the phase <code>failedClients</code>, and the traffic of all
+     * sessions is accumulated in the metrics under the prefix of this server.
+     *
+     * <p>
+     * The profile is created on first use rather than in the constructor, as the prefix is given by
+     * the subclass.
+     * </p>
+     *
+     * @return the profile
+     */
+    public synchronized NetworkProfile getNetworkProfile() {
+        if (networkProfile == null) {
+            networkProfile = new NetworkProfile(metrics, getMetricsPrefix());
+        }
+        return networkProfile;
+    }
+
+    /**
+     * Gives the prefix of the names of the metrics of this server. The time spent receiving the
+     * payload of each client is recorded by the timer <code>prefix.clientReceive</code>, and the
+     * latency of each client, from its session being produced until its payload is received, by
+     * the timer <code>prefix.client</code>.
+     *
+     * @return the prefix
+     */
+    protected String getMetricsPrefix() {
+        return "jno";
+    }
+
     static class ClientInputCommunication implements Callable<ClientPayload<FieldElement>> {
 
         private final GenericClientSession session;
+        private final TwoPartyNetwork net;
+        private final Timer receiveTimer;
+        private final Timer clientTimer;
+        private final long produced;
 
-        public ClientInputCommunication(GenericClientSession session) {
+        public ClientInputCommunication(GenericClientSession session, TwoPartyNetwork net,
+                                        Timer receiveTimer, Timer clientTimer) {
             this.session = session;
+            this.net = net;
+            this.receiveTimer = receiveTimer;
+            this.clientTimer = clientTimer;
+            this.produced = clientTimer.start();
         }
 
         @Override
         public ClientPayload<FieldElement> call() {
-            TwoPartyNetwork net = session.getNetwork();
-            byte[] t = net.receive();
-            byte[] k = net.receive();
-            byte[] r = net.receive();
-            byte[] xList = net.receive();
+            long start = receiveTimer.start();
+            ClientPayload<FieldElement> payload;
+            if (ClientCapabilities.supports(session.getCapabilities(),
+                    ClientCapabilities.SINGLE_FRAME_PAYLOAD)) {
+                payload = ClientPayload.deserialize(session.getSerializer(), net.receive());
+            } else {
+                byte[] t = net.receive();
+                byte[] k = net.receive();
+                byte[] r = net.receive();
+                byte[] xList = net.receive();
+                payload = ClientPayload.deserialize(session.getSerializer(), t, k, r, xList);
+            }
+            receiveTimer.stop(start);
+            clientTimer.stop(produced);
             logger.info("Received masked inputs from C{}", session.getClientId());
-            return ClientPayload.deserialize(session.getSerializer(), t, k, r, xList);
+            return payload;
         }
 
     }
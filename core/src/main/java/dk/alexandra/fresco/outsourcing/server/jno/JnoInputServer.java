@@ -11,13 +11,16 @@ import dk.alexandra.fresco.framework.value.SInt;
 import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
 import dk.alexandra.fresco.outsourcing.client.jno.ClientPayload;
 import dk.alexandra.fresco.outsourcing.client.jno.ReconstructClientInput;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
 import dk.alexandra.fresco.outsourcing.server.*;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 
@@ -25,16 +28,46 @@ public class JnoInputServer<ResourcePoolT extends NumericResourcePool, ClientSes
   private static final Logger logger = LoggerFactory.getLogger(JnoInputServer.class);
   private final Future<Map<Integer, List<SInt>>> clientInputs;
   private ServerSession<ResourcePoolT> serverInputSession;
+  private final boolean bulkInput;
 
   public JnoInputServer(ClientSessionHandler<ClientSessionT> clientSessionProducer,
                         ServerSessionProducer<ResourcePoolT> serverSessionProducer) {
-    super(clientSessionProducer, serverSessionProducer);
+    this(clientSessionProducer, serverSessionProducer, serverSessionProducer.getExecutorFactory());
+  }
+
+  /**
+   * Creates a new server communicating with the clients on executors from the given factory.
+   *
+   * @param clientSessionProducer producer of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param executorFactory factory of the executor running one task per client session
+   */
+  public JnoInputServer(ClientSessionHandler<ClientSessionT> clientSessionProducer,
+                        ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                        ExecutorFactory executorFactory) {
+    this(clientSessionProducer, serverSessionProducer, executorFactory, false);
+  }
+
+  /**
+   * Creates a new server communicating with the clients on executors from the given factory.
+   *
+   * @param clientSessionProducer producer of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param executorFactory factory of the executor running one task per client session
+   * @param bulkInput if true the inputs are reconstructed using a single bulk input per server,
+   *     which requires the SPDZ protocol suite
+   */
+  public JnoInputServer(ClientSessionHandler<ClientSessionT> clientSessionProducer,
+                        ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                        ExecutorFactory executorFactory, boolean bulkInput) {
+    super(clientSessionProducer, serverSessionProducer, executorFactory);
+    this.bulkInput = bulkInput;
     serverInputSession = getServerSessionProducer().next();
     FutureTask<Map<Integer, List<SInt>>> ft = new FutureTask<>(this::runInputProtocol);
     this.clientInputs = ft;
-    Thread t = new Thread(ft);
-    t.setName("JNO input Server");
-    t.start();
+    ExecutorService sessionExecutor = executorFactory.create("JNO Input Server");
+    sessionExecutor.execute(ft);
+    sessionExecutor.shutdown();
   }
 
   /**
@@ -49,13 +82,44 @@ public class JnoInputServer<ResourcePoolT extends NumericResourcePool, ClientSes
    */
   protected Map<Integer, List<SInt>> runInputProtocol() throws Exception {
     logger.info("Running input session");
-    Pair<SortedMap<Integer, ClientPayload<FieldElement>>, List<GenericClientSession>> clientPayload = getClientPayload();
+    Timer sessionTimer = getMetrics().timer(getMetricsPrefix() + ".session");
+    Timer reconstructTimer = getMetrics().timer(getMetricsPrefix() + ".reconstruct");
+    long sessionStart = sessionTimer.start();
     Network network = serverInputSession.getNetwork();
-    ResourcePoolT resourcePool = serverInputSession.getResourcePool();
-    ReconstructClientInputApp app = new ReconstructClientInputApp(resourcePool.getMyId(),
-            resourcePool.getNoOfParties(), clientPayload.getFirst());
-    return serverInputSession.getSce().runApplication(app, resourcePool, network);
+    Map<Integer, List<SInt>> inputs;
+    try {
+      getClientSessionProducer().closeAdmission(network);
+      ResourcePoolT resourcePool = serverInputSession.getResourcePool();
+      // Clients that failed to send their payload to any server are left out before reconstructing
+      Pair<SortedMap<Integer, ClientPayload<FieldElement>>, List<GenericClientSession>> clientPayload = getClientPayload(
+          getNetworkProfile().meter("failedClients", network, resourcePool.getMyId()));
+      ReconstructClientInputApp app = new ReconstructClientInputApp(resourcePool.getMyId(),
+              resourcePool.getNoOfParties(), clientPayload.getFirst(), bulkInput);
+      long start = reconstructTimer.start();
+      inputs = serverInputSession.getSce().runApplication(app, resourcePool,
+          getNetworkProfile().meter("reconstruct", network, resourcePool.getMyId()));
+      reconstructTimer.stop(start);
+    } finally {
+      serverInputSession.close();
+    }
+    sessionTimer.stop(sessionStart);
+    logger.info("Communication of input session:\n{}", getNetworkProfile().format());
+    return inputs;
+  }
+
+  /**
+   * Gives the prefix <code>jno.input</code>. Besides the metrics of the clients, the durations of
+   * reconstructing the inputs, and of the whole session, are recorded by the timers <code>
+   * jno.input.reconstruct</code> and <code>jno.input.session</code>, and the communication of
+   * reconstructing the inputs is attributed to the phase <code>reconstruct</code>.
+   *
+   * @return the prefix
+   */
+  @Override
+  protected String getMetricsPrefix() {
+    return "jno.input";
   }
+
   @Override
   public Future<Map<Integer, List<SInt>>> getClientInputs() {
     return clientInputs;
@@ -72,16 +136,19 @@ public class JnoInputServer<ResourcePoolT extends NumericResourcePool, ClientSes
     private final SortedMap<Integer, ClientPayload<FieldElement>> clientPayload;
     private final int myId;
     private final int amountOfServers;
+    private final boolean bulkInput;
 
-    public ReconstructClientInputApp(int myId, int amountOfServer, SortedMap<Integer, ClientPayload<FieldElement>> clientPayload) {
+    public ReconstructClientInputApp(int myId, int amountOfServer, SortedMap<Integer, ClientPayload<FieldElement>> clientPayload,
+                                     boolean bulkInput) {
       this.myId = myId;
       this.amountOfServers = amountOfServer;
       this.clientPayload = clientPayload;
+      this.bulkInput = bulkInput;
     }
 
     @Override
     public DRes<Map<Integer, List<SInt>>> buildComputation(ProtocolBuilderNumeric builder) {
-      return builder.seq(new ReconstructClientInput(myId, amountOfServers, clientPayload));
+      return builder.seq(new ReconstructClientInput(myId, amountOfServers, clientPayload, bulkInput));
     }
   }
 }
@@ -13,20 +13,22 @@ import dk.alexandra.fresco.framework.value.SInt;
 import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
 import dk.alexandra.fresco.outsourcing.client.jno.ClientPayload;
 import dk.alexandra.fresco.outsourcing.client.jno.ReconstructClientInput;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
 import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
 import dk.alexandra.fresco.outsourcing.server.ClientSession;
 import dk.alexandra.fresco.outsourcing.server.ClientSessionHandler;
 import dk.alexandra.fresco.outsourcing.server.OutputServer;
 import dk.alexandra.fresco.outsourcing.server.ServerSession;
 import dk.alexandra.fresco.outsourcing.server.ServerSessionProducer;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,26 +39,81 @@ public class JnoOutputServer<ResourcePoolT extends NumericResourcePool, ClientSe
   private static final Logger logger = LoggerFactory.getLogger(JnoOutputServer.class);
   private final Map<Integer, List<SInt>> idToOutputs = new HashMap<>();
   private ServerSession<ResourcePoolT> serverInputSession;
+  private final boolean bulkInput;
 
   public JnoOutputServer(ClientSessionHandler<ClientSessionT> clientSessionProducer,
                          ServerSessionProducer<ResourcePoolT> serverSessionProducer) {
-    super(clientSessionProducer, serverSessionProducer);
+    this(clientSessionProducer, serverSessionProducer, serverSessionProducer.getExecutorFactory());
+  }
+
+  /**
+   * Creates a new server communicating with the clients on executors from the given factory.
+   *
+   * @param clientSessionProducer producer of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param executorFactory factory of the executors running one task per client session
+   */
+  public JnoOutputServer(ClientSessionHandler<ClientSessionT> clientSessionProducer,
+                         ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                         ExecutorFactory executorFactory) {
+    this(clientSessionProducer, serverSessionProducer, executorFactory, false);
+  }
+
+  /**
+   * Creates a new server communicating with the clients on executors from the given factory.
+   *
+   * @param clientSessionProducer producer of client sessions
+   * @param serverSessionProducer producer of server sessions
+   * @param executorFactory factory of the executors running one task per client session
+   * @param bulkInput if true the masks of the clients are reconstructed using a single bulk input
+   *     per server, which requires the SPDZ protocol suite
+   */
+  public JnoOutputServer(ClientSessionHandler<ClientSessionT> clientSessionProducer,
+                         ServerSessionProducer<ResourcePoolT> serverSessionProducer,
+                         ExecutorFactory executorFactory, boolean bulkInput) {
+    super(clientSessionProducer, serverSessionProducer, executorFactory);
+    this.bulkInput = bulkInput;
     serverInputSession = getServerSessionProducer().next();
   }
 
   private void runSession() {
     ExceptionConverter.safe(()-> {
-      Pair<SortedMap<Integer, ClientPayload<FieldElement>>, List<GenericClientSession>> clientPayload = getClientPayload();
+      Timer sessionTimer = getMetrics().timer(getMetricsPrefix() + ".session");
+      Timer maskTimer = getMetrics().timer(getMetricsPrefix() + ".mask");
+      Timer sendTimer = getMetrics().timer(getMetricsPrefix() + ".clientSend");
+      long sessionStart = sessionTimer.start();
       Network network = serverInputSession.getNetwork();
-      ResourcePoolT resourcePool = serverInputSession.getResourcePool();
-      JnoClientOutputApp app = new JnoClientOutputApp(resourcePool.getMyId(),
-              resourcePool.getNoOfParties(), clientPayload.getFirst(), idToOutputs);
-      Map<Integer, List<BigInteger>> res = serverInputSession.getSce().runApplication(app, resourcePool, network);
-      ExecutorService es = Executors.newCachedThreadPool();
+      Pair<SortedMap<Integer, ClientPayload<FieldElement>>, List<GenericClientSession>> clientPayload;
+      Map<Integer, List<BigInteger>> res;
+      try {
+        // Clients that did not register with all servers are left out
+        getClientSessionProducer().closeAdmission(network);
+        clientPayload = getClientPayload(getNetworkProfile().meter("failedClients", network,
+          serverInputSession.getResourcePool().getMyId()));
+        ResourcePoolT resourcePool = serverInputSession.getResourcePool();
+        JnoClientOutputApp app = new JnoClientOutputApp(resourcePool.getMyId(),
+                resourcePool.getNoOfParties(), clientPayload.getFirst(), idToOutputs,
+                bulkInput);
+        long start = maskTimer.start();
+        res = serverInputSession.getSce().runApplication(app, resourcePool,
+            getNetworkProfile().meter("mask", network, resourcePool.getMyId()));
+        maskTimer.stop(start);
+      } finally {
+        // The servers are done communicating once the outputs are masked
+        serverInputSession.close();
+      }
+      ExecutorService es = getExecutorFactory().create("JNO Client Output");
+      List<CompletableFuture<Void>> sent = new ArrayList<>();
       for (GenericClientSession session : clientPayload.getSecond()) {
-        es.submit(new ClientOutputCommunication(session, res.get(session.getClientId()), serverInputSession.getResourcePool().getFieldDefinition()));
+        TwoPartyNetwork net = getNetworkProfile().meter("clientSend", session.getNetwork());
+        sent.add(CompletableFuture.runAsync(new ClientOutputCommunication(session, net, res.get(session.getClientId()), serverInputSession.getResourcePool().getFieldDefinition(), sendTimer), es));
       }
       es.shutdown();
+      // The session ends once the outputs have been sent to all clients
+      CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+        sessionTimer.stop(sessionStart);
+        logger.info("Communication of output session:\n{}", getNetworkProfile().format());
+      });
       return null;
     }, "Running server output session failed");
   }
@@ -79,25 +136,45 @@ public class JnoOutputServer<ResourcePoolT extends NumericResourcePool, ClientSe
     return serverInputSession;
   }
 
+  /**
+   * Gives the prefix <code>jno.output</code>. Besides the metrics of receiving the paddings of the
+   * clients, the durations of masking and opening the outputs, sending them to each client, and of
+   * the whole session, are recorded by the timers <code>jno.output.mask</code>, <code>
+   * jno.output.clientSend</code> and <code>jno.output.session</code>. The communication of masking
+   * and opening the outputs, and of sending them, is attributed to the phases <code>mask</code>
+   * and <code>clientSend</code>.
+   *
+   * @return the prefix
+   */
+  @Override
+  protected String getMetricsPrefix() {
+    return "jno.output";
+  }
+
   private static class ClientOutputCommunication implements Runnable {
 
     private final GenericClientSession session;
+    private final TwoPartyNetwork net;
     private final List<BigInteger> output;
     private final FieldDefinition definition;
+    private final Timer timer;
 
-    ClientOutputCommunication(GenericClientSession session, List<BigInteger> output, FieldDefinition definition) {
+    ClientOutputCommunication(GenericClientSession session, TwoPartyNetwork net, List<BigInteger> output, FieldDefinition definition, Timer timer) {
       this.output = output;
       this.session = session;
+      this.net = net;
       this.definition = definition;
+      this.timer = timer;
     }
 
     @Override
     public void run() {
-      TwoPartyNetwork net = session.getNetwork();
+      long start = timer.start();
       // get paddings from input protocol
       List<FieldElement> res = output.stream().map(cur -> definition.createElement(cur)).collect(Collectors.toList());
       // send number of outputs to client
       net.send(session.getSerializer().serialize(res));
+      timer.stop(start);
       logger.info("Sent shares to C{}", session.getClientId());
     }
   }
@@ -109,18 +186,21 @@ public class JnoOutputServer<ResourcePoolT extends NumericResourcePool, ClientSe
     private final int myId;
     private final int amountOfServers;
     private final Map<Integer, List<SInt>> clientOutput;
+    private final boolean bulkInput;
 
-    public JnoClientOutputApp(int myId, int amountOfServer, SortedMap<Integer, ClientPayload<FieldElement>> clientPayload, Map<Integer, List<SInt>> clientOutput) {
+    public JnoClientOutputApp(int myId, int amountOfServer, SortedMap<Integer, ClientPayload<FieldElement>> clientPayload, Map<Integer, List<SInt>> clientOutput,
+                              boolean bulkInput) {
       this.myId = myId;
       this.amountOfServers = amountOfServer;
       this.clientPayload = clientPayload;
       this.clientOutput = clientOutput;
+      this.bulkInput = bulkInput;
     }
 
     @Override
     public DRes<Map<Integer, List<BigInteger>>> buildComputation(ProtocolBuilderNumeric builder) {
       return builder.par((par) -> {
-        return par.seq(new ReconstructClientInput(myId, amountOfServers, clientPayload));
+        return par.seq(new ReconstructClientInput(myId, amountOfServers, clientPayload, bulkInput));
       }).par( (par, clientInput) -> {
         // Compute and open the client's output after padding it with the random values the client gave as input
         Map<Integer, List<DRes<BigInteger>>> unopenedRes = new HashMap<>();
@@ -0,0 +1,492 @@
+package dk.alexandra.fresco.outsourcing.setup;
+
+import dk.alexandra.fresco.framework.Application;
+import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.framework.sce.SecureComputationEngine;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.client.AbstractSessionEndPoint;
+import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
+import dk.alexandra.fresco.outsourcing.client.GenericClientSessionEndpoint;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntClientInputSessionEndpoint;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.TripleDistributor;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
+import dk.alexandra.fresco.outsourcing.network.MultiplexedServerNetwork;
+import dk.alexandra.fresco.outsourcing.network.ServerNetworkPool;
+import dk.alexandra.fresco.outsourcing.network.ServerSideNetworkFactory;
+import dk.alexandra.fresco.outsourcing.server.DemoClientSessionRequestHandler;
+import dk.alexandra.fresco.outsourcing.server.EpochSessionRegistration;
+import dk.alexandra.fresco.outsourcing.server.InputServer;
+import dk.alexandra.fresco.outsourcing.server.OutputServer;
+import dk.alexandra.fresco.outsourcing.server.ServerExecutor;
+import dk.alexandra.fresco.outsourcing.server.ServerSession;
+import dk.alexandra.fresco.outsourcing.server.ServerSessionProducer;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputServer;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntOutputServer;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DemoServerSessionProducer;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.ServerSessionImpl;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.InputServerProducer;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.OutputServerProducer;
+import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import javax.net.ServerSocketFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-running variant of {@link SpdzWithIO}, serving successive epochs of clients on the same
+ * ports and resource pool.
+ *
+ * <p>
+ * Each epoch takes input from, and gives output to, the given input and output parties once, like
+ * a single {@link SpdzWithIO}. The servers are set up once, and keep listening for clients. Clients
+ * are assigned to epochs in the order they register with server 1, see {@link
+ * EpochSessionRegistration}, so clients connect exactly as they would to a {@link SpdzWithIO}.
+ * </p>
+ *
+ * <p>
+ * Epochs are pipelined. When epoch <i>k</i> is handed out by {@link #nextEpoch()}, the input and
+ * output servers of epoch <i>k + 1</i> are started as well, so the clients of epoch <i>k + 1</i>
+ * are admitted and served while epoch <i>k</i> computes and delivers its outputs:
+ * </p>
+ * <pre>
+ * while (running) {
+ *   try (PipelinedSpdzWithIO.Epoch epoch = server.nextEpoch()) {
+ *     Map&lt;Integer, List&lt;SInt&gt;&gt; inputs = epoch.receiveInputs();
+ *     List&lt;SInt&gt; result = epoch.run(app(inputs));
+ *     epoch.sendOutputsTo(outputParty, result);
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>
+ * All epochs share the resource pool, whose preprocessed material must be used in the same order
+ * on all servers. Every use of the resource pool, i.e., running MPC applications and, for DDNNT,
+ * taking the triples for the clients, is therefore done in epoch order: epoch <i>k + 1</i> waits
+ * for epoch <i>k</i> to be closed before using the resource pool. Communication with the clients is
+ * not held back, so for the JNO protocol the inputs of epoch <i>k + 1</i> are fully received while
+ * epoch <i>k</i> computes, and for DDNNT its clients are admitted and queued.
+ * </p>
+ *
+ * <p>
+ * All servers must call {@link #nextEpoch()} the same number of times, as this determines the
+ * channels the epochs use between the servers. Each epoch must be closed when done, or later epochs
+ * will wait forever.
+ * </p>
+ *
+ * <p>
+ * Servers are created by {@link SpdzWithIO.Builder#buildPipelined()}, so they take the same options
+ * as a {@link SpdzWithIO}.
+ * </p>
+ */
+public class PipelinedSpdzWithIO {
+
+  private static final Logger logger = LoggerFactory.getLogger(PipelinedSpdzWithIO.class);
+  // The number of epochs whose servers are running at the same time
+  private static final int PIPELINE_DEPTH = 2;
+
+  private final SpdzSetup spdzSetup;
+  private final ServerNetworkPool serverNetworkPool;
+  private final ServerExecutor serverExecutor;
+  private final MetricsRegistry metrics;
+  private final DemoServerSessionProducer serverSessionProducer;
+  private final List<Integer> inputParties;
+  private final List<Integer> outputParties;
+  private final TripleDistributor tripleSource;
+  private final Protocol protocol;
+  private final InputServerProducer<SpdzResourcePool, AbstractSessionEndPoint<GenericClientSession>,
+      ServerSessionProducer<SpdzResourcePool>> inputServerProducer;
+  private final OutputServerProducer<SpdzResourcePool, AbstractSessionEndPoint<GenericClientSession>,
+      ServerSessionProducer<SpdzResourcePool>> outputServerProducer;
+  private final EpochSessionRegistration<GenericClientSession> inputRegistration;
+  private final EpochSessionRegistration<GenericClientSession> outputRegistration;
+  private final Timer epochTimer;
+  private final Deque<Epoch> opened;
+  private final Object turnLock;
+  private final Set<Integer> finished;
+  private int nextEpoch;
+  private int turn;
+
+  /**
+   * Creates a new pipelined server, see {@link SpdzWithIO.Builder#buildPipelined()}.
+   *
+   * @param builder the options of the server
+   */
+  @SuppressWarnings("unchecked")
+  PipelinedSpdzWithIO(SpdzWithIO.Builder builder) {
+    int serverId = builder.getServerId();
+    this.spdzSetup = builder.createSetup();
+    this.serverNetworkPool = builder.createServerNetworkPool();
+    this.serverExecutor = builder.getServerExecutor();
+    this.metrics = SpdzWithIO.createMetrics(serverExecutor);
+    this.serverSessionProducer = new DemoServerSessionProducer(
+        DemoServerSessionProducer.DEFAULT_BATCH_SIZE, spdzSetup.getRp(), serverNetworkPool,
+        serverExecutor, metrics);
+    this.tripleSource = builder.createTripleSource(spdzSetup, serverNetworkPool);
+    this.inputParties = new ArrayList<>(builder.getInputParties());
+    this.outputParties = new ArrayList<>(builder.getOutputParties());
+    this.protocol = builder.getProtocol();
+    if (protocol == Protocol.DDNNT) {
+      this.inputServerProducer =
+          (endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer);
+      this.outputServerProducer =
+          (endpoint, sessionProducer) -> new DdnntOutputServer<>(endpoint, sessionProducer);
+    } else {
+      this.inputServerProducer = builder.getInputServerProducer();
+      this.outputServerProducer = builder.getOutputServerProducer();
+    }
+    this.epochTimer = metrics.timer("epoch.session");
+    this.opened = new ArrayDeque<>(PIPELINE_DEPTH);
+    this.turnLock = new Object();
+    this.finished = new HashSet<>();
+    DemoClientSessionRequestHandler<GenericClientSession, GenericClientSession> handler =
+        new DemoClientSessionRequestHandler<>(
+        spdzSetup.getRp(),
+        spdzSetup.getNetConf().getMe().getPort(),
+        DemoClientSessionRequestHandler.UNLIMITED_CLIENTS,
+        this.inputParties::contains,
+        p -> new ServerSideNetworkFactory(p, ServerSocketFactory.getDefault()),
+        DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_THREADS,
+        DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_TIMEOUT,
+        metrics);
+    if (inputParties.isEmpty()) {
+      this.inputRegistration = null;
+    } else {
+      this.inputRegistration = new EpochSessionRegistration<>(serverId, inputParties.size(),
+          this::createInputEndpoint);
+      handler.setInputRegistrationHandler(inputRegistration);
+    }
+    if (outputParties.isEmpty()) {
+      this.outputRegistration = null;
+    } else {
+      this.outputRegistration = new EpochSessionRegistration<>(serverId, outputParties.size(),
+          epoch -> new GenericClientSessionEndpoint(spdzSetup.getRp(),
+              spdzSetup.getRp().getFieldDefinition(), outputParties.size()));
+      handler.setOutputRegistrationHandler(outputRegistration);
+    }
+    handler.launch();
+  }
+
+  /**
+   * Gives the next epoch, and starts serving the clients of the epoch after it.
+   *
+   * @return the next epoch
+   */
+  public synchronized Epoch nextEpoch() {
+    while (opened.size() < PIPELINE_DEPTH) {
+      opened.add(open(nextEpoch++));
+    }
+    return opened.remove();
+  }
+
+  /**
+   * Shuts down all underlying resources.
+   */
+  public void shutdown() {
+    SpdzWithIO.closeTripleSource(tripleSource);
+    serverExecutor.close();
+    spdzSetup.getSce().close();
+    serverNetworkPool.close();
+  }
+
+  public int getServerId() {
+    return spdzSetup.getNetConf().getMyId();
+  }
+
+  public ServerExecutor getServerExecutor() {
+    return serverExecutor;
+  }
+
+  /**
+   * Gives the metrics of the servers of all epochs. The time from an epoch being started until it
+   * is closed is recorded by the timer <code>epoch.session</code>.
+   *
+   * @return the metrics registry
+   */
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
+
+  private AbstractSessionEndPoint<GenericClientSession> createInputEndpoint(int epoch) {
+    SpdzResourcePool resourcePool = spdzSetup.getRp();
+    if (protocol == Protocol.DDNNT) {
+      return asGenericEndpoint(new DdnntClientInputSessionEndpoint(resourcePool,
+          resourcePool.getFieldDefinition(), inputParties.size(),
+          new EpochTripleDistributor(epoch)));
+    }
+    return new GenericClientSessionEndpoint(resourcePool, resourcePool.getFieldDefinition(),
+        inputParties.size());
+  }
+
+  /**
+   * Gives a DDNNT endpoint as the endpoint of generic sessions that {@link DdnntInputServer} takes,
+   * as it casts the sessions back to {@link
+   * dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntClientInputSession} itself.
+   */
+  @SuppressWarnings("unchecked")
+  private static AbstractSessionEndPoint<GenericClientSession> asGenericEndpoint(
+      DdnntClientInputSessionEndpoint endpoint) {
+    return (AbstractSessionEndPoint<GenericClientSession>) (AbstractSessionEndPoint<?>) endpoint;
+  }
+
+  private Epoch open(int number) {
+    logger.info("S{}: Starting epoch {}", getServerId(), number);
+    ServerSessionProducer<SpdzResourcePool> sessions = new EpochSessionProducer(number);
+    InputServer inputServer = null;
+    if (inputRegistration != null) {
+      inputServer = inputServerProducer.apply(inputRegistration.getEndpoint(number), sessions);
+    }
+    OutputServer<SInt> outputServer = null;
+    if (outputRegistration != null) {
+      outputServer = outputServerProducer.apply(outputRegistration.getEndpoint(number), sessions);
+    }
+    return new Epoch(number, inputServer, outputServer);
+  }
+
+  private void awaitTurn(int epoch) {
+    synchronized (turnLock) {
+      while (turn < epoch) {
+        ExceptionConverter.safe(() -> {
+          turnLock.wait();
+          return null;
+        }, "Interrupted waiting for the turn of epoch " + epoch);
+      }
+    }
+  }
+
+  private void endTurn(int epoch) {
+    synchronized (turnLock) {
+      finished.add(epoch);
+      // Epochs closed out of order are skipped once the earlier epochs end
+      while (finished.remove(turn)) {
+        turn++;
+      }
+      turnLock.notifyAll();
+    }
+  }
+
+  /**
+   * A single epoch, taking input from the input parties and giving output to the output parties.
+   */
+  public class Epoch implements Closeable {
+
+    private final int number;
+    private final InputServer inputServer;
+    private final OutputServer<SInt> outputServer;
+    private final long started;
+    private boolean closed;
+
+    private Epoch(int number, InputServer inputServer, OutputServer<SInt> outputServer) {
+      this.number = number;
+      this.inputServer = inputServer;
+      this.outputServer = outputServer;
+      this.started = epochTimer.start();
+    }
+
+    public int getNumber() {
+      return number;
+    }
+
+    public InputServer getInputServer() {
+      return inputServer;
+    }
+
+    public OutputServer<SInt> getOutputServer() {
+      return outputServer;
+    }
+
+    /**
+     * Receives the inputs of the clients of this epoch and returns this server's shares of them.
+     *
+     * @return map of client ID to this server's shares of input
+     */
+    public Map<Integer, List<SInt>> receiveInputs() {
+      if (inputServer == null) {
+        return Collections.emptyMap();
+      }
+      return ExceptionConverter.safe(() -> inputServer.getClientInputs().get(),
+          "Input step failed");
+    }
+
+    /**
+     * Sends shares of secrets to an output party of this epoch.
+     */
+    public void sendOutputsTo(int receiverId, List<SInt> outputs) {
+      outputServer.putClientOutputs(receiverId, outputs);
+    }
+
+    /**
+     * Executes an MPC application in this epoch, once the earlier epochs are closed.
+     *
+     * @param app the application
+     * @param <T> the return type of the application
+     * @return the result
+     */
+    public <T> T run(Application<T, ProtocolBuilderNumeric> app) {
+      awaitTurn(number);
+      CloseableNetwork network =
+          serverNetworkPool.lease(MultiplexedServerNetwork.APPLICATION_CHANNEL);
+      try {
+        return spdzSetup.getSce().runApplication(app, spdzSetup.getRp(), network);
+      } finally {
+        ExceptionConverter.safe(() -> {
+          network.close();
+          return null;
+        }, "Failed to return application channel");
+      }
+    }
+
+    /**
+     * Ends this epoch, letting the next epoch use the resource pool. The outputs must have been
+     * sent to all output parties before.
+     */
+    @Override
+    public synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      endTurn(number);
+      if (inputServer != null) {
+        inputRegistration.removeEndpoint(number);
+        closeQuietly(inputServer.getSession());
+      }
+      if (outputServer != null) {
+        outputRegistration.removeEndpoint(number);
+        closeQuietly(outputServer.getSession());
+      }
+      epochTimer.stop(started);
+      logger.info("S{}: Closed epoch {}", getServerId(), number);
+    }
+
+    private void closeQuietly(ServerSession<?> session) {
+      try {
+        session.close();
+      } catch (RuntimeException e) {
+        logger.warn("Failed to close the network of epoch " + number, e);
+      }
+    }
+  }
+
+  /**
+   * Takes the triples of the clients of an epoch, in turn with the other epochs so all servers take
+   * the triples in the same order. The triples are taken from the prefetcher or the triple file if
+   * there is one, and otherwise from the resource pool.
+   */
+  private class EpochTripleDistributor implements TripleDistributor {
+
+    private final int epoch;
+
+    EpochTripleDistributor(int epoch) {
+      this.epoch = epoch;
+    }
+
+    @Override
+    public void reserve(int amount) {
+      if (tripleSource != null) {
+        tripleSource.reserve(amount);
+      }
+    }
+
+    @Override
+    public List<DdnntInputTuple> getTriples(int amount) {
+      awaitTurn(epoch);
+      if (tripleSource != null) {
+        return tripleSource.getTriples(amount);
+      }
+      SpdzResourcePool resourcePool = spdzSetup.getRp();
+      List<DdnntInputTuple> tuples = new ArrayList<>(amount);
+      for (int i = 0; i < amount; i++) {
+        tuples.add(DdnntClientInputSessionEndpoint.nextSpdzTuple(resourcePool));
+      }
+      return tuples;
+    }
+  }
+
+  /**
+   * Produces the sessions of the servers of an epoch, running their MPC applications in turn.
+   */
+  private class EpochSessionProducer implements ServerSessionProducer<SpdzResourcePool> {
+
+    private final int epoch;
+
+    EpochSessionProducer(int epoch) {
+      this.epoch = epoch;
+    }
+
+    @Override
+    public ServerSession<SpdzResourcePool> next() {
+      ServerSessionImpl<SpdzResourcePool> session = serverSessionProducer.next();
+      return new ServerSessionImpl<>(session.getNetwork(), session.getResourcePool(),
+          new EpochSce(epoch, session.getSce()));
+    }
+
+    @Override
+    public ExecutorFactory getExecutorFactory() {
+      return serverSessionProducer.getExecutorFactory();
+    }
+
+    @Override
+    public MetricsRegistry getMetrics() {
+      return serverSessionProducer.getMetrics();
+    }
+  }
+
+  /**
+   * Runs applications only once it is the turn of an epoch.
+   */
+  private class EpochSce
+      implements SecureComputationEngine<SpdzResourcePool, ProtocolBuilderNumeric> {
+
+    private final int epoch;
+    private final SecureComputationEngine<SpdzResourcePool, ProtocolBuilderNumeric> sce;
+
+    EpochSce(int epoch, SecureComputationEngine<SpdzResourcePool, ProtocolBuilderNumeric> sce) {
+      this.epoch = epoch;
+      this.sce = sce;
+    }
+
+    @Override
+    public <OutputT> OutputT runApplication(
+        Application<OutputT, ProtocolBuilderNumeric> application, SpdzResourcePool resourcePool,
+        Network network, Duration timeout) {
+      awaitTurn(epoch);
+      return sce.runApplication(application, resourcePool, network, timeout);
+    }
+
+    @Override
+    public <OutputT> Future<OutputT> startApplication(
+        Application<OutputT, ProtocolBuilderNumeric> application, SpdzResourcePool resourcePool,
+        Network network) {
+      awaitTurn(epoch);
+      return sce.startApplication(application, resourcePool, network);
+    }
+
+    @Override
+    public void setup() {
+      sce.setup();
+    }
+
+    @Override
+    public void close() {
+      sce.close();
+    }
+  }
+
+}
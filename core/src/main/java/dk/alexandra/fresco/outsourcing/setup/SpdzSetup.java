@@ -203,6 +203,9 @@ public class SpdzSetup implements SuiteSetup<SpdzResourcePool, ProtocolBuilderNu
   /**
    * Returns map of party IDs to ports used for running MPC applications.
    *
+   * <p>Note that {@link SpdzWithIO} runs MPC applications over the connections using the internal
+   * ports, so only client facing and internal ports are needed for it.</p>
+   *
    * <p>By convention these will be ports at 2 * numServers to 3 * numServers in {@code
    * freePorts}.</p>
    */
@@ -212,8 +215,13 @@ public class SpdzSetup implements SuiteSetup<SpdzResourcePool, ProtocolBuilderNu
 
   private static Map<Integer, Integer> getPortMap(List<Integer> freePorts, int numServers,
       int offset) {
-    if (!(freePorts.size() / numServers == 3 && freePorts.size() % numServers == 0)) {
-      throw new IllegalArgumentException("Number of ports must be exactly 3 * number of servers.");
+    int portsPerServer = freePorts.size() / numServers;
+    if (!((portsPerServer == 2 || portsPerServer == 3) && freePorts.size() % numServers == 0)) {
+      throw new IllegalArgumentException(
+          "Number of ports must be exactly 2 or 3 * number of servers.");
+    }
+    if (offset + numServers > freePorts.size()) {
+      throw new IllegalArgumentException("Not enough ports for the requested port map.");
     }
     Map<Integer, Integer> ports = new HashMap<>(numServers);
     for (int i = 1; i <= numServers; i++) {
@@ -2,22 +2,41 @@ package dk.alexandra.fresco.outsourcing.setup;
 
 import dk.alexandra.fresco.framework.Application;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
-import dk.alexandra.fresco.framework.network.socket.SocketNetwork;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
 import dk.alexandra.fresco.framework.util.ExceptionConverter;
 import dk.alexandra.fresco.framework.util.Pair;
 import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.MappedFileTripleDistributor;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.PrefetchingTripleDistributor;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.TripleDistributor;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.TripleFileWriter;
+import dk.alexandra.fresco.outsourcing.field.FieldType;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.MultiplexedServerNetwork;
+import dk.alexandra.fresco.outsourcing.network.ServerNetworkPool;
 import dk.alexandra.fresco.outsourcing.server.InputServer;
+import dk.alexandra.fresco.outsourcing.server.OpenAdmission;
 import dk.alexandra.fresco.outsourcing.server.OutputServer;
+import dk.alexandra.fresco.outsourcing.server.ServerExecutor;
 import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputServer;
 import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntOutputServer;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.SpdzDdnntTuple;
 import dk.alexandra.fresco.outsourcing.server.jno.JnoInputServer;
 import dk.alexandra.fresco.outsourcing.server.jno.JnoOutputServer;
 import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
 import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.InputServerProducer;
 import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.OutputServerProducer;
+import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzTriple;
+import java.io.Closeable;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -39,23 +58,29 @@ public class SpdzWithIO {
   }
 
 
-  protected final Map<Integer, Integer> applicationPorts;
   protected final Map<Integer, String> partiesToIps;
   protected final SpdzSetup spdzSetup;
+  protected final ServerNetworkPool serverNetworkPool;
+  protected final ServerExecutor serverExecutor;
+  protected final MetricsRegistry metrics;
   protected final InputServer inputServer;
   protected final OutputServer outputServer;
+  protected final TripleDistributor tripleSource;
 
   // TODO clean up all the constructors
   /**
    * Creates new {@link SpdzWithIO}.
    *
-   * <p>Note that the plethora of ports is necessary because FRESCO doesn't have a channeled
-   * network implementation. Once that is in place, a single port per server can be used.</p>
+   * <p>Each server needs one port for IO with clients, and one port for communicating with the
+   * other servers. All communication between the servers, i.e., the IO protocols and running MPC
+   * applications, is done over a single connection between each pair of servers, so the
+   * application ports are not used. Further options are available through {@link
+   * #builder(int, Map, Map)}.</p>
    *
    * @param serverId Id of this server
    * @param clientFacingPorts ports to be used by IO with clients
-   * @param internalPorts ports to be used internally between servers for IO protocols
-   * @param applicationPorts ports to be used for running MPC applications
+   * @param internalPorts ports to be used internally between servers
+   * @param applicationPorts not used, as applications run over the internal connections
    * @param inputParties IDs of parties contributing inputs (empty means no inputs)
    * @param outputParties IDs of parties receiving outputs (empty means no outputs)
    */
@@ -68,15 +93,10 @@ public class SpdzWithIO {
       List<Integer> outputParties) {
     // TODO check that all required ports are available
     // TODO handle non-localhost addresses
-    this.applicationPorts = applicationPorts;
-    this.spdzSetup = SpdzSetupUtils.getSetup(serverId, clientFacingPorts);
-    Pair<InputServer, OutputServer> io = SpdzSetupUtils.initDdnntIOServers(spdzSetup,
-        inputParties, outputParties, internalPorts, SpdzSetupUtils.getLocalhostMap(internalPorts),
-        ((endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer)),
-        ((endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)));
-    this.inputServer = io.getFirst();
-    this.outputServer = io.getSecond();
-    this.partiesToIps = SpdzSetupUtils.getLocalhostMap(internalPorts);
+    this(builder(serverId, clientFacingPorts, internalPorts)
+        .inputParties(inputParties)
+        .outputParties(outputParties)
+        .protocol(Protocol.DDNNT));
   }
 
   public SpdzWithIO(
@@ -109,27 +129,15 @@ public class SpdzWithIO {
       BigInteger modulus,
       boolean dummy,
       Protocol protocol) {
-    this.partiesToIps = partiesToIps;
-    this.applicationPorts = applicationPorts;
-    if (dummy) {
-      this.spdzSetup = SpdzSetupUtils.getSetup(serverId, clientFacingPorts, partiesToIps,
-          modulus);
-    } else {
-      this.spdzSetup = SpdzSetupUtils.getMascotSetup(serverId, clientFacingPorts, partiesToIps,
-          modulus.bitLength()-SpdzSetupUtils.DEFAULT_STATPAR);
-    }
-    Pair<InputServer, OutputServer> io;
-    if (protocol == Protocol.DDNNT) {
-      io = SpdzSetupUtils.initDdnntIOServers(spdzSetup, inputParties, outputParties, internalPorts,
-          partiesToIps,
-          ((endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer)),
-          ((endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)));
-    } else {
-      io = SpdzSetupUtils.initIOServers(spdzSetup, inputParties, outputParties, internalPorts,
-          partiesToIps, inputServerProducer, outputServerProducer);
-    }
-    this.inputServer = io.getFirst();
-    this.outputServer = io.getSecond();
+    this(builder(serverId, clientFacingPorts, internalPorts)
+        .inputParties(inputParties)
+        .outputParties(outputParties)
+        .partiesToIps(partiesToIps)
+        .inputServerProducer(inputServerProducer)
+        .outputServerProducer(outputServerProducer)
+        .modulus(modulus)
+        .dummy(dummy)
+        .protocol(protocol));
   }
 
   public SpdzWithIO(
@@ -145,9 +153,9 @@ public class SpdzWithIO {
       int bitLength,
       boolean dummy,
       Protocol protocol) {
-  this(serverId, clientFacingPorts, internalPorts, applicationPorts, inputParties, outputParties,
-      partiesToIps, inputServerProducer, outputServerProducer,
-      SpdzSetupUtils.getFieldDefinition(bitLength).getModulus(), dummy, protocol);
+    this(serverId, clientFacingPorts, internalPorts, applicationPorts, inputParties,
+        outputParties, partiesToIps, inputServerProducer, outputServerProducer,
+        SpdzSetupUtils.getFieldDefinition(bitLength).getModulus(), dummy, protocol);
   }
 
   /**
@@ -155,7 +163,7 @@ public class SpdzWithIO {
    *  @param serverId Id of this server
    * @param numServers total number of servers
    * @param basePort the base FRESCO port, if running on same machine all ports in range {@code
- * basePort} to {@code basePort} + 3 * {@code numServers} must be available
+ * basePort} to {@code basePort} + 2 * {@code numServers} must be available
    * @param inputParties all client parties that will contribute input
    * @param outputParties all client parties that will receive outputs
    */
@@ -167,18 +175,14 @@ public class SpdzWithIO {
       List<Integer> outputParties,
       Map<Integer, String> partiesToIps,
       int bitLength) {
-    this(serverId,
+    this(builder(serverId,
         SpdzSetup.getClientFacingPorts(contiguousPorts(basePort, numServers), numServers),
-        SpdzSetup.getInternalPorts(contiguousPorts(basePort, numServers), numServers),
-        SpdzSetup.getApplicationPorts(contiguousPorts(basePort, numServers), numServers),
-        inputParties,
-        outputParties,
-        partiesToIps,
-        ((endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer)),
-        ((endpoint, sessionProducer) -> new JnoOutputServer<>(endpoint, sessionProducer)),
-        bitLength,
-        true, Protocol.GENERIC
-    );
+        SpdzSetup.getInternalPorts(contiguousPorts(basePort, numServers), numServers))
+        .inputParties(inputParties)
+        .outputParties(outputParties)
+        .partiesToIps(partiesToIps)
+        .bitLength(bitLength)
+        .protocol(Protocol.GENERIC));
   }
 
   public SpdzWithIO(
@@ -193,18 +197,17 @@ public class SpdzWithIO {
       int bitLength,
       boolean dummy,
       Protocol protocol) {
-    this(serverId,
+    this(builder(serverId,
         SpdzSetup.getClientFacingPorts(contiguousPorts(basePort, numServers), numServers),
-        SpdzSetup.getInternalPorts(contiguousPorts(basePort, numServers), numServers),
-        SpdzSetup.getApplicationPorts(contiguousPorts(basePort, numServers), numServers),
-        inputParties,
-        outputParties,
-        partiesToIps,
-        inputServerProducer,
-        outputServerProducer,
-        bitLength,
-        dummy, protocol
-    );
+        SpdzSetup.getInternalPorts(contiguousPorts(basePort, numServers), numServers))
+        .inputParties(inputParties)
+        .outputParties(outputParties)
+        .partiesToIps(partiesToIps)
+        .inputServerProducer(inputServerProducer)
+        .outputServerProducer(outputServerProducer)
+        .bitLength(bitLength)
+        .dummy(dummy)
+        .protocol(protocol));
   }
 
   /**
@@ -213,7 +216,7 @@ public class SpdzWithIO {
    * @param serverId Id of this server
    * @param numServers total number of servers
    * @param basePort the base FRESCO port, if running on same machine all ports in range {@code
-   * basePort} to {@code basePort} + 3 * {@code numServers} must be available
+   * basePort} to {@code basePort} + 2 * {@code numServers} must be available
    * @param inputParties all client parties that will contribute input
    * @param outputParties all client parties that will receive outputs
    */
@@ -223,13 +226,12 @@ public class SpdzWithIO {
       int basePort,
       List<Integer> inputParties,
       List<Integer> outputParties) {
-    this(serverId,
+    this(builder(serverId,
         SpdzSetup.getClientFacingPorts(contiguousPorts(basePort, numServers), numServers),
-        SpdzSetup.getInternalPorts(contiguousPorts(basePort, numServers), numServers),
-        SpdzSetup.getApplicationPorts(contiguousPorts(basePort, numServers), numServers),
-        inputParties,
-        outputParties
-    );
+        SpdzSetup.getInternalPorts(contiguousPorts(basePort, numServers), numServers))
+        .inputParties(inputParties)
+        .outputParties(outputParties)
+        .protocol(Protocol.DDNNT));
   }
 
   /**
@@ -240,6 +242,67 @@ public class SpdzWithIO {
     this(serverId, 3, DEFAULT_FRESCO_BASE_PORT, inputParties, outputParties);
   }
 
+  private SpdzWithIO(Builder builder) {
+    this.partiesToIps = builder.getPartiesToIps();
+    this.spdzSetup = builder.createSetup();
+    this.serverNetworkPool = builder.createServerNetworkPool();
+    this.serverExecutor = builder.getServerExecutor();
+    this.metrics = createMetrics(serverExecutor);
+    this.tripleSource = builder.createTripleSource(spdzSetup, serverNetworkPool);
+    List<Integer> inputParties = builder.inputParties;
+    OpenAdmission inputAdmission = builder.inputAdmission;
+    List<Integer> outputParties = builder.outputParties;
+    Pair<InputServer, OutputServer> io;
+    if (tripleSource != null && inputAdmission != null) {
+      io = SpdzSetupUtils.initDdnntIOServers(spdzSetup, inputAdmission, outputParties,
+          serverNetworkPool,
+          ((endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer)),
+          ((endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)),
+          serverExecutor, metrics, tripleSource);
+    } else if (tripleSource != null) {
+      io = SpdzSetupUtils.initDdnntIOServers(spdzSetup, inputParties, outputParties,
+          serverNetworkPool,
+          ((endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer)),
+          ((endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)),
+          serverExecutor, metrics, tripleSource);
+    } else if (inputAdmission != null && builder.protocol == Protocol.DDNNT) {
+      io = SpdzSetupUtils.initDdnntIOServers(spdzSetup, inputAdmission, outputParties,
+          serverNetworkPool,
+          ((endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer)),
+          ((endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)),
+          serverExecutor, metrics);
+    } else if (inputAdmission != null) {
+      io = SpdzSetupUtils.initIOServers(spdzSetup, inputAdmission, outputParties,
+          serverNetworkPool, builder.inputServerProducer, builder.outputServerProducer,
+          serverExecutor, metrics);
+    } else if (builder.protocol == Protocol.DDNNT) {
+      io = SpdzSetupUtils.initDdnntIOServers(spdzSetup, inputParties, outputParties,
+          serverNetworkPool,
+          ((endpoint, sessionProducer) -> new DdnntInputServer<>(endpoint, sessionProducer)),
+          ((endpoint, sessionProducer) -> new DdnntOutputServer(endpoint, sessionProducer)),
+          serverExecutor, metrics);
+    } else {
+      io = SpdzSetupUtils.initIOServers(spdzSetup, inputParties, outputParties, serverNetworkPool,
+          builder.inputServerProducer, builder.outputServerProducer, serverExecutor, metrics);
+    }
+    this.inputServer = io.getFirst();
+    this.outputServer = io.getSecond();
+  }
+
+  /**
+   * Returns a new {@link Builder} of a server, for configuring the options not covered by the
+   * constructors.
+   *
+   * @param serverId Id of this server
+   * @param clientFacingPorts ports to be used by IO with clients
+   * @param serverPorts ports to be used internally between servers
+   * @return a new Builder
+   */
+  public static Builder builder(int serverId, Map<Integer, Integer> clientFacingPorts,
+      Map<Integer, Integer> serverPorts) {
+    return new Builder(serverId, clientFacingPorts, serverPorts);
+  }
+
   /**
    * Receives client inputs and returns this server's shares of the input.
    *
@@ -265,24 +328,31 @@ public class SpdzWithIO {
    * @return the result
    */
   public <T> T run(Application<T, ProtocolBuilderNumeric> app) {
-    SocketNetwork network = new SocketNetwork(
-        SpdzSetupUtils
-            .getNetConf(getServerId(), applicationPorts, partiesToIps));
-    T res = spdzSetup
-        .getSce()
-        .runApplication(
-            app,
-            spdzSetup.getRp(),
-            network);
-    network.close();
-    return res;
+    CloseableNetwork network =
+        serverNetworkPool.lease(MultiplexedServerNetwork.APPLICATION_CHANNEL);
+    try {
+      return spdzSetup
+          .getSce()
+          .runApplication(
+              app,
+              spdzSetup.getRp(),
+              network);
+    } finally {
+      ExceptionConverter.safe(() -> {
+        network.close();
+        return null;
+      }, "Failed to return application channel");
+    }
   }
 
   /**
    * Shuts down all underlying resources.
    */
   public void shutdown() {
+    closeTripleSource(tripleSource);
+    serverExecutor.close();
     spdzSetup.getSce().close();
+    serverNetworkPool.close();
   }
 
   public int getServerId() {
@@ -299,9 +369,346 @@ public class SpdzWithIO {
     return outputServer;
   }
 
+  public ServerExecutor getServerExecutor() {
+    return serverExecutor;
+  }
+
+  /**
+   * Gives the metrics of the input and output servers, and of the server executor. They can be
+   * exposed by, e.g., a {@link dk.alexandra.fresco.outsourcing.metrics.JmxReporter}.
+   *
+   * @return the metrics registry
+   */
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
+
+  static MetricsRegistry createMetrics(ServerExecutor serverExecutor) {
+    MetricsRegistry metrics = new MetricsRegistry();
+    metrics.gauge("executor.activeThreads", serverExecutor::getActiveThreads);
+    metrics.gauge("executor.queuedTasks", serverExecutor::getQueuedTasks);
+    metrics.gauge("executor.completedTasks", serverExecutor::getCompletedTasks);
+    metrics.gauge("executor.blockedSubmissions", serverExecutor::getBlockedSubmissions);
+    return metrics;
+  }
+
+  /**
+   * Closes the source of the triples of the input clients, if it holds any resources.
+   */
+  static void closeTripleSource(TripleDistributor tripleSource) {
+    if (tripleSource instanceof Closeable) {
+      ExceptionConverter.safe(() -> {
+        ((Closeable) tripleSource).close();
+        return null;
+      }, "Failed to close the triple source");
+    }
+  }
+
   private static List<Integer> contiguousPorts(int basePort, int numServers) {
-    return IntStream.range(basePort + 1, basePort + 1 + 3 * numServers).boxed()
+    return IntStream.range(basePort + 1, basePort + 1 + 2 * numServers).boxed()
         .collect(Collectors.toList());
   }
 
+  /**
+   * Builder class used to configure a server, using default values for the options not given.
+   *
+   * <p>By default the server uses dummy preprocessing, computes in the field of {@link
+   * SpdzSetupUtils#DEFAULT_MPC_MODULUS} using {@link FieldType#BIG_INTEGER}, serves the clients
+   * using the DDNNT protocol on a new {@link ServerExecutor}, and has no input or output
+   * parties.</p>
+   */
+  public static class Builder {
+
+    private final int serverId;
+    private final Map<Integer, Integer> clientFacingPorts;
+    private final Map<Integer, Integer> serverPorts;
+    private List<Integer> inputParties = Collections.emptyList();
+    private OpenAdmission inputAdmission;
+    private List<Integer> outputParties = Collections.emptyList();
+    private Map<Integer, String> partiesToIps;
+    // The SPDZ suite supports inputting the shares of the clients in bulk
+    private InputServerProducer inputServerProducer =
+        (endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer,
+            sessionProducer.getExecutorFactory(), true);
+    private OutputServerProducer outputServerProducer =
+        (endpoint, sessionProducer) -> new JnoOutputServer<>(endpoint, sessionProducer,
+            sessionProducer.getExecutorFactory(), true);
+    private BigInteger modulus = SpdzSetupUtils.DEFAULT_MPC_MODULUS;
+    private boolean dummy = true;
+    private Protocol protocol = Protocol.DDNNT;
+    private FieldType fieldType = FieldType.BIG_INTEGER;
+    private ServerExecutor serverExecutor;
+    private boolean prefetchTriples;
+    private Path tripleFile;
+
+    Builder(int serverId, Map<Integer, Integer> clientFacingPorts,
+        Map<Integer, Integer> serverPorts) {
+      this.serverId = serverId;
+      this.clientFacingPorts = Objects.requireNonNull(clientFacingPorts);
+      this.serverPorts = Objects.requireNonNull(serverPorts);
+    }
+
+    /**
+     * Sets the IDs of the parties contributing inputs.
+     */
+    public Builder inputParties(List<Integer> inputParties) {
+      this.inputParties = Objects.requireNonNull(inputParties);
+      return this;
+    }
+
+    /**
+     * Admits input clients until an admission policy closes, rather than waiting for a list of
+     * input parties known in advance.
+     *
+     * <p>Server 1 closes the admission by the policy, and the inputs of the clients admitted until
+     * then are received by {@link #receiveInputs()}. Any client not among the output parties is an
+     * input client. Clients connecting after the admission has closed are turned away.</p>
+     */
+    public Builder inputAdmission(OpenAdmission inputAdmission) {
+      this.inputAdmission = Objects.requireNonNull(inputAdmission);
+      return this;
+    }
+
+    /**
+     * Sets the IDs of the parties receiving outputs.
+     */
+    public Builder outputParties(List<Integer> outputParties) {
+      this.outputParties = Objects.requireNonNull(outputParties);
+      return this;
+    }
+
+    /**
+     * Sets the addresses of the servers, which are all on localhost by default.
+     */
+    public Builder partiesToIps(Map<Integer, String> partiesToIps) {
+      this.partiesToIps = Objects.requireNonNull(partiesToIps);
+      return this;
+    }
+
+    /**
+     * Sets the producer of the input server, which is used unless the protocol is DDNNT. May be
+     * null if there are no input parties.
+     */
+    public Builder inputServerProducer(InputServerProducer inputServerProducer) {
+      this.inputServerProducer = inputServerProducer;
+      return this;
+    }
+
+    /**
+     * Sets the producer of the output server, which is used unless the protocol is DDNNT. May be
+     * null if there are no output parties.
+     */
+    public Builder outputServerProducer(OutputServerProducer outputServerProducer) {
+      this.outputServerProducer = outputServerProducer;
+      return this;
+    }
+
+    /**
+     * Sets the modulus of the field computed in.
+     */
+    public Builder modulus(BigInteger modulus) {
+      this.modulus = Objects.requireNonNull(modulus);
+      return this;
+    }
+
+    /**
+     * Sets the modulus of the field computed in by the bit length of the values computed on, see
+     * {@link SpdzSetupUtils#getFieldDefinition(int)}.
+     */
+    public Builder bitLength(int bitLength) {
+      return modulus(SpdzSetupUtils.getFieldDefinition(bitLength).getModulus());
+    }
+
+    /**
+     * Sets whether to use dummy preprocessing rather than MASCOT.
+     */
+    public Builder dummy(boolean dummy) {
+      this.dummy = dummy;
+      return this;
+    }
+
+    /**
+     * Sets the client IO protocol.
+     */
+    public Builder protocol(Protocol protocol) {
+      this.protocol = Objects.requireNonNull(protocol);
+      return this;
+    }
+
+    /**
+     * Sets the implementation of the field arithmetic, which must be the same on all servers.
+     */
+    public Builder fieldType(FieldType fieldType) {
+      this.fieldType = Objects.requireNonNull(fieldType);
+      return this;
+    }
+
+    /**
+     * Sets the executor running the communication with the clients of all input and output
+     * servers. The executor is shut down by {@link #shutdown()}.
+     */
+    public Builder serverExecutor(ServerExecutor serverExecutor) {
+      this.serverExecutor = Objects.requireNonNull(serverExecutor);
+      return this;
+    }
+
+    /**
+     * Sets whether to generate the triples of the DDNNT input clients ahead of demand.
+     *
+     * <p>If the triples are prefetched, a {@link PrefetchingTripleDistributor} generates them on a
+     * thread of its own as soon as the clients register, so serving the clients does not wait for
+     * the triples to be generated. The data supplier of the computations is not thread safe, so the
+     * triples are taken from a data supplier of their own with the same MAC key. With MASCOT, this
+     * is another MASCOT instance generating triples over a channel of its own between the servers,
+     * see {@link SpdzSetupUtils#getMascotTripleSupplier}.</p>
+     */
+    public Builder prefetchTriples(boolean prefetchTriples) {
+      this.prefetchTriples = prefetchTriples;
+      return this;
+    }
+
+    /**
+     * Sets a file of tuples generated offline, to serve the triples of the DDNNT input clients
+     * from, see {@link MappedFileTripleDistributor}.
+     *
+     * <p>The tuples are only valid under the MAC key they were generated with. With MASCOT, this
+     * server's share of the MAC key is therefore restored from the file, see {@link
+     * SpdzSetupUtils#getMascotSetup(int, Map, Map, int, FieldType, Path)}. The tuples are written
+     * offline by {@link TripleFileWriter#generate} from a resource pool set up the same way, with
+     * the same file, and all servers must start out with files in the same state. A file generated
+     * with another MAC key is rejected.</p>
+     */
+    public Builder tripleFile(Path tripleFile) {
+      this.tripleFile = Objects.requireNonNull(tripleFile);
+      return this;
+    }
+
+    /**
+     * Builds the server, which connects to the other servers, so the servers must be built
+     * concurrently.
+     *
+     * @return the server
+     */
+    public SpdzWithIO build() {
+      checkTripleSource();
+      if (inputAdmission != null && !inputParties.isEmpty()) {
+        throw new IllegalArgumentException(
+            "Input clients are given either by an admission or by a list of input parties");
+      }
+      return new SpdzWithIO(this);
+    }
+
+    /**
+     * Builds a {@link PipelinedSpdzWithIO} server, serving the input and output parties once in
+     * each epoch. As each epoch has a fixed number of input clients, an input admission can not be
+     * used.
+     *
+     * @return the server
+     */
+    public PipelinedSpdzWithIO buildPipelined() {
+      checkTripleSource();
+      if (inputAdmission != null) {
+        throw new IllegalArgumentException("A pipelined server needs a list of input parties");
+      }
+      return new PipelinedSpdzWithIO(this);
+    }
+
+    private void checkTripleSource() {
+      if (prefetchTriples && protocol != Protocol.DDNNT) {
+        throw new IllegalArgumentException("Prefetching triples needs the DDNNT protocol");
+      }
+      if (tripleFile != null && protocol != Protocol.DDNNT) {
+        throw new IllegalArgumentException("A triple file needs the DDNNT protocol");
+      }
+      if (tripleFile != null && prefetchTriples) {
+        throw new IllegalArgumentException("Triples are either prefetched or read from a file");
+      }
+    }
+
+    int getServerId() {
+      return serverId;
+    }
+
+    List<Integer> getInputParties() {
+      return inputParties;
+    }
+
+    List<Integer> getOutputParties() {
+      return outputParties;
+    }
+
+    InputServerProducer getInputServerProducer() {
+      return inputServerProducer;
+    }
+
+    OutputServerProducer getOutputServerProducer() {
+      return outputServerProducer;
+    }
+
+    Protocol getProtocol() {
+      return protocol;
+    }
+
+    Map<Integer, String> getPartiesToIps() {
+      return partiesToIps == null ? SpdzSetupUtils.getLocalhostMap(serverPorts) : partiesToIps;
+    }
+
+    /**
+     * Gives the executor set, or a new executor if none was set, so this is called once per server.
+     */
+    ServerExecutor getServerExecutor() {
+      return serverExecutor == null ? new ServerExecutor() : serverExecutor;
+    }
+
+    SpdzSetup createSetup() {
+      if (dummy) {
+        return SpdzSetupUtils.getSetup(serverId, clientFacingPorts, getPartiesToIps(), modulus,
+            fieldType);
+      }
+      if (tripleFile != null) {
+        return SpdzSetupUtils.getMascotSetup(serverId, clientFacingPorts, getPartiesToIps(),
+            getMascotBitLength(), fieldType, tripleFile);
+      }
+      return SpdzSetupUtils.getMascotSetup(serverId, clientFacingPorts, getPartiesToIps(),
+          getMascotBitLength(), fieldType);
+    }
+
+    ServerNetworkPool createServerNetworkPool() {
+      return new ServerNetworkPool(
+          SpdzSetupUtils.getNetConf(serverId, serverPorts, getPartiesToIps()));
+    }
+
+    /**
+     * Creates the source of the triples of the input clients, or null if the triples are taken
+     * from the data supplier of the resource pool. With MASCOT, a prefetcher runs its seed OTs with
+     * the other servers.
+     */
+    TripleDistributor createTripleSource(SpdzSetup spdzSetup,
+        ServerNetworkPool serverNetworkPool) {
+      SpdzResourcePool resourcePool = spdzSetup.getRp();
+      FieldElement sskShare = resourcePool.getDataSupplier().getSecretSharedKey();
+      if (tripleFile != null) {
+        return ExceptionConverter.safe(() -> new MappedFileTripleDistributor(tripleFile,
+            resourcePool.getFieldDefinition(), sskShare), "Failed to open " + tripleFile);
+      }
+      if (!prefetchTriples) {
+        return null;
+      }
+      Supplier<SpdzTriple> triples;
+      if (dummy) {
+        triples = SpdzSetupUtils.getDummyTripleSupplier(serverId, resourcePool.getNoOfParties(),
+            resourcePool.getFieldDefinition(), sskShare);
+      } else {
+        triples = SpdzSetupUtils.getMascotTripleSupplier(serverId, resourcePool.getNoOfParties(),
+            resourcePool.getFieldDefinition(), getMascotBitLength(), sskShare,
+            serverNetworkPool.lease(MultiplexedServerNetwork.PREPROCESSING_CHANNEL));
+      }
+      return new PrefetchingTripleDistributor(() -> new SpdzDdnntTuple(triples.get()));
+    }
+
+    private int getMascotBitLength() {
+      return modulus.bitLength() - SpdzSetupUtils.DEFAULT_STATPAR;
+    }
+  }
+
 }
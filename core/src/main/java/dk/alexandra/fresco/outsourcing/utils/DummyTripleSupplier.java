@@ -0,0 +1,84 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzTriple;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Supplies dummy multiplication triples drawn from a given seed.
+ *
+ * <p>
+ * All servers draw the same values and the shares of all servers from the seed, and keep their own
+ * share. The MAC share of a value is the value times the share of the MAC key of this server, as
+ * for {@link dk.alexandra.fresco.suite.spdz.storage.SpdzDummyDataSupplier}. Unlike that supplier,
+ * which always uses the same seed, the triples are therefore not the ones the resource pool uses
+ * if the seed is different.
+ * </p>
+ */
+class DummyTripleSupplier implements Supplier<SpdzTriple> {
+
+  private final int myId;
+  private final int parties;
+  private final FieldDefinition definition;
+  private final FieldElement sskShare;
+  private final BigInteger modulus;
+  private final Random random;
+
+  /**
+   * Constructs a new supplier.
+   *
+   * @param myId the id of this server
+   * @param parties the number of servers
+   * @param definition the field to supply triples of
+   * @param sskShare this server's share of the MAC key
+   * @param seed the seed, which must be the same on all servers
+   */
+  DummyTripleSupplier(int myId, int parties, FieldDefinition definition, FieldElement sskShare,
+      long seed) {
+    this.myId = myId;
+    this.parties = parties;
+    this.definition = definition;
+    this.sskShare = sskShare;
+    this.modulus = definition.getModulus();
+    this.random = new Random(seed);
+  }
+
+  @Override
+  public SpdzTriple get() {
+    BigInteger a = sample();
+    BigInteger b = sample();
+    BigInteger c = a.multiply(b).mod(modulus);
+    return new SpdzTriple(share(a), share(b), share(c));
+  }
+
+  private SpdzSInt share(BigInteger value) {
+    BigInteger share = null;
+    BigInteger sum = BigInteger.ZERO;
+    // The last server takes the value minus the shares of the others
+    for (int partyId = 1; partyId < parties; partyId++) {
+      BigInteger partyShare = sample();
+      if (partyId == myId) {
+        share = partyShare;
+      }
+      sum = sum.add(partyShare);
+    }
+    if (share == null) {
+      share = value.subtract(sum).mod(modulus);
+    }
+    return new SpdzSInt(definition.createElement(share),
+        definition.createElement(value).multiply(sskShare));
+  }
+
+  private BigInteger sample() {
+    BigInteger value;
+    do {
+      value = new BigInteger(modulus.bitLength(), random);
+    } while (value.compareTo(modulus) >= 0);
+    return value;
+  }
+
+}
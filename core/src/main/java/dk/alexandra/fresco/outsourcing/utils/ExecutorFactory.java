@@ -0,0 +1,74 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors used by the servers and clients to communicate with many parties at once,
+ * e.g., one task per client session.
+ *
+ * <p>
+ * The tasks mostly wait for the network, so the executors created should not bound the number of
+ * tasks running at once. By default, each task runs on a platform thread from a cached pool, see
+ * {@link #platformThreads()}. On Java 21 or later, {@link #virtualThreads()} runs each task on its
+ * own virtual thread instead, so a large number of concurrent sessions does not need as many
+ * operating system threads.
+ * </p>
+ */
+@FunctionalInterface
+public interface ExecutorFactory {
+
+  /**
+   * Creates a new executor. The caller is responsible for shutting it down.
+   *
+   * @param name the name of the threads running the tasks
+   * @return the executor
+   */
+  ExecutorService create(String name);
+
+  /**
+   * Gives a factory of cached thread pools of platform threads. Threads are reused for later tasks,
+   * and stopped after being idle for a while.
+   *
+   * @return the factory
+   */
+  static ExecutorFactory platformThreads() {
+    return name -> {
+      AtomicInteger count = new AtomicInteger();
+      return Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r);
+        t.setName(name + "-" + count.incrementAndGet());
+        return t;
+      });
+    };
+  }
+
+  /**
+   * Gives a factory of executors starting a new virtual thread for each task.
+   *
+   * <p>
+   * Virtual threads are daemon threads, so tasks that are not waited for, e.g., sending the last
+   * messages to clients, do not keep the JVM alive.
+   * </p>
+   *
+   * @return the factory
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  static ExecutorFactory virtualThreads() {
+    if (!isVirtualThreadsSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later, but "
+          + "running on Java " + System.getProperty("java.version"));
+    }
+    return VirtualThreadExecutors::newExecutor;
+  }
+
+  /**
+   * Checks if the JVM supports virtual threads, i.e., if {@link #virtualThreads()} can be used.
+   *
+   * @return true if virtual threads are supported
+   */
+  static boolean isVirtualThreadsSupported() {
+    return VirtualThreadExecutors.SUPPORTED;
+  }
+}
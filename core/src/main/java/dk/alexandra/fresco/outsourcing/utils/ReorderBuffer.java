@@ -0,0 +1,225 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A buffer releasing elements in the order of their sequence numbers, regardless of the order in
+ * which they are put.
+ *
+ * <p>
+ * The element of sequence number <i>s</i> is stored in slot <i>s</i> mod the capacity of a ring.
+ * Any number of threads may put elements concurrently, each claiming its slot by a compare-and-set,
+ * and a single consumer takes the elements in order as soon as the gaps before them are filled.
+ * Neither side takes a lock: the consumer parks while the next element is missing, and is unparked
+ * by the thread putting it. Elements a full ring or more ahead of the consumer are kept in a
+ * concurrent map until the consumer catches up, so putting an element never blocks.
+ * </p>
+ *
+ * <p>
+ * Sequence numbers start at zero, and each must be put exactly once.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ */
+public class ReorderBuffer<E> {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private final AtomicReferenceArray<E> slots;
+  private final int mask;
+  private final ConcurrentMap<Integer, E> overflow = new ConcurrentSkipListMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  // Only written by the consumer
+  private volatile int next;
+  private volatile Thread consumer;
+
+  /**
+   * Creates a buffer with a ring of {@value #DEFAULT_CAPACITY} slots.
+   */
+  public ReorderBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a buffer.
+   *
+   * @param capacity the number of slots of the ring, which is rounded up to a power of two
+   */
+  public ReorderBuffer(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was: " + capacity);
+    }
+    int ringSize = Integer.highestOneBit(capacity);
+    if (ringSize < capacity) {
+      ringSize <<= 1;
+    }
+    this.slots = new AtomicReferenceArray<>(ringSize);
+    this.mask = ringSize - 1;
+  }
+
+  /**
+   * Puts an element, waking up the consumer. This may be called by any number of threads.
+   *
+   * @param sequence the sequence number of the element
+   * @param element the element
+   * @throws IllegalArgumentException if the sequence number has already been put
+   */
+  public void put(int sequence, E element) {
+    Objects.requireNonNull(element);
+    int head = next;
+    if (sequence < head) {
+      throw new IllegalArgumentException("Sequence number " + sequence + " was already released");
+    }
+    size.incrementAndGet();
+    // The consumer empties a slot before moving past it, so a slot less than a ring ahead is free
+    boolean stored = sequence - head < slots.length()
+        ? slots.compareAndSet(sequence & mask, null, element)
+        : overflow.putIfAbsent(sequence, element) == null;
+    if (!stored) {
+      size.decrementAndGet();
+      throw new IllegalArgumentException("Sequence number " + sequence + " was already put");
+    }
+    Thread waiting = consumer;
+    if (waiting != null) {
+      LockSupport.unpark(waiting);
+    }
+  }
+
+  /**
+   * Takes the next element in sequence if it has been put. This must only be called by the
+   * consumer.
+   *
+   * @return the next element, or null if it has not been put yet
+   */
+  public E poll() {
+    int head = next;
+    int index = head & mask;
+    E element = slots.get(index);
+    if (element != null) {
+      slots.set(index, null);
+    } else {
+      element = overflow.remove(head);
+      if (element == null) {
+        return null;
+      }
+    }
+    next = head + 1;
+    size.decrementAndGet();
+    return element;
+  }
+
+  /**
+   * Takes the next element in sequence, waiting for it to be put if needed. This must only be
+   * called by the consumer.
+   *
+   * @return the next element
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public E take() throws InterruptedException {
+    await(() -> false);
+    return poll();
+  }
+
+  /**
+   * Waits until the next element in sequence has been put, or a condition holds. The condition is
+   * checked whenever an element is put, or the consumer is woken up by {@link #wakeUp()}. This must
+   * only be called by the consumer.
+   *
+   * @param done the condition to stop waiting on
+   * @return true if the next element has been put, false if the condition holds
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean await(BooleanSupplier done) throws InterruptedException {
+    consumer = Thread.currentThread();
+    try {
+      while (true) {
+        if (isAvailable()) {
+          return true;
+        }
+        if (done.getAsBoolean()) {
+          return false;
+        }
+        LockSupport.park(this);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+    } finally {
+      consumer = null;
+    }
+  }
+
+  /**
+   * Wakes up the consumer to check the condition it waits on, see {@link #await(BooleanSupplier)}.
+   */
+  public void wakeUp() {
+    Thread waiting = consumer;
+    if (waiting != null) {
+      LockSupport.unpark(waiting);
+    }
+  }
+
+  /**
+   * Tells if the next element in sequence has been put.
+   *
+   * @return true if the next element can be taken
+   */
+  public boolean isAvailable() {
+    return contains(next);
+  }
+
+  /**
+   * Gives the sequence number of the next element to be taken, i.e., the number of elements taken.
+   *
+   * @return the next sequence number
+   */
+  public int getNext() {
+    return next;
+  }
+
+  /**
+   * Gives the number of elements put, but not yet taken.
+   *
+   * @return the number of elements in the buffer
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Gives the number of elements that can be taken without waiting, i.e., the elements put in
+   * sequence from the next one. This is an estimate while elements are being put and taken.
+   *
+   * @return the number of elements ready
+   */
+  public int ready() {
+    int head = next;
+    int sequence = head;
+    while (contains(sequence)) {
+      sequence++;
+    }
+    return sequence - head;
+  }
+
+  /**
+   * Tells if the element of a sequence number has been put, but not yet taken.
+   *
+   * @param sequence the sequence number
+   * @return true if the element is in the buffer
+   */
+  public boolean contains(int sequence) {
+    int head = next;
+    if (sequence < head) {
+      return false;
+    }
+    return sequence - head < slots.length() && slots.get(sequence & mask) != null
+        || !overflow.isEmpty() && overflow.containsKey(sequence);
+  }
+
+}
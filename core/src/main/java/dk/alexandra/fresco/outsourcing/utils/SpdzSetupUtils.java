@@ -3,7 +3,6 @@ package dk.alexandra.fresco.outsourcing.utils;
 import dk.alexandra.fresco.framework.Party;
 import dk.alexandra.fresco.framework.builder.numeric.NumericResourcePool;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
-import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
 import dk.alexandra.fresco.framework.configuration.NetworkConfiguration;
@@ -17,16 +16,26 @@ import dk.alexandra.fresco.framework.sce.evaluator.BatchedStrategy;
 import dk.alexandra.fresco.framework.util.AesCtrDrbg;
 import dk.alexandra.fresco.framework.util.AesCtrDrbgFactory;
 import dk.alexandra.fresco.framework.util.Drbg;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
 import dk.alexandra.fresco.framework.util.ModulusFinder;
 import dk.alexandra.fresco.framework.util.OpenedValueStoreImpl;
 import dk.alexandra.fresco.framework.util.Pair;
+import dk.alexandra.fresco.framework.value.SInt;
 import dk.alexandra.fresco.outsourcing.client.AbstractSessionEndPoint;
 import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
 import dk.alexandra.fresco.outsourcing.client.GenericClientSessionEndpoint;
 import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntClientInputSessionEndpoint;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.MappedFileTripleDistributor;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.TripleDistributor;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.TripleFileWriter;
+import dk.alexandra.fresco.outsourcing.field.FieldType;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.ServerNetworkPool;
+import dk.alexandra.fresco.outsourcing.network.ServerSideNetworkFactory;
 import dk.alexandra.fresco.outsourcing.server.ClientSessionRequestHandler;
 import dk.alexandra.fresco.outsourcing.server.DemoClientSessionRequestHandler;
 import dk.alexandra.fresco.outsourcing.server.InputServer;
+import dk.alexandra.fresco.outsourcing.server.OpenAdmission;
 import dk.alexandra.fresco.outsourcing.server.OutputServer;
 import dk.alexandra.fresco.outsourcing.server.ServerSessionProducer;
 import dk.alexandra.fresco.outsourcing.server.ddnnt.DemoServerSessionProducer;
@@ -34,6 +43,7 @@ import dk.alexandra.fresco.outsourcing.setup.SpdzSetup;
 import dk.alexandra.fresco.suite.spdz.SpdzProtocolSuite;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
 import dk.alexandra.fresco.suite.spdz.SpdzResourcePoolImpl;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzTriple;
 import dk.alexandra.fresco.suite.spdz.storage.SpdzDataSupplier;
 import dk.alexandra.fresco.suite.spdz.storage.SpdzDummyDataSupplier;
 import dk.alexandra.fresco.suite.spdz.storage.SpdzMascotDataSupplier;
@@ -41,12 +51,18 @@ import dk.alexandra.fresco.tools.ot.base.DummyOt;
 import dk.alexandra.fresco.tools.ot.base.Ot;
 import dk.alexandra.fresco.tools.ot.otextension.RotList;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Random;
+import java.util.function.Supplier;
+import javax.net.ServerSocketFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,15 +73,34 @@ public class SpdzSetupUtils {
   public static final BigInteger DEFAULT_MPC_MODULUS =
       ModulusFinder.findSuitableModulus(DEFAULT_BITLENGTH+DEFAULT_STATPAR);
 
+  // Differs from the seed of SpdzDummyDataSupplier, so other triples are supplied
+  private static final long DUMMY_TRIPLE_SEED = 43;
+  // The instance id of the MASCOT data suppliers of the resource pools is 1
+  private static final int FORKED_MASCOT_INSTANCE = 2;
+
   private SpdzSetupUtils() {
   }
 
   public static FieldDefinition getFieldDefinition(int bitLength) {
-    return new BigIntegerFieldDefinition(
-        ModulusFinder.findSuitableModulus(bitLength+DEFAULT_STATPAR));
+    return getFieldDefinition(bitLength, FieldType.BIG_INTEGER);
+  }
+
+  public static FieldDefinition getFieldDefinition(int bitLength, FieldType fieldType) {
+    return fieldType.apply(ModulusFinder.findSuitableModulus(bitLength+DEFAULT_STATPAR));
   }
 
   public static FieldDefinition getFieldDefinition(BigInteger modulus) {
+    return getFieldDefinition(modulus, FieldType.BIG_INTEGER);
+  }
+
+  /**
+   * Gives the definition of the field with a given modulus.
+   *
+   * @param modulus the modulus, which must be prime
+   * @param fieldType the implementation of the field arithmetic
+   * @return the field definition
+   */
+  public static FieldDefinition getFieldDefinition(BigInteger modulus, FieldType fieldType) {
     if (!modulus.isProbablePrime(DEFAULT_STATPAR)) {
       // Very few operations can work in this case
       logger.error("Modulus is not prime");
@@ -75,7 +110,7 @@ public class SpdzSetupUtils {
       // This can cause issues with some Fresco algorithms, but basic thing should still work.
       logger.warn("Modulus-1 mod 3 != 1");
     }
-    return new BigIntegerFieldDefinition(modulus);
+    return fieldType.apply(modulus);
   }
 
   public static BigInteger insecureSampleSsk(int partyId, BigInteger modulus) {
@@ -137,16 +172,63 @@ public class SpdzSetupUtils {
   }
 
   static Drbg getDrbg(int myId, int prgSeedLength) {
+    return getDrbg(myId, prgSeedLength, 0);
+  }
+
+  /**
+   * Gives the randomness of a MASCOT instance, which differs between the instances of a server.
+   */
+  static Drbg getDrbg(int myId, int prgSeedLength, int instance) {
     byte[] seed = new byte[prgSeedLength / 8];
     seed[0] = (byte) myId;
+    seed[1] = (byte) instance;
     return AesCtrDrbgFactory.fromDerivedSeed(seed);
   }
 
   public static SpdzSetup getMascotSetup(int serverId, Map<Integer, Integer> partiesToPorts,
       Map<Integer, String> partiesToIp, int bitLength) {
+    return getMascotSetup(serverId, partiesToPorts, partiesToIp, bitLength,
+        FieldType.BIG_INTEGER);
+  }
+
+  public static SpdzSetup getMascotSetup(int serverId, Map<Integer, Integer> partiesToPorts,
+      Map<Integer, String> partiesToIp, int bitLength, FieldType fieldType) {
+    FieldDefinition definition = getFieldDefinition(bitLength, fieldType);
+    return getMascotSetup(serverId, partiesToPorts, partiesToIp, bitLength, definition,
+        SpdzMascotDataSupplier.createRandomSsk(definition, 32));
+  }
+
+  /**
+   * Creates a MASCOT setup whose MAC key matches the tuples of a file, so tuples generated offline
+   * in an earlier run can be used.
+   *
+   * <p>
+   * If the file exists, this server's share of the MAC key is restored from it, see {@link
+   * MappedFileTripleDistributor#readMacKeyShare}. Otherwise a new MAC key is drawn, and the tuples
+   * later written to the file by {@link TripleFileWriter#generate} are generated with it. All
+   * servers must therefore start out with files in the same state.
+   * </p>
+   *
+   * @param tripleFile the file of tuples of this server
+   */
+  public static SpdzSetup getMascotSetup(int serverId, Map<Integer, Integer> partiesToPorts,
+      Map<Integer, String> partiesToIp, int bitLength, FieldType fieldType, Path tripleFile) {
+    FieldDefinition definition = getFieldDefinition(bitLength, fieldType);
+    FieldElement ssk;
+    if (Files.exists(tripleFile)) {
+      ssk = ExceptionConverter.safe(
+          () -> MappedFileTripleDistributor.readMacKeyShare(tripleFile, definition),
+          "Failed to read the MAC key of " + tripleFile);
+    } else {
+      ssk = SpdzMascotDataSupplier.createRandomSsk(definition, 32);
+    }
+    return getMascotSetup(serverId, partiesToPorts, partiesToIp, bitLength, definition, ssk);
+  }
+
+  private static SpdzSetup getMascotSetup(int serverId, Map<Integer, Integer> partiesToPorts,
+      Map<Integer, String> partiesToIp, int bitLength, FieldDefinition definition,
+      FieldElement ssk) {
     NetworkConfiguration netConf = getNetConf(serverId, partiesToPorts, partiesToIp);
-    FieldDefinition definition = getFieldDefinition(bitLength);
-    FieldElement ssk = SpdzMascotDataSupplier.createRandomSsk(definition, 32);
     Drbg drbg = getDrbg(serverId, 32);
     Network net = new SocketNetwork(netConf);
     Map<Integer, RotList> seedOts =
@@ -166,16 +248,15 @@ public class SpdzSetupUtils {
 
   public static SpdzSetup getSetup(int serverId, Map<Integer, Integer> partiesToPorts,
       Map<Integer, String> partiesToIp, BigInteger modulus) {
+    return getSetup(serverId, partiesToPorts, partiesToIp, modulus, FieldType.BIG_INTEGER);
+  }
+
+  public static SpdzSetup getSetup(int serverId, Map<Integer, Integer> partiesToPorts,
+      Map<Integer, String> partiesToIp, BigInteger modulus, FieldType fieldType) {
     NetworkConfiguration netConf = getNetConf(serverId, partiesToPorts, partiesToIp);
-    FieldDefinition definition = getFieldDefinition(modulus);
+    FieldDefinition definition = getFieldDefinition(modulus, fieldType);
 //    BigInteger ssk = SpdzSetupUtils.insecureSampleSsk(serverId, definition.getModulus());
-    SpdzDataSupplier supplier =
-        new SpdzDummyDataSupplier(
-            serverId,
-            partiesToPorts.size(),
-            definition,
-            definition.getModulus()
-        );
+    SpdzDataSupplier supplier = getDummyDataSupplier(serverId, partiesToPorts.size(), definition);
     SpdzResourcePool rp = new SpdzResourcePoolImpl(serverId, partiesToPorts.size(),
         new OpenedValueStoreImpl<>(),
         supplier, AesCtrDrbg::new);
@@ -188,6 +269,79 @@ public class SpdzSetupUtils {
     return new SpdzSetup(netConf, rp, sce);
   }
 
+  /**
+   * Creates a dummy data supplier as used by the resource pools of {@link #getSetup}.
+   *
+   * <p>
+   * Note that all dummy data suppliers give the same values, so this can not be used to take
+   * triples on another thread than the computations of a resource pool. Use {@link
+   * #getDummyTripleSupplier} for that.
+   * </p>
+   *
+   * @param serverId the id of this server
+   * @param parties the number of servers
+   * @param definition the field to supply values of
+   * @return a new supplier
+   */
+  public static SpdzDataSupplier getDummyDataSupplier(int serverId, int parties,
+      FieldDefinition definition) {
+    return new SpdzDummyDataSupplier(serverId, parties, definition, definition.getModulus());
+  }
+
+  /**
+   * Creates a source of dummy triples for the servers of a resource pool of {@link #getSetup}, to
+   * be used on another thread than the computations of the resource pool, e.g., to prefetch the
+   * triples of the DDNNT input protocol.
+   *
+   * <p>
+   * The triples are drawn from another seed than the triples of the resource pool, so they are not
+   * the ones used by the computations. The source is not thread safe, and the triples must be taken
+   * in the same order by all servers.
+   * </p>
+   *
+   * @param serverId the id of this server
+   * @param parties the number of servers
+   * @param definition the field to supply triples of
+   * @param sskShare this server's share of the MAC key of the resource pool
+   * @return a new source of triples
+   */
+  public static Supplier<SpdzTriple> getDummyTripleSupplier(int serverId, int parties,
+      FieldDefinition definition, FieldElement sskShare) {
+    return new DummyTripleSupplier(serverId, parties, definition, sskShare, DUMMY_TRIPLE_SEED);
+  }
+
+  /**
+   * Creates a source of triples for the servers of a resource pool of {@link #getMascotSetup}, to
+   * be used on another thread than the computations of the resource pool, e.g., to prefetch the
+   * triples of the DDNNT input protocol.
+   *
+   * <p>
+   * The triples are generated by a MASCOT instance of their own, which uses the MAC key of the
+   * resource pool, but its own randomness and the given network. The network must therefore not be
+   * used by anything else, such as the computations of the resource pool. The seed OTs of the
+   * instance are done over the network right away, so all servers must call this at the same time.
+   * The source is not thread safe, and the triples must be taken in the same order by all
+   * servers.
+   * </p>
+   *
+   * @param serverId the id of this server
+   * @param parties the number of servers
+   * @param definition the field to supply triples of
+   * @param bitLength the bit length given to {@link #getMascotSetup}
+   * @param sskShare this server's share of the MAC key of the resource pool
+   * @param network the network to generate the triples over
+   * @return a new source of triples
+   */
+  public static Supplier<SpdzTriple> getMascotTripleSupplier(int serverId, int parties,
+      FieldDefinition definition, int bitLength, FieldElement sskShare, Network network) {
+    Drbg drbg = getDrbg(serverId, 32, FORKED_MASCOT_INSTANCE);
+    Map<Integer, RotList> seedOts = getSeedOts(serverId, parties, 256, drbg, network);
+    SpdzDataSupplier supplier = new SpdzMascotDataSupplier(serverId, parties,
+        FORKED_MASCOT_INSTANCE, () -> network, definition, bitLength, null, 256, 1024, sskShare,
+        seedOts, drbg);
+    return supplier::getNextTriple;
+  }
+
   // TODO currently we cannot make this generic due to the custom ddnt client input session
   //  endpoint, it could be given as optional argument though. The reason it is needed is that
   //  DDNNT is NOT black box in the underlying scheme
@@ -195,34 +349,137 @@ public class SpdzSetupUtils {
       List<Integer> inputClientIds, List<Integer> outputClientIds,
       Map<Integer, Integer> partiesToPorts, Map<Integer, String> partiesToIp,
       InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer) {
+    return initDdnntIOServers(spdzSetup, inputClientIds, null, outputClientIds,
+        new DemoServerSessionProducer(spdzSetup.getRp(),
+            getNetConf(spdzSetup.getNetConf().getMyId(), partiesToPorts, partiesToIp)),
+        inputServerProducer, outputServerProducer, null);
+  }
 
-    final ServerSessionProducer<SpdzResourcePool> serverSessionProducer = new DemoServerSessionProducer(
-        spdzSetup.getRp(),
-        getNetConf(
-            spdzSetup
-                .getNetConf()
-                .getMyId(),
-            partiesToPorts, partiesToIp));
+  /**
+   * Sets up DDNNT input and output servers running all server sessions on connections leased from
+   * a pool.
+   */
+  public static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer) {
+    return initDdnntIOServers(spdzSetup, inputClientIds, outputClientIds, serverNetworkPool,
+        inputServerProducer, outputServerProducer, ExecutorFactory.platformThreads());
+  }
 
-    ClientSessionRequestHandler handler = new DemoClientSessionRequestHandler(
-        spdzSetup.getRp(),
-        spdzSetup
-            .getNetConf()
-            .getMe()
-            .getPort(),
-        inputClientIds.size() + outputClientIds.size(),
-        id -> (inputClientIds.contains(id))
-    );
+  /**
+   * Sets up DDNNT input and output servers running all server sessions on connections leased from
+   * a pool, and all communication with the clients on executors created by the given factory.
+   */
+  public static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory) {
+    return initDdnntIOServers(spdzSetup, inputClientIds, outputClientIds, serverNetworkPool,
+        inputServerProducer, outputServerProducer, executorFactory, MetricsRegistry.disabled());
+  }
+
+  /**
+   * Sets up DDNNT input and output servers running all server sessions on connections leased from
+   * a pool, and all communication with the clients on executors created by the given factory,
+   * recording the metrics of the servers in the given registry.
+   */
+  public static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory, MetricsRegistry metrics) {
+    return initDdnntIOServers(spdzSetup, inputClientIds, null, outputClientIds,
+        new DemoServerSessionProducer(DemoServerSessionProducer.DEFAULT_BATCH_SIZE,
+            spdzSetup.getRp(), serverNetworkPool, executorFactory, metrics),
+        inputServerProducer, outputServerProducer, null);
+  }
+
+  /**
+   * Sets up DDNNT input and output servers as above, but taking the triples of the input clients
+   * from the given source, e.g., a {@link
+   * dk.alexandra.fresco.outsourcing.client.ddnnt.PrefetchingTripleDistributor}.
+   */
+  public static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory, MetricsRegistry metrics, TripleDistributor tripleSource) {
+    return initDdnntIOServers(spdzSetup, inputClientIds, null, outputClientIds,
+        new DemoServerSessionProducer(DemoServerSessionProducer.DEFAULT_BATCH_SIZE,
+            spdzSetup.getRp(), serverNetworkPool, executorFactory, metrics),
+        inputServerProducer, outputServerProducer, Objects.requireNonNull(tripleSource));
+  }
+
+  /**
+   * Sets up DDNNT input and output servers as above, but admitting input clients until the given
+   * admission policy closes. Any client not among the output clients is an input client.
+   */
+  public static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      OpenAdmission inputAdmission, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory, MetricsRegistry metrics) {
+    return initDdnntIOServers(spdzSetup, inputAdmission, outputClientIds, serverNetworkPool,
+        inputServerProducer, outputServerProducer, executorFactory, metrics, null);
+  }
+
+  /**
+   * Sets up DDNNT input and output servers admitting input clients until the given admission
+   * policy closes, and taking the triples of the input clients from the given source, or from the
+   * data supplier of the resource pool if the source is null.
+   */
+  public static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      OpenAdmission inputAdmission, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory, MetricsRegistry metrics, TripleDistributor tripleSource) {
+    return initDdnntIOServers(spdzSetup, Collections.emptyList(),
+        Objects.requireNonNull(inputAdmission), outputClientIds,
+        new DemoServerSessionProducer(DemoServerSessionProducer.DEFAULT_BATCH_SIZE,
+            spdzSetup.getRp(), serverNetworkPool, executorFactory, metrics),
+        inputServerProducer, outputServerProducer, tripleSource);
+  }
+
+  private static Pair<InputServer, OutputServer> initDdnntIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, OpenAdmission inputAdmission, List<Integer> outputClientIds,
+      ServerSessionProducer<SpdzResourcePool> serverSessionProducer,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      TripleDistributor tripleSource) {
+
+    ClientSessionRequestHandler handler = createRequestHandler(spdzSetup, inputClientIds,
+        inputAdmission, outputClientIds, serverSessionProducer.getMetrics());
     InputServer inputServer = null;
     OutputServer outputServer = null;
 
-    if (!inputClientIds.isEmpty()) {
-      DdnntClientInputSessionEndpoint inputSessionEndpoint =
-          new DdnntClientInputSessionEndpoint(
-              spdzSetup.getRp(),
-              spdzSetup.getRp().getFieldDefinition(),
-              inputClientIds.size());
+    if (inputAdmission != null || !inputClientIds.isEmpty()) {
+      DdnntClientInputSessionEndpoint inputSessionEndpoint;
+      if (tripleSource == null) {
+        inputSessionEndpoint = inputAdmission != null
+            ? new DdnntClientInputSessionEndpoint(
+                spdzSetup.getRp(),
+                spdzSetup.getRp().getFieldDefinition(),
+                inputAdmission)
+            : new DdnntClientInputSessionEndpoint(
+                spdzSetup.getRp(),
+                spdzSetup.getRp().getFieldDefinition(),
+                inputClientIds.size());
+      } else {
+        inputSessionEndpoint = inputAdmission != null
+            ? new DdnntClientInputSessionEndpoint(
+                spdzSetup.getRp(),
+                spdzSetup.getRp().getFieldDefinition(),
+                inputAdmission,
+                tripleSource)
+            : new DdnntClientInputSessionEndpoint(
+                spdzSetup.getRp(),
+                spdzSetup.getRp().getFieldDefinition(),
+                inputClientIds.size(),
+                tripleSource);
+      }
       handler.setInputRegistrationHandler(inputSessionEndpoint);
+      registerQueueGauges(serverSessionProducer.getMetrics(), "input.sessions", inputSessionEndpoint);
       inputServer = inputServerProducer.apply(
           inputSessionEndpoint,
           serverSessionProducer
@@ -235,6 +492,7 @@ public class SpdzSetupUtils {
               spdzSetup.getRp().getFieldDefinition(),
               outputClientIds.size());
       handler.setOutputRegistrationHandler(outputSessionEndpoint);
+      registerQueueGauges(serverSessionProducer.getMetrics(), "output.sessions", outputSessionEndpoint);
       outputServer = outputServerProducer.apply(
           outputSessionEndpoint,
           serverSessionProducer
@@ -249,34 +507,91 @@ public class SpdzSetupUtils {
       List<Integer> inputClientIds, List<Integer> outputClientIds,
       Map<Integer, Integer> partiesToPorts, Map<Integer, String> partiesToIp,
       InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer) {
+    return initIOServers(spdzSetup, inputClientIds, null, outputClientIds,
+        new DemoServerSessionProducer(spdzSetup.getRp(),
+            getNetConf(spdzSetup.getNetConf().getMyId(), partiesToPorts, partiesToIp)),
+        inputServerProducer, outputServerProducer);
+  }
 
-    final ServerSessionProducer<SpdzResourcePool> serverSessionProducer = new DemoServerSessionProducer(
-        spdzSetup.getRp(),
-        getNetConf(
-            spdzSetup
-                .getNetConf()
-                .getMyId(),
-            partiesToPorts, partiesToIp));
+  /**
+   * Sets up input and output servers running all server sessions on connections leased from a
+   * pool.
+   */
+  public static Pair<InputServer, OutputServer> initIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer) {
+    return initIOServers(spdzSetup, inputClientIds, outputClientIds, serverNetworkPool,
+        inputServerProducer, outputServerProducer, ExecutorFactory.platformThreads());
+  }
 
-    ClientSessionRequestHandler handler = new DemoClientSessionRequestHandler(
-        spdzSetup.getRp(),
-        spdzSetup
-            .getNetConf()
-            .getMe()
-            .getPort(),
-        inputClientIds.size() + outputClientIds.size(),
-        id -> (inputClientIds.contains(id))
-    );
+  /**
+   * Sets up input and output servers running all server sessions on connections leased from
+   * a pool, and all communication with the clients on executors created by the given factory.
+   */
+  public static Pair<InputServer, OutputServer> initIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory) {
+    return initIOServers(spdzSetup, inputClientIds, outputClientIds, serverNetworkPool,
+        inputServerProducer, outputServerProducer, executorFactory, MetricsRegistry.disabled());
+  }
+
+  /**
+   * Sets up input and output servers running all server sessions on connections leased from
+   * a pool, and all communication with the clients on executors created by the given factory,
+   * recording the metrics of the servers in the given registry.
+   */
+  public static Pair<InputServer, OutputServer> initIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory, MetricsRegistry metrics) {
+    return initIOServers(spdzSetup, inputClientIds, null, outputClientIds,
+        new DemoServerSessionProducer(DemoServerSessionProducer.DEFAULT_BATCH_SIZE,
+            spdzSetup.getRp(), serverNetworkPool, executorFactory, metrics),
+        inputServerProducer, outputServerProducer);
+  }
+
+  /**
+   * Sets up input and output servers as above, but admitting input clients until the given
+   * admission policy closes. Any client not among the output clients is an input client.
+   */
+  public static Pair<InputServer, OutputServer> initIOServers(SpdzSetup spdzSetup,
+      OpenAdmission inputAdmission, List<Integer> outputClientIds,
+      ServerNetworkPool serverNetworkPool,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer,
+      ExecutorFactory executorFactory, MetricsRegistry metrics) {
+    return initIOServers(spdzSetup, Collections.emptyList(),
+        Objects.requireNonNull(inputAdmission), outputClientIds,
+        new DemoServerSessionProducer(DemoServerSessionProducer.DEFAULT_BATCH_SIZE,
+            spdzSetup.getRp(), serverNetworkPool, executorFactory, metrics),
+        inputServerProducer, outputServerProducer);
+  }
+
+  private static Pair<InputServer, OutputServer> initIOServers(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, OpenAdmission inputAdmission, List<Integer> outputClientIds,
+      ServerSessionProducer<SpdzResourcePool> serverSessionProducer,
+      InputServerProducer inputServerProducer, OutputServerProducer outputServerProducer) {
+
+    ClientSessionRequestHandler handler = createRequestHandler(spdzSetup, inputClientIds,
+        inputAdmission, outputClientIds, serverSessionProducer.getMetrics());
     InputServer inputServer = null;
     OutputServer outputServer = null;
 
-    if (!inputClientIds.isEmpty()) {
-      GenericClientSessionEndpoint inputSessionEndpoint =
-              new GenericClientSessionEndpoint(
+    if (inputAdmission != null || !inputClientIds.isEmpty()) {
+      GenericClientSessionEndpoint inputSessionEndpoint = inputAdmission != null
+              ? new GenericClientSessionEndpoint(
+                      spdzSetup.getRp(),
+                      spdzSetup.getRp().getFieldDefinition(),
+                      inputAdmission)
+              : new GenericClientSessionEndpoint(
                       spdzSetup.getRp(),
                       spdzSetup.getRp().getFieldDefinition(),
                       inputClientIds.size());
       handler.setInputRegistrationHandler(inputSessionEndpoint);
+      registerQueueGauges(serverSessionProducer.getMetrics(), "input.sessions", inputSessionEndpoint);
       inputServer = inputServerProducer.apply(
               inputSessionEndpoint,
               serverSessionProducer
@@ -289,6 +604,7 @@ public class SpdzSetupUtils {
               spdzSetup.getRp().getFieldDefinition(),
               outputClientIds.size());
       handler.setOutputRegistrationHandler(outputSessionEndpoint);
+      registerQueueGauges(serverSessionProducer.getMetrics(), "output.sessions", outputSessionEndpoint);
       outputServer = outputServerProducer.apply(
           outputSessionEndpoint,
           serverSessionProducer
@@ -299,6 +615,33 @@ public class SpdzSetupUtils {
     return new Pair<>(inputServer, outputServer);
   }
 
+  // With open admission the number of input clients is unknown, so the handler keeps listening
+  private static ClientSessionRequestHandler createRequestHandler(SpdzSetup spdzSetup,
+      List<Integer> inputClientIds, OpenAdmission inputAdmission, List<Integer> outputClientIds,
+      MetricsRegistry metrics) {
+    return new DemoClientSessionRequestHandler(
+        spdzSetup.getRp(),
+        spdzSetup
+            .getNetConf()
+            .getMe()
+            .getPort(),
+        inputAdmission != null ? DemoClientSessionRequestHandler.UNLIMITED_CLIENTS
+            : inputClientIds.size() + outputClientIds.size(),
+        inputAdmission != null ? id -> !outputClientIds.contains(id)
+            : id -> (inputClientIds.contains(id)),
+        p -> new ServerSideNetworkFactory(p, ServerSocketFactory.getDefault()),
+        DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_THREADS,
+        DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_TIMEOUT,
+        metrics
+    );
+  }
+
+  private static void registerQueueGauges(MetricsRegistry metrics, String prefix,
+      AbstractSessionEndPoint<?> endpoint) {
+    metrics.gauge(prefix + ".queued", endpoint::getQueuedClients);
+    metrics.gauge(prefix + ".reordering", endpoint::getReorderingClients);
+  }
+
   @FunctionalInterface
   public interface InputServerProducer<
       T extends NumericResourcePool,
@@ -312,7 +655,7 @@ public class SpdzSetupUtils {
       T extends NumericResourcePool,
       EndPointT extends AbstractSessionEndPoint<GenericClientSession>,
       SessionT extends ServerSessionProducer<T>> {
-    OutputServer apply(EndPointT endpoint, SessionT sessionProducer);
+    OutputServer<SInt> apply(EndPointT endpoint, SessionT sessionProducer);
   }
 
 }
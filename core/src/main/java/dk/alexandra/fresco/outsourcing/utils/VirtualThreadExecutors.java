@@ -0,0 +1,57 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual thread executors through reflection, as the code is compiled for Java 8.
+ */
+final class VirtualThreadExecutors {
+
+  private static final Method OF_VIRTUAL;
+  private static final Method NAME;
+  private static final Method FACTORY;
+  private static final Method NEW_EXECUTOR;
+  static final boolean SUPPORTED;
+
+  static {
+    Method ofVirtual = null;
+    Method name = null;
+    Method factory = null;
+    Method newExecutor = null;
+    try {
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      name = builder.getMethod("name", String.class, long.class);
+      factory = builder.getMethod("factory");
+      newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      // Virtual threads are a preview feature on Java 19 and 20, and fail if it is not enabled
+      ofVirtual.invoke(null);
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      newExecutor = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+    NEW_EXECUTOR = newExecutor;
+    SUPPORTED = newExecutor != null;
+  }
+
+  private VirtualThreadExecutors() {
+  }
+
+  static ExecutorService newExecutor(String name) {
+    try {
+      Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 1L);
+      ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+      return (ExecutorService) NEW_EXECUTOR.invoke(null, threadFactory);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to create virtual threads", e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("Unable to create virtual threads", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package dk.alexandra.fresco.outsourcing;
+
+import dk.alexandra.fresco.framework.Application;
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.util.AesCtrDrbg;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.client.OutputClient;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntInputClient;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntOutputClient;
+import dk.alexandra.fresco.outsourcing.client.jno.JnoInputClient;
+import dk.alexandra.fresco.outsourcing.client.jno.JnoOutputClient;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixtures for tests of servers summing the inputs of their clients, and giving the sums to an
+ * output client.
+ */
+public class IoFixtures {
+
+  /**
+   * Receives the inputs of the clients, and sends their sums to an output party.
+   *
+   * @param server the server
+   * @param outputParty the id of the output party
+   * @param inputs the number of inputs of each client
+   * @return the inputs received by client id
+   */
+  public static Map<Integer, List<SInt>> sumInputs(SpdzWithIO server, int outputParty,
+      int inputs) {
+    Map<Integer, List<SInt>> clientInputs = server.receiveInputs();
+    server.sendOutputsTo(outputParty, server.run(sum(clientInputs, inputs)));
+    return clientInputs;
+  }
+
+  /**
+   * Gives an application summing the inputs of the clients element-wise.
+   *
+   * @param clientInputs the inputs by client id
+   * @param inputs the number of inputs of each client
+   * @return the application
+   */
+  public static Application<List<SInt>, ProtocolBuilderNumeric> sum(
+      Map<Integer, List<SInt>> clientInputs, int inputs) {
+    return builder -> {
+      List<DRes<SInt>> result = new ArrayList<>();
+      for (int j = 0; j < inputs; j++) {
+        DRes<SInt> sum = builder.numeric().known(0);
+        for (List<SInt> values : clientInputs.values()) {
+          sum = builder.numeric().add(sum, values.get(j));
+        }
+        result.add(sum);
+      }
+      return () -> {
+        List<SInt> out = new ArrayList<>();
+        for (DRes<SInt> r : result) {
+          out.add(r.out());
+        }
+        return out;
+      };
+    };
+  }
+
+  /**
+   * Gives the inputs of a client, <code>base + 10 * clientId + i</code> for the <code>i</code>'th
+   * input.
+   */
+  public static List<BigInteger> inputs(int base, int clientId, int inputs) {
+    List<BigInteger> values = new ArrayList<>();
+    for (int i = 0; i < inputs; i++) {
+      values.add(BigInteger.valueOf(base + 10 * clientId + i));
+    }
+    return values;
+  }
+
+  /**
+   * Gives the sums of the inputs of the given clients, as computed by {@link #sum(Map, int)}.
+   */
+  public static List<BigInteger> sums(int base, Collection<Integer> clientIds, int inputs) {
+    List<BigInteger> sums = new ArrayList<>();
+    for (int i = 0; i < inputs; i++) {
+      BigInteger sum = BigInteger.ZERO;
+      for (int clientId : clientIds) {
+        sum = sum.add(inputs(base, clientId, inputs).get(i));
+      }
+      sums.add(sum);
+    }
+    return sums;
+  }
+
+  /**
+   * Gives the parties of the servers, listening for clients on localhost.
+   *
+   * @param clientFacingPorts the ports by server id
+   */
+  public static List<Party> parties(Map<Integer, Integer> clientFacingPorts) {
+    List<Party> parties = new ArrayList<>();
+    for (int i = 1; i <= clientFacingPorts.size(); i++) {
+      parties.add(new Party(i, "localhost", clientFacingPorts.get(i)));
+    }
+    return parties;
+  }
+
+  /**
+   * Creates an input client, registering with the servers.
+   */
+  public static InputClient inputClient(Protocol protocol, int inputs, int clientId,
+      List<Party> parties) {
+    if (protocol == Protocol.DDNNT) {
+      return new DdnntInputClient(inputs, clientId, parties);
+    }
+    return new JnoInputClient(inputs, clientId, parties, BigIntegerFieldDefinition::new,
+        new AesCtrDrbg(new byte[32]));
+  }
+
+  /**
+   * Creates an output client, registering with the servers.
+   */
+  public static OutputClient outputClient(Protocol protocol, int outputs, int clientId,
+      List<Party> parties) {
+    if (protocol == Protocol.DDNNT) {
+      return new DdnntOutputClient(clientId, parties);
+    }
+    return new JnoOutputClient(clientId, parties, new AesCtrDrbg(new byte[32]), outputs);
+  }
+
+}
@@ -1,10 +1,22 @@
 package dk.alexandra.fresco.outsourcing;
 
+import dk.alexandra.fresco.framework.Application;
+import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.framework.network.socket.SocketNetwork;
+import dk.alexandra.fresco.outsourcing.setup.SpdzSetup;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,4 +56,62 @@ public class TestUtil {
     }
   }
 
+  /**
+   * Runs an application on a number of SPDZ servers with dummy preprocessing.
+   *
+   * @param servers the number of servers
+   * @param apps gives the application of each server by its id
+   * @param <T> the result of the application
+   * @return the result of each server, in the order of the server ids
+   * @throws Exception the failure of the first server failing, in the order of the server ids
+   */
+  public static <T> List<T> runSpdzServers(int servers,
+      IntFunction<Application<T, ProtocolBuilderNumeric>> apps) throws Exception {
+    return runSpdzServers(servers, (id, network) -> network, apps);
+  }
+
+  /**
+   * Runs an application on a number of SPDZ servers with dummy preprocessing, letting the network
+   * of each server be wrapped, e.g., to tamper with the messages of a server.
+   *
+   * @param servers the number of servers
+   * @param networks wraps the network of a server, given its id
+   * @param apps gives the application of each server by its id
+   * @param <T> the result of the application
+   * @return the result of each server, in the order of the server ids
+   * @throws Exception the failure of the first server failing, in the order of the server ids
+   */
+  public static <T> List<T> runSpdzServers(int servers,
+      BiFunction<Integer, Network, Network> networks,
+      IntFunction<Application<T, ProtocolBuilderNumeric>> apps) throws Exception {
+    List<Integer> freePorts = SpdzSetup.getFreePorts(servers);
+    Map<Integer, Integer> ports = new HashMap<>();
+    for (int i = 1; i <= servers; i++) {
+      ports.put(i, freePorts.get(i - 1));
+    }
+    ExecutorService es = Executors.newFixedThreadPool(servers);
+    try {
+      List<Future<T>> results = new ArrayList<>(servers);
+      for (int i = 1; i <= servers; i++) {
+        final int id = i;
+        results.add(es.submit(() -> {
+          SpdzSetup setup = SpdzSetupUtils.getSetup(id, ports);
+          try (SocketNetwork network = new SocketNetwork(setup.getNetConf())) {
+            return setup.getSce().runApplication(apps.apply(id), setup.getRp(),
+                networks.apply(id, network));
+          } finally {
+            setup.getSce().close();
+          }
+        }));
+      }
+      List<T> out = new ArrayList<>(servers);
+      for (Future<T> result : results) {
+        out.add(result.get(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+      }
+      return out;
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
 }
@@ -0,0 +1,214 @@
+package dk.alexandra.fresco.outsourcing.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
+import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.Test;
+
+public class AbstractSessionEndPointTest {
+
+  private static final Duration STRAGGLER_TIMEOUT = Duration.ofMillis(200);
+
+  @Test
+  public void testAllClientsRegistered() throws Exception {
+    List<GenericClientSessionEndpoint> endpoints = endpoints(2);
+    List<ClosingNetwork> clients = new ArrayList<>();
+    for (int clientId = 10; clientId < 12; clientId++) {
+      ClosingNetwork first = new ClosingNetwork();
+      ClosingNetwork second = new ClosingNetwork();
+      int priority = endpoints.get(0).registerNewSessionRequest(intro(0, clientId), first);
+      endpoints.get(1).registerNewSessionRequest(intro(priority, clientId), second);
+      clients.add(first);
+      clients.add(second);
+    }
+    assertEquals(Arrays.asList(2, 2), closeAdmission(endpoints));
+    for (GenericClientSessionEndpoint endpoint : endpoints) {
+      assertEquals(Arrays.asList(10, 11), produce(endpoint));
+    }
+    for (ClosingNetwork client : clients) {
+      assertFalse(client.closed);
+    }
+  }
+
+  @Test
+  public void testClientSilentOnOneServerIsDropped() throws Exception {
+    List<GenericClientSessionEndpoint> endpoints = endpoints(3);
+    Map<Integer, ClosingNetwork> firstServer = new HashMap<>();
+    for (int clientId = 10; clientId < 13; clientId++) {
+      ClosingNetwork network = new ClosingNetwork();
+      int priority = endpoints.get(0).registerNewSessionRequest(intro(0, clientId), network);
+      assertEquals(clientId - 10, priority);
+      firstServer.put(clientId, network);
+    }
+    // Client 11 got its priority from server 1, but never finished its handshake with server 2
+    endpoints.get(1).registerNewSessionRequest(intro(0, 10), new ClosingNetwork());
+    endpoints.get(1).registerNewSessionRequest(intro(2, 12), new ClosingNetwork());
+
+    assertEquals(Arrays.asList(2, 2), closeAdmission(endpoints));
+    for (GenericClientSessionEndpoint endpoint : endpoints) {
+      assertEquals(2, endpoint.getExpectedClients());
+      assertEquals(Arrays.asList(10, 12), produce(endpoint));
+    }
+    assertTrue(firstServer.get(11).closed);
+    assertFalse(firstServer.get(10).closed);
+    // Showing up after the servers agreed to drop it, the client is turned away
+    assertThrows(IllegalStateException.class, () -> endpoints.get(1)
+        .registerNewSessionRequest(intro(1, 11), new ClosingNetwork()));
+  }
+
+  private static List<GenericClientSessionEndpoint> endpoints(int expectedClients) {
+    Map<Integer, Integer> ports = new HashMap<>();
+    // The servers communicate in memory, so the ports are never used
+    ports.put(1, 1);
+    ports.put(2, 2);
+    List<GenericClientSessionEndpoint> endpoints = new ArrayList<>();
+    for (int serverId = 1; serverId <= 2; serverId++) {
+      SpdzResourcePool resourcePool = SpdzSetupUtils.getSetup(serverId, ports).getRp();
+      endpoints.add(new GenericClientSessionEndpoint(resourcePool,
+          resourcePool.getFieldDefinition(), expectedClients, STRAGGLER_TIMEOUT));
+    }
+    return endpoints;
+  }
+
+  @Test
+  public void testServersAgreeOnFailedClients() throws Exception {
+    List<GenericClientSessionEndpoint> endpoints = endpoints(3);
+    List<List<Integer>> failed = Arrays.asList(Arrays.asList(12), Arrays.asList(10, 12));
+    List<Set<Integer>> agreed = onAllServers(endpoints,
+        (i, network) -> endpoints.get(i).agreeOnFailedClients(network, failed.get(i)));
+    for (Set<Integer> clientIds : agreed) {
+      assertEquals(new HashSet<>(Arrays.asList(10, 12)), clientIds);
+    }
+  }
+
+  private static List<Integer> closeAdmission(List<GenericClientSessionEndpoint> endpoints)
+      throws Exception {
+    return onAllServers(endpoints, (i, network) -> endpoints.get(i).closeAdmission(network));
+  }
+
+  /**
+   * Runs a task on each server at once, given the index of the server and its network to the
+   * other servers.
+   */
+  private static <T> List<T> onAllServers(List<GenericClientSessionEndpoint> endpoints,
+      BiFunction<Integer, Network, T> task) throws Exception {
+    Map<String, BlockingQueue<byte[]>> channels = new ConcurrentHashMap<>();
+    ExecutorService es = Executors.newFixedThreadPool(endpoints.size());
+    try {
+      List<Future<T>> results = new ArrayList<>();
+      for (int i = 0; i < endpoints.size(); i++) {
+        int index = i;
+        Network network = new QueueNetwork(i + 1, endpoints.size(), channels);
+        results.add(es.submit(() -> task.apply(index, network)));
+      }
+      List<T> values = new ArrayList<>();
+      for (Future<T> result : results) {
+        values.add(result.get());
+      }
+      return values;
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  private static List<Integer> produce(GenericClientSessionEndpoint endpoint) {
+    List<Integer> clientIds = new ArrayList<>();
+    while (endpoint.hasNext()) {
+      clientIds.add(endpoint.next().getClientId());
+    }
+    return clientIds;
+  }
+
+  private static byte[] intro(int priority, int clientId) {
+    return ByteBuffer.allocate(Integer.BYTES * 3)
+        .put(ByteAndBitConverter.toByteArray(priority))
+        .put(ByteAndBitConverter.toByteArray(clientId))
+        .put(ByteAndBitConverter.toByteArray(1))
+        .array();
+  }
+
+  /**
+   * A client connection remembering if it was closed.
+   */
+  private static class ClosingNetwork implements TwoPartyNetwork {
+
+    private volatile boolean closed;
+
+    @Override
+    public void send(byte[] msg) {
+    }
+
+    @Override
+    public byte[] receive() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  /**
+   * A network between servers in the same process, with a queue for each direction.
+   */
+  private static class QueueNetwork implements Network {
+
+    private final int myId;
+    private final int parties;
+    private final Map<String, BlockingQueue<byte[]>> channels;
+
+    QueueNetwork(int myId, int parties, Map<String, BlockingQueue<byte[]>> channels) {
+      this.myId = myId;
+      this.parties = parties;
+      this.channels = channels;
+    }
+
+    @Override
+    public void send(int partyId, byte[] data) {
+      channel(myId, partyId).add(data);
+    }
+
+    @Override
+    public byte[] receive(int partyId) {
+      try {
+        return channel(partyId, myId).take();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public int getNoOfParties() {
+      return parties;
+    }
+
+    private BlockingQueue<byte[]> channel(int from, int to) {
+      return channels.computeIfAbsent(from + "->" + to, k -> new LinkedBlockingQueue<>());
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+package dk.alexandra.fresco.outsourcing.client.ddnnt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.SpdzDdnntTuple;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MappedFileTripleDistributorTest {
+
+  private final FieldDefinition definition =
+      new BigIntegerFieldDefinition(SpdzSetupUtils.DEFAULT_MPC_MODULUS);
+  private final FieldElement macKeyShare = definition.createElement(42);
+  private Path file;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    file = Files.createTempFile("tuples", ".bin");
+    Files.delete(file);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testRoundTripAcrossRestarts() throws Exception {
+    List<DdnntInputTuple> written = tuples(0, 5);
+    try (TripleFileWriter writer = new TripleFileWriter(file, definition, macKeyShare)) {
+      for (DdnntInputTuple tuple : written) {
+        writer.write(tuple);
+      }
+    }
+    // Append a second batch
+    List<DdnntInputTuple> appended = tuples(5, 3);
+    try (TripleFileWriter writer = new TripleFileWriter(file, definition, macKeyShare)) {
+      for (DdnntInputTuple tuple : appended) {
+        writer.write(tuple);
+      }
+    }
+    written.addAll(appended);
+    List<DdnntInputTuple> read = new ArrayList<>();
+    try (MappedFileTripleDistributor distributor =
+        new MappedFileTripleDistributor(file, definition, macKeyShare)) {
+      assertEquals(8, distributor.remaining());
+      read.addAll(distributor.getTriples(3));
+    }
+    // A restart continues after the tuples already used
+    try (MappedFileTripleDistributor distributor =
+        new MappedFileTripleDistributor(file, definition, macKeyShare)) {
+      assertEquals(5, distributor.remaining());
+      read.addAll(distributor.getTriples(5));
+      assertThrows(IndexOutOfBoundsException.class, () -> distributor.getTriples(1));
+    }
+    for (int i = 0; i < written.size(); i++) {
+      assertTupleEquals(written.get(i), read.get(i));
+    }
+  }
+
+  @Test
+  public void testWrongModulus() throws Exception {
+    try (TripleFileWriter writer = new TripleFileWriter(file, definition, macKeyShare)) {
+      writer.write(tuples(0, 1).get(0));
+    }
+    FieldDefinition other = new BigIntegerFieldDefinition(BigInteger.valueOf(65521));
+    assertThrows(IllegalArgumentException.class,
+        () -> new MappedFileTripleDistributor(file, other, other.createElement(42)));
+  }
+
+  @Test
+  public void testWrongMacKey() throws Exception {
+    try (TripleFileWriter writer = new TripleFileWriter(file, definition, macKeyShare)) {
+      writer.write(tuples(0, 1).get(0));
+    }
+    FieldElement fileMacKeyShare = MappedFileTripleDistributor.readMacKeyShare(file, definition);
+    assertEquals(definition.convertToUnsigned(macKeyShare),
+        definition.convertToUnsigned(fileMacKeyShare));
+    FieldElement other = definition.createElement(43);
+    assertThrows(IllegalArgumentException.class,
+        () -> new MappedFileTripleDistributor(file, definition, other));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TripleFileWriter(file, definition, other));
+  }
+
+  private List<DdnntInputTuple> tuples(int from, int amount) {
+    List<DdnntInputTuple> tuples = new ArrayList<>(amount);
+    BigInteger modulus = definition.getModulus();
+    for (int i = from; i < from + amount; i++) {
+      // Include values close to the modulus to exercise the full width of the encoding
+      BigInteger base = modulus.subtract(BigInteger.valueOf(4L * i + 1));
+      SpdzSInt a = new SpdzSInt(definition.createElement(base),
+          definition.createElement(i));
+      tuples.add(new SpdzDdnntTuple(a, definition.createElement(base.shiftRight(i)),
+          definition.createElement(i + 7)));
+    }
+    return tuples;
+  }
+
+  private void assertTupleEquals(DdnntInputTuple expected, DdnntInputTuple actual) {
+    SpdzSInt expectedA = (SpdzSInt) expected.getA();
+    SpdzSInt actualA = (SpdzSInt) actual.getA();
+    assertEquals(definition.convertToUnsigned(expectedA.getShare()),
+        definition.convertToUnsigned(actualA.getShare()));
+    assertEquals(definition.convertToUnsigned(expectedA.getMac()),
+        definition.convertToUnsigned(actualA.getMac()));
+    assertEquals(definition.convertToUnsigned(expected.getShareB()),
+        definition.convertToUnsigned(actual.getShareB()));
+    assertEquals(definition.convertToUnsigned(expected.getShareC()),
+        definition.convertToUnsigned(actual.getShareC()));
+  }
+
+}
@@ -0,0 +1,105 @@
+package dk.alexandra.fresco.outsourcing.client.ddnnt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.server.ddnnt.DdnntInputTuple;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class PrefetchingTripleDistributorTest {
+
+  @Test
+  public void testServesInGeneratedOrder() {
+    List<DdnntInputTuple> generated = new ArrayList<>();
+    PrefetchingTripleDistributor distributor = new PrefetchingTripleDistributor(() -> {
+      DdnntInputTuple tuple = new DummyTuple();
+      synchronized (generated) {
+        generated.add(tuple);
+      }
+      return tuple;
+    }, 2, 5);
+    distributor.reserve(7);
+    List<DdnntInputTuple> served = new ArrayList<>(distributor.getTriples(3));
+    served.addAll(distributor.getTriples(4));
+    for (int i = 0; i < served.size(); i++) {
+      assertSame(generated.get(i), served.get(i));
+    }
+    distributor.close();
+  }
+
+  @Test
+  public void testGeneratesOnlyDemand() throws InterruptedException {
+    AtomicInteger count = new AtomicInteger();
+    PrefetchingTripleDistributor distributor = new PrefetchingTripleDistributor(() -> {
+      count.incrementAndGet();
+      return new DummyTuple();
+    }, 2, 100);
+    distributor.reserve(10);
+    assertEquals(10, distributor.getTriples(10).size());
+    // Requests beyond the reservation are reserved implicitly
+    assertEquals(3, distributor.getTriples(3).size());
+    Thread.sleep(50);
+    assertEquals(13, count.get());
+    distributor.close();
+  }
+
+  @Test
+  public void testRespectsHighWatermark() throws InterruptedException {
+    AtomicInteger count = new AtomicInteger();
+    PrefetchingTripleDistributor distributor = new PrefetchingTripleDistributor(() -> {
+      count.incrementAndGet();
+      return new DummyTuple();
+    }, 2, 5);
+    distributor.reserve(100);
+    Thread.sleep(50);
+    assertTrue(count.get() <= 5);
+    assertEquals(100, distributor.getTriples(100).size());
+    distributor.close();
+  }
+
+  @Test
+  public void testSourceFailure() {
+    PrefetchingTripleDistributor distributor = new PrefetchingTripleDistributor(() -> {
+      throw new IllegalStateException("No more triples");
+    }, 2, 5);
+    assertThrows(RuntimeException.class, () -> distributor.getTriples(1));
+    distributor.close();
+  }
+
+  @Test
+  public void testIllegalWatermarks() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new PrefetchingTripleDistributor(DummyTuple::new, 5, 5));
+  }
+
+  private static class DummyTuple implements DdnntInputTuple {
+
+    @Override
+    public FieldElement getShareA() {
+      return null;
+    }
+
+    @Override
+    public FieldElement getShareB() {
+      return null;
+    }
+
+    @Override
+    public FieldElement getShareC() {
+      return null;
+    }
+
+    @Override
+    public SInt getA() {
+      return null;
+    }
+  }
+
+}
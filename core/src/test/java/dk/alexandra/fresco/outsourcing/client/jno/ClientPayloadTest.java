@@ -0,0 +1,70 @@
+package dk.alexandra.fresco.outsourcing.client.jno;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dk.alexandra.fresco.framework.MaliciousException;
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class ClientPayloadTest {
+
+  private final FieldDefinition definition =
+      new BigIntegerFieldDefinition(SpdzSetupUtils.DEFAULT_MPC_MODULUS);
+
+  @Test
+  public void testRoundTrip() {
+    ClientPayload<FieldElement> payload = payload(Arrays.asList(4L, 5L, 6L));
+    ClientPayload<FieldElement> decoded =
+        ClientPayload.deserialize(definition, payload.serialize(definition));
+    assertPayloadEquals(payload, decoded);
+  }
+
+  @Test
+  public void testRoundTripWithoutValues() {
+    ClientPayload<FieldElement> payload = payload(Collections.emptyList());
+    ClientPayload<FieldElement> decoded =
+        ClientPayload.deserialize(definition, payload.serialize(definition));
+    assertPayloadEquals(payload, decoded);
+  }
+
+  @Test
+  public void testUnknownVersion() {
+    byte[] message = payload(Arrays.asList(4L, 5L)).serialize(definition);
+    message[0] = ClientPayload.WIRE_VERSION + 1;
+    assertThrows(MaliciousException.class, () -> ClientPayload.deserialize(definition, message));
+  }
+
+  @Test
+  public void testTruncatedMessage() {
+    byte[] message = payload(Arrays.asList(4L, 5L)).serialize(definition);
+    assertThrows(MaliciousException.class,
+        () -> ClientPayload.deserialize(definition, Arrays.copyOf(message, message.length - 1)));
+    assertThrows(MaliciousException.class,
+        () -> ClientPayload.deserialize(definition, Arrays.copyOf(message, 4)));
+  }
+
+  private ClientPayload<FieldElement> payload(List<Long> x) {
+    return new ClientPayload<>(definition.createElement(1), definition.createElement(2),
+        definition.createElement(3),
+        x.stream().map(definition::createElement).collect(Collectors.toList()));
+  }
+
+  private void assertPayloadEquals(ClientPayload<FieldElement> expected,
+      ClientPayload<FieldElement> actual) {
+    assertEquals(expected.getT().toBigInteger(), actual.getT().toBigInteger());
+    assertEquals(expected.getK().toBigInteger(), actual.getK().toBigInteger());
+    assertEquals(expected.getR().toBigInteger(), actual.getR().toBigInteger());
+    assertEquals(expected.getX().size(), actual.getX().size());
+    for (int i = 0; i < expected.getX().size(); i++) {
+      assertEquals(expected.getX().get(i).toBigInteger(), actual.getX().get(i).toBigInteger());
+    }
+  }
+}
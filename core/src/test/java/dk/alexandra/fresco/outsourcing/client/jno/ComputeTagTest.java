@@ -0,0 +1,91 @@
+package dk.alexandra.fresco.outsourcing.client.jno;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.TestUtil;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ComputeTagTest {
+
+  private static final BigInteger MODULUS = SpdzSetupUtils.DEFAULT_MPC_MODULUS;
+  private static final FieldDefinition DEFINITION = SpdzSetupUtils.getFieldDefinition(MODULUS);
+  private static final BigInteger KEY = MODULUS.subtract(BigInteger.valueOf(54321));
+  private static final BigInteger RANDOMNESS = BigInteger.valueOf(987654321);
+
+  @Test
+  public void testKeyPowers() {
+    BigInteger key = MODULUS.subtract(BigInteger.valueOf(12345));
+    List<BigInteger> powers = ComputeTag.keyPowers(key, 10, MODULUS);
+    assertEquals(10, powers.size());
+    for (int i = 0; i < powers.size(); i++) {
+      assertEquals(key.modPow(BigInteger.valueOf(i + 1), MODULUS), powers.get(i));
+    }
+  }
+
+  @Test
+  public void testKeyPowersOfUnreducedKey() {
+    BigInteger key = MODULUS.add(BigInteger.valueOf(3));
+    assertEquals(BigInteger.valueOf(27), ComputeTag.keyPowers(key, 3, MODULUS).get(2));
+  }
+
+  @Test
+  public void testNoKeyPowers() {
+    assertTrue(ComputeTag.keyPowers(BigInteger.TEN, 0, MODULUS).isEmpty());
+  }
+
+  @Test
+  public void testClientTag() {
+    List<BigInteger> inputs = inputs(5);
+    List<BigInteger> powers = ComputeTag.keyPowers(KEY, inputs.size() + 3, MODULUS);
+    BigInteger expected = RANDOMNESS.multiply(powers.get(inputs.size()))
+        .add(powers.get(inputs.size() + 2));
+    for (int i = 0; i < inputs.size(); i++) {
+      expected = expected.add(inputs.get(i).multiply(powers.get(i)));
+    }
+    assertEquals(expected.mod(MODULUS), clientTag(inputs));
+  }
+
+  @Test
+  public void testServersComputeClientTag() throws Exception {
+    List<BigInteger> inputs = inputs(5);
+    List<BigInteger> tags = TestUtil.runSpdzServers(2, id -> builder -> {
+      List<DRes<SInt>> sharedInputs = new ArrayList<>();
+      for (BigInteger input : inputs) {
+        sharedInputs.add(builder.numeric().known(input));
+      }
+      DRes<SInt> tag = builder.seq(new ComputeTag(sharedInputs, () -> KEY,
+          builder.numeric().known(RANDOMNESS)));
+      return builder.numeric().open(tag);
+    });
+    for (BigInteger tag : tags) {
+      assertEquals(clientTag(inputs), tag);
+    }
+  }
+
+  private static BigInteger clientTag(List<BigInteger> inputs) {
+    List<FieldElement> elements = new ArrayList<>();
+    for (BigInteger input : inputs) {
+      elements.add(DEFINITION.createElement(input));
+    }
+    return JnoCommonClient.computeTag(elements, DEFINITION.createElement(KEY),
+        DEFINITION.createElement(RANDOMNESS)).toBigInteger();
+  }
+
+  private static List<BigInteger> inputs(int count) {
+    List<BigInteger> inputs = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      inputs.add(MODULUS.subtract(BigInteger.valueOf(1000 + i)));
+    }
+    return inputs;
+  }
+
+}
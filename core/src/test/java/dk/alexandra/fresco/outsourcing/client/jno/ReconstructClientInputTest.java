@@ -0,0 +1,198 @@
+package dk.alexandra.fresco.outsourcing.client.jno;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.TestUtil;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class ReconstructClientInputTest {
+
+  private static final BigInteger MODULUS = SpdzSetupUtils.DEFAULT_MPC_MODULUS;
+  private static final FieldDefinition DEFINITION = SpdzSetupUtils.getFieldDefinition(MODULUS);
+  private static final int SERVERS = 2;
+  private static final List<Integer> CLIENTS = Arrays.asList(3, 5, 8);
+  private static final int INPUTS = 4;
+
+  @Test
+  public void testCoefficientsAreDeterministic() {
+    BigInteger seed = BigInteger.valueOf(42);
+    assertEquals(ReconstructClientInput.coefficients(seed, 20, MODULUS),
+        ReconstructClientInput.coefficients(seed, 20, MODULUS));
+  }
+
+  @Test
+  public void testCoefficientsDependOnSeed() {
+    assertNotEquals(ReconstructClientInput.coefficients(BigInteger.ONE, 5, MODULUS),
+        ReconstructClientInput.coefficients(BigInteger.TEN, 5, MODULUS));
+  }
+
+  @Test
+  public void testCoefficientsInField() {
+    List<BigInteger> coefficients = ReconstructClientInput.coefficients(BigInteger.ONE, 100,
+        MODULUS);
+    assertEquals(100, coefficients.size());
+    for (BigInteger coefficient : coefficients) {
+      assertTrue(coefficient.signum() >= 0 && coefficient.compareTo(MODULUS) < 0);
+    }
+  }
+
+  @Test
+  public void testReconstructInputs() throws Exception {
+    Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads = sharePayloads();
+    for (Map<Integer, List<BigInteger>> inputs : reconstruct(payloads)) {
+      assertEquals(CLIENTS.size(), inputs.size());
+      for (int clientId : CLIENTS) {
+        assertEquals(inputs(clientId), inputs.get(clientId));
+      }
+    }
+  }
+
+  @Test
+  public void testReconstructInputsWithoutBulkInput() throws Exception {
+    Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads = sharePayloads();
+    for (Map<Integer, List<BigInteger>> inputs : reconstruct(payloads, false)) {
+      for (int clientId : CLIENTS) {
+        assertEquals(inputs(clientId), inputs.get(clientId));
+      }
+    }
+  }
+
+  @Test
+  public void testTamperedTagFails() {
+    Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads = sharePayloads();
+    ClientPayload<FieldElement> payload = payloads.get(2).get(5);
+    payloads.get(2).put(5, new ClientPayload<>(payload.getT().add(DEFINITION.createElement(1)),
+        payload.getK(), payload.getR(), payload.getX()));
+    assertTagsNotVerified(assertThrows(ExecutionException.class, () -> reconstruct(payloads)));
+  }
+
+  @Test
+  public void testTamperedInputFails() {
+    Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads = sharePayloads();
+    ClientPayload<FieldElement> payload = payloads.get(1).get(8);
+    List<FieldElement> x = new ArrayList<>(payload.getX());
+    x.set(INPUTS - 1, x.get(INPUTS - 1).add(DEFINITION.createElement(1)));
+    payloads.get(1).put(8, new ClientPayload<>(payload.getT(), payload.getK(), payload.getR(), x));
+    assertTagsNotVerified(assertThrows(ExecutionException.class, () -> reconstruct(payloads)));
+  }
+
+  private static void assertTagsNotVerified(Throwable e) {
+    Throwable cause = e;
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    assertTrue(cause instanceof IllegalArgumentException, "Failed by " + cause);
+  }
+
+  private static List<Map<Integer, List<BigInteger>>> reconstruct(
+      Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads) throws Exception {
+    return reconstruct(payloads, true);
+  }
+
+  private static List<Map<Integer, List<BigInteger>>> reconstruct(
+      Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads, boolean bulkInput)
+      throws Exception {
+    return TestUtil.runSpdzServers(SERVERS, id -> builder -> builder
+        .seq(new ReconstructClientInput(id, SERVERS, payloads.get(id), bulkInput))
+        .seq((seq, inputs) -> {
+          Map<Integer, List<DRes<BigInteger>>> opened = new HashMap<>();
+          for (Map.Entry<Integer, List<SInt>> entry : inputs.entrySet()) {
+            List<DRes<BigInteger>> values = new ArrayList<>();
+            for (SInt input : entry.getValue()) {
+              values.add(seq.numeric().open(input));
+            }
+            opened.put(entry.getKey(), values);
+          }
+          return () -> {
+            Map<Integer, List<BigInteger>> out = new HashMap<>();
+            for (Map.Entry<Integer, List<DRes<BigInteger>>> entry : opened.entrySet()) {
+              List<BigInteger> values = new ArrayList<>();
+              for (DRes<BigInteger> value : entry.getValue()) {
+                values.add(value.out());
+              }
+              out.put(entry.getKey(), values);
+            }
+            return out;
+          };
+        }));
+  }
+
+  /**
+   * Shares a tagged payload of each client between the servers, as done by the JNO client.
+   */
+  private static Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> sharePayloads() {
+    Random random = new Random(42);
+    Map<Integer, SortedMap<Integer, ClientPayload<FieldElement>>> payloads = new HashMap<>();
+    for (int id = 1; id <= SERVERS; id++) {
+      payloads.put(id, new TreeMap<>());
+    }
+    for (int clientId : CLIENTS) {
+      List<FieldElement> x = new ArrayList<>();
+      for (BigInteger input : inputs(clientId)) {
+        x.add(DEFINITION.createElement(input));
+      }
+      FieldElement k = randomElement(random);
+      FieldElement r = randomElement(random);
+      FieldElement t = JnoCommonClient.computeTag(x, k, r);
+      List<FieldElement> tShares = share(t, random);
+      List<FieldElement> kShares = share(k, random);
+      List<FieldElement> rShares = share(r, random);
+      List<List<FieldElement>> xShares = new ArrayList<>();
+      for (FieldElement value : x) {
+        xShares.add(share(value, random));
+      }
+      for (int id = 1; id <= SERVERS; id++) {
+        List<FieldElement> xShare = new ArrayList<>();
+        for (List<FieldElement> shares : xShares) {
+          xShare.add(shares.get(id - 1));
+        }
+        payloads.get(id).put(clientId, new ClientPayload<>(tShares.get(id - 1),
+            kShares.get(id - 1), rShares.get(id - 1), xShare));
+      }
+    }
+    return payloads;
+  }
+
+  private static List<FieldElement> share(FieldElement value, Random random) {
+    List<FieldElement> shares = new ArrayList<>();
+    FieldElement last = value;
+    for (int i = 1; i < SERVERS; i++) {
+      FieldElement share = randomElement(random);
+      shares.add(share);
+      last = last.subtract(share);
+    }
+    shares.add(last);
+    return shares;
+  }
+
+  private static FieldElement randomElement(Random random) {
+    return DEFINITION.createElement(new BigInteger(MODULUS.bitLength() + 40, random).mod(MODULUS));
+  }
+
+  private static List<BigInteger> inputs(int clientId) {
+    List<BigInteger> inputs = new ArrayList<>();
+    for (int i = 0; i < INPUTS; i++) {
+      inputs.add(BigInteger.valueOf(100L * clientId + i));
+    }
+    return inputs;
+  }
+
+}
@@ -0,0 +1,145 @@
+package dk.alexandra.fresco.outsourcing.client.jno;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.MaliciousException;
+import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.TestUtil;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.Test;
+
+public class SpdzBulkInputProtocolTest {
+
+  private static final BigInteger MODULUS = SpdzSetupUtils.DEFAULT_MPC_MODULUS;
+  private static final FieldDefinition DEFINITION = SpdzSetupUtils.getFieldDefinition(MODULUS);
+  // The protocol evaluator prefixes each message of a batch with a single byte length
+  private static final int MAX_MESSAGE_LENGTH = 127;
+  private static final int SERVERS = 2;
+  private static final int INPUTTER = 1;
+
+  @Test
+  public void testInputsAreSentAsOneFrame() throws Exception {
+    int elementLength = DEFINITION.serialize(DEFINITION.createElement(0)).length;
+    // Longer than a single message of the protocol evaluator
+    int count = 10 * MAX_MESSAGE_LENGTH / elementLength + 1;
+    List<byte[]> sent = new ArrayList<>();
+    List<List<BigInteger>> results = TestUtil.runSpdzServers(SERVERS,
+        (id, network) -> id == INPUTTER ? new TamperingNetwork(network, msg -> {
+          sent.add(msg);
+          return msg;
+        }) : network, id -> builder -> openInputs(builder, count));
+    for (List<BigInteger> result : results) {
+      assertEquals(inputs(count), result);
+    }
+    // The first batch sent to the other server holds the whole frame of masked inputs
+    ByteBuffer frame = ByteBuffer.wrap(joinMessages(sent.get(0)));
+    assertEquals(Integer.BYTES + count * elementLength, frame.remaining());
+    assertEquals(count * elementLength, frame.getInt());
+  }
+
+  @Test
+  public void testTamperedInputFailsDigest() {
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> TestUtil.runSpdzServers(SERVERS,
+            (id, network) -> id == INPUTTER ? new TamperingNetwork(network, msg -> {
+              // Changes the last masked input sent to the other server
+              byte[] tampered = msg.clone();
+              tampered[tampered.length - 1] ^= 1;
+              return tampered;
+            }) : network, id -> builder -> openInputs(builder, 20)));
+    Throwable cause = e;
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    assertTrue(cause instanceof MaliciousException, "Failed by " + cause);
+  }
+
+  private static DRes<List<BigInteger>> openInputs(ProtocolBuilderNumeric builder, int count) {
+    return builder.seq(seq -> {
+      List<BigInteger> values = seq.getBasicNumericContext().getMyId() == INPUTTER
+          ? inputs(count) : null;
+      return seq.append(new SpdzBulkInputProtocol(values, INPUTTER, count));
+    }).seq((seq, inputs) -> {
+      List<DRes<BigInteger>> opened = new ArrayList<>();
+      for (SInt input : inputs) {
+        opened.add(seq.numeric().open(input));
+      }
+      return () -> {
+        List<BigInteger> out = new ArrayList<>();
+        for (DRes<BigInteger> value : opened) {
+          out.add(value.out());
+        }
+        return out;
+      };
+    });
+  }
+
+  private static byte[] joinMessages(byte[] batch) {
+    ByteArrayOutputStream joined = new ByteArrayOutputStream();
+    int offset = 0;
+    while (offset < batch.length) {
+      int length = batch[offset];
+      assertTrue(length <= MAX_MESSAGE_LENGTH);
+      joined.write(batch, offset + 1, length);
+      offset += 1 + length;
+    }
+    return joined.toByteArray();
+  }
+
+  private static List<BigInteger> inputs(int count) {
+    List<BigInteger> inputs = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      inputs.add(MODULUS.subtract(BigInteger.valueOf(i + 1)));
+    }
+    return inputs;
+  }
+
+  /**
+   * A network changing the first batch of messages sent to another party.
+   */
+  private static class TamperingNetwork implements Network {
+
+    private final Network network;
+    private final UnaryOperator<byte[]> tamper;
+    private boolean tampered;
+
+    TamperingNetwork(Network network, UnaryOperator<byte[]> tamper) {
+      this.network = network;
+      this.tamper = tamper;
+    }
+
+    @Override
+    public void send(int partyId, byte[] data) {
+      if (partyId != INPUTTER && !tampered) {
+        tampered = true;
+        network.send(partyId, tamper.apply(data));
+      } else {
+        network.send(partyId, data);
+      }
+    }
+
+    @Override
+    public byte[] receive(int partyId) {
+      return network.receive(partyId);
+    }
+
+    @Override
+    public int getNoOfParties() {
+      return network.getNoOfParties();
+    }
+  }
+
+}
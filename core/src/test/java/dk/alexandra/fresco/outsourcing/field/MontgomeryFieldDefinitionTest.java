@@ -0,0 +1,104 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class MontgomeryFieldDefinitionTest {
+
+  private static final int SIZE = 50;
+  private static final List<BigInteger> MODULI = Arrays.asList(
+      BigInteger.valueOf(65521),
+      SpdzSetupUtils.DEFAULT_MPC_MODULUS,
+      BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE),
+      BigInteger.ONE.shiftLeft(255).subtract(BigInteger.valueOf(19)));
+
+  private final Random random = new Random(42);
+
+  @Test
+  public void testArithmeticMatchesBigInteger() {
+    for (BigInteger modulus : MODULI) {
+      FieldDefinition expected = new BigIntegerFieldDefinition(modulus);
+      FieldDefinition actual = new MontgomeryFieldDefinition(modulus);
+      for (int i = 0; i < SIZE; i++) {
+        BigInteger left = new BigInteger(modulus.bitLength() + 8, random);
+        BigInteger right = new BigInteger(modulus.bitLength() + 8, random);
+        FieldElement expectedLeft = expected.createElement(left);
+        FieldElement expectedRight = expected.createElement(right);
+        FieldElement actualLeft = actual.createElement(left);
+        FieldElement actualRight = actual.createElement(right);
+        assertEquals(expectedLeft.toBigInteger(), actualLeft.toBigInteger());
+        assertEquals(expectedLeft.add(expectedRight).toBigInteger(),
+            actualLeft.add(actualRight).toBigInteger());
+        assertEquals(expectedLeft.subtract(expectedRight).toBigInteger(),
+            actualLeft.subtract(actualRight).toBigInteger());
+        assertEquals(expectedLeft.multiply(expectedRight).toBigInteger(),
+            actualLeft.multiply(actualRight).toBigInteger());
+        assertEquals(expectedLeft.negate().toBigInteger(), actualLeft.negate().toBigInteger());
+        assertEquals(expectedLeft.modInverse().toBigInteger(),
+            actualLeft.modInverse().toBigInteger());
+        assertEquals(expected.convertToSigned(left.mod(modulus)),
+            actual.convertToSigned(left.mod(modulus)));
+      }
+    }
+  }
+
+  @Test
+  public void testCreateElement() {
+    FieldDefinition definition = new MontgomeryFieldDefinition(SpdzSetupUtils.DEFAULT_MPC_MODULUS);
+    BigInteger minusOne = SpdzSetupUtils.DEFAULT_MPC_MODULUS.subtract(BigInteger.ONE);
+    assertEquals(minusOne, definition.createElement(-1).toBigInteger());
+    assertEquals(BigInteger.valueOf(42), definition.createElement("42").toBigInteger());
+    assertTrue(definition.createElement(SpdzSetupUtils.DEFAULT_MPC_MODULUS).isZero());
+    assertFalse(definition.createElement(1).isZero());
+    assertTrue(definition.createElement(-1).add(definition.createElement(1)).isZero());
+  }
+
+  @Test
+  public void testSerializationMatchesBigInteger() {
+    for (BigInteger modulus : MODULI) {
+      FieldDefinition expected = new BigIntegerFieldDefinition(modulus);
+      FieldDefinition actual = new MontgomeryFieldDefinition(modulus);
+      List<FieldElement> expectedElements = new ArrayList<>(SIZE);
+      List<FieldElement> actualElements = new ArrayList<>(SIZE);
+      for (int i = 0; i < SIZE; i++) {
+        BigInteger value = new BigInteger(modulus.bitLength(), random).mod(modulus);
+        expectedElements.add(expected.createElement(value));
+        actualElements.add(actual.createElement(value));
+        assertArrayEquals(expected.serialize(expectedElements.get(i)),
+            actual.serialize(actualElements.get(i)));
+        assertArrayEquals(expected.convertToBitVector(expectedElements.get(i)).toByteArray(),
+            actual.convertToBitVector(actualElements.get(i)).toByteArray());
+      }
+      byte[] bytes = expected.serialize(expectedElements);
+      assertArrayEquals(bytes, actual.serialize(actualElements));
+      List<FieldElement> deserialized = actual.deserializeList(bytes);
+      assertEquals(SIZE, deserialized.size());
+      for (int i = 0; i < SIZE; i++) {
+        assertEquals(expectedElements.get(i).toBigInteger(), deserialized.get(i).toBigInteger());
+      }
+      assertEquals(expectedElements.get(0).toBigInteger(),
+          actual.deserialize(expected.serialize(expectedElements.get(0))).toBigInteger());
+    }
+  }
+
+  @Test
+  public void testMalformedBytes() {
+    FieldDefinition definition = new MontgomeryFieldDefinition(SpdzSetupUtils.DEFAULT_MPC_MODULUS);
+    assertThrows(IllegalArgumentException.class, () -> definition.deserialize(new byte[3]));
+    assertThrows(IllegalArgumentException.class, () -> definition.deserializeList(new byte[3]));
+  }
+}
@@ -0,0 +1,168 @@
+package dk.alexandra.fresco.outsourcing.field;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class PackedFieldVectorTest {
+
+  private static final int SIZE = 50;
+  private static final List<BigInteger> MODULI = Arrays.asList(
+      BigInteger.valueOf(65521),
+      SpdzSetupUtils.DEFAULT_MPC_MODULUS,
+      BigInteger.ONE.shiftLeft(64).subtract(BigInteger.valueOf(59)),
+      BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE),
+      BigInteger.ONE.shiftLeft(255).subtract(BigInteger.valueOf(19)),
+      BigInteger.ONE.shiftLeft(256).subtract(BigInteger.valueOf(189)));
+
+  private final Random random = new Random(42);
+
+  @Test
+  public void testArithmetic() {
+    for (BigInteger modulus : MODULI) {
+      PackedField field = new PackedField(modulus);
+      List<BigInteger> left = randomValues(modulus);
+      List<BigInteger> right = randomValues(modulus);
+      assertValues(modulus, left, right, BigInteger::add, vector(field, left).add(
+          vector(field, right)));
+      assertValues(modulus, left, right, BigInteger::subtract, vector(field, left).subtract(
+          vector(field, right)));
+      assertValues(modulus, left, right, BigInteger::multiply, vector(field, left).multiply(
+          vector(field, right)));
+    }
+  }
+
+  @Test
+  public void testExtremeValues() {
+    for (BigInteger modulus : MODULI) {
+      PackedField field = new PackedField(modulus);
+      List<BigInteger> values = Arrays.asList(BigInteger.ZERO, BigInteger.ONE,
+          modulus.subtract(BigInteger.ONE), modulus.subtract(BigInteger.valueOf(2)));
+      for (BigInteger left : values) {
+        for (BigInteger right : values) {
+          PackedFieldVector sum = vector(field, Arrays.asList(left)).add(
+              vector(field, Arrays.asList(right)));
+          assertEquals(left.add(right).mod(modulus), sum.get(0));
+          PackedFieldVector difference = vector(field, Arrays.asList(left)).subtract(
+              vector(field, Arrays.asList(right)));
+          assertEquals(left.subtract(right).mod(modulus), difference.get(0));
+          PackedFieldVector product = vector(field, Arrays.asList(left)).multiply(
+              vector(field, Arrays.asList(right)));
+          assertEquals(left.multiply(right).mod(modulus), product.get(0));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIsProduct() {
+    for (BigInteger modulus : MODULI) {
+      PackedField field = new PackedField(modulus);
+      List<BigInteger> left = randomValues(modulus);
+      List<BigInteger> right = randomValues(modulus);
+      PackedFieldVector products = vector(field, left).multiply(vector(field, right));
+      PackedFieldVector leftVector = vector(field, left);
+      PackedFieldVector rightVector = vector(field, right);
+      for (int i = 0; i < SIZE; i++) {
+        assertTrue(products.isProduct(i, leftVector, i, rightVector, i));
+      }
+      products.set(0, products.get(0).add(BigInteger.ONE));
+      assertFalse(products.isProduct(0, leftVector, 0, rightVector, 0));
+    }
+  }
+
+  @Test
+  public void testIndexOfNonProduct() {
+    for (BigInteger modulus : MODULI) {
+      PackedField field = new PackedField(modulus);
+      PackedFieldVector leftVector = vector(field, randomValues(modulus));
+      PackedFieldVector rightVector = vector(field, randomValues(modulus));
+      PackedFieldVector products = field.zeros(SIZE);
+      for (int i = 0; i < SIZE; i++) {
+        products.set(i, leftVector.get(i).multiply(rightVector.get(i)));
+      }
+      assertEquals(-1, products.indexOfNonProduct(leftVector, rightVector));
+      products.set(SIZE - 1, products.get(SIZE - 1).add(BigInteger.ONE));
+      products.set(7, products.get(7).add(BigInteger.ONE));
+      assertEquals(7, products.indexOfNonProduct(leftVector, rightVector));
+    }
+    PackedField field = new PackedField(MODULI.get(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> field.zeros(2).indexOfNonProduct(field.zeros(2), field.zeros(3)));
+  }
+
+  @Test
+  public void testSerializationMatchesFieldDefinition() {
+    for (BigInteger modulus : MODULI) {
+      PackedField field = new PackedField(modulus);
+      FieldDefinition definition = new BigIntegerFieldDefinition(modulus);
+      List<BigInteger> values = randomValues(modulus);
+      List<FieldElement> elements = values.stream().map(definition::createElement)
+          .collect(Collectors.toList());
+      byte[] serialized = definition.serialize(elements);
+      assertArrayEquals(serialized, vector(field, values).serialize());
+      PackedFieldVector deserialized = field.deserialize(serialized);
+      for (int i = 0; i < SIZE; i++) {
+        assertEquals(values.get(i), deserialized.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testDeserializeUnreduced() {
+    BigInteger modulus = BigInteger.valueOf(65521);
+    PackedField field = new PackedField(modulus);
+    byte[] serialized = {(byte) 0xFF, (byte) 0xFF};
+    assertEquals(BigInteger.valueOf(0xFFFF).mod(modulus), field.deserialize(serialized).get(0));
+  }
+
+  @Test
+  public void testMismatchedSizes() {
+    PackedField field = new PackedField(SpdzSetupUtils.DEFAULT_MPC_MODULUS);
+    assertThrows(IllegalArgumentException.class, () -> field.zeros(2).add(field.zeros(3)));
+    assertThrows(IllegalArgumentException.class, () -> field.deserialize(new byte[3]));
+  }
+
+  @Test
+  public void testEvenModulus() {
+    assertThrows(IllegalArgumentException.class, () -> new PackedField(BigInteger.TEN));
+  }
+
+  private PackedFieldVector vector(PackedField field, List<BigInteger> values) {
+    PackedFieldVector vector = field.zeros(values.size());
+    for (int i = 0; i < values.size(); i++) {
+      vector.set(i, values.get(i));
+    }
+    return vector;
+  }
+
+  private List<BigInteger> randomValues(BigInteger modulus) {
+    List<BigInteger> values = new ArrayList<>(SIZE);
+    for (int i = 0; i < SIZE; i++) {
+      values.add(new BigInteger(modulus.bitLength() + 8, random).mod(modulus));
+    }
+    return values;
+  }
+
+  private void assertValues(BigInteger modulus, List<BigInteger> left, List<BigInteger> right,
+      java.util.function.BinaryOperator<BigInteger> operation, PackedFieldVector actual) {
+    for (int i = 0; i < SIZE; i++) {
+      assertEquals(operation.apply(left.get(i), right.get(i)).mod(modulus), actual.get(i));
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.outsourcing.network.NetworkStats;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class MetricsRegistryTest {
+
+  @Test
+  public void testGetOrCreate() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter counter = registry.counter("test.counter");
+    counter.increment();
+    counter.add(41);
+    assertSame(counter, registry.counter("test.counter"));
+    assertEquals(42L, registry.getMetrics().get("test.counter").getValues().get("count"));
+    assertThrows(IllegalArgumentException.class, () -> registry.timer("test.counter"));
+    assertThrows(IllegalArgumentException.class, () -> registry.gauge("test.counter", () -> 1));
+    AtomicLong value = new AtomicLong(3);
+    registry.gauge("test.gauge", value::get);
+    value.set(7);
+    assertEquals(7L, registry.getMetrics().get("test.gauge").getValues().get("value"));
+    assertEquals(Arrays.asList("test.counter", "test.gauge"),
+        Arrays.asList(registry.getMetrics().keySet().toArray()));
+    registry.remove("test.gauge");
+    assertEquals(1, registry.getMetrics().size());
+  }
+
+  @Test
+  public void testDisabled() {
+    MetricsRegistry registry = MetricsRegistry.disabled();
+    Counter counter = registry.counter("test.counter");
+    counter.increment();
+    registry.timer("test.timer").update(1, TimeUnit.SECONDS);
+    registry.gauge("test.gauge", () -> 1);
+    assertEquals(0, counter.getCount());
+    assertEquals(0, registry.timer("test.timer").getDurations().getCount());
+    // The same metric is given for any name, so looking up metrics does not allocate
+    assertSame(counter, registry.counter("test.other"));
+    assertSame(registry.timer("test.timer"), registry.timer("test.other"));
+    assertSame(registry.getOrCreate("test.stats", NetworkStats.class, NetworkStats::new),
+        registry.getOrCreate("test.other", NetworkStats.class, NetworkStats::new));
+    assertTrue(registry.getMetrics().isEmpty());
+  }
+
+  @Test
+  public void testHistogram() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getPercentile(0.5));
+    Random random = new Random(42);
+    long[] values = new long[10000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt(1000000);
+      histogram.update(values[i]);
+    }
+    Arrays.sort(values);
+    assertEquals(values.length, histogram.getCount());
+    assertEquals(values[0], histogram.getMin());
+    assertEquals(values[values.length - 1], histogram.getMax());
+    assertEquals(Arrays.stream(values).average().getAsDouble(), histogram.getMean(), 1e-6);
+    for (double quantile : new double[]{0.0, 0.5, 0.9, 0.99, 1.0}) {
+      long exact = values[Math.max(0, (int) Math.ceil(quantile * values.length) - 1)];
+      long estimate = histogram.getPercentile(quantile);
+      assertTrue(estimate >= exact && estimate <= exact * 1.125, quantile + ": " + estimate);
+    }
+  }
+
+  @Test
+  public void testBuckets() {
+    for (long value : new long[]{0, 1, 7, 8, 15, 16, 1000, 123456789L, Long.MAX_VALUE}) {
+      int bucket = Histogram.bucketOf(value);
+      assertTrue(Histogram.upperBound(bucket) >= value);
+      if (bucket > 0) {
+        assertTrue(Histogram.upperBound(bucket - 1) < value);
+      }
+    }
+    assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.bucketOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void testTimer() {
+    Timer timer = new MetricsRegistry().timer("test.timer");
+    timer.update(3, TimeUnit.MILLISECONDS);
+    long start = timer.start();
+    assertTrue(timer.stop(start) >= 0);
+    assertEquals(2L, timer.getValues().get("count"));
+    assertEquals(3.0, timer.getValues().get("max").doubleValue(), 3.0 / 8);
+    assertTrue(timer.getValues().get("total").doubleValue() >= 3.0);
+  }
+}
@@ -0,0 +1,88 @@
+package dk.alexandra.fresco.outsourcing.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import javax.management.MBeanServer;
+import org.junit.jupiter.api.Test;
+
+public class MetricsReporterTest {
+
+  private static MetricsRegistry createRegistry() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("test.counter").add(5);
+    registry.gauge("test.\"quoted\"", () -> 2);
+    return registry;
+  }
+
+  @Test
+  public void testCsvReporter() throws Exception {
+    Path file = Files.createTempFile("metrics", ".csv");
+    try {
+      Files.delete(file);
+      MetricsRegistry registry = createRegistry();
+      try (CsvReporter reporter = new CsvReporter(file)) {
+        reporter.report(registry);
+      }
+      try (CsvReporter reporter = new CsvReporter(file)) {
+        reporter.report(registry);
+      }
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      assertEquals(5, lines.size());
+      assertEquals(CsvReporter.HEADER, lines.get(0));
+      assertTrue(lines.get(1).endsWith(",\"test.\"\"quoted\"\"\",value,2"));
+      assertTrue(lines.get(2).endsWith(",test.counter,count,5"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testJsonReporter() throws Exception {
+    StringWriter writer = new StringWriter();
+    MetricsRegistry registry = createRegistry();
+    registry.histogram("test.empty");
+    new JsonReporter(writer).report(registry);
+    String json = writer.toString();
+    assertTrue(json.startsWith("{\"timestamp\":"));
+    assertTrue(json.endsWith(",\"metrics\":{\"test.\\\"quoted\\\"\":{\"value\":2},"
+        + "\"test.counter\":{\"count\":5},\"test.empty\":{\"count\":0,\"min\":0,\"mean\":0.0,"
+        + "\"max\":0,\"p50\":0,\"p90\":0,\"p99\":0}}}\n"), json);
+  }
+
+  @Test
+  public void testJmxReporter() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    MetricsRegistry registry = createRegistry();
+    JmxReporter reporter = new JmxReporter("test");
+    reporter.report(registry);
+    reporter.report(registry);
+    assertEquals(5L, server.getAttribute(reporter.getObjectName(), "test.counter.count"));
+    registry.counter("test.counter").increment();
+    assertEquals(6L, server.getAttribute(reporter.getObjectName(), "test.counter.count"));
+    assertEquals(2,
+        server.getMBeanInfo(reporter.getObjectName()).getAttributes().length);
+    reporter.close();
+    assertFalse(server.isRegistered(reporter.getObjectName()));
+  }
+
+  @Test
+  public void testStartReporting() throws Exception {
+    StringWriter writer = new StringWriter();
+    MetricsRegistry registry = createRegistry();
+    Closeable reporting = registry.startReporting(new JsonReporter(writer), Duration.ofMillis(10));
+    Thread.sleep(100);
+    reporting.close();
+    String[] reports = writer.toString().split("\n");
+    assertTrue(reports.length > 1);
+  }
+}
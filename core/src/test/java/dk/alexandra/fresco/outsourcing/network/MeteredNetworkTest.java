@@ -0,0 +1,113 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.network.Network;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class MeteredNetworkTest {
+
+  @Test
+  public void testTwoPartyNetwork() throws Exception {
+    MetricsRegistry metrics = new MetricsRegistry();
+    MeteredTwoPartyNetwork network =
+        new MeteredTwoPartyNetwork(new LoopbackNetwork(), metrics, "test.network");
+    network.send(new byte[3]);
+    network.send(new byte[5]);
+    assertArrayEquals(new byte[3], network.receive());
+    network.close();
+    network.close();
+    assertEquals(2, network.getStats().getMessagesSent());
+    assertEquals(8, network.getBytesSent());
+    assertEquals(1, network.getStats().getMessagesReceived());
+    assertEquals(3, network.getBytesReceived());
+    NetworkStats shared =
+        metrics.getOrCreate("test.network", NetworkStats.class, NetworkStats::new);
+    assertEquals(8, shared.getBytesSent());
+    assertEquals(3, shared.getBytesReceived());
+    assertEquals(1, metrics.histogram("test.network.connectionBytesSent").getCount());
+  }
+
+  @Test
+  public void testNetworkSkipsSelf() {
+    NetworkStats stats = new NetworkStats();
+    Network network = new MeteredNetwork(new LoopbackServerNetwork(), 1, stats);
+    network.sendToAll(new byte[4]);
+    assertEquals(2, network.receiveFromAll().size());
+    assertEquals(1, stats.getMessagesSent());
+    assertEquals(4, stats.getBytesSent());
+    assertEquals(1, stats.getMessagesReceived());
+    assertEquals(4, stats.getBytesReceived());
+  }
+
+  @Test
+  public void testProfile() {
+    MetricsRegistry metrics = new MetricsRegistry();
+    NetworkProfile first = new NetworkProfile(metrics, "test");
+    NetworkProfile second = new NetworkProfile(metrics, "test");
+    first.meter("send", new LoopbackNetwork()).send(new byte[2]);
+    first.meter("broadcast", new LoopbackServerNetwork(), 1).send(2, new byte[3]);
+    second.meter("send", new LoopbackNetwork()).send(new byte[7]);
+    Map<String, NetworkStats> phases = first.getPhases();
+    assertEquals(2, phases.size());
+    assertEquals(2, phases.get("send").getBytesSent());
+    assertEquals(3, phases.get("broadcast").getBytesSent());
+    assertEquals(9, metrics.getOrCreate("test.network.send", NetworkStats.class,
+        NetworkStats::new).getBytesSent());
+    String table = first.format();
+    assertTrue(table.startsWith("phase"));
+    assertTrue(table.contains("broadcast"));
+  }
+
+  /**
+   * A network receiving the messages it sends.
+   */
+  private static class LoopbackNetwork implements TwoPartyNetwork {
+
+    private final Deque<byte[]> messages = new ArrayDeque<>();
+
+    @Override
+    public void send(byte[] msg) {
+      messages.add(msg);
+    }
+
+    @Override
+    public byte[] receive() {
+      return messages.remove();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * A network between two servers, where every message received is the last message sent.
+   */
+  private static class LoopbackServerNetwork implements Network {
+
+    private byte[] last = new byte[0];
+
+    @Override
+    public void send(int partyId, byte[] data) {
+      last = data;
+    }
+
+    @Override
+    public byte[] receive(int partyId) {
+      return last;
+    }
+
+    @Override
+    public int getNoOfParties() {
+      return 2;
+    }
+  }
+
+}
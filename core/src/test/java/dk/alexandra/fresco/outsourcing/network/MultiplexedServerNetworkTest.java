@@ -0,0 +1,139 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dk.alexandra.fresco.framework.configuration.NetworkConfiguration;
+import dk.alexandra.fresco.framework.configuration.NetworkUtil;
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MultiplexedServerNetworkTest {
+
+  private static final int PARTIES = 3;
+
+  private Map<Integer, MultiplexedServerNetwork> networks;
+
+  /**
+   * Connects a multiplexed network between three servers.
+   *
+   * @throws Exception if connecting the network fails.
+   */
+  @BeforeEach
+  public void setUp() throws Exception {
+    Map<Integer, NetworkConfiguration> conf = NetworkUtil.getNetworkConfigurations(PARTIES);
+    ExecutorService es = Executors.newFixedThreadPool(PARTIES);
+    Map<Integer, Future<MultiplexedServerNetwork>> futures = new HashMap<>();
+    for (int i = 1; i <= PARTIES; i++) {
+      final int id = i;
+      futures.put(id, es.submit(() -> new MultiplexedServerNetwork(conf.get(id))));
+    }
+    networks = new HashMap<>();
+    for (int i = 1; i <= PARTIES; i++) {
+      networks.put(i, futures.get(i).get());
+    }
+    es.shutdown();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    for (MultiplexedServerNetwork network : networks.values()) {
+      network.close();
+    }
+  }
+
+  @Test
+  public void testChannelsAreSeparate() throws Exception {
+    CloseableNetwork a1 = networks.get(1).openChannel(1);
+    CloseableNetwork b1 = networks.get(1).openChannel(2);
+    CloseableNetwork a2 = networks.get(2).openChannel(1);
+    CloseableNetwork b2 = networks.get(2).openChannel(2);
+    b1.send(2, new byte[]{0x02});
+    a1.send(2, new byte[]{0x01});
+    a1.send(1, new byte[]{0x03});
+    assertArrayEquals(new byte[]{0x01}, a2.receive(1));
+    assertArrayEquals(new byte[]{0x02}, b2.receive(1));
+    assertArrayEquals(new byte[]{0x03}, a1.receive(1));
+    byte[] large = new byte[1 << 20];
+    large[large.length - 1] = 0x04;
+    b2.send(1, large);
+    assertArrayEquals(large, b1.receive(2));
+    a1.close();
+    b1.close();
+    a2.close();
+    b2.close();
+  }
+
+  @Test
+  public void testMessagesBeforeOpenAreKept() throws Exception {
+    CloseableNetwork sender = networks.get(3).openChannel(7);
+    sender.send(1, new byte[]{0x05});
+    sender.send(1, new byte[]{0x06});
+    CloseableNetwork receiver = networks.get(1).openChannel(7);
+    assertArrayEquals(new byte[]{0x05}, receiver.receive(3));
+    assertArrayEquals(new byte[]{0x06}, receiver.receive(3));
+    sender.close();
+    receiver.close();
+  }
+
+  @Test
+  public void testReopenChannel() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      CloseableNetwork n1 =
+          networks.get(1).openChannel(MultiplexedServerNetwork.APPLICATION_CHANNEL);
+      CloseableNetwork n3 =
+          networks.get(3).openChannel(MultiplexedServerNetwork.APPLICATION_CHANNEL);
+      n1.send(3, new byte[]{(byte) i});
+      assertArrayEquals(new byte[]{(byte) i}, n3.receive(1));
+      n1.close();
+      n3.close();
+    }
+  }
+
+  @Test
+  public void testReopenedChannelStartsClean() throws Exception {
+    CloseableNetwork sender = networks.get(3).openChannel(1);
+    CloseableNetwork receiver = networks.get(1).openChannel(1);
+    sender.send(1, new byte[]{0x01});
+    sender.send(1, new byte[]{0x02});
+    assertArrayEquals(new byte[]{0x01}, receiver.receive(3));
+    // The sender moves on to the next use of the channel before the receiver is done
+    sender.close();
+    sender = networks.get(3).openChannel(1);
+    sender.send(1, new byte[]{0x03});
+    receiver.close();
+    // Sent on the first use of the channel after the receiver closed it
+    CloseableNetwork late = networks.get(2).openChannel(1);
+    late.send(1, new byte[]{0x04});
+    late.close();
+    late = networks.get(2).openChannel(1);
+    late.send(1, new byte[]{0x05});
+    receiver = networks.get(1).openChannel(1);
+    assertArrayEquals(new byte[]{0x03}, receiver.receive(3));
+    assertArrayEquals(new byte[]{0x05}, receiver.receive(2));
+    sender.close();
+    late.close();
+    receiver.close();
+  }
+
+  @Test
+  public void testOpenChannelTwice() {
+    networks.get(1).openChannel(1);
+    assertThrows(IllegalStateException.class, () -> networks.get(1).openChannel(1));
+  }
+
+  @Test
+  public void testReceiveAfterPeerClosed() {
+    CloseableNetwork channel = networks.get(1).openChannel(1);
+    networks.get(2).close();
+    assertThrows(RuntimeException.class, () -> channel.receive(2));
+  }
+
+}
@@ -0,0 +1,128 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dk.alexandra.fresco.outsourcing.setup.SpdzSetup;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class NioServerSideNetworkFactoryTest {
+
+  private static final int CLIENTS = 50;
+
+  private int port;
+  private NioServerSideNetworkFactory factory;
+
+  @BeforeEach
+  public void setUp() {
+    port = SpdzSetup.getFreePorts(1).get(0);
+    factory = new NioServerSideNetworkFactory(port, 2);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    factory.stopListening();
+  }
+
+  @Test
+  public void testCommunication() throws Exception {
+    TwoPartyNetwork clientNetwork = ClientSideNetworkFactory.getNetwork("localhost", port);
+    TwoPartyNetwork serverNetwork = factory.getNetwork();
+    byte[] msg1 = new byte[]{0x01, 0x02};
+    clientNetwork.send(msg1);
+    assertArrayEquals(msg1, serverNetwork.receive());
+    byte[] msg2 = new byte[1 << 20];
+    msg2[msg2.length - 1] = 0x03;
+    serverNetwork.send(msg2);
+    serverNetwork.send(new byte[0]);
+    assertArrayEquals(msg2, clientNetwork.receive());
+    assertArrayEquals(new byte[0], clientNetwork.receive());
+    serverNetwork.close();
+    clientNetwork.close();
+  }
+
+  @Test
+  public void testManyClients() throws Exception {
+    ExecutorService es = Executors.newFixedThreadPool(CLIENTS);
+    List<Future<byte[]>> replies = new ArrayList<>(CLIENTS);
+    for (int i = 0; i < CLIENTS; i++) {
+      final byte id = (byte) i;
+      replies.add(es.submit(() -> {
+        TwoPartyNetwork network = ClientSideNetworkFactory.getNetwork("localhost", port);
+        network.send(new byte[]{id});
+        byte[] reply = network.receive();
+        network.close();
+        return reply;
+      }));
+    }
+    Map<Byte, TwoPartyNetwork> serverNetworks = new HashMap<>();
+    for (int i = 0; i < CLIENTS; i++) {
+      TwoPartyNetwork network = factory.getNetwork();
+      serverNetworks.put(network.receive()[0], network);
+    }
+    for (Map.Entry<Byte, TwoPartyNetwork> entry : serverNetworks.entrySet()) {
+      entry.getValue().send(new byte[]{entry.getKey(), entry.getKey()});
+    }
+    for (int i = 0; i < CLIENTS; i++) {
+      assertArrayEquals(new byte[]{(byte) i, (byte) i}, replies.get(i).get());
+    }
+    for (TwoPartyNetwork network : serverNetworks.values()) {
+      network.close();
+    }
+    es.shutdown();
+  }
+
+  @Test
+  public void testConcurrentSends() throws Exception {
+    TwoPartyNetwork clientNetwork = ClientSideNetworkFactory.getNetwork("localhost", port);
+    TwoPartyNetwork serverNetwork = factory.getNetwork();
+    int senders = 8;
+    int messages = 200;
+    ExecutorService es = Executors.newFixedThreadPool(senders);
+    for (int i = 0; i < senders; i++) {
+      final byte id = (byte) i;
+      es.submit(() -> {
+        for (int j = 0; j < messages; j++) {
+          byte[] msg = new byte[1 + j];
+          Arrays.fill(msg, id);
+          serverNetwork.send(msg);
+        }
+      });
+    }
+    int[] received = new int[senders];
+    for (int i = 0; i < senders * messages; i++) {
+      byte[] msg = clientNetwork.receive();
+      int id = msg[0];
+      // Messages of each sender arrive whole and in order
+      assertEquals(1 + received[id], msg.length);
+      for (byte b : msg) {
+        assertEquals(id, b);
+      }
+      received[id]++;
+    }
+    es.shutdown();
+    serverNetwork.close();
+    clientNetwork.close();
+  }
+
+  @Test
+  public void testReceiveAfterClientClose() throws Exception {
+    TwoPartyNetwork clientNetwork = ClientSideNetworkFactory.getNetwork("localhost", port);
+    TwoPartyNetwork serverNetwork = factory.getNetwork();
+    clientNetwork.close();
+    assertThrows(RuntimeException.class, serverNetwork::receive);
+    serverNetwork.close();
+  }
+
+}
@@ -0,0 +1,174 @@
+package dk.alexandra.fresco.outsourcing.network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.configuration.NetworkConfiguration;
+import dk.alexandra.fresco.framework.configuration.NetworkUtil;
+import dk.alexandra.fresco.framework.network.CloseableNetwork;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ServerNetworkPoolTest {
+
+  private static final int PARTIES = 2;
+
+  private final List<MultiplexedServerNetwork> connected = new ArrayList<>();
+  private final AtomicInteger connects = new AtomicInteger();
+  private ServerNetworkPool pool1;
+  private ServerNetworkPool pool2;
+
+  @AfterEach
+  public void tearDown() {
+    pool1.close();
+    pool2.close();
+  }
+
+  @Test
+  public void testConnectionsAreReused() throws Exception {
+    setUp(Duration.ZERO);
+    for (int i = 0; i < 5; i++) {
+      exchange(i);
+    }
+    assertEquals(PARTIES, connects.get());
+    assertEquals(0, pool1.getActiveLeases());
+  }
+
+  @Test
+  public void testReconnectAfterLostConnection() throws Exception {
+    setUp(Duration.ZERO);
+    exchange(0);
+    synchronized (connected) {
+      for (MultiplexedServerNetwork network : connected) {
+        network.close();
+      }
+    }
+    exchange(1);
+    assertEquals(2 * PARTIES, connects.get());
+  }
+
+  @Test
+  public void testIdleConnectionsAreClosed() throws Exception {
+    setUp(Duration.ofMillis(50));
+    exchange(0);
+    Thread.sleep(500);
+    exchange(1);
+    assertEquals(2 * PARTIES, connects.get());
+  }
+
+  @Test
+  public void testLeaseAfterClose() throws Exception {
+    setUp(Duration.ZERO);
+    pool1.close();
+    assertThrows(IllegalStateException.class, () -> pool1.lease(0));
+  }
+
+  @Test
+  public void testConnectingDoesNotHoldPool() throws Exception {
+    CountDownLatch connecting = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    setUp(connecting, proceed);
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      Future<CloseableNetwork> first = es.submit(() -> pool1.lease(1));
+      Future<CloseableNetwork> second = es.submit(() -> pool1.lease(2));
+      connecting.await();
+      // The pool can still be used while waiting for the other server
+      assertEquals(0, (int) es.submit(pool1::getActiveLeases).get(5, TimeUnit.SECONDS));
+      proceed.countDown();
+      CloseableNetwork other = pool2.lease(1);
+      first.get().send(2, new byte[]{0x01});
+      assertArrayEquals(new byte[]{0x01}, other.receive(1));
+      second.get().close();
+      first.get().close();
+      other.close();
+      // The second lease waited for the connection of the first
+      assertEquals(PARTIES, connects.get());
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCloseWhileConnecting() throws Exception {
+    CountDownLatch connecting = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    setUp(connecting, proceed);
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      Future<CloseableNetwork> lease = es.submit(() -> pool1.lease(1));
+      connecting.await();
+      es.submit(pool1::close).get(5, TimeUnit.SECONDS);
+      proceed.countDown();
+      pool2.lease(1);
+      ExecutionException e = assertThrows(ExecutionException.class, lease::get);
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      assertEquals(0, pool1.getActiveLeases());
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  /**
+   * Creates pools where the first one waits to connect until told to proceed.
+   */
+  private void setUp(CountDownLatch connecting, CountDownLatch proceed) {
+    Map<Integer, NetworkConfiguration> conf = NetworkUtil.getNetworkConfigurations(PARTIES);
+    pool1 = new ServerNetworkPool(() -> {
+      connecting.countDown();
+      ExceptionConverter.safe(() -> {
+        proceed.await();
+        return null;
+      }, "Interrupted while waiting to connect");
+      return connect(conf.get(1));
+    }, Duration.ZERO);
+    pool2 = new ServerNetworkPool(() -> connect(conf.get(2)), Duration.ZERO);
+  }
+
+  private void setUp(Duration idleTimeout) {
+    Map<Integer, NetworkConfiguration> conf = NetworkUtil.getNetworkConfigurations(PARTIES);
+    pool1 = new ServerNetworkPool(() -> connect(conf.get(1)), idleTimeout);
+    pool2 = new ServerNetworkPool(() -> connect(conf.get(2)), idleTimeout);
+  }
+
+  private MultiplexedServerNetwork connect(NetworkConfiguration conf) {
+    MultiplexedServerNetwork network = new MultiplexedServerNetwork(conf);
+    connects.incrementAndGet();
+    synchronized (connected) {
+      connected.add(network);
+    }
+    return network;
+  }
+
+  /**
+   * Leases a channel in both pools concurrently, as connecting may be needed, and sends a message
+   * between the parties.
+   */
+  private void exchange(int round) throws Exception {
+    ExecutorService es = Executors.newFixedThreadPool(PARTIES);
+    Future<CloseableNetwork> lease1 = es.submit(() -> pool1.lease(1));
+    Future<CloseableNetwork> lease2 = es.submit(() -> pool2.lease(1));
+    CloseableNetwork network1 = lease1.get();
+    CloseableNetwork network2 = lease2.get();
+    es.shutdown();
+    network1.send(2, new byte[]{(byte) round});
+    assertArrayEquals(new byte[]{(byte) round}, network2.receive(1));
+    network1.close();
+    network2.close();
+  }
+
+}
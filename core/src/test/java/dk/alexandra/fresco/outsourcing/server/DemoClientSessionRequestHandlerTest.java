@@ -0,0 +1,167 @@
+package dk.alexandra.fresco.outsourcing.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.util.ByteAndBitConverter;
+import dk.alexandra.fresco.framework.util.ExceptionConverter;
+import dk.alexandra.fresco.outsourcing.client.ClientCapabilities;
+import dk.alexandra.fresco.outsourcing.client.GenericClientSession;
+import dk.alexandra.fresco.outsourcing.client.GenericClientSessionEndpoint;
+import dk.alexandra.fresco.outsourcing.field.MontgomeryFieldDefinition;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.ClientConnectionFactory;
+import dk.alexandra.fresco.outsourcing.network.TwoPartyNetwork;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import dk.alexandra.fresco.suite.spdz.SpdzResourcePool;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class DemoClientSessionRequestHandlerTest {
+
+  private static final int TIMEOUT_SECONDS = 30;
+
+  @Test
+  public void testClientKeepsSlotWhenReplyFails() throws Exception {
+    // A single server, so no other servers are needed to register the clients
+    SpdzResourcePool resourcePool =
+        SpdzSetupUtils.getSetup(1, Collections.singletonMap(1, 1)).getRp();
+    GenericClientSessionEndpoint endpoint = new GenericClientSessionEndpoint(resourcePool,
+        resourcePool.getFieldDefinition(), 2);
+    MetricsRegistry metrics = new MetricsRegistry();
+    QueuedConnections connections = listen(resourcePool, endpoint, metrics);
+    // The first client is registered, but disconnects before getting its priority
+    ClientConnection failing = new ClientConnection(intro(10), true);
+    ClientConnection succeeding = new ClientConnection(intro(11), false);
+    connections.clients.add(failing);
+    connections.clients.add(succeeding);
+    assertTrue(connections.stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+        "Listener kept waiting for clients");
+    assertEquals(2, endpoint.getQueuedClients());
+    assertEquals(1, metrics.counter("client.handshakeFailures").getCount());
+    assertTrue(failing.closed);
+    assertFalse(succeeding.closed);
+  }
+
+  @Test
+  public void testClientRelayingOtherFieldTypeIsRejected() throws Exception {
+    Map<Integer, Integer> ports = new HashMap<>();
+    // The servers communicate in memory, so the ports are never used
+    ports.put(1, 1);
+    ports.put(2, 2);
+    SpdzResourcePool resourcePool = SpdzSetupUtils.getSetup(2, ports).getRp();
+    GenericClientSessionEndpoint endpoint = new GenericClientSessionEndpoint(resourcePool,
+        resourcePool.getFieldDefinition(), 1);
+    MetricsRegistry metrics = new MetricsRegistry();
+    QueuedConnections connections = listen(resourcePool, endpoint, metrics);
+    String fieldType = resourcePool.getFieldDefinition().getClass().getName();
+    ClientConnection rejected = new ClientConnection(
+        intro(10, MontgomeryFieldDefinition.class.getName()), false);
+    ClientConnection accepted = new ClientConnection(intro(11, fieldType), false);
+    connections.clients.add(rejected);
+    connections.clients.add(accepted);
+    assertTrue(connections.stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+        "Listener kept waiting for clients");
+    assertEquals(1, endpoint.getQueuedClients());
+    assertEquals(1, metrics.counter("client.handshakeFailures").getCount());
+    assertTrue(rejected.closed);
+    assertFalse(accepted.closed);
+  }
+
+  private static QueuedConnections listen(SpdzResourcePool resourcePool,
+      GenericClientSessionEndpoint endpoint, MetricsRegistry metrics) {
+    QueuedConnections connections = new QueuedConnections();
+    DemoClientSessionRequestHandler<GenericClientSession, GenericClientSession> handler =
+        new DemoClientSessionRequestHandler<>(resourcePool, 0, endpoint.getExpectedClients(),
+            id -> true, port -> connections,
+            DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_THREADS,
+            DemoClientSessionRequestHandler.DEFAULT_HANDSHAKE_TIMEOUT, metrics);
+    handler.setInputRegistrationHandler(endpoint);
+    handler.launch();
+    return connections;
+  }
+
+  /**
+   * The introduction of a client making a single input.
+   */
+  private static byte[] intro(int clientId) {
+    return ByteBuffer.allocate(Integer.BYTES * 3)
+        .put(ByteAndBitConverter.toByteArray(0))
+        .put(ByteAndBitConverter.toByteArray(clientId))
+        .put(ByteAndBitConverter.toByteArray(1))
+        .array();
+  }
+
+  /**
+   * The introduction of a client making a single input, relaying the field type of server 1.
+   */
+  private static byte[] intro(int clientId, String fieldType) {
+    byte[] fieldTypeBytes = fieldType.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(Integer.BYTES * 4 + fieldTypeBytes.length)
+        .put(intro(clientId))
+        .put(ByteAndBitConverter.toByteArray(ClientCapabilities.FIELD_TYPE))
+        .put(fieldTypeBytes)
+        .array();
+  }
+
+  /**
+   * Hands out the connections of clients as they are added.
+   */
+  private static class QueuedConnections implements ClientConnectionFactory {
+
+    private final BlockingQueue<TwoPartyNetwork> clients = new LinkedBlockingQueue<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    @Override
+    public TwoPartyNetwork getNetwork() {
+      return ExceptionConverter.safe(clients::take, "Interrupted waiting for a client");
+    }
+
+    @Override
+    public void stopListening() {
+      stopped.countDown();
+    }
+  }
+
+  /**
+   * The connection of a client introducing itself, and optionally failing to receive the reply.
+   */
+  private static class ClientConnection implements TwoPartyNetwork {
+
+    private final byte[] intro;
+    private final boolean failReply;
+    private volatile boolean closed;
+
+    ClientConnection(byte[] intro, boolean failReply) {
+      this.intro = intro;
+      this.failReply = failReply;
+    }
+
+    @Override
+    public void send(byte[] msg) {
+      if (failReply) {
+        throw new RuntimeException("Client disconnected");
+      }
+    }
+
+    @Override
+    public byte[] receive() {
+      return intro;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+}
@@ -6,10 +6,13 @@ import dk.alexandra.fresco.framework.DRes;
 import dk.alexandra.fresco.framework.Party;
 import dk.alexandra.fresco.framework.value.SInt;
 import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
 import dk.alexandra.fresco.outsourcing.setup.SpdzSetup;
 import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
 import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.InputServerProducer;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,12 +32,14 @@ public abstract class GenericInputServerTest {
   protected abstract InputClient getInputClient(int inputsPerClient, int id, List<Party> servers);
   protected abstract InputServerProducer getInputServerProducer();
   protected GenericTestRunner testRunner;
+  protected final List<MetricsRegistry> serverMetrics = Collections.synchronizedList(new ArrayList<>());
 
   protected void setTestRunner(TestDataGenerator testDataGenerator) {
     testRunner = new GenericTestRunner(testDataGenerator, (futureServer) -> {
       try {
         SpdzWithIO spdz = ((Future<SpdzWithIO>) futureServer).get();
         Map<Integer, List<SInt>> inputs = spdz.receiveInputs();
+        serverMetrics.add(spdz.getMetrics());
         // Wrapping is used here to make sure we can get the client input back out from the
         // server computation
         Map<Integer, DRes<List<DRes<BigInteger>>>> wrapped =
@@ -0,0 +1,191 @@
+package dk.alexandra.fresco.outsourcing.server;
+
+import static dk.alexandra.fresco.outsourcing.IoFixtures.inputClient;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.inputs;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.outputClient;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.sums;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.outsourcing.IoFixtures;
+import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.metrics.Counter;
+import dk.alexandra.fresco.outsourcing.server.jno.JnoInputServer;
+import dk.alexandra.fresco.outsourcing.server.jno.JnoOutputServer;
+import dk.alexandra.fresco.outsourcing.setup.SpdzSetup;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class OpenAdmissionTest {
+
+  private static final int SERVERS = 2;
+  private static final int INPUTS = 2;
+  private static final int OUTPUT_PARTY = 10;
+  private static final int TIMEOUT_SECONDS = 30;
+  private static final List<Integer> INPUT_PARTIES = Arrays.asList(1, 2, 3);
+
+  @Test
+  public void testClosingByCount() throws Exception {
+    OpenAdmission admission = new OpenAdmission(INPUT_PARTIES.size(), Duration.ofMinutes(1));
+    try (Servers servers = new Servers(Protocol.GENERIC, admission)) {
+      // The input parties are not known by the servers, which just take whoever shows up
+      for (int clientId : INPUT_PARTIES) {
+        servers.es.submit(() -> inputClient(Protocol.GENERIC, INPUTS, clientId, servers.parties)
+            .putBigIntegerInputs(inputs(0, clientId, INPUTS)));
+      }
+      servers.assertOutputs(INPUT_PARTIES);
+    }
+  }
+
+  @Test
+  public void testLateClientTurnedAwayByCount() throws Exception {
+    OpenAdmission admission = new OpenAdmission(2, Duration.ofMinutes(1));
+    try (Servers servers = new Servers(Protocol.GENERIC, admission)) {
+      List<InputClient> admitted = new ArrayList<>();
+      for (int clientId : Arrays.asList(1, 2)) {
+        admitted.add(inputClient(Protocol.GENERIC, INPUTS, clientId, servers.parties));
+      }
+      // Arrives once the admission is full
+      servers.es.submit(() -> inputClient(Protocol.GENERIC, INPUTS, 3, servers.parties));
+      servers.awaitTurnedAway(1);
+      for (int i = 0; i < admitted.size(); i++) {
+        InputClient client = admitted.get(i);
+        int clientId = i + 1;
+        servers.es.submit(() -> client.putBigIntegerInputs(inputs(0, clientId, INPUTS)));
+      }
+      servers.assertOutputs(Arrays.asList(1, 2));
+    }
+  }
+
+  @Test
+  public void testClosingByTime() throws Exception {
+    OpenAdmission admission = new OpenAdmission(Duration.ofSeconds(1));
+    try (Servers servers = new Servers(Protocol.DDNNT, admission)) {
+      // The first client to register with server 1 opens the window
+      InputClient first = inputClient(Protocol.DDNNT, INPUTS, 1, servers.parties);
+      Thread.sleep(admission.getWindow().toMillis());
+      servers.es.submit(() -> inputClient(Protocol.DDNNT, INPUTS, 2, servers.parties));
+      servers.awaitTurnedAway(1);
+      servers.es.submit(() -> first.putBigIntegerInputs(inputs(0, 1, INPUTS)));
+      servers.assertOutputs(Collections.singletonList(1));
+    }
+  }
+
+  @Test
+  public void testJnoClientSilentAfterRegistering() throws Exception {
+    testClientSilentAfterRegistering(Protocol.GENERIC);
+  }
+
+  @Test
+  public void testDdnntClientSilentAfterRegistering() throws Exception {
+    testClientSilentAfterRegistering(Protocol.DDNNT);
+  }
+
+  private void testClientSilentAfterRegistering(Protocol protocol) throws Exception {
+    OpenAdmission admission = new OpenAdmission(INPUT_PARTIES.size(), Duration.ofMinutes(1),
+        Duration.ofMinutes(1), Duration.ofSeconds(1));
+    try (Servers servers = new Servers(protocol, admission)) {
+      List<Future<InputClient>> clients = new ArrayList<>();
+      for (int clientId : INPUT_PARTIES) {
+        clients.add(servers.es.submit(
+            () -> inputClient(protocol, INPUTS, clientId, servers.parties)));
+      }
+      // Client 3 registers with all servers, but never sends its inputs
+      for (int clientId : Arrays.asList(1, 2)) {
+        InputClient client = clients.get(clientId - 1).get();
+        servers.es.submit(() -> client.putBigIntegerInputs(inputs(0, clientId, INPUTS)));
+      }
+      servers.assertOutputs(Arrays.asList(1, 2));
+    }
+  }
+
+  /**
+   * Servers summing the inputs of the clients admitted.
+   */
+  private static class Servers implements AutoCloseable {
+
+    private final Protocol protocol;
+    private final ExecutorService es;
+    private final List<SpdzWithIO> servers;
+    private final List<Future<Integer>> runs;
+    private final List<Party> parties;
+
+    Servers(Protocol protocol, OpenAdmission admission) throws Exception {
+      this.protocol = protocol;
+      this.es = Executors.newCachedThreadPool();
+      List<Integer> freePorts = SpdzSetup.getFreePorts(2 * SERVERS);
+      Map<Integer, Integer> clientFacingPorts = SpdzSetup.getClientFacingPorts(freePorts,
+          SERVERS);
+      Map<Integer, Integer> serverPorts = SpdzSetup.getInternalPorts(freePorts, SERVERS);
+      Map<Integer, String> partiesToIps = SpdzSetupUtils.getLocalhostMap(serverPorts);
+      List<Future<SpdzWithIO>> starts = new ArrayList<>();
+      for (int i = 1; i <= SERVERS; i++) {
+        final int serverId = i;
+        starts.add(es.submit(() -> SpdzWithIO.builder(serverId, clientFacingPorts, serverPorts)
+            .inputAdmission(admission)
+            .outputParties(Collections.singletonList(OUTPUT_PARTY))
+            .partiesToIps(partiesToIps)
+            .inputServerProducer(
+                (endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer))
+            .outputServerProducer(
+                (endpoint, sessionProducer) -> new JnoOutputServer<>(endpoint, sessionProducer))
+            .protocol(protocol)
+            .build()));
+      }
+      this.servers = new ArrayList<>();
+      this.runs = new ArrayList<>();
+      for (Future<SpdzWithIO> start : starts) {
+        SpdzWithIO server = start.get();
+        servers.add(server);
+        runs.add(es.submit(() -> IoFixtures.sumInputs(server, OUTPUT_PARTY, INPUTS).size()));
+      }
+      this.parties = IoFixtures.parties(clientFacingPorts);
+    }
+
+    /**
+     * Waits for server 1 to turn away the given number of clients.
+     */
+    void awaitTurnedAway(int clients) throws InterruptedException {
+      Counter failures = servers.get(0).getMetrics().counter("client.handshakeFailures");
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+      while (failures.getCount() < clients) {
+        assertTrue(System.nanoTime() < deadline, "Client was not turned away");
+        Thread.sleep(10);
+      }
+    }
+
+    /**
+     * Checks that the output client receives the sums of the inputs of the given clients, and that
+     * the servers admitted just these clients.
+     */
+    void assertOutputs(List<Integer> clientIds) throws Exception {
+      assertEquals(sums(0, clientIds, INPUTS),
+          outputClient(protocol, INPUTS, OUTPUT_PARTY, parties).getBigIntegerOutputs());
+      for (Future<Integer> run : runs) {
+        assertEquals(clientIds.size(), (int) run.get());
+      }
+    }
+
+    @Override
+    public void close() {
+      for (SpdzWithIO server : servers) {
+        server.shutdown();
+      }
+      es.shutdownNow();
+    }
+  }
+
+}
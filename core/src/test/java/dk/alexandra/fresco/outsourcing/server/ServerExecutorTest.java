@@ -0,0 +1,126 @@
+package dk.alexandra.fresco.outsourcing.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class ServerExecutorTest {
+
+  private static final int TASKS = 20;
+
+  @Test
+  public void testRunsSessionsConcurrently() throws Exception {
+    try (ServerExecutor serverExecutor = new ServerExecutor(TASKS, 1)) {
+      ExecutorService first = serverExecutor.create("First");
+      ExecutorService second = serverExecutor.create("Second");
+      CountDownLatch started = new CountDownLatch(TASKS);
+      List<Future<String>> futures = new ArrayList<>(TASKS);
+      for (int i = 0; i < TASKS; i++) {
+        ExecutorService executor = i % 2 == 0 ? first : second;
+        futures.add(executor.submit(() -> {
+          started.countDown();
+          assertTrue(started.await(10, TimeUnit.SECONDS));
+          return Thread.currentThread().getName();
+        }));
+      }
+      for (int i = 0; i < TASKS; i++) {
+        String name = futures.get(i).get(10, TimeUnit.SECONDS);
+        assertTrue(name.startsWith(i % 2 == 0 ? "First (" : "Second ("));
+      }
+      first.shutdown();
+      second.shutdown();
+      assertTrue(first.awaitTermination(10, TimeUnit.SECONDS));
+      assertTrue(second.awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(TASKS, serverExecutor.getLargestPoolSize());
+      assertEquals(0, serverExecutor.getBlockedSubmissions());
+    }
+  }
+
+  @Test
+  public void testBlocksWhenQueueIsFull() throws Exception {
+    try (ServerExecutor serverExecutor = new ServerExecutor(1, 1)) {
+      ExecutorService executor = serverExecutor.create("Test");
+      CountDownLatch release = new CountDownLatch(1);
+      executor.execute(() -> await(release));
+      executor.execute(() -> {
+      });
+      assertEquals(1, serverExecutor.getQueuedTasks());
+      Thread submitter = new Thread(() -> executor.execute(() -> {
+      }));
+      submitter.start();
+      while (serverExecutor.getBlockedSubmissions() == 0) {
+        Thread.sleep(10);
+      }
+      assertTrue(submitter.isAlive());
+      release.countDown();
+      submitter.join(10000);
+      assertFalse(submitter.isAlive());
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(1, serverExecutor.getBlockedSubmissions());
+      assertEquals(3, serverExecutor.getCompletedTasks());
+    }
+  }
+
+  @Test
+  public void testSessionShutdown() throws Exception {
+    try (ServerExecutor serverExecutor = new ServerExecutor(2, 1)) {
+      ExecutorService finished = serverExecutor.create("Finished");
+      ExecutorService running = serverExecutor.create("Running");
+      CountDownLatch release = new CountDownLatch(1);
+      running.execute(() -> await(release));
+      finished.execute(() -> {
+      });
+      finished.shutdown();
+      running.shutdown();
+      assertThrows(RejectedExecutionException.class, () -> finished.execute(() -> {
+      }));
+      assertTrue(finished.awaitTermination(10, TimeUnit.SECONDS));
+      assertFalse(running.awaitTermination(100, TimeUnit.MILLISECONDS));
+      release.countDown();
+      assertTrue(running.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    ServerExecutor serverExecutor = new ServerExecutor(1, 1);
+    ExecutorService executor = serverExecutor.create("Test");
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    executor.execute(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(10000);
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+    });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertFalse(serverExecutor.shutdown(100, TimeUnit.MILLISECONDS));
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(interrupted.get());
+    assertThrows(RejectedExecutionException.class, () -> serverExecutor.create("Other")
+        .execute(() -> {
+        }));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,8 +1,15 @@
 package dk.alexandra.fresco.outsourcing.server.ddnnt;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
 import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.client.ServerIoMode;
 import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntInputClient;
+import dk.alexandra.fresco.outsourcing.metrics.MetricsRegistry;
+import dk.alexandra.fresco.outsourcing.network.NetworkStats;
 import dk.alexandra.fresco.outsourcing.server.GenericInputServerTest;
 import dk.alexandra.fresco.outsourcing.server.TestDataGenerator;
 import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
@@ -16,9 +23,12 @@ import org.junit.jupiter.api.Test;
  */
 public class DdnntInputServerTest extends GenericInputServerTest {
 
+  private ServerIoMode serverIoMode = ServerIoMode.CONCURRENT;
+
   @Override
   protected InputClient getInputClient(int inputsPerClient, int id, List<Party> servers) {
-        return new DdnntInputClient(inputsPerClient, id, servers);
+        return new DdnntInputClient(inputsPerClient, id, servers, BigIntegerFieldDefinition::new,
+            serverIoMode);
   }
 
   @Override
@@ -44,4 +54,44 @@ public class DdnntInputServerTest extends GenericInputServerTest {
     testInputsOnly();
   }
 
+  @Test
+  public void testSequentialServerIo() throws Exception {
+    serverIoMode = ServerIoMode.SEQUENTIAL;
+    setTestRunner(new TestDataGenerator(Protocol.DDNNT, 10, 2, 0, 0, 3));
+    testInputsOnly();
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    setTestRunner(new TestDataGenerator(Protocol.DDNNT, 10, 2, 0, 0, 3));
+    testInputsOnly();
+    assertEquals(3, serverMetrics.size());
+    for (MetricsRegistry metrics : serverMetrics) {
+      assertEquals(2, metrics.timer("client.handshake").getDurations().getCount());
+      assertEquals(2, metrics.timer("ddnnt.input.tripleFetch").getDurations().getCount());
+      assertEquals(2, metrics.timer("ddnnt.input.client").getDurations().getCount());
+      assertEquals(1, metrics.timer("ddnnt.input.unmask").getDurations().getCount());
+      assertEquals(1, metrics.timer("ddnnt.input.hashBroadcast").getDurations().getCount());
+      assertEquals(0L,
+          metrics.getMetrics().get("input.sessions.queued").getValues().get("value"));
+      NetworkStats clients = stats(metrics, "client.network");
+      assertTrue(clients.getBytesReceived() > 0);
+      assertTrue(clients.getBytesSent() > 0);
+      assertEquals(clients.getBytesSent(), metrics.counter("client.network.bytesSent").getCount());
+      assertEquals(clients.getBytesReceived(),
+          metrics.counter("client.network.bytesReceived").getCount());
+      assertEquals(6, stats(metrics, "ddnnt.input.network.clientSend").getMessagesSent());
+      assertEquals(2, stats(metrics, "ddnnt.input.network.clientReceive").getMessagesReceived());
+      NetworkStats hashBroadcast = stats(metrics, "ddnnt.input.network.hashBroadcast");
+      assertEquals(2, hashBroadcast.getMessagesSent());
+      assertEquals(2, hashBroadcast.getMessagesReceived());
+      assertTrue(stats(metrics, "server.network").getBytesSent()
+          >= hashBroadcast.getBytesSent());
+    }
+  }
+
+  private static NetworkStats stats(MetricsRegistry metrics, String name) {
+    return metrics.getOrCreate(name, NetworkStats.class, NetworkStats::new);
+  }
+
 }
@@ -1,6 +1,7 @@
 package dk.alexandra.fresco.outsourcing.server.ddnnt;
 
 import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
 import dk.alexandra.fresco.outsourcing.client.OutputClient;
 import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntOutputClient;
 import dk.alexandra.fresco.outsourcing.server.GenericOutputServerTest;
@@ -12,9 +13,11 @@ import org.junit.jupiter.api.Test;
 
 public class DdnntOutputServerTest extends GenericOutputServerTest {
 
+    private boolean batchedOutput = true;
+
     @Override
     protected OutputClient getOutputClient(int id, List<Party> servers) {
-        return new DdnntOutputClient(id, servers);
+        return new DdnntOutputClient(id, servers, BigIntegerFieldDefinition::new, batchedOutput);
     }
     @Override
     protected OutputServerProducer getOutputServerProducer() {
@@ -38,4 +41,11 @@ public class DdnntOutputServerTest extends GenericOutputServerTest {
         setTestRunner(new TestDataGenerator(Protocol.DDNNT, 0, 0, 3, 2, 5));
         testClientOutput();
     }
+
+    @Test
+    public void testUnbatchedOutput() throws Exception {
+        batchedOutput = false;
+        setTestRunner(new TestDataGenerator(Protocol.DDNNT, 0, 0, 10, 2, 3));
+        testClientOutput();
+    }
 }
@@ -0,0 +1,43 @@
+package dk.alexandra.fresco.outsourcing.server.ddnnt;
+
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.DdnntInputClient;
+import dk.alexandra.fresco.outsourcing.server.GenericInputServerTest;
+import dk.alexandra.fresco.outsourcing.server.TestDataGenerator;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.InputServerProducer;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A full functional test of the DDNNT input server unmasking client inputs in micro-batches.
+ */
+public class DdnntStreamingInputServerTest extends GenericInputServerTest {
+
+  private static final int BATCH_SIZE = 2;
+
+  @Override
+  protected InputClient getInputClient(int inputsPerClient, int id, List<Party> servers) {
+    return new DdnntInputClient(inputsPerClient, id, servers);
+  }
+
+  @Override
+  protected InputServerProducer getInputServerProducer() {
+    return ((endpoint, sessionProducer) ->
+        new DdnntInputServer<>(endpoint, sessionProducer, BATCH_SIZE));
+  }
+
+  @Test
+  public void testUnevenBatches() throws Exception {
+    setTestRunner(new TestDataGenerator(Protocol.DDNNT, 3, 5, 0, 0, 3));
+    testInputsOnly();
+  }
+
+  @Test
+  public void testEvenBatches() throws Exception {
+    setTestRunner(new TestDataGenerator(Protocol.DDNNT, 10, 4, 0, 0, 2));
+    testInputsOnly();
+  }
+
+}
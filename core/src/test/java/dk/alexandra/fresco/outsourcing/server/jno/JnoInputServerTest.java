@@ -1,27 +1,42 @@
 package dk.alexandra.fresco.outsourcing.server.jno;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import dk.alexandra.fresco.framework.Party;
 import dk.alexandra.fresco.framework.builder.numeric.field.BigIntegerFieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
 import dk.alexandra.fresco.framework.util.AesCtrDrbg;
 import dk.alexandra.fresco.outsourcing.client.InputClient;
 import dk.alexandra.fresco.outsourcing.client.jno.JnoInputClient;
+import dk.alexandra.fresco.outsourcing.field.FieldType;
 import dk.alexandra.fresco.outsourcing.server.GenericInputServerTest;
 import dk.alexandra.fresco.outsourcing.server.TestDataGenerator;
 import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import dk.alexandra.fresco.outsourcing.utils.ExecutorFactory;
 import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils.InputServerProducer;
+import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 
 public class JnoInputServerTest extends GenericInputServerTest {
 
+    private boolean singleFramePayload = true;
+    private Function<BigInteger, FieldDefinition> definitionSupplier =
+        BigIntegerFieldDefinition::new;
+    private ExecutorFactory executorFactory = ExecutorFactory.platformThreads();
+
     @Override
     protected InputClient getInputClient(int inputsPerClient, int id, List<Party> servers) {
-        return new JnoInputClient(inputsPerClient, id, servers, BigIntegerFieldDefinition::new, new AesCtrDrbg(new byte[32]));
+        return new JnoInputClient(inputsPerClient, id, servers, definitionSupplier,
+            new AesCtrDrbg(new byte[32]), singleFramePayload);
     }
 
     @Override
     protected InputServerProducer getInputServerProducer() {
-        return ((endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer));
+        return ((endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer,
+            executorFactory));
     }
 
     @Test
@@ -42,4 +57,31 @@ public class JnoInputServerTest extends GenericInputServerTest {
         testInputsOnly();
     }
 
+    @Test
+    public void testSeparatePayloadMessages() throws Exception {
+        singleFramePayload = false;
+        setTestRunner(new TestDataGenerator(Protocol.GENERIC, 10, 2, 0, 0, 3));
+        testInputsOnly();
+    }
+
+    @Test
+    public void testMontgomeryField() throws Exception {
+        definitionSupplier = FieldType.MONTGOMERY;
+        setTestRunner(new TestDataGenerator(Protocol.GENERIC, 10, 2, 0, 0, 3));
+        testInputsOnly();
+    }
+
+    @Test
+    public void testExecutorFactory() throws Exception {
+        AtomicInteger executors = new AtomicInteger();
+        executorFactory = name -> {
+            executors.incrementAndGet();
+            return ExecutorFactory.platformThreads().create(name);
+        };
+        setTestRunner(new TestDataGenerator(Protocol.GENERIC, 10, 2, 0, 0, 3));
+        testInputsOnly();
+        // One executor for the input session, and one for the client sessions, of each server
+        assertEquals(6, executors.get());
+    }
+
 }
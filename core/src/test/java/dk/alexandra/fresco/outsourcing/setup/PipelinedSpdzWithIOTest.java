@@ -0,0 +1,228 @@
+package dk.alexandra.fresco.outsourcing.setup;
+
+import static dk.alexandra.fresco.outsourcing.IoFixtures.inputClient;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.inputs;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.outputClient;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.sums;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.IoFixtures;
+import dk.alexandra.fresco.outsourcing.client.InputClient;
+import dk.alexandra.fresco.outsourcing.client.OutputClient;
+import dk.alexandra.fresco.outsourcing.metrics.Timer;
+import dk.alexandra.fresco.outsourcing.server.jno.JnoInputServer;
+import dk.alexandra.fresco.outsourcing.server.jno.JnoOutputServer;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.Test;
+
+public class PipelinedSpdzWithIOTest {
+
+  private static final int SERVERS = 2;
+  private static final int EPOCHS = 3;
+  private static final int INPUTS = 2;
+  private static final List<Integer> INPUT_PARTIES = Arrays.asList(1, 2);
+  private static final List<Integer> OUTPUT_PARTIES = Arrays.asList(3);
+  private static final int TIMEOUT_SECONDS = 30;
+
+  @Test
+  public void testJnoEpochs() throws Exception {
+    runEpochs(Protocol.GENERIC, false);
+  }
+
+  @Test
+  public void testDdnntEpochs() throws Exception {
+    runEpochs(Protocol.DDNNT, false);
+  }
+
+  @Test
+  public void testDdnntEpochsWithPrefetchedTriples() throws Exception {
+    runEpochs(Protocol.DDNNT, true);
+  }
+
+  @Test
+  public void testInputsOfNextEpochReceivedWhileComputing() throws Exception {
+    int epochs = 2;
+    CountDownLatch computing = new CountDownLatch(SERVERS);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> freePorts = SpdzSetup.getFreePorts(2 * SERVERS);
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      List<PipelinedSpdzWithIO> servers = startServers(Protocol.GENERIC, false, freePorts, es);
+      List<Future<Integer>> serverRuns = new ArrayList<>();
+      for (PipelinedSpdzWithIO server : servers) {
+        serverRuns.add(es.submit(() -> runServer(server, epochs, epoch -> {
+          // Epoch 0 holds the resource pool until released
+          if (epoch == 0) {
+            computing.countDown();
+            awaitQuietly(release);
+          }
+        })));
+      }
+      List<Party> parties = parties(freePorts);
+      List<Future<List<BigInteger>>> outputs = new ArrayList<>();
+      outputs.add(runClients(Protocol.GENERIC, 0, parties, es));
+      assertTrue(computing.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      outputs.add(runClients(Protocol.GENERIC, 1, parties, es));
+      for (PipelinedSpdzWithIO server : servers) {
+        Timer received = server.getMetrics().timer("jno.input.clientReceive");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (received.getDurations().getCount() < epochs * INPUT_PARTIES.size()) {
+          assertTrue(System.nanoTime() < deadline, "Inputs of epoch 1 not received");
+          Thread.sleep(10);
+        }
+      }
+      // Epoch 0 is still computing, so neither epoch has given its outputs
+      for (Future<Integer> serverRun : serverRuns) {
+        assertFalse(serverRun.isDone());
+      }
+      assertFalse(outputs.get(0).isDone());
+      release.countDown();
+      for (int epoch = 0; epoch < epochs; epoch++) {
+        assertEquals(expected(epoch), outputs.get(epoch).get());
+      }
+      for (Future<Integer> serverRun : serverRuns) {
+        assertEquals(epochs, (int) serverRun.get());
+      }
+      for (PipelinedSpdzWithIO server : servers) {
+        server.shutdown();
+      }
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  private void runEpochs(Protocol protocol, boolean prefetchTriples) throws Exception {
+    List<Integer> freePorts = SpdzSetup.getFreePorts(2 * SERVERS);
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      List<PipelinedSpdzWithIO> servers = startServers(protocol, prefetchTriples, freePorts, es);
+      List<Future<Integer>> serverRuns = new ArrayList<>();
+      for (PipelinedSpdzWithIO server : servers) {
+        serverRuns.add(es.submit(() -> runServer(server, EPOCHS, epoch -> {
+        })));
+      }
+      List<Party> parties = parties(freePorts);
+      // The clients of an epoch register before the clients of the next epoch connect, so all
+      // clients are assigned to the intended epoch
+      List<Future<List<BigInteger>>> outputs = new ArrayList<>();
+      for (int epoch = 0; epoch < EPOCHS; epoch++) {
+        outputs.add(runClients(protocol, epoch, parties, es));
+      }
+      for (int epoch = 0; epoch < EPOCHS; epoch++) {
+        assertEquals(expected(epoch), outputs.get(epoch).get());
+      }
+      for (Future<Integer> serverRun : serverRuns) {
+        assertEquals(EPOCHS, (int) serverRun.get());
+      }
+      for (PipelinedSpdzWithIO server : servers) {
+        assertEquals(EPOCHS, server.getMetrics().timer("epoch.session").getDurations().getCount());
+        server.shutdown();
+      }
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  private static List<PipelinedSpdzWithIO> startServers(Protocol protocol,
+      boolean prefetchTriples, List<Integer> freePorts, ExecutorService es) throws Exception {
+    Map<Integer, Integer> clientFacingPorts = SpdzSetup.getClientFacingPorts(freePorts, SERVERS);
+    Map<Integer, Integer> serverPorts = SpdzSetup.getInternalPorts(freePorts, SERVERS);
+    Map<Integer, String> partiesToIps = SpdzSetupUtils.getLocalhostMap(serverPorts);
+    List<Future<PipelinedSpdzWithIO>> starts = new ArrayList<>();
+    for (int i = 1; i <= SERVERS; i++) {
+      final int serverId = i;
+      starts.add(es.submit(() -> SpdzWithIO.builder(serverId, clientFacingPorts, serverPorts)
+          .inputParties(INPUT_PARTIES)
+          .outputParties(OUTPUT_PARTIES)
+          .partiesToIps(partiesToIps)
+          .inputServerProducer(
+              (endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer))
+          .outputServerProducer(
+              (endpoint, sessionProducer) -> new JnoOutputServer<>(endpoint, sessionProducer))
+          .bitLength(64)
+          .protocol(protocol)
+          .prefetchTriples(prefetchTriples)
+          .buildPipelined()));
+    }
+    List<PipelinedSpdzWithIO> servers = new ArrayList<>();
+    for (Future<PipelinedSpdzWithIO> start : starts) {
+      servers.add(start.get());
+    }
+    return servers;
+  }
+
+  private static List<Party> parties(List<Integer> freePorts) {
+    return IoFixtures.parties(SpdzSetup.getClientFacingPorts(freePorts, SERVERS));
+  }
+
+  /**
+   * Registers the clients of an epoch, and lets the input clients send their inputs.
+   *
+   * @return the outputs received by the output client
+   */
+  private static Future<List<BigInteger>> runClients(Protocol protocol, int epoch,
+      List<Party> parties, ExecutorService es) throws Exception {
+    List<Future<InputClient>> inputClients = new ArrayList<>();
+    for (int clientId : INPUT_PARTIES) {
+      inputClients.add(es.submit(() -> inputClient(protocol, INPUTS, clientId, parties)));
+    }
+    Future<OutputClient> outputClient = es.submit(
+        () -> outputClient(protocol, INPUTS, OUTPUT_PARTIES.get(0), parties));
+    for (int i = 0; i < inputClients.size(); i++) {
+      InputClient client = inputClients.get(i).get();
+      List<BigInteger> values = inputs(base(epoch), INPUT_PARTIES.get(i), INPUTS);
+      es.submit(() -> client.putBigIntegerInputs(values));
+    }
+    OutputClient client = outputClient.get();
+    return es.submit(client::getBigIntegerOutputs);
+  }
+
+  private static int runServer(PipelinedSpdzWithIO server, int epochs, IntConsumer computing) {
+    for (int i = 0; i < epochs; i++) {
+      try (PipelinedSpdzWithIO.Epoch epoch = server.nextEpoch()) {
+        assertEquals(i, epoch.getNumber());
+        Map<Integer, List<SInt>> inputs = epoch.receiveInputs();
+        List<SInt> sums = epoch.run(builder -> {
+          computing.accept(epoch.getNumber());
+          return IoFixtures.sum(inputs, INPUTS).buildComputation(builder);
+        });
+        epoch.sendOutputsTo(OUTPUT_PARTIES.get(0), sums);
+      }
+    }
+    return epochs;
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static List<BigInteger> expected(int epoch) {
+    return sums(base(epoch), INPUT_PARTIES, INPUTS);
+  }
+
+  // Each epoch has inputs of its own
+  private static int base(int epoch) {
+    return 1000 * epoch;
+  }
+
+}
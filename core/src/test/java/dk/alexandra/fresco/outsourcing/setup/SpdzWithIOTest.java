@@ -0,0 +1,197 @@
+package dk.alexandra.fresco.outsourcing.setup;
+
+import static dk.alexandra.fresco.outsourcing.IoFixtures.inputClient;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.inputs;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.outputClient;
+import static dk.alexandra.fresco.outsourcing.IoFixtures.sums;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dk.alexandra.fresco.framework.DRes;
+import dk.alexandra.fresco.framework.Party;
+import dk.alexandra.fresco.framework.value.SInt;
+import dk.alexandra.fresco.outsourcing.IoFixtures;
+import dk.alexandra.fresco.outsourcing.client.ddnnt.TripleFileWriter;
+import dk.alexandra.fresco.outsourcing.field.FieldType;
+import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO.Protocol;
+import dk.alexandra.fresco.outsourcing.utils.SpdzSetupUtils;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class SpdzWithIOTest {
+
+  private static final int SERVERS = 2;
+  private static final int INPUTS = 3;
+  private static final int PRODUCTS = 100;
+  private static final int OUTPUT_PARTY = 10;
+  private static final List<Integer> INPUT_PARTIES = Arrays.asList(1, 2);
+
+  @Test
+  public void testPrefetchingTriplesWhileComputing() throws Exception {
+    prefetchTriplesWhileComputing(true);
+  }
+
+  @Test
+  public void testPrefetchingMascotTriplesWhileComputing() throws Exception {
+    prefetchTriplesWhileComputing(false);
+  }
+
+  private static void prefetchTriplesWhileComputing(boolean dummy) throws Exception {
+    List<Integer> freePorts = SpdzSetup.getFreePorts(2 * SERVERS);
+    Map<Integer, Integer> clientFacingPorts = SpdzSetup.getClientFacingPorts(freePorts, SERVERS);
+    Map<Integer, Integer> serverPorts = SpdzSetup.getInternalPorts(freePorts, SERVERS);
+    Map<Integer, String> partiesToIps = SpdzSetupUtils.getLocalhostMap(serverPorts);
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      List<Future<List<BigInteger>>> serverRuns = new ArrayList<>();
+      for (int i = 1; i <= SERVERS; i++) {
+        final int serverId = i;
+        serverRuns.add(es.submit(() -> runServer(dummy ? 0 : 1,
+            SpdzWithIO.builder(serverId, clientFacingPorts, serverPorts)
+                .inputParties(INPUT_PARTIES)
+                .outputParties(Collections.singletonList(OUTPUT_PARTY))
+                .partiesToIps(partiesToIps)
+                .dummy(dummy)
+                .prefetchTriples(true)
+                .build())));
+      }
+      List<Party> parties = IoFixtures.parties(clientFacingPorts);
+      // The clients register, and their triples are prefetched, while the servers compute
+      for (int clientId : INPUT_PARTIES) {
+        es.submit(() -> inputClient(Protocol.DDNNT, INPUTS, clientId, parties)
+            .putBigIntegerInputs(inputs(0, clientId, INPUTS)));
+      }
+      assertEquals(sums(0, INPUT_PARTIES, INPUTS),
+          outputClient(Protocol.DDNNT, INPUTS, OUTPUT_PARTY, parties).getBigIntegerOutputs());
+      List<BigInteger> products = new ArrayList<>();
+      for (int i = 0; i < PRODUCTS; i++) {
+        products.add(BigInteger.valueOf(i * (i + 1)));
+      }
+      for (Future<List<BigInteger>> serverRun : serverRuns) {
+        assertEquals(products, serverRun.get());
+      }
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTriplesGeneratedOffline() throws Exception {
+    List<Path> files = new ArrayList<>();
+    for (int i = 0; i < SERVERS; i++) {
+      Path file = Files.createTempFile("tuples", ".bin");
+      Files.delete(file);
+      files.add(file);
+    }
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      // Offline, the servers generate the tuples of the clients with a new MAC key
+      Map<Integer, Integer> offlinePorts =
+          SpdzSetup.getInternalPorts(SpdzSetup.getFreePorts(2 * SERVERS), SERVERS);
+      List<Future<Object>> offlineRuns = new ArrayList<>();
+      for (int i = 1; i <= SERVERS; i++) {
+        final int serverId = i;
+        offlineRuns.add(es.submit(() -> {
+          SpdzSetup setup = SpdzSetupUtils.getMascotSetup(serverId, offlinePorts,
+              SpdzSetupUtils.getLocalhostMap(offlinePorts), SpdzSetupUtils.DEFAULT_BITLENGTH,
+              FieldType.BIG_INTEGER, files.get(serverId - 1));
+          TripleFileWriter.generate(files.get(serverId - 1), setup.getRp(),
+              INPUT_PARTIES.size() * INPUTS);
+          return null;
+        }));
+      }
+      for (Future<Object> offlineRun : offlineRuns) {
+        offlineRun.get();
+      }
+      // Online, the MAC key is restored from the files
+      List<Integer> freePorts = SpdzSetup.getFreePorts(2 * SERVERS);
+      Map<Integer, Integer> clientFacingPorts =
+          SpdzSetup.getClientFacingPorts(freePorts, SERVERS);
+      Map<Integer, Integer> serverPorts = SpdzSetup.getInternalPorts(freePorts, SERVERS);
+      List<Future<BigInteger>> serverRuns = new ArrayList<>();
+      for (int i = 1; i <= SERVERS; i++) {
+        final int serverId = i;
+        serverRuns.add(es.submit(() -> openFirstInput(
+            SpdzWithIO.builder(serverId, clientFacingPorts, serverPorts)
+                .inputParties(INPUT_PARTIES)
+                .outputParties(Collections.singletonList(OUTPUT_PARTY))
+                .dummy(false)
+                .tripleFile(files.get(serverId - 1))
+                .build())));
+      }
+      List<Party> parties = IoFixtures.parties(clientFacingPorts);
+      for (int clientId : INPUT_PARTIES) {
+        es.submit(() -> inputClient(Protocol.DDNNT, INPUTS, clientId, parties)
+            .putBigIntegerInputs(inputs(0, clientId, INPUTS)));
+      }
+      assertEquals(sums(0, INPUT_PARTIES, INPUTS),
+          outputClient(Protocol.DDNNT, INPUTS, OUTPUT_PARTY, parties).getBigIntegerOutputs());
+      for (Future<BigInteger> serverRun : serverRuns) {
+        assertEquals(inputs(0, INPUT_PARTIES.get(0), INPUTS).get(0), serverRun.get());
+      }
+    } finally {
+      es.shutdownNow();
+      for (Path file : files) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Test
+  public void testPrefetchingTriplesNeedsDdnnt() {
+    List<Integer> freePorts = SpdzSetup.getFreePorts(2 * SERVERS);
+    Map<Integer, Integer> serverPorts = SpdzSetup.getInternalPorts(freePorts, SERVERS);
+    assertThrows(IllegalArgumentException.class, () -> SpdzWithIO.builder(1,
+        SpdzSetup.getClientFacingPorts(freePorts, SERVERS), serverPorts)
+        .inputParties(INPUT_PARTIES)
+        .outputParties(Collections.singletonList(OUTPUT_PARTY))
+        .protocol(Protocol.GENERIC)
+        .prefetchTriples(true)
+        .build());
+  }
+
+  private static BigInteger openFirstInput(SpdzWithIO server) {
+    Map<Integer, List<SInt>> inputs = IoFixtures.sumInputs(server, OUTPUT_PARTY, INPUTS);
+    // Opening checks the MAC of the input, which is derived from a tuple of the file
+    BigInteger opened = server.run(
+        builder -> builder.numeric().open(inputs.get(INPUT_PARTIES.get(0)).get(0)));
+    server.shutdown();
+    return opened;
+  }
+
+  private static List<BigInteger> runServer(int prefetcherLeases, SpdzWithIO server) {
+    // Multiplying takes triples from the data supplier of the computation
+    List<BigInteger> products = server.run(builder -> {
+      List<DRes<BigInteger>> opened = new ArrayList<>();
+      for (int i = 0; i < PRODUCTS; i++) {
+        DRes<SInt> product = builder.numeric().mult(builder.numeric().known(i),
+            builder.numeric().known(i + 1));
+        opened.add(builder.numeric().open(product));
+      }
+      return () -> {
+        List<BigInteger> out = new ArrayList<>();
+        for (DRes<BigInteger> o : opened) {
+          out.add(o.out());
+        }
+        return out;
+      };
+    });
+    IoFixtures.sumInputs(server, OUTPUT_PARTY, INPUTS);
+    // The input and output sessions returned their channels when they ended, while a MASCOT
+    // prefetcher keeps its channel until shut down
+    assertEquals(prefetcherLeases, server.serverNetworkPool.getActiveLeases());
+    server.shutdown();
+    return products;
+  }
+
+}
@@ -0,0 +1,80 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldDefinition;
+import dk.alexandra.fresco.framework.builder.numeric.field.FieldElement;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzSInt;
+import dk.alexandra.fresco.suite.spdz.datatypes.SpdzTriple;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+public class DummyTripleSupplierTest {
+
+  private static final int PARTIES = 3;
+  private static final int TRIPLES = 10;
+  private static final FieldDefinition DEFINITION =
+      SpdzSetupUtils.getFieldDefinition(SpdzSetupUtils.DEFAULT_BITLENGTH);
+
+  @Test
+  public void testTriplesAreMultiplicationTriples() {
+    List<Supplier<SpdzTriple>> suppliers = new ArrayList<>();
+    BigInteger macKey = BigInteger.ZERO;
+    for (int partyId = 1; partyId <= PARTIES; partyId++) {
+      BigInteger sskShare = BigInteger.valueOf(partyId * 7);
+      macKey = macKey.add(sskShare);
+      suppliers.add(SpdzSetupUtils.getDummyTripleSupplier(partyId, PARTIES, DEFINITION,
+          DEFINITION.createElement(sskShare)));
+    }
+    for (int i = 0; i < TRIPLES; i++) {
+      List<SpdzTriple> shares = new ArrayList<>();
+      for (Supplier<SpdzTriple> supplier : suppliers) {
+        shares.add(supplier.get());
+      }
+      BigInteger a = open(shares, SpdzTriple::getA, macKey);
+      BigInteger b = open(shares, SpdzTriple::getB, macKey);
+      BigInteger c = open(shares, SpdzTriple::getC, macKey);
+      assertEquals(a.multiply(b).mod(DEFINITION.getModulus()), c);
+    }
+  }
+
+  @Test
+  public void testTriplesDifferFromDataSupplier() {
+    FieldElement sskShare = DEFINITION.createElement(DEFINITION.getModulus());
+    Supplier<SpdzTriple> triples =
+        SpdzSetupUtils.getDummyTripleSupplier(1, PARTIES, DEFINITION, sskShare);
+    Supplier<SpdzTriple> dataSupplier =
+        SpdzSetupUtils.getDummyDataSupplier(1, PARTIES, DEFINITION)::getNextTriple;
+    for (int i = 0; i < TRIPLES; i++) {
+      assertNotEquals(value(triples.get().getA().getShare()),
+          value(dataSupplier.get().getA().getShare()));
+    }
+  }
+
+  /**
+   * Opens an element of the shares of a triple, checking its MAC.
+   */
+  private static BigInteger open(List<SpdzTriple> shares, Function<SpdzTriple, SpdzSInt> element,
+      BigInteger macKey) {
+    BigInteger value = BigInteger.ZERO;
+    BigInteger mac = BigInteger.ZERO;
+    for (SpdzTriple share : shares) {
+      value = value.add(value(element.apply(share).getShare()));
+      mac = mac.add(value(element.apply(share).getMac()));
+    }
+    BigInteger modulus = DEFINITION.getModulus();
+    value = value.mod(modulus);
+    assertEquals(value.multiply(macKey).mod(modulus), mac.mod(modulus));
+    return value;
+  }
+
+  private static BigInteger value(FieldElement element) {
+    return DEFINITION.convertToUnsigned(element);
+  }
+
+}
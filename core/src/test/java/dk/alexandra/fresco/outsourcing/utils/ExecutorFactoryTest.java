@@ -0,0 +1,55 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class ExecutorFactoryTest {
+
+  private static final int TASKS = 20;
+
+  @Test
+  public void testPlatformThreads() throws Exception {
+    assertRunsConcurrently(ExecutorFactory.platformThreads());
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    if (ExecutorFactory.isVirtualThreadsSupported()) {
+      assertRunsConcurrently(ExecutorFactory.virtualThreads());
+    } else {
+      assertThrows(UnsupportedOperationException.class, ExecutorFactory::virtualThreads);
+    }
+  }
+
+  /**
+   * Runs tasks that can only finish once all of them are running, as the tasks of the servers do.
+   */
+  private void assertRunsConcurrently(ExecutorFactory factory) throws Exception {
+    ExecutorService executor = factory.create("Test");
+    try {
+      CountDownLatch started = new CountDownLatch(TASKS);
+      List<Future<String>> futures = new ArrayList<>(TASKS);
+      for (int i = 0; i < TASKS; i++) {
+        futures.add(executor.submit(() -> {
+          started.countDown();
+          assertTrue(started.await(10, TimeUnit.SECONDS));
+          return Thread.currentThread().getName();
+        }));
+      }
+      for (Future<String> future : futures) {
+        assertEquals("Test-", future.get(10, TimeUnit.SECONDS).substring(0, 5));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
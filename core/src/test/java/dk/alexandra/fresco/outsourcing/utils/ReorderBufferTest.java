@@ -0,0 +1,112 @@
+package dk.alexandra.fresco.outsourcing.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class ReorderBufferTest {
+
+  @Test
+  public void testReleasesInSequence() {
+    ReorderBuffer<String> buffer = new ReorderBuffer<>(4);
+    buffer.put(2, "c");
+    buffer.put(1, "b");
+    assertNull(buffer.poll());
+    assertEquals(0, buffer.ready());
+    assertEquals(2, buffer.size());
+    assertTrue(buffer.contains(2));
+    assertFalse(buffer.contains(0));
+    buffer.put(0, "a");
+    assertEquals(3, buffer.ready());
+    assertEquals("a", buffer.poll());
+    assertEquals("b", buffer.poll());
+    assertEquals("c", buffer.poll());
+    assertNull(buffer.poll());
+    assertEquals(3, buffer.getNext());
+    assertEquals(0, buffer.size());
+    assertFalse(buffer.contains(2));
+  }
+
+  @Test
+  public void testOverflowsBeyondRing() {
+    ReorderBuffer<Integer> buffer = new ReorderBuffer<>(2);
+    for (int i = 9; i >= 0; i--) {
+      buffer.put(i, i);
+    }
+    assertEquals(10, buffer.ready());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, (int) buffer.poll());
+    }
+    assertFalse(buffer.isAvailable());
+  }
+
+  @Test
+  public void testRejectsDuplicates() {
+    ReorderBuffer<String> buffer = new ReorderBuffer<>(4);
+    buffer.put(1, "a");
+    assertThrows(IllegalArgumentException.class, () -> buffer.put(1, "b"));
+    buffer.put(0, "c");
+    buffer.poll();
+    assertThrows(IllegalArgumentException.class, () -> buffer.put(0, "d"));
+    assertEquals(1, buffer.size());
+  }
+
+  @Test
+  public void testAwaitStopsOnCondition() throws Exception {
+    ReorderBuffer<String> buffer = new ReorderBuffer<>();
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService es = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> waiting = es.submit(() -> buffer.await(done::get));
+      done.set(true);
+      buffer.wakeUp();
+      assertFalse(waiting.get());
+      buffer.put(0, "a");
+      assertTrue(buffer.await(done::get));
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    int elements = 10000;
+    int producers = 8;
+    List<Integer> sequences = new ArrayList<>();
+    for (int i = 0; i < elements; i++) {
+      sequences.add(i);
+    }
+    Collections.shuffle(sequences, new Random(42));
+    ReorderBuffer<Integer> buffer = new ReorderBuffer<>(64);
+    ExecutorService es = Executors.newFixedThreadPool(producers);
+    try {
+      for (int p = 0; p < producers; p++) {
+        final int offset = p;
+        es.submit(() -> {
+          for (int i = offset; i < elements; i += producers) {
+            buffer.put(sequences.get(i), sequences.get(i));
+          }
+        });
+      }
+      for (int i = 0; i < elements; i++) {
+        assertEquals(i, (int) buffer.take());
+      }
+      assertEquals(0, buffer.size());
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+}
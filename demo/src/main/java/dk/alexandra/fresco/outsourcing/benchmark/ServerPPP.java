@@ -6,10 +6,22 @@ import java.math.BigInteger;
 import java.util.Collections;
 import java.util.Map;
 
-public abstract class ServerPPP extends PPP {
-
+/**
+ * A server of a demo application, taking the inputs of client {@link #CLIENT_ID} and giving the
+ * output to client {@link #CLIENT_ID} + 1.
+ *
+ * <p>Each run sets up new servers in {@link #beforeEach()}, on ports above those of the previous
+ * run, runs the application in {@link #run()}, and shuts the servers down in {@link
+ * #afterEach()}.</p>
+ */
+public abstract class ServerPPP {
+
+  public static final int CLIENT_ID = 1;
   public static final BigInteger UID = BigInteger.valueOf(10);
   public static final BigInteger DELTA_SHARE = BigInteger.valueOf(100);
+  public final int maxServers;
+  public final Map<Integer, String> serverIdIpMap;
+  public final int bitLength;
   protected final int myId;
 
   protected int currentBasePort;
@@ -17,24 +29,24 @@ public abstract class ServerPPP extends PPP {
 
 
   public ServerPPP(int myId, Map<Integer, String> serverIdIpMap, int bitLength, int basePort) {
-    super(serverIdIpMap, bitLength);
+    this.maxServers = serverIdIpMap.size();
+    this.serverIdIpMap = serverIdIpMap;
+    this.bitLength = bitLength;
     this.myId = myId;
     this.currentBasePort = basePort;
   }
 
-
-  @Override
   public void beforeEach() {
     spdz = new SpdzWithIO(myId, maxServers, currentBasePort,
-        Collections.singletonList(ClientPPP.CLIENT_ID),
-        Collections.singletonList(ClientPPP.CLIENT_ID + 1), serverIdIpMap, bitLength);
+        Collections.singletonList(CLIENT_ID),
+        Collections.singletonList(CLIENT_ID + 1), serverIdIpMap, bitLength);
   }
 
-  @Override
+  public abstract void run();
+
   public void afterEach() {
     // Move base ports up
     currentBasePort += maxServers;
     spdz.shutdown();
-    System.gc();
   }
 }
@@ -5,8 +5,6 @@ import dk.alexandra.fresco.framework.DRes;
 import dk.alexandra.fresco.framework.builder.numeric.Numeric;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
 import dk.alexandra.fresco.framework.value.SInt;
-import dk.alexandra.fresco.outsourcing.benchmark.ClientPPP;
-import dk.alexandra.fresco.outsourcing.benchmark.Hole;
 import dk.alexandra.fresco.outsourcing.benchmark.ServerPPP;
 import dk.alexandra.fresco.outsourcing.setup.SpdzWithIO;
 import java.math.BigInteger;
@@ -33,24 +31,24 @@ public class RangeServer extends ServerPPP  {
 
   @Override
   public void beforeEach() {
-    spdz = new SpdzWithIO(myId, maxServers, currentBasePort, Collections.singletonList(ClientPPP.CLIENT_ID), Collections.singletonList(ClientPPP.CLIENT_ID+1), serverIdIpMap, bitLength);
+    spdz = new SpdzWithIO(myId, maxServers, currentBasePort, Collections.singletonList(CLIENT_ID), Collections.singletonList(CLIENT_ID+1), serverIdIpMap, bitLength);
     clientsInputs = spdz.receiveInputs();
   }
 
   @Override
-  public void run(Hole hole) {
+  public void run() {
     Application<BigInteger, ProtocolBuilderNumeric> app = builder -> {
       Numeric input = builder.numeric();
       DRes<SInt> hiddenLower = input.known(lower);
       DRes<SInt> hiddenUpper = input.known(upper);
       DRes<SInt> uid = input.known(UID);
-      List<DRes<SInt>> attributes = Arrays.asList(clientsInputs.get(ClientPPP.CLIENT_ID).get(0),
+      List<DRes<SInt>> attributes = Arrays.asList(clientsInputs.get(CLIENT_ID).get(0),
           uid);
       // MACs are stored in the list after attributes
       // First MAC is value MAC, second MAC is UID MAC
       List<DRes<SInt>> macs = Arrays.asList(
-          clientsInputs.get(ClientPPP.CLIENT_ID).get(1),
-          clientsInputs.get(ClientPPP.CLIENT_ID).get(2));
+          clientsInputs.get(CLIENT_ID).get(1),
+          clientsInputs.get(CLIENT_ID).get(2));
       int servers = serverIdIpMap.keySet().size();
       DRes<ServerInputModel> serverInput = builder.par(
           new ServerInputs(myId, DELTA_SHARE, BETA_SHARE, servers));
@@ -73,7 +71,7 @@ public class RangeServer extends ServerPPP  {
 
   @Override
   public void afterEach() {
-    spdz.sendOutputsTo(ClientPPP.CLIENT_ID + 1, res);
+    spdz.sendOutputsTo(CLIENT_ID + 1, res);
     // Move base ports up
     currentBasePort += maxServers;
     spdz.shutdown();
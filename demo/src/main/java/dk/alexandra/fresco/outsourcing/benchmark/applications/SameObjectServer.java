@@ -5,8 +5,6 @@ import dk.alexandra.fresco.framework.DRes;
 import dk.alexandra.fresco.framework.builder.numeric.Numeric;
 import dk.alexandra.fresco.framework.builder.numeric.ProtocolBuilderNumeric;
 import dk.alexandra.fresco.framework.value.SInt;
-import dk.alexandra.fresco.outsourcing.benchmark.ClientPPP;
-import dk.alexandra.fresco.outsourcing.benchmark.Hole;
 import dk.alexandra.fresco.outsourcing.benchmark.ServerPPP;
 import dk.alexandra.fresco.outsourcing.server.jno.JnoInputServer;
 import dk.alexandra.fresco.outsourcing.server.jno.JnoOutputServer;
@@ -44,8 +42,8 @@ public class SameObjectServer extends ServerPPP {
   @Override
   public void beforeEach() {
     spdz = new SpdzWithIO(myId, maxServers, currentBasePort,
-        Collections.singletonList(ClientPPP.CLIENT_ID),
-        Collections.singletonList(ClientPPP.CLIENT_ID + 1), serverIdIpMap,
+        Collections.singletonList(CLIENT_ID),
+        Collections.singletonList(CLIENT_ID + 1), serverIdIpMap,
         ((endpoint, sessionProducer) -> new JnoInputServer<>(endpoint, sessionProducer)),
         ((endpoint, sessionProducer) -> new JnoOutputServer<>(endpoint, sessionProducer)),
         bitLength, true,
@@ -54,14 +52,14 @@ public class SameObjectServer extends ServerPPP {
   }
 
   @Override
-  public void run(Hole hole) {
+  public void run() {
     Application<BigInteger, ProtocolBuilderNumeric> app = builder -> {
       Numeric input = builder.numeric();
       List<DRes<SInt>> refValues = new ArrayList<>();
       DRes<SInt> uid = input.known(UID);
       List<DRes<SInt>> attributes = new ArrayList<>();
       for (int i = 0; i < amountOfElements; i++) {
-        attributes.add(clientsInputs.get(ClientPPP.CLIENT_ID).get(i));
+        attributes.add(clientsInputs.get(CLIENT_ID).get(i));
         refValues.add(input.known(REF_VALUES.get(i)));
       }
       attributes.add(uid);
@@ -69,7 +67,7 @@ public class SameObjectServer extends ServerPPP {
       // MACs are stored in the list after attributes
       // First MAC is value MAC, second MAC is UID MAC
       for (int i = 0; i < amountOfElements + 1; i++) {
-        macs.add(clientsInputs.get(ClientPPP.CLIENT_ID).get(amountOfElements + i));
+        macs.add(clientsInputs.get(CLIENT_ID).get(amountOfElements + i));
       }
       int servers = serverIdIpMap.keySet().size();
       DRes<ServerInputModel> serverInput = builder.par(
@@ -94,7 +92,7 @@ public class SameObjectServer extends ServerPPP {
 
   @Override
   public void afterEach() {
-    spdz.sendOutputsTo(ClientPPP.CLIENT_ID + 1, res);
+    spdz.sendOutputsTo(CLIENT_ID + 1, res);
     // Move base ports up
     currentBasePort += maxServers;
     spdz.shutdown();